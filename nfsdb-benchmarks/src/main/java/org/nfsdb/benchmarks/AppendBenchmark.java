@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2014. Vlad Ilyushchenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.nfsdb.benchmarks;
+
+import com.nfsdb.journal.JournalWriter;
+import com.nfsdb.journal.exceptions.JournalException;
+import com.nfsdb.journal.factory.JournalFactory;
+import com.nfsdb.journal.test.model.Quote;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures JournalWriter.append() of sorted data and JournalWriter.appendLag() of data that interleaves
+ * with content of lag partition and has to be merged.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class AppendBenchmark {
+
+    @Param({"100000", "1000000"})
+    public int count;
+
+    private JournalFactory factory;
+    private List<Quote> data;
+    private List<Quote> lagHead;
+    private List<Quote> lagTail;
+    private JournalWriter<Quote> writer;
+    private int location = 0;
+
+    @Setup(Level.Trial)
+    public void setUp() throws JournalException {
+        factory = BenchmarkData.newFactory();
+        data = BenchmarkData.quotes(count, BenchmarkData.START, 1);
+        // lag data is two interleaved sequences so that second one cannot be appended without merge
+        lagHead = BenchmarkData.quotes(count / 2, BenchmarkData.START, 2);
+        lagTail = BenchmarkData.quotes(count / 2, BenchmarkData.START + 1, 2);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkData.close(factory);
+    }
+
+    @Setup(Level.Invocation)
+    public void setUpWriter() throws JournalException {
+        writer = factory.writer(Quote.class, "quote-" + (location++), count);
+    }
+
+    @TearDown(Level.Invocation)
+    public void tearDownWriter() {
+        writer.close();
+    }
+
+    @Benchmark
+    public JournalWriter<Quote> testAppend() throws JournalException {
+        writer.append(data);
+        writer.commit();
+        return writer;
+    }
+
+    @Benchmark
+    public JournalWriter<Quote> testAppendLag() throws JournalException {
+        writer.appendLag(lagHead);
+        writer.appendLag(lagTail);
+        writer.commit();
+        return writer;
+    }
+}
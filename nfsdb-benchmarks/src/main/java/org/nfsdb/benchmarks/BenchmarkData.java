@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2014. Vlad Ilyushchenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.nfsdb.benchmarks;
+
+import com.nfsdb.journal.exceptions.JournalConfigurationException;
+import com.nfsdb.journal.factory.JournalFactory;
+import com.nfsdb.journal.test.model.Quote;
+import com.nfsdb.journal.utils.Dates;
+import com.nfsdb.journal.utils.Files;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+final class BenchmarkData {
+
+    static final String[] SYMBOLS = {"AGK.L", "BP.L", "TLW.L", "ABF.L", "LLOY.L", "BT-A.L", "WTB.L", "RRS.L", "ADM.L", "GKN.L", "HSBA.L"};
+    static final long START = Dates.toMillis("2013-09-04T10:00:00.000Z");
+
+    private BenchmarkData() {
+    }
+
+    static JournalFactory newFactory() throws JournalConfigurationException {
+        return new JournalFactory(Files.makeTempDir());
+    }
+
+    static void close(JournalFactory factory) {
+        File base = factory.getConfiguration().getJournalBase();
+        factory.close();
+        Files.delete(base);
+    }
+
+    /**
+     * Generates quotes with timestamps starting at given value and growing by increment. Random
+     * generator is seeded so that every fork of a benchmark works on the same data.
+     */
+    static List<Quote> quotes(int count, long timestamp, long increment) {
+        List<Quote> result = new ArrayList<>(count);
+        Random r = new Random(count);
+        for (int i = 0; i < count; i++) {
+            Quote q = new Quote();
+            q.setSym(SYMBOLS[r.nextInt(SYMBOLS.length)]);
+            q.setAsk(Math.abs(r.nextDouble()));
+            q.setBid(Math.abs(r.nextDouble()));
+            q.setAskSize(Math.abs(r.nextInt()));
+            q.setBidSize(Math.abs(r.nextInt()));
+            q.setEx("LXE");
+            q.setMode("Fast trading");
+            q.setTimestamp(timestamp + i * increment);
+            result.add(q);
+        }
+        return result;
+    }
+}
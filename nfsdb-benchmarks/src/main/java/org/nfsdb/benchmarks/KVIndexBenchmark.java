@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2014. Vlad Ilyushchenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.nfsdb.benchmarks;
+
+import com.nfsdb.journal.JournalMode;
+import com.nfsdb.journal.collections.LongArrayList;
+import com.nfsdb.journal.exceptions.JournalException;
+import com.nfsdb.journal.index.KVIndex;
+import com.nfsdb.journal.utils.Files;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures KVIndex.add() and KVIndex.getValues() on an index with uniformly distributed keys.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class KVIndexBenchmark {
+
+    private static final int VALUES = 10000000;
+
+    @Param({"128", "8192"})
+    public int keys;
+
+    private final LongArrayList values = new LongArrayList();
+    private File dir;
+    private KVIndex index;
+    private KVIndex appendIndex;
+    private long value;
+    private int key;
+
+    @Setup(Level.Trial)
+    public void setUp() throws JournalException {
+        dir = Files.makeTempDir();
+        index = new KVIndex(new File(dir, "read"), keys, VALUES, 1, JournalMode.APPEND, 0);
+        for (int i = 0; i < VALUES; i++) {
+            index.add(i % keys, i);
+        }
+        index.commit();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        index.close();
+        Files.delete(dir);
+    }
+
+    @Setup(Level.Iteration)
+    public void setUpAppendIndex() throws JournalException {
+        File base = new File(dir, "append");
+        KVIndex.delete(base);
+        appendIndex = new KVIndex(base, keys, VALUES, 1, JournalMode.APPEND, 0);
+        value = 0;
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDownAppendIndex() {
+        appendIndex.commit();
+        appendIndex.close();
+    }
+
+    @Benchmark
+    public void testAdd() {
+        appendIndex.add((int) (value % keys), value++);
+    }
+
+    @Benchmark
+    public int testGetValues() {
+        index.getValues(key++ % keys, values);
+        return values.size();
+    }
+}
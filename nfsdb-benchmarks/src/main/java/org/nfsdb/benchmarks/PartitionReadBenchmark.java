@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2014. Vlad Ilyushchenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.nfsdb.benchmarks;
+
+import com.nfsdb.journal.Journal;
+import com.nfsdb.journal.JournalWriter;
+import com.nfsdb.journal.Partition;
+import com.nfsdb.journal.exceptions.JournalException;
+import com.nfsdb.journal.factory.JournalFactory;
+import com.nfsdb.journal.test.model.Quote;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures per-row cost of Partition.read() into a reused object.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class PartitionReadBenchmark {
+
+    private static final int COUNT = 1000000;
+
+    private final Quote quote = new Quote();
+    private JournalFactory factory;
+    private Journal<Quote> journal;
+    private Partition<Quote> partition;
+
+    @Setup(Level.Trial)
+    public void setUp() throws JournalException {
+        factory = BenchmarkData.newFactory();
+        try (JournalWriter<Quote> w = factory.writer(Quote.class, "quote", COUNT)) {
+            w.append(BenchmarkData.quotes(COUNT, BenchmarkData.START, 1));
+            w.commit();
+        }
+        journal = factory.reader(Quote.class, "quote");
+        partition = journal.getPartition(0, true);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        journal.close();
+        BenchmarkData.close(factory);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COUNT)
+    public void testRead(Blackhole bh) {
+        for (long i = 0, n = partition.size(); i < n; i++) {
+            partition.read(i, quote);
+            bh.consume(quote);
+        }
+    }
+}
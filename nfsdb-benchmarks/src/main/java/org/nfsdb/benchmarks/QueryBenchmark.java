@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2014. Vlad Ilyushchenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.nfsdb.benchmarks;
+
+import com.nfsdb.journal.Journal;
+import com.nfsdb.journal.JournalWriter;
+import com.nfsdb.journal.ResultSet;
+import com.nfsdb.journal.exceptions.JournalException;
+import com.nfsdb.journal.factory.JournalFactory;
+import com.nfsdb.journal.test.model.Quote;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures latest-by-key head query and sort of result set by non-timestamp columns.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class QueryBenchmark {
+
+    private static final int COUNT = 1000000;
+    private static final int SORT_COUNT = 100000;
+
+    private JournalFactory factory;
+    private Journal<Quote> journal;
+    private Journal<Quote> sortJournal;
+    private ResultSet<Quote> resultSet;
+
+    @Setup(Level.Trial)
+    public void setUp() throws JournalException {
+        factory = BenchmarkData.newFactory();
+        try (JournalWriter<Quote> w = factory.writer(Quote.class, "quote", COUNT)) {
+            w.append(BenchmarkData.quotes(COUNT, BenchmarkData.START, 10));
+            w.commit();
+        }
+        try (JournalWriter<Quote> w = factory.writer(Quote.class, "sort", SORT_COUNT)) {
+            w.append(BenchmarkData.quotes(SORT_COUNT, BenchmarkData.START, 10));
+            w.commit();
+        }
+        journal = factory.reader(Quote.class, "quote");
+        sortJournal = factory.reader(Quote.class, "sort");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        journal.close();
+        sortJournal.close();
+        BenchmarkData.close(factory);
+    }
+
+    @Setup(Level.Invocation)
+    public void setUpResultSet() throws JournalException {
+        // sort is in-place, each invocation needs its own unsorted result set
+        resultSet = sortJournal.query().all().asResultSet();
+    }
+
+    @Benchmark
+    public Quote[] testHeadWithKeys() throws JournalException {
+        return journal.query().head().withKeys().asResultSet().read();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public ResultSet<Quote> testSort() throws JournalException {
+        return resultSet.sort("sym", "bid");
+    }
+}
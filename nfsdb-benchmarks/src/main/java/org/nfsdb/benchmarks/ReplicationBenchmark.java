@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2014. Vlad Ilyushchenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.nfsdb.benchmarks;
+
+import com.nfsdb.journal.JournalWriter;
+import com.nfsdb.journal.exceptions.JournalException;
+import com.nfsdb.journal.exceptions.JournalNetworkException;
+import com.nfsdb.journal.factory.JournalFactory;
+import com.nfsdb.journal.net.JournalClient;
+import com.nfsdb.journal.net.JournalServer;
+import com.nfsdb.journal.net.config.ClientConfig;
+import com.nfsdb.journal.net.config.ServerConfig;
+import com.nfsdb.journal.test.model.Quote;
+import com.nfsdb.journal.tx.TxFuture;
+import com.nfsdb.journal.tx.TxListener;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures time it takes for a committed transaction on server journal to be delivered and committed
+ * by client journal over loopback interface.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class ReplicationBenchmark {
+
+    @Param({"1000", "10000"})
+    public int txSize;
+
+    private final Semaphore committed = new Semaphore(0);
+    private JournalFactory factory;
+    private JournalServer server;
+    private JournalClient client;
+    private JournalWriter<Quote> remote;
+    private List<Quote> data;
+    private long timestamp;
+
+    @Setup(Level.Trial)
+    public void setUp() throws JournalException, JournalNetworkException {
+        factory = BenchmarkData.newFactory();
+        data = BenchmarkData.quotes(txSize, 0, 0);
+        timestamp = BenchmarkData.START;
+
+        remote = factory.writer(Quote.class, "remote");
+        server = new JournalServer(new ServerConfig() {{
+            setHostname("localhost");
+        }}, factory);
+        server.export(remote);
+        server.start();
+
+        client = new JournalClient(ClientConfig.INSTANCE, factory);
+        client.sync(Quote.class, "remote", "local", txSize, new TxListener() {
+            @Override
+            public boolean notifySync(long timeout, TimeUnit unit) {
+                return false;
+            }
+
+            @Override
+            public void notifyAsyncNoWait() {
+                committed.release();
+            }
+
+            @Override
+            public TxFuture notifyAsync() {
+                return null;
+            }
+        });
+        client.start();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws JournalNetworkException {
+        client.halt();
+        server.halt();
+        BenchmarkData.close(factory);
+    }
+
+    @Benchmark
+    public void testDelta() throws JournalException, InterruptedException {
+        for (int i = 0, n = data.size(); i < n; i++) {
+            Quote q = data.get(i);
+            q.setTimestamp(timestamp++);
+            remote.append(q);
+        }
+        remote.commit();
+        committed.acquire();
+    }
+}
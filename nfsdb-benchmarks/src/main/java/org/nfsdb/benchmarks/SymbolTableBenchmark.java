@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2014. Vlad Ilyushchenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.nfsdb.benchmarks;
+
+import com.nfsdb.journal.JournalMode;
+import com.nfsdb.journal.column.SymbolTable;
+import com.nfsdb.journal.exceptions.JournalException;
+import com.nfsdb.journal.utils.Files;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures SymbolTable.put() into a table that starts empty every iteration and SymbolTable.getQuick()
+ * of values that are already in the table.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class SymbolTableBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int count;
+
+    private String[] symbols;
+    private File dir;
+    private SymbolTable readTable;
+    private SymbolTable putTable;
+    private int location = 0;
+    private int index;
+
+    @Setup(Level.Trial)
+    public void setUp() throws JournalException {
+        symbols = new String[count];
+        for (int i = 0; i < count; i++) {
+            symbols[i] = "SYM" + i;
+        }
+        dir = Files.makeTempDir();
+        readTable = new SymbolTable(count, 16, 1, dir, "read", JournalMode.APPEND, 0, 0);
+        for (int i = 0; i < count; i++) {
+            readTable.put(symbols[i]);
+        }
+        readTable.commit();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        readTable.close();
+        Files.delete(dir);
+    }
+
+    @Setup(Level.Iteration)
+    public void setUpPutTable() throws JournalException {
+        putTable = new SymbolTable(count, 16, 1, dir, "put" + (location++), JournalMode.APPEND, 0, 0);
+        index = 0;
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDownPutTable() {
+        putTable.close();
+    }
+
+    @Benchmark
+    public int testPut() {
+        return putTable.put(symbols[index++ % count]);
+    }
+
+    @Benchmark
+    public int testGetQuick() {
+        return readTable.getQuick(symbols[index++ % count]);
+    }
+}
@@ -19,14 +19,20 @@ package com.nfsdb.journal;
 public class BinarySearch {
 
     public static long indexOf(LongTimeSeriesProvider data, long searchValue, SearchType type) {
-        long startIndex = 0;
         long endIndex = data.size() - 1;
 
         if (endIndex == -1) {
             return -1;
         }
 
-        long result = indexOf(data, startIndex, endIndex, searchValue, type);
+        return indexOf(data, 0, endIndex, searchValue, type);
+    }
+
+    /**
+     * Searches for value between startIndex and endIndex inclusive.
+     */
+    public static long indexOf(LongTimeSeriesProvider data, long startIndex, long endIndex, long searchValue, SearchType type) {
+        long result = search(data, startIndex, endIndex, searchValue, type);
 
         if (type == SearchType.GREATER_OR_EQUAL) {
             while (result > startIndex) {
@@ -50,7 +56,7 @@ public class BinarySearch {
         return result;
     }
 
-    private static long indexOf(LongTimeSeriesProvider data, long startIndex, long endIndex, long timestamp, SearchType type) {
+    private static long search(LongTimeSeriesProvider data, long startIndex, long endIndex, long timestamp, SearchType type) {
 
         long minTime = data.readLong(startIndex);
 
@@ -86,9 +92,9 @@ public class BinarySearch {
             long medianTime = data.readLong(median);
 
             if (timestamp <= medianTime) {
-                return indexOf(data, startIndex, median, timestamp, type);
+                return search(data, startIndex, median, timestamp, type);
             } else {
-                return indexOf(data, median, endIndex, timestamp, type);
+                return search(data, median, endIndex, timestamp, type);
             }
         } else if (timestamp > maxTime && type == SearchType.LESS_OR_EQUAL) {
             return endIndex;
@@ -16,6 +16,8 @@
 
 package com.nfsdb.journal;
 
+import com.nfsdb.journal.collections.LongArrayList;
+import com.nfsdb.journal.column.ColumnStats;
 import com.nfsdb.journal.column.ColumnType;
 import com.nfsdb.journal.column.FixedColumn;
 import com.nfsdb.journal.column.SymbolTable;
@@ -23,10 +25,8 @@ import com.nfsdb.journal.concurrent.TimerCache;
 import com.nfsdb.journal.exceptions.JournalException;
 import com.nfsdb.journal.exceptions.JournalRuntimeException;
 import com.nfsdb.journal.exceptions.JournalUnsupportedTypeException;
-import com.nfsdb.journal.factory.JournalClosingListener;
-import com.nfsdb.journal.factory.JournalConfiguration;
-import com.nfsdb.journal.factory.JournalMetadata;
-import com.nfsdb.journal.factory.NullsAdaptor;
+import com.nfsdb.journal.factory.*;
+import com.nfsdb.journal.index.KVIndex;
 import com.nfsdb.journal.iterators.ConcurrentIterator;
 import com.nfsdb.journal.iterators.JournalIterator;
 import com.nfsdb.journal.iterators.JournalRowBufferedIterator;
@@ -49,13 +49,20 @@ import java.io.FileFilter;
 import java.lang.reflect.Array;
 import java.nio.ByteBuffer;
 import java.util.*;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class Journal<T> implements Iterable<T>, Closeable {
 
     public static final long TX_LIMIT_EVAL = -1L;
+    public static final String CODEGEN_PROPERTY = "nfsdb.codegen";
+    private static final String HEAD_INDEX_FILE_SUFFIX = ".head";
+    // head index keeps one value per key and commit, values of key are stored in blocks of this many
+    private static final int HEAD_INDEX_BLOCK_LEN = 64;
     private static final Logger LOGGER = Logger.getLogger(Journal.class);
     protected final List<Partition<T>> partitions = new ArrayList<>();
+    // head indexes in column order, same order as their pointers in Tx
+    protected final List<KVIndex> headIndexes = new ArrayList<>();
     // empty container for current transaction
     protected final Tx tx = new Tx();
     protected TxLog txLog;
@@ -79,6 +86,8 @@ public class Journal<T> implements Iterable<T>, Closeable {
     private final BitSet inactiveColumns;
     private boolean open;
     private ColumnMetadata columnMetadata[];
+    private SymbolTable columnSymbolTables[];
+    private volatile ObjectCodec codec;
     private Partition<T> irregularPartition;
     private JournalClosingListener closeListener;
 
@@ -121,6 +130,9 @@ public class Journal<T> implements Iterable<T>, Closeable {
             for (SymbolTable tab : symbolTables) {
                 tab.close();
             }
+            for (KVIndex index : headIndexes) {
+                index.close();
+            }
             txLog.close();
             open = false;
         } else {
@@ -128,18 +140,64 @@ public class Journal<T> implements Iterable<T>, Closeable {
         }
     }
 
+    /**
+     * Moves journal to latest committed transaction. Reads from this journal instance can be carried out by
+     * multiple threads at the same time, but refresh must not overlap with them: it releases memory mappings,
+     * which were superseded while readers were active.
+     *
+     * @return true if there was new transaction to move to.
+     * @throws JournalException if new transaction cannot be applied.
+     */
     public boolean refresh() throws JournalException {
         if (txLog.hasNext()) {
+            releaseRetired();
             txLog.head(tx);
             refreshInternal();
             for (int i = 0; i < symbolTables.size(); i++) {
                 symbolTables.get(i).applyTx(tx.symbolTableSizes[i], tx.symbolTableIndexPointers[i]);
             }
+            for (int i = 0; i < headIndexes.size(); i++) {
+                headIndexes.get(i).setTxAddress(tx.headIndexPointers.length > i ? tx.headIndexPointers[i] : 0);
+            }
             return true;
         }
         return false;
     }
 
+    /**
+     * @return address of transaction journal is at, changes with every {@link #refresh()}
+     */
+    public long getTxAddress() {
+        return tx.address;
+    }
+
+    /**
+     * Checks if rows were only appended to regular partitions since earlier transaction, in which case
+     * changes can be picked up by reading rows past max row ID of that transaction. Transaction log is walked
+     * back from current transaction: rollback makes later transactions continue from before txAddress
+     * and truncation shows as max row ID going down.
+     *
+     * @param txAddress address of earlier transaction, see {@link #getTxAddress()}
+     * @return true if rows before max row ID of txAddress are unchanged
+     */
+    public boolean isAppendOnlySince(long txAddress) {
+        Tx t = new Tx();
+        long address = tx.address;
+        long maxRowID = Long.MAX_VALUE;
+        while (address >= txAddress && address > 0) {
+            txLog.get(address, t);
+            if (t.journalMaxRowID > maxRowID) {
+                return false;
+            }
+            if (address == txAddress) {
+                return true;
+            }
+            maxRowID = t.journalMaxRowID;
+            address = t.prevTxAddress;
+        }
+        return false;
+    }
+
     public int getSymbolTableCount() {
         return symbolTables.size();
     }
@@ -205,6 +263,7 @@ public class Journal<T> implements Iterable<T>, Closeable {
                 inactiveColumns.clear(metadata.getColumnIndex(columns[i]));
             }
         }
+        configureCodec();
         return this;
     }
 
@@ -219,6 +278,126 @@ public class Journal<T> implements Iterable<T>, Closeable {
         return builder.getResult();
     }
 
+    /**
+     * Reads partitions in parallel on executor. Each partition is read by its own builder, so builders cannot carry
+     * state from one partition to another. Rows are concatenated in the same order as
+     * {@link #iteratePartitionsDesc(AbstractResultSetBuilder)} would have produced them, and as there, partition
+     * which returns Accept.BREAK ends result: it contributes no rows and older partitions are not read.
+     *
+     * @param factory  creates builder for each partition
+     * @param executor executor to run partition tasks
+     * @return rows of all partitions
+     * @throws JournalException if partition cannot be read
+     */
+    public UnorderedResultSet<T> iteratePartitionsParallel(final ResultSetBuilderFactory<T> factory, ExecutorService executor) throws JournalException {
+        LongArrayList rows = reducePartitionsParallel(new PartitionReducer<T, LongArrayList>() {
+            @Override
+            public LongArrayList read(Partition<T> partition) throws JournalException {
+                UnorderedResultSetBuilder<T> builder = factory.newBuilder();
+                builder.setJournal(Journal.this);
+                return builder.next(partition, false) ? null : builder.result;
+            }
+
+            @Override
+            public LongArrayList merge(LongArrayList older, LongArrayList newer) {
+                newer.add(older);
+                return newer;
+            }
+        }, executor);
+        return new UnorderedResultSet<>(this, rows == null ? new LongArrayList() : rows);
+    }
+
+    /**
+     * Reads partitions one by one on calling thread, newest first, and merges their results.
+     *
+     * @param reducer reads and merges partitions
+     * @param <X>     result of partition
+     * @return merged result of all partitions, null if journal has no partitions or newest partition returned null
+     * @throws JournalException if partition cannot be read
+     */
+    public <X> X reducePartitions(PartitionReducer<T, X> reducer) throws JournalException {
+        X result = null;
+        for (int i = getPartitionCount() - 1; i >= 0; i--) {
+            X x = reducer.read(getPartition(i, false));
+            if (x == null) {
+                break;
+            }
+            result = result == null ? x : reducer.merge(x, result);
+        }
+        return result;
+    }
+
+    /**
+     * Reads each partition by task submitted to executor and merges results in the same order as
+     * {@link #reducePartitions(PartitionReducer)}. Once partition returns null, tasks of older partitions are
+     * cancelled or, if already running, do not read their partitions.
+     *
+     * @param reducer  reads and merges partitions, read is called concurrently
+     * @param executor executor to run partition tasks
+     * @param <X>      result of partition
+     * @return merged result of all partitions, null if journal has no partitions or newest partition returned null
+     * @throws JournalException if partition cannot be read or task is rejected by executor
+     */
+    public <X> X reducePartitionsParallel(final PartitionReducer<T, X> reducer, ExecutorService executor) throws JournalException {
+        int count = getPartitionCount();
+        // highest index of partition, which returned null, older partitions are of no use
+        final AtomicInteger stopIndex = new AtomicInteger(-1);
+        List<Future<X>> futures = new ArrayList<>(count);
+        try {
+            for (int i = count - 1; i >= 0; i--) {
+                final int partitionIndex = i;
+                futures.add(executor.submit(new Callable<X>() {
+                    @Override
+                    public X call() throws JournalException {
+                        if (partitionIndex <= stopIndex.get()) {
+                            return null;
+                        }
+                        X x = reducer.read(getPartition(partitionIndex, false));
+                        if (x == null) {
+                            int index;
+                            while ((index = stopIndex.get()) < partitionIndex && !stopIndex.compareAndSet(index, partitionIndex)) {
+                                // retry
+                            }
+                        }
+                        return x;
+                    }
+                }));
+            }
+
+            X result = null;
+            for (int i = 0, n = futures.size(); i < n; i++) {
+                X x = futures.get(i).get();
+                if (x == null) {
+                    break;
+                }
+                result = result == null ? x : reducer.merge(x, result);
+            }
+            return result;
+        } catch (RejectedExecutionException e) {
+            throw new JournalException("Partition scan rejected: %s", e, this);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new JournalException("Partition scan interrupted: %s", e, this);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof JournalException) {
+                throw (JournalException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new JournalException("Partition scan failed: %s", cause, this);
+        } finally {
+            // tasks of partitions, which are not needed anymore, are left to finish, interrupt could close their files
+            for (int i = 0, n = futures.size(); i < n; i++) {
+                futures.get(i).cancel(false);
+            }
+        }
+    }
+
     public Partition<T> lastNonEmptyNonLag() throws JournalException {
 
         if (nonLagPartitionCount() > 0) {
@@ -413,6 +592,20 @@ public class Journal<T> implements Iterable<T>, Closeable {
         return columnMetadata[columnIndex];
     }
 
+    /**
+     * Head index maps each key of symbol column to its latest row in regular partitions, so that latest rows
+     * can be found without walking partitions. Index is maintained by writer on commit and does not cover
+     * lag partition. Columns have head index when their metadata sets head="true".
+     *
+     * @param columnIndex the column index (0-indexed)
+     * @return index of global row IDs by symbol key, last value of key is its latest row. Null if column has no
+     * head index or current transaction was committed before head index was enabled.
+     * @throws JournalException if index cannot be brought up to date
+     */
+    public KVIndex getHeadIndex(int columnIndex) throws JournalException {
+        return tx.headIndexPointers != null && tx.headIndexPointers.length == headIndexes.size() ? columnMetadata[columnIndex].headIndex : null;
+    }
+
     @Override
     public Iterator<T> iterator() {
         return query().all().iterator();
@@ -483,6 +676,24 @@ public class Journal<T> implements Iterable<T>, Closeable {
         return result;
     }
 
+    /**
+     * Merges statistics of column across all partitions, which answers min, max and null count of column
+     * without reading column files, see {@link Partition#getStats(int)}. Partitions without statistics are
+     * scanned in full.
+     *
+     * @param columnName name of column
+     * @return statistics of column
+     * @throws JournalException if partition cannot be opened
+     */
+    public ColumnStats getColumnStats(String columnName) throws JournalException {
+        int columnIndex = metadata.getColumnIndex(columnName);
+        ColumnStats result = new ColumnStats(metadata.getColumnMetadata(columnIndex).type);
+        for (int i = 0; i < getPartitionCount(); i++) {
+            result.merge(getPartition(i, true).buildStats(columnIndex));
+        }
+        return result;
+    }
+
     public JournalKey<T> getKey() {
         return key;
     }
@@ -574,6 +785,7 @@ public class Journal<T> implements Iterable<T>, Closeable {
         txLog.head(tx);
         configureColumns();
         configureSymbolTableSynonyms();
+        configureCodec();
         configurePartitions();
     }
 
@@ -590,6 +802,14 @@ public class Journal<T> implements Iterable<T>, Closeable {
         return inactiveColumns;
     }
 
+    ObjectCodec getCodec() {
+        return codec;
+    }
+
+    SymbolTable[] getColumnSymbolTables() {
+        return columnSymbolTables;
+    }
+
     TimerCache getTimerCache() {
         return timerCache;
     }
@@ -604,11 +824,17 @@ public class Journal<T> implements Iterable<T>, Closeable {
                 int tabIndex = symbolTables.size();
                 int tabSize = tx.symbolTableSizes.length > tabIndex ? tx.symbolTableSizes[tabIndex] : 0;
                 long indexTxAddress = tx.symbolTableIndexPointers.length > tabIndex ? tx.symbolTableIndexPointers[tabIndex] : 0;
-                SymbolTable tab = new SymbolTable(meta.distinctCountHint, meta.avgSize, getMetadata().getTxCountHint(), location, meta.name, getMode(), tabSize, indexTxAddress);
+                SymbolTable tab = new SymbolTable(meta.distinctCountHint, meta.avgSize, getMetadata().getTxCountHint(), location, meta.name, getMode(), tabSize, indexTxAddress, getMetadata().getHashVersion(), meta.encoding);
                 symbolTables.add(tab);
                 symbolTableMap.put(meta.name, tab);
                 columnMetadata[i].symbolTable = tab;
             }
+            if (meta.head) {
+                int headIndex = headIndexes.size();
+                long indexTxAddress = tx.headIndexPointers != null && tx.headIndexPointers.length > headIndex ? tx.headIndexPointers[headIndex] : 0;
+                columnMetadata[i].headIndex = new KVIndex(new File(location, meta.name + HEAD_INDEX_FILE_SUFFIX), meta.distinctCountHint, meta.distinctCountHint * HEAD_INDEX_BLOCK_LEN, getMetadata().getTxCountHint(), getMode(), indexTxAddress);
+                headIndexes.add(columnMetadata[i].headIndex);
+            }
             columnMetadata[i].meta = meta;
         }
     }
@@ -624,6 +850,31 @@ public class Journal<T> implements Iterable<T>, Closeable {
         }
     }
 
+    /**
+     * Creates codec, which copies model fields to partition columns and back, for current selection of columns.
+     * Codec is generated for model class unless "nfsdb.codegen" system property is "false". When generation
+     * fails journal falls back to generic codec.
+     */
+    private void configureCodec() {
+        int columnCount = getMetadata().getColumnCount();
+        SymbolTable tabs[] = new SymbolTable[columnCount];
+        for (int i = 0; i < columnCount; i++) {
+            tabs[i] = columnMetadata[i].symbolTable;
+        }
+        this.columnSymbolTables = tabs;
+
+        if ("false".equals(System.getProperty(CODEGEN_PROPERTY))) {
+            codec = new GenericObjectCodec(metadata, inactiveColumns);
+        } else {
+            try {
+                codec = ObjectCodecGenerator.newCodec(metadata, inactiveColumns);
+            } catch (Throwable e) {
+                LOGGER.warn("Cannot generate codec for " + metadata.getModelClass().getName() + ", using generic one: " + e);
+                codec = new GenericObjectCodec(metadata, inactiveColumns);
+            }
+        }
+    }
+
     private void configurePartitions() throws JournalException {
         File[] files = getLocation().listFiles(new FileFilter() {
             public boolean accept(File f) {
@@ -714,6 +965,20 @@ public class Journal<T> implements Iterable<T>, Closeable {
         }
     }
 
+    private void releaseRetired() {
+        for (int i = 0, partitionsSize = partitions.size(); i < partitionsSize; i++) {
+            partitions.get(i).releaseRetired();
+        }
+
+        if (irregularPartition != null) {
+            irregularPartition.releaseRetired();
+        }
+
+        for (int i = 0, symbolTablesSize = symbolTables.size(); i < symbolTablesSize; i++) {
+            symbolTables.get(i).releaseRetired();
+        }
+    }
+
     /**
      * Replaces current Lag partition, which is cached in this instance of Partition Manager with Lag partition,
      * which was written to _lag file by another process.
@@ -738,6 +1003,7 @@ public class Journal<T> implements Iterable<T>, Closeable {
 
     public static class ColumnMetadata {
         public SymbolTable symbolTable;
+        public KVIndex headIndex;
         public JournalMetadata.ColumnMetadata meta;
     }
 }
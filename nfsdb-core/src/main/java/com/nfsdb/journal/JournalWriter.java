@@ -18,18 +18,21 @@ package com.nfsdb.journal;
 
 import com.nfsdb.journal.column.FixedColumn;
 import com.nfsdb.journal.column.SymbolTable;
+import com.nfsdb.journal.concurrent.NamedDaemonThreadFactory;
 import com.nfsdb.journal.concurrent.PartitionCleaner;
 import com.nfsdb.journal.concurrent.TimerCache;
 import com.nfsdb.journal.exceptions.JournalException;
 import com.nfsdb.journal.exceptions.JournalRuntimeException;
 import com.nfsdb.journal.factory.JournalConfiguration;
 import com.nfsdb.journal.factory.JournalMetadata;
+import com.nfsdb.journal.index.KVIndex;
 import com.nfsdb.journal.iterators.ConcurrentIterator;
 import com.nfsdb.journal.iterators.MergingIterator;
 import com.nfsdb.journal.iterators.PeekingIterator;
 import com.nfsdb.journal.locks.Lock;
 import com.nfsdb.journal.locks.LockManager;
 import com.nfsdb.journal.logging.Logger;
+import com.nfsdb.journal.tx.GroupCommitFuture;
 import com.nfsdb.journal.tx.Tx;
 import com.nfsdb.journal.tx.TxFuture;
 import com.nfsdb.journal.tx.TxListener;
@@ -42,10 +45,16 @@ import org.joda.time.Interval;
 
 import java.io.File;
 import java.io.FileFilter;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 
 public class JournalWriter<T> extends Journal<T> {
@@ -66,6 +75,24 @@ public class JournalWriter<T> extends Journal<T> {
     private boolean doJournal = true;
     private Partition<T> appendPartition;
     private long appendTimestampHi = -1;
+    private List<GroupCommitFuture> groupCommitFutures;
+    private long groupCommitWindow = -1;
+    private int groupCommitMaxTx;
+    private long groupCommitStart;
+    // commits group, which is still open when its window expires
+    private ScheduledExecutorService groupCommitTimer;
+    // in group commit mode writer holds this permit from start of transaction until transaction joins group,
+    // so that timer only ever commits group between transactions
+    private final Semaphore groupCommitPermit = new Semaphore(1);
+    private boolean groupCommitPermitHeld;
+    private final Runnable groupCommitFlush = new Runnable() {
+        @Override
+        public void run() {
+            flushGroupCommit();
+        }
+    };
+    private int[] headIndexKeys;
+    private BitSet headIndexSeenKeys;
 
     public JournalWriter(JournalMetadata<T> metadata, JournalKey<T> key, TimerCache timerCache) throws JournalException {
         super(metadata, key, timerCache);
@@ -81,10 +108,12 @@ public class JournalWriter<T> extends Journal<T> {
             partitionCleaner = null;
         }
         try {
+            stopGroupCommitTimer();
             if (isAutoCommit()) {
                 commit();
                 purgeUnusedTempPartitions(txLog);
             }
+            completeGroupCommit(false);
             super.close();
             if (writeLock != null) {
                 LockManager.release(writeLock);
@@ -95,7 +124,24 @@ public class JournalWriter<T> extends Journal<T> {
         }
     }
 
+    /**
+     * Commits current transaction without waiting for it to be durable.
+     * <p/>
+     * In group commit mode transaction is not written out straight away. It joins current group,
+     * which is committed with single TxLog record and single force of mapped files when either
+     * group commit window elapses or group reaches maximum number of transactions. Returned future
+     * completes for all transactions of group at once. Group, which is still open when its window
+     * expires, is committed by timer thread of this writer.
+     *
+     * @return future, which completes when transaction is replicated or, in group commit mode, durable.
+     * null if there is nothing to commit.
+     * @throws com.nfsdb.journal.exceptions.JournalException if commit fails.
+     */
     public TxFuture commitAsync() throws JournalException {
+        if (groupCommitWindow > 0) {
+            return commitGroup();
+        }
+
         TxFuture future = null;
         if (txActive) {
             commit(Tx.TX_NORMAL);
@@ -109,24 +155,42 @@ public class JournalWriter<T> extends Journal<T> {
 
     public boolean commitAndWait(long timeout, TimeUnit unit) throws JournalException {
         boolean result = true;
-        if (txActive) {
-            commit(Tx.TX_NORMAL);
-            if (txListener != null) {
-                result = txListener.notifySync(timeout, unit);
+        lockGroupCommit();
+        try {
+            if (txActive || isGroupCommitOpen()) {
+                commit(Tx.TX_NORMAL);
+                if (txListener != null) {
+                    result = txListener.notifySync(timeout, unit);
+                }
+                txActive = false;
             }
-            txActive = false;
+        } finally {
+            unlockGroupCommit();
         }
         return result;
     }
 
     public void rollback() throws JournalException {
-        if (txActive) {
-            rollback(txLog.headAddress());
-            txActive = false;
+        lockGroupCommit();
+        try {
+            if (txActive || isGroupCommitOpen()) {
+                rollback(txLog.headAddress());
+            }
+        } finally {
+            unlockGroupCommit();
         }
     }
 
     public void rollback(long address) throws JournalException {
+        lockGroupCommit();
+        try {
+            rollbackInternal(address);
+        } finally {
+            unlockGroupCommit();
+        }
+    }
+
+    private void rollbackInternal(long address) throws JournalException {
 
         txLog.get(address, tx);
 
@@ -136,6 +200,10 @@ public class JournalWriter<T> extends Journal<T> {
         // partitions need to be dealt with first to make sure new lag is assigned a correct partitionIndex
         rollbackPartitions(tx);
 
+        for (int i = 0; i < headIndexes.size(); i++) {
+            headIndexes.get(i).truncate(tx.journalMaxRowID);
+        }
+
         Partition<T> lag = getIrregularPartition();
         if (tx.lagName != null && tx.lagName.length() > 0 && (lag == null || !tx.lagName.equals(lag.getName()))) {
             Partition<T> newLag = createTempPartition(tx.lagName);
@@ -162,12 +230,47 @@ public class JournalWriter<T> extends Journal<T> {
         appendPartition = null;
         txLog.setTxAddress(tx.address);
         txActive = false;
+        completeGroupCommit(false);
     }
 
     public void setTxListener(TxListener txListener) {
         this.txListener = txListener;
     }
 
+    /**
+     * Enables group commit mode for commitAsync(). Writer starts a timer thread, which commits group
+     * when its window expires and writer is not in the middle of transaction. Timer thread is stopped
+     * when group commit is disabled or writer is closed. Queries through writer itself are not
+     * synchronised with timer thread and should not be run while group is open.
+     *
+     * @param window maximum time between first transaction of group and group commit. Zero or negative disables group commit.
+     * @param unit   time unit of window
+     * @param maxTx  maximum number of transactions in group
+     * @throws com.nfsdb.journal.exceptions.JournalException if group commit is disabled and open group cannot be committed.
+     */
+    public void setGroupCommit(long window, TimeUnit unit, int maxTx) throws JournalException {
+        if (window > 0 && maxTx < 1) {
+            throw new JournalException("Invalid max transaction count for group commit: %d", maxTx);
+        }
+        if (window <= 0) {
+            stopGroupCommitTimer();
+            commit(true);
+            this.groupCommitWindow = -1;
+        } else {
+            this.groupCommitWindow = unit.toNanos(window);
+            if (groupCommitFutures == null) {
+                groupCommitFutures = new ArrayList<>();
+            }
+            if (groupCommitTimer == null) {
+                groupCommitTimer = Executors.newSingleThreadScheduledExecutor(new NamedDaemonThreadFactory("jj-group-commit", true));
+                if (txActive) {
+                    lockGroupCommit();
+                }
+            }
+        }
+        this.groupCommitMaxTx = maxTx;
+    }
+
     public Partition<T> getPartitionForTimestamp(long timestamp) {
         for (int i = 0, partitionsSize = partitions.size(); i < partitionsSize; i++) {
             Partition<T> result = partitions.get(i);
@@ -199,6 +302,18 @@ public class JournalWriter<T> extends Journal<T> {
         return result.open();
     }
 
+    /**
+     * Writer brings head index up to date with rows it has appended, so that latest rows include uncommitted ones.
+     */
+    @Override
+    public KVIndex getHeadIndex(int columnIndex) throws JournalException {
+        KVIndex index = getColumnMetadata(columnIndex).headIndex;
+        if (index != null) {
+            updateHeadIndex(columnIndex, index);
+        }
+        return index;
+    }
+
     public void removeIrregularPartition() {
         beginTx();
         removeIrregularPartitionInternal();
@@ -206,8 +321,12 @@ public class JournalWriter<T> extends Journal<T> {
 
     public void beginTx() {
         if (!txActive) {
+            lockGroupCommit();
             this.txActive = true;
-            this.txPartitionIndex = nonLagPartitionCount() - 1;
+            // transactions of open group are committed together from partition of first of them
+            if (!isGroupCommitOpen()) {
+                this.txPartitionIndex = nonLagPartitionCount() - 1;
+            }
         }
     }
 
@@ -252,10 +371,24 @@ public class JournalWriter<T> extends Journal<T> {
         }
     }
 
+    /**
+     * Rebuilds indexes of all partitions. Head indexes are rebuilt from scratch and recorded by a new commit,
+     * which also commits current transaction.
+     *
+     * @throws com.nfsdb.journal.exceptions.JournalException if indexes cannot be rebuilt
+     */
     public void rebuildIndexes() throws JournalException {
         for (int i = 0; i < getPartitionCount(); i++) {
             getPartition(i, true).rebuildIndexes();
         }
+
+        if (headIndexes.size() > 0) {
+            beginTx();
+            for (int i = 0; i < headIndexes.size(); i++) {
+                headIndexes.get(i).truncate(0);
+            }
+            commit();
+        }
     }
 
     public void compact() throws JournalException {
@@ -264,12 +397,32 @@ public class JournalWriter<T> extends Journal<T> {
         }
     }
 
+    /**
+     * Compresses all partitions except for the last one, which is still appended to, and lag partition.
+     * Compressed partitions are read-only, rolling back to transaction that ended inside of one of them
+     * fails. Partitions, which are already compressed, are skipped, so this method can be run periodically
+     * after commit.
+     *
+     * @throws JournalException if transaction is active or partition cannot be compressed
+     */
+    public void compressSealedPartitions() throws JournalException {
+        if (isTxActive()) {
+            throw new JournalException("Cannot compress partitions while transaction is active: %s", this);
+        }
+        for (int i = 0, n = nonLagPartitionCount() - 1; i < n; i++) {
+            getPartition(i, false).compress();
+        }
+    }
+
     public void truncate() throws JournalException {
         beginTx();
 
         for (int i = 0; i < getPartitionCount(); i++) {
             Partition<T> partition = getPartition(i, true);
-            partition.truncate(0);
+            // compressed partition is read-only and is about to be deleted anyway
+            if (!partition.isCompressed()) {
+                partition.truncate(0);
+            }
             partition.close();
             Files.deleteOrException(partition.getPartitionDir());
         }
@@ -279,6 +432,9 @@ public class JournalWriter<T> extends Journal<T> {
         for (int i = 0; i < getSymbolTableCount(); i++) {
             getSymbolTable(i).truncate();
         }
+        for (int i = 0; i < headIndexes.size(); i++) {
+            headIndexes.get(i).truncate(0);
+        }
         appendTimestampLo = -1;
         commitDurable();
     }
@@ -333,53 +489,66 @@ public class JournalWriter<T> extends Journal<T> {
 
         if (checkOrder) {
             long timestamp = getTimestamp(obj);
+            switchAppendPartition(timestamp);
+            appendPartition.append(obj);
 
-            if (timestamp > appendTimestampHi) {
-
-                boolean computeTimestampLo = appendPartition == null;
+            if (timestamp > appendTimestampLo) {
+                appendTimestampLo = timestamp;
+            }
+        } else {
+            getAppendPartition().append(obj);
+        }
+    }
 
-                appendPartition = getAppendPartition(timestamp);
+    /**
+     * Adds list of objects to the end of the Journal writing columns in parallel, see {@link Partition#append(java.util.List, java.util.concurrent.ExecutorService)}.
+     * Objects are split into runs by partition, objects of ordered journal have to be in timestamp order.
+     *
+     * @param objects  objects to add
+     * @param executor executor to write columns on
+     * @throws com.nfsdb.journal.exceptions.JournalException if objects are out of order or there is an error
+     */
+    public void append(List<T> objects, ExecutorService executor) throws JournalException {
+        if (objects.size() == 0) {
+            return;
+        }
 
-                switch (getMode()) {
-                    case BULK_APPEND:
-                        for (int i = appendPartition.getPartitionIndex() - 1; i >= 0; i--) {
-                            Partition<T> partition = partitions.get(i);
-                            if (partition == null || !partition.isOpen()) {
-                                break;
-                            }
-                            partition.close();
-                        }
+        for (int i = 0, n = objects.size(); i < n; i++) {
+            if (objects.get(i) == null) {
+                throw new JournalException("Cannot append NULL to %s", this);
+            }
+        }
 
-                }
-                Interval interval = appendPartition.getInterval();
-                if (interval == null) {
-                    appendTimestampHi = Long.MAX_VALUE;
-                } else {
-                    appendTimestampHi = appendPartition.getInterval().getEndMillis();
-                }
+        if (!txActive) {
+            beginTx();
+        }
 
-                if (computeTimestampLo) {
-                    FixedColumn column = appendPartition.getTimestampColumn();
-                    if (column.size() > 0) {
-                        appendTimestampLo = column.getLong(column.size() - 1);
-                    }
-                } else {
-                    appendTimestampLo = appendPartition.getInterval().getStartMillis();
+        if (checkOrder) {
+            // validate whole list up front, so that nothing is written when it is out of order
+            for (int i = 1, n = objects.size(); i < n; i++) {
+                if (getTimestamp(objects.get(i)) < getTimestamp(objects.get(i - 1))) {
+                    throw new JournalException("Cannot insert records out of order. timestamp=%d (%s): %s"
+                            , getTimestamp(objects.get(i)), Dates.toString(getTimestamp(objects.get(i))), this);
                 }
             }
 
-            if (timestamp < appendTimestampLo) {
-                throw new JournalException("Cannot insert records out of order. maxHardTimestamp=%d (%s), timestamp=%d (%s): %s"
-                        , appendTimestampLo, Dates.toString(appendTimestampLo), timestamp, Dates.toString(timestamp), this);
-            }
-
-            appendPartition.append(obj);
-
-            if (timestamp > appendTimestampLo) {
-                appendTimestampLo = timestamp;
+            int lo = 0;
+            int n = objects.size();
+            while (lo < n) {
+                switchAppendPartition(getTimestamp(objects.get(lo)));
+                int hi = lo + 1;
+                while (hi < n && getTimestamp(objects.get(hi)) <= appendTimestampHi) {
+                    hi++;
+                }
+                appendPartition.append(objects.subList(lo, hi), executor);
+                long timestamp = getTimestamp(objects.get(hi - 1));
+                if (timestamp > appendTimestampLo) {
+                    appendTimestampLo = timestamp;
+                }
+                lo = hi;
             }
         } else {
-            getAppendPartition().append(obj);
+            getAppendPartition().append(objects, executor);
         }
     }
 
@@ -466,7 +635,7 @@ public class JournalWriter<T> extends Journal<T> {
     }
 
     public boolean isTxActive() {
-        return txActive;
+        return txActive || isGroupCommitOpen();
     }
 
     public boolean isAutoCommit() {
@@ -659,8 +828,58 @@ public class JournalWriter<T> extends Journal<T> {
 
     }
 
+    private void switchAppendPartition(long timestamp) throws JournalException {
+        if (timestamp > appendTimestampHi) {
+
+            boolean computeTimestampLo = appendPartition == null;
+
+            appendPartition = getAppendPartition(timestamp);
+
+            switch (getMode()) {
+                case BULK_APPEND:
+                    for (int i = appendPartition.getPartitionIndex() - 1; i >= 0; i--) {
+                        Partition<T> partition = partitions.get(i);
+                        if (partition == null || !partition.isOpen()) {
+                            break;
+                        }
+                        partition.close();
+                    }
+
+            }
+            Interval interval = appendPartition.getInterval();
+            if (interval == null) {
+                appendTimestampHi = Long.MAX_VALUE;
+            } else {
+                appendTimestampHi = appendPartition.getInterval().getEndMillis();
+            }
+
+            if (computeTimestampLo) {
+                FixedColumn column = appendPartition.getTimestampColumn();
+                if (column.size() > 0) {
+                    appendTimestampLo = column.getLong(column.size() - 1);
+                }
+            } else {
+                appendTimestampLo = appendPartition.getInterval().getStartMillis();
+            }
+        }
+
+        if (timestamp < appendTimestampLo) {
+            throw new JournalException("Cannot insert records out of order. maxHardTimestamp=%d (%s), timestamp=%d (%s): %s"
+                    , appendTimestampLo, Dates.toString(appendTimestampLo), timestamp, Dates.toString(timestamp), this);
+        }
+    }
+
     private void commit(boolean force) throws JournalException {
-        if (txActive) {
+        lockGroupCommit();
+        try {
+            commitInternal(force);
+        } finally {
+            unlockGroupCommit();
+        }
+    }
+
+    private void commitInternal(boolean force) throws JournalException {
+        if (txActive || isGroupCommitOpen()) {
             commit(force ? Tx.TX_FORCE : Tx.TX_NORMAL);
             expireOpenFiles();
             if (txListener != null) {
@@ -686,13 +905,135 @@ public class JournalWriter<T> extends Journal<T> {
         }
     }
 
+    /**
+     * Adds latest row of each key among rows appended to regular partitions since head index was last updated.
+     * Index size is the row ID past its newest value, so only rows from there on are scanned. They are scanned
+     * newest first and scan stops once every key of symbol table has been seen.
+     */
+    private void updateHeadIndex(int columnIndex, final KVIndex index) throws JournalException {
+        long lo = index.size();
+        int loPartitionIndex = Rows.toPartitionIndex(lo);
+        int keyCount = getColumnMetadata(columnIndex).symbolTable.size();
+
+        if (headIndexKeys == null) {
+            headIndexKeys = new int[Partition.KEY_SCAN_BLOCK];
+            headIndexSeenKeys = new BitSet(keyCount);
+        }
+        headIndexSeenKeys.clear();
+
+        for (int p = nonLagPartitionCount() - 1; p >= loPartitionIndex; p--) {
+            final int partitionIndex = p;
+            boolean allSeen = getPartition(p, true).scanLatestKeys(columnIndex, p == loPartitionIndex ? Rows.toLocalRowID(lo) : 0,
+                    keyCount, headIndexSeenKeys, headIndexKeys, new LatestKeyHandler() {
+                        @Override
+                        public void onKey(int key, long localRowID) {
+                            index.add(key, Rows.toRowID(partitionIndex, localRowID));
+                        }
+                    });
+            if (allSeen) {
+                break;
+            }
+        }
+    }
+
+    private TxFuture commitGroup() throws JournalException {
+        if (!txActive) {
+            return null;
+        }
+
+        try {
+            GroupCommitFuture future = new GroupCommitFuture();
+            groupCommitFutures.add(future);
+            long now = System.nanoTime();
+            if (groupCommitFutures.size() == 1) {
+                groupCommitStart = now;
+                groupCommitTimer.schedule(groupCommitFlush, groupCommitWindow, TimeUnit.NANOSECONDS);
+            }
+            if (groupCommitFutures.size() >= groupCommitMaxTx || now - groupCommitStart >= groupCommitWindow) {
+                commitInternal(true);
+            } else {
+                // transaction is now part of open group
+                txActive = false;
+            }
+            return future;
+        } finally {
+            unlockGroupCommit();
+        }
+    }
+
+    private boolean isGroupCommitOpen() {
+        return groupCommitFutures != null && groupCommitFutures.size() > 0;
+    }
+
+    private void lockGroupCommit() {
+        if (groupCommitTimer != null && !groupCommitPermitHeld) {
+            groupCommitPermit.acquireUninterruptibly();
+            groupCommitPermitHeld = true;
+        }
+    }
+
+    private void unlockGroupCommit() {
+        if (groupCommitPermitHeld) {
+            groupCommitPermitHeld = false;
+            groupCommitPermit.release();
+        }
+    }
+
+    /**
+     * Runs on timer thread. Writer in the middle of transaction holds the permit, such writer checks
+     * window itself when transaction joins group.
+     */
+    private void flushGroupCommit() {
+        if (groupCommitPermit.tryAcquire()) {
+            try {
+                if (!txActive && isGroupCommitOpen() && System.nanoTime() - groupCommitStart >= groupCommitWindow) {
+                    // open files are not expired here, writer thread may be reading them
+                    commit(Tx.TX_FORCE);
+                    if (txListener != null) {
+                        txListener.notifyAsyncNoWait();
+                    }
+                }
+            } catch (Throwable e) {
+                LOGGER.error("Group commit failed: %s", e, this);
+                completeGroupCommit(false);
+            } finally {
+                groupCommitPermit.release();
+            }
+        }
+    }
+
+    private void stopGroupCommitTimer() throws JournalException {
+        if (groupCommitTimer != null) {
+            groupCommitTimer.shutdownNow();
+            try {
+                if (!groupCommitTimer.awaitTermination(30, TimeUnit.SECONDS)) {
+                    throw new JournalException("Timed out waiting for group commit timer: %s", this);
+                }
+            } catch (InterruptedException e) {
+                throw new JournalException(e);
+            }
+            groupCommitTimer = null;
+        }
+    }
+
+    private void completeGroupCommit(boolean durable) {
+        if (groupCommitFutures == null) {
+            return;
+        }
+        for (int i = 0, n = groupCommitFutures.size(); i < n; i++) {
+            groupCommitFutures.get(i).complete(durable);
+        }
+        groupCommitFutures.clear();
+    }
+
     private void commit(byte command) throws JournalException {
-        boolean force = command == Tx.TX_FORCE;
+        // any commit that takes in open group must make it durable
+        boolean force = command == Tx.TX_FORCE || (groupCommitFutures != null && groupCommitFutures.size() > 0);
         Partition<T> partition = lastNonEmptyNonLag();
         Partition<T> lag = getIrregularPartition();
 
         Tx tx = new Tx();
-        tx.command = command;
+        tx.command = force ? Tx.TX_FORCE : command;
         tx.prevTxAddress = txLog.getTxAddress();
         tx.journalMaxRowID = partition == null ? 0 : Rows.toRowID(partition.getPartitionIndex(), partition.size());
         tx.lastPartitionTimestamp = partition == null || partition.getInterval() == null ? 0 : partition.getInterval().getStartMillis();
@@ -724,6 +1065,19 @@ public class JournalWriter<T> extends Journal<T> {
             partition.getIndexPointers(tx.indexPointers);
         }
 
+        tx.headIndexPointers = new long[headIndexes.size()];
+        for (int i = 0, k = 0, n = getMetadata().getColumnCount(); i < n; i++) {
+            KVIndex index = getColumnMetadata(i).headIndex;
+            if (index != null) {
+                updateHeadIndex(i, index);
+                index.commit();
+                if (force) {
+                    index.force();
+                }
+                tx.headIndexPointers[k++] = index.getTxAddress();
+            }
+        }
+
         tx.lagIndexPointers = new long[getMetadata().getColumnCount()];
         if (lag != null) {
             lag.commit();
@@ -737,6 +1091,7 @@ public class JournalWriter<T> extends Journal<T> {
         if (force) {
             txLog.force();
         }
+        completeGroupCommit(true);
     }
 
     private void rollbackPartitionDirs() throws JournalException {
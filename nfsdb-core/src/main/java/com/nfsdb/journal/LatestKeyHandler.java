@@ -0,0 +1,30 @@
+/*
+ * Copyright (c) 2014. Vlad Ilyushchenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nfsdb.journal;
+
+import com.nfsdb.journal.exceptions.JournalException;
+
+/**
+ * Receives keys found by {@link Partition#scanLatestKeys(int, long, int, java.util.BitSet, int[], LatestKeyHandler)}.
+ */
+public interface LatestKeyHandler {
+    /**
+     * @param key        symbol or int key
+     * @param localRowID latest row of key in scanned range
+     */
+    void onKey(int key, long localRowID) throws JournalException;
+}
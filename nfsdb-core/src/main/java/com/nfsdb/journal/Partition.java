@@ -18,9 +18,14 @@ package com.nfsdb.journal;
 
 import com.nfsdb.journal.column.*;
 import com.nfsdb.journal.exceptions.JournalException;
+import com.nfsdb.journal.exceptions.JournalNoSuchFileException;
 import com.nfsdb.journal.exceptions.JournalRuntimeException;
+import com.nfsdb.journal.collections.IntArrayList;
+import com.nfsdb.journal.factory.JournalConfiguration;
 import com.nfsdb.journal.factory.JournalMetadata;
 import com.nfsdb.journal.factory.NullsAdaptor;
+import com.nfsdb.journal.factory.ObjectCodec;
+import com.nfsdb.journal.index.BitmapIndex;
 import com.nfsdb.journal.index.KVIndex;
 import com.nfsdb.journal.iterators.ConcurrentIterator;
 import com.nfsdb.journal.iterators.PartitionBufferedIterator;
@@ -36,11 +41,22 @@ import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.BitSet;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 
 public class Partition<T> implements Iterable<T>, Closeable {
+    // keys read at a time by scanLatestKeys, callers size their buffers by it
+    public static final int KEY_SCAN_BLOCK = 4096;
     private static final Logger LOGGER = Logger.getLogger(Partition.class);
+    private static final String NULLS_FILE = "_nulls.d";
     private final Journal<T> journal;
     private final ArrayList<SymbolIndexProxy<T>> indexProxies = new ArrayList<>();
     private final ArrayList<SymbolIndexProxy<T>> columnIndexProxies = new ArrayList<>();
@@ -50,7 +66,15 @@ public class Partition<T> implements Iterable<T>, Closeable {
     private final int columnCount;
     private final int appendKeyCache[];
     private final long appendSizeCache[];
-    private AbstractColumn[] columns;
+    private final PartitionStats<T> stats;
+    // BitSet handed to NullsAdaptor, kept per thread because partition can be read concurrently
+    private final ThreadLocal<BitSet> readNulls = new ThreadLocal<BitSet>() {
+        @Override
+        protected BitSet initialValue() {
+            return new BitSet(columnCount);
+        }
+    };
+    private volatile AbstractColumn[] columns;
     private NullsColumn nullsColumn;
     private int partitionIndex;
     private File partitionDir;
@@ -58,31 +82,34 @@ public class Partition<T> implements Iterable<T>, Closeable {
     private long txLimit;
     private FixedColumn timestampColumn;
     private BinarySearch.LongTimeSeriesProvider indexOfVisitor;
+    private BitmapIndex[] bitmapIndexes;
 
     public NullsColumn getNullsColumn() {
         return nullsColumn;
     }
 
-    public Partition<T> open() throws JournalException {
+    public synchronized Partition<T> open() throws JournalException {
         access();
         if (columns == null) {
 
-            columns = new AbstractColumn[journal.getMetadata().getColumnCount()];
+            // columns are published only when fully open, so that threads checking isOpen()
+            // never see partially initialised partition
+            AbstractColumn[] columns = new AbstractColumn[journal.getMetadata().getColumnCount()];
 
             int nullsRecordSize = ((columns.length >>> 6) + (columns.length % 64 == 0 ? 0 : 1)) * 8;
             nullsColumn = new NullsColumn(
-                    new MappedFileImpl(new File(partitionDir, "_nulls.d"),
+                    openFile(NULLS_FILE,
                             ByteBuffers.getBitHint(nullsRecordSize, journal.getMetadata().getRecordHint()),
-                            journal.getMode()),
+                            nullsRecordSize),
                     nullsRecordSize,
                     columns.length
             );
 
             for (int i = 0; i < columns.length; i++) {
-                open(i);
+                columns[i] = open(i);
             }
 
-            timestampColumn = getFixedWidthColumn(journal.getMetadata().getTimestampColumnIndex());
+            timestampColumn = (FixedColumn) columns[journal.getMetadata().getTimestampColumnIndex()];
 
             if (timestampColumn != null) {
                 this.indexOfVisitor = new BinarySearch.LongTimeSeriesProvider() {
@@ -97,6 +124,7 @@ public class Partition<T> implements Iterable<T>, Closeable {
                     }
                 };
             }
+            this.columns = columns;
         }
         return this;
     }
@@ -136,6 +164,7 @@ public class Partition<T> implements Iterable<T>, Closeable {
             nullsColumn.close();
             nullsColumn = null;
             columns = null;
+            bitmapIndexes = null;
             LOGGER.trace("Partition %s closed", partitionDir);
         }
 
@@ -150,16 +179,53 @@ public class Partition<T> implements Iterable<T>, Closeable {
 
     public String getString(long localRowID, int columnIndex) {
         checkColumnIndex(columnIndex);
-        if (getNullsColumn().getBitSet(localRowID).get(columnIndex)) {
+        if (getNullsColumn().isNull(localRowID, columnIndex)) {
             return null;
         } else {
             return ((VariableColumn) columns[columnIndex]).getString(localRowID);
         }
     }
 
+    /**
+     * Zero-allocation alternative to {@link #getString(long, int)} and {@link #getSymbol(long, int)}. STRING
+     * values are returned as a view over mapped memory, which is only valid until journal is refreshed or closed.
+     * Partitions that are not open in READ mode return copies of STRING values. SYMBOL values are cached strings
+     * of symbol table.
+     *
+     * @param localRowID  row id within partition
+     * @param columnIndex index of STRING or SYMBOL column
+     * @return value or null
+     */
+    public CharSequence getFlyweightStr(long localRowID, int columnIndex) {
+        return getFlyweightStr(localRowID, columnIndex, null);
+    }
+
+    /**
+     * Same as {@link #getFlyweightStr(long, int)}, but STRING values are read into caller's instance.
+     */
+    public CharSequence getFlyweightStr(long localRowID, int columnIndex, DirectCharSequence target) {
+        checkColumnIndex(columnIndex);
+        if (getNullsColumn().isNull(localRowID, columnIndex)) {
+            return null;
+        }
+        JournalMetadata.ColumnMetadata m = journal.getMetadata().getColumnMetadata(columnIndex);
+        switch (m.type) {
+            case STRING:
+                VariableColumn column = (VariableColumn) columns[columnIndex];
+                if (!column.isFlyweightSupported()) {
+                    return column.getString(localRowID);
+                }
+                return target == null ? column.getFlyweightStr(localRowID) : column.getFlyweightStr(localRowID, target);
+            case SYMBOL:
+                return getSymbol(localRowID, columnIndex);
+            default:
+                throw new JournalRuntimeException("Column %s is of type %s", m.name, m.type);
+        }
+    }
+
     public String getSymbol(long localRowID, int columnIndex) {
         checkColumnIndex(columnIndex);
-        if (getNullsColumn().getBitSet(localRowID).get(columnIndex)) {
+        if (getNullsColumn().isNull(localRowID, columnIndex)) {
             return null;
         } else {
             int symbolIndex = ((FixedColumn) columns[columnIndex]).getInt(localRowID);
@@ -210,9 +276,107 @@ public class Partition<T> implements Iterable<T>, Closeable {
         }
     }
 
+    /**
+     * Copies values of LONG column for rows lo to hi inclusive into target array starting from index 0.
+     * This is much faster than reading values one at a time because column pages are copied in bulk.
+     * Null values are not distinguished from zeroes, use #isNull if that is important.
+     *
+     * @param columnIndex index of LONG column
+     * @param lo          first local row ID
+     * @param hi          last local row ID
+     * @param target      array to copy values to
+     * @return number of values copied
+     */
+    public int readColumn(int columnIndex, long lo, long hi, long[] target) {
+        int count = checkColumnRange(columnIndex, lo, hi, target.length, ColumnType.LONG, ColumnType.LONG);
+        getFixedWidthColumn(columnIndex).copy(lo, count, target, Unsafe.LONG_ARRAY_OFFSET);
+        return count;
+    }
+
+    /**
+     * Copies values of INT column for rows lo to hi inclusive into target array. For SYMBOL columns
+     * values are symbol keys, which can be resolved via symbol table.
+     *
+     * @see #readColumn(int, long, long, long[])
+     */
+    public int readColumn(int columnIndex, long lo, long hi, int[] target) {
+        int count = checkColumnRange(columnIndex, lo, hi, target.length, ColumnType.INT, ColumnType.SYMBOL);
+        getFixedWidthColumn(columnIndex).copy(lo, count, target, Unsafe.INT_ARRAY_OFFSET);
+        return count;
+    }
+
+    /**
+     * Visits rows of SYMBOL or INT column from last row down to lo and passes each key to handler once, together
+     * with its latest row. Keys are copied in blocks of buffer length, rows themselves are not read. Scan ends
+     * early once seenKeys holds keyCount keys.
+     *
+     * @param columnIndex index of SYMBOL or INT column
+     * @param lo          lowest local row ID to visit
+     * @param keyCount    number of distinct keys column can have
+     * @param seenKeys    keys to skip, keys passed to handler are added to it, so it can be carried over to older partitions
+     * @param buffer      keys of one block
+     * @param handler     receives keys not seen before
+     * @return true if all keyCount keys have been seen
+     * @throws JournalException if handler fails
+     */
+    public boolean scanLatestKeys(int columnIndex, long lo, int keyCount, BitSet seenKeys, int[] buffer, LatestKeyHandler handler) throws JournalException {
+        int seen = seenKeys.cardinality();
+        long hi = size() - 1;
+        while (hi >= lo && seen < keyCount) {
+            long blockLo = Math.max(lo, hi - buffer.length + 1);
+            int n = readColumn(columnIndex, blockLo, hi, buffer);
+            for (int i = n - 1; i >= 0 && seen < keyCount; i--) {
+                int key = buffer[i];
+                if (key >= 0 && !seenKeys.get(key)) {
+                    seenKeys.set(key);
+                    seen++;
+                    handler.onKey(key, blockLo + i);
+                }
+            }
+            hi = blockLo - 1;
+        }
+        return seen >= keyCount;
+    }
+
+    /**
+     * Copies values of DOUBLE column for rows lo to hi inclusive into target array.
+     *
+     * @see #readColumn(int, long, long, long[])
+     */
+    public int readColumn(int columnIndex, long lo, long hi, double[] target) {
+        int count = checkColumnRange(columnIndex, lo, hi, target.length, ColumnType.DOUBLE, ColumnType.DOUBLE);
+        getFixedWidthColumn(columnIndex).copy(lo, count, target, Unsafe.DOUBLE_ARRAY_OFFSET);
+        return count;
+    }
+
+    /**
+     * Copies raw values of any fixed width column for rows lo to hi inclusive into target buffer, starting at
+     * its current position. Values are in native byte order, so buffer should be ordered accordingly.
+     * Position of buffer is advanced by number of bytes copied.
+     *
+     * @see #readColumn(int, long, long, long[])
+     */
+    public int readColumn(int columnIndex, long lo, long hi, ByteBuffer target) {
+        checkColumnIndex(columnIndex);
+        JournalMetadata.ColumnMetadata m = journal.getMetadata().getColumnMetadata(columnIndex);
+        int count = checkColumnRange(columnIndex, lo, hi, target.remaining() / m.size, m.type, m.type);
+        if (!(columns[columnIndex] instanceof FixedColumn)) {
+            throw new JournalRuntimeException("Column %s is of variable width type %s", m.name, m.type);
+        }
+
+        int pos = target.position();
+        if (target.hasArray()) {
+            getFixedWidthColumn(columnIndex).copy(lo, count, target.array(), Unsafe.BYTE_ARRAY_OFFSET + target.arrayOffset() + pos);
+        } else {
+            getFixedWidthColumn(columnIndex).copy(lo, count, null, ByteBuffers.getAddress(target) + pos);
+        }
+        target.position(pos + count * m.size);
+        return count;
+    }
+
     public boolean isNull(long localRowID, int columnIndex) {
         checkColumnIndex(columnIndex);
-        return nullsColumn.getBitSet(Rows.toLocalRowID(localRowID)).get(columnIndex);
+        return nullsColumn.isNull(Rows.toLocalRowID(localRowID), columnIndex);
     }
 
 
@@ -240,68 +404,13 @@ public class Partition<T> implements Iterable<T>, Closeable {
     }
 
     public void read(long localRowID, T obj) {
-
-        sun.misc.Unsafe u = Unsafe.getUnsafe();
-        BitSet nulls = nullsColumn.getBitSet(localRowID);
-        nulls.or(journal.getInactiveColumns());
-        for (int i = 0; i < columnCount; i++) {
-
-            // fail fast
-            if (nulls.get(i)) {
-                continue;
-            }
-            Journal.ColumnMetadata m = journal.getColumnMetadata(i);
-            switch (m.meta.type) {
-                case BOOLEAN:
-                    u.putBoolean(obj, m.meta.offset, ((FixedColumn) columns[i]).getBool(localRowID));
-                    break;
-                case BYTE:
-                    u.putByte(obj, m.meta.offset, ((FixedColumn) columns[i]).getByte(localRowID));
-                    break;
-                case DOUBLE:
-                    u.putDouble(obj, m.meta.offset, ((FixedColumn) columns[i]).getDouble(localRowID));
-                    break;
-                case INT:
-                    u.putInt(obj, m.meta.offset, ((FixedColumn) columns[i]).getInt(localRowID));
-                    break;
-                case LONG:
-                    u.putLong(obj, m.meta.offset, ((FixedColumn) columns[i]).getLong(localRowID));
-                    break;
-                case SHORT:
-                    u.putShort(obj, m.meta.offset, ((FixedColumn) columns[i]).getShort(localRowID));
-                    break;
-                case STRING:
-                    String s = ((VariableColumn) columns[i]).getString(localRowID);
-                    if (s != null) {
-                        u.putObject(obj, m.meta.offset, s);
-                    }
-                    break;
-                case SYMBOL:
-                    int symbolIndex = ((FixedColumn) columns[i]).getInt(localRowID);
-                    // check if symbol was null
-                    if (symbolIndex > SymbolTable.VALUE_IS_NULL) {
-                        u.putObject(obj, m.meta.offset, m.symbolTable.value(symbolIndex));
-                    }
-                    break;
-                case BINARY:
-                    int size = ((VariableColumn) columns[i]).getBufferSize(localRowID);
-                    ByteBuffer buf = (ByteBuffer) Unsafe.getUnsafe().getObject(obj, m.meta.offset);
-                    if (buf == null || buf.capacity() < size) {
-                        buf = ByteBuffer.allocate(size);
-                        u.putObject(obj, m.meta.offset, buf);
-                    }
-
-                    if (buf.remaining() < size) {
-                        buf.rewind();
-                    }
-                    buf.limit(size);
-                    ((VariableColumn) columns[i]).getBuffer(localRowID, buf, size);
-                    buf.flip();
-
-            }
-        }
+        journal.getCodec().read(columns, journal.getColumnSymbolTables(), nullsColumn.getAddress(localRowID), localRowID, obj);
 
         if (nullsAdaptor != null) {
+            BitSet inactive = journal.getInactiveColumns();
+            BitSet nulls = readNulls.get();
+            nullsColumn.getBitSet(localRowID, nulls);
+            nulls.or(inactive);
             nullsAdaptor.setNulls(obj, nulls);
         }
     }
@@ -314,117 +423,148 @@ public class Partition<T> implements Iterable<T>, Closeable {
 
 
     public void append(T obj) throws JournalException {
+        stats.prepareAppend();
         boolean checkNulls = false;
-        sun.misc.Unsafe u = Unsafe.getUnsafe();
         nulls.clear();
 
-
         if (nullsAdaptor != null) {
             nullsAdaptor.getNulls(obj, nulls);
             checkNulls = true;
         }
 
-        int key;
+        journal.getCodec().append(columns, journal.getColumnSymbolTables(), obj, nulls, checkNulls, appendKeyCache, appendSizeCache);
+        nullsColumn.putBitSet(nulls);
+        commitColumns();
+
+        for (int i = 0, len = appendKeyCache.length; i < len; i++) {
+            if (appendKeyCache[i] > -3) {
+                columnIndexProxies.get(i).getIndex().add(appendKeyCache[i], appendSizeCache[i]);
+            }
+        }
+
+        applyTx(Journal.TX_LIMIT_EVAL, null);
+        stats.append();
+    }
+
+    /**
+     * Appends batch of objects column by column. Each column and its index is written by task submitted
+     * to executor, columns sharing symbol table are written by the same task. Nulls, column sizes and
+     * transaction are updated once for whole batch after all tasks are done. If any of tasks fails,
+     * all columns and indexes are truncated back to size partition had before this call.
+     * <p/>
+     * Whether this is faster than appending one object at a time depends on number of cores and width
+     * of model. On single core it only adds cost of handing columns over to executor.
+     *
+     * @param objects  objects to append, in the order they should appear in partition
+     * @param executor executor to run column tasks
+     * @throws JournalException if any of column tasks fails
+     */
+    public void append(List<T> objects, ExecutorService executor) throws JournalException {
+        int rowCount = objects.size();
+        if (rowCount == 0) {
+            return;
+        }
+        long size = size();
+        stats.prepareAppend();
+
+        // transpose nulls reported by adaptor into null rows of each column
+        boolean checkNulls = nullsAdaptor != null;
+        BitSet columnNulls[] = new BitSet[columnCount];
         for (int i = 0; i < columnCount; i++) {
-            Journal.ColumnMetadata meta = journal.getColumnMetadata(i);
-            switch (meta.meta.type) {
-                case BOOLEAN:
-                    if (checkNulls && nulls.get(i)) {
-                        ((FixedColumn) columns[i]).putNull();
-                    } else {
-                        ((FixedColumn) columns[i]).putBool(u.getBoolean(obj, meta.meta.offset));
-                    }
-                    break;
-                case BYTE:
-                    if (checkNulls && nulls.get(i)) {
-                        ((FixedColumn) columns[i]).putNull();
-                    } else {
-                        ((FixedColumn) columns[i]).putByte(u.getByte(obj, meta.meta.offset));
-                    }
-                    break;
-                case DOUBLE:
-                    if (checkNulls && nulls.get(i)) {
-                        ((FixedColumn) columns[i]).putNull();
-                    } else {
-                        ((FixedColumn) columns[i]).putDouble(u.getDouble(obj, meta.meta.offset));
-                    }
-                    break;
-                case INT:
-                    if (checkNulls && nulls.get(i)) {
-                        ((FixedColumn) columns[i]).putNull();
-                    } else {
-                        ((FixedColumn) columns[i]).putInt(u.getInt(obj, meta.meta.offset));
-                    }
-                    break;
-                case LONG:
-                    if (checkNulls && nulls.get(i)) {
-                        ((FixedColumn) columns[i]).putNull();
-                    } else {
-                        ((FixedColumn) columns[i]).putLong(u.getLong(obj, meta.meta.offset));
-                    }
-                    break;
-                case SHORT:
-                    if (checkNulls && nulls.get(i)) {
-                        ((FixedColumn) columns[i]).putNull();
-                    } else {
-                        ((FixedColumn) columns[i]).putShort(u.getShort(obj, meta.meta.offset));
-                    }
-                    break;
-                case STRING:
-                    String s = (String) u.getObject(obj, meta.meta.offset);
-                    if (s == null) {
-                        nulls.set(i);
-                        if (meta.meta.indexed) {
-                            appendKeyCache[i] = SymbolTable.VALUE_IS_NULL;
-                            appendSizeCache[i] = ((VariableColumn) columns[i]).putNull();
-                        } else {
-                            ((VariableColumn) columns[i]).putNull();
-                        }
-                    } else {
-                        if (meta.meta.indexed) {
-                            appendKeyCache[i] = Checksum.hash(s, meta.meta.distinctCountHint);
-                            appendSizeCache[i] = ((VariableColumn) columns[i]).putString(s);
-                        } else {
-                            ((VariableColumn) columns[i]).putString(s);
-                        }
-                    }
+            columnNulls[i] = new BitSet(rowCount);
+        }
+        if (checkNulls) {
+            for (int r = 0; r < rowCount; r++) {
+                nulls.clear();
+                nullsAdaptor.getNulls(objects.get(r), nulls);
+                for (int i = nulls.nextSetBit(0); i >= 0; i = nulls.nextSetBit(i + 1)) {
+                    columnNulls[i].set(r);
+                }
+            }
+        }
+
+        List<ColumnAppendTask> tasks = new ArrayList<>(columnCount);
+        Map<SymbolTable, ColumnAppendTask> symbolTasks = new HashMap<>();
+        for (int i = 0; i < columnCount; i++) {
+            Journal.ColumnMetadata m = journal.getColumnMetadata(i);
+            ColumnAppendTask task = m.meta.type == ColumnType.SYMBOL ? symbolTasks.get(m.symbolTable) : null;
+            if (task == null) {
+                task = new ColumnAppendTask(objects, columnNulls);
+                tasks.add(task);
+                if (m.meta.type == ColumnType.SYMBOL) {
+                    symbolTasks.put(m.symbolTable, task);
+                }
+            }
+            task.columnIndexes.add(i);
+        }
+
+        JournalException error = null;
+        List<Future<Object>> futures = new ArrayList<>(tasks.size());
+        for (int i = 0, n = tasks.size(); i < n; i++) {
+            try {
+                futures.add(executor.submit(tasks.get(i)));
+            } catch (RejectedExecutionException e) {
+                error = new JournalException("Column append rejected: %s", e, this);
+                break;
+            }
+        }
+
+        // every task has to finish before columns can be truncated, so waiting is not interrupted
+        boolean interrupted = false;
+        for (int i = 0, n = futures.size(); i < n; i++) {
+            while (true) {
+                try {
+                    futures.get(i).get();
                     break;
-                case SYMBOL:
-                    String sym = (String) u.getObject(obj, meta.meta.offset);
-                    if (sym == null) {
-                        nulls.set(i);
-                        key = SymbolTable.VALUE_IS_NULL;
-                    } else {
-                        key = meta.symbolTable.put(sym);
-                    }
-                    if (meta.meta.indexed) {
-                        appendKeyCache[i] = key;
-                        appendSizeCache[i] = ((FixedColumn) columns[i]).putInt(key);
-                    } else {
-                        appendKeyCache[i] = -3;
-                        ((FixedColumn) columns[i]).putInt(key);
+                } catch (ExecutionException e) {
+                    if (error == null) {
+                        error = new JournalException("Column append failed: %s", e.getCause(), this);
                     }
                     break;
-                case BINARY:
-                    ByteBuffer buf = (ByteBuffer) u.getObject(obj, meta.meta.offset);
-                    if (buf == null || buf.remaining() == 0) {
-                        nulls.set(i);
-                        ((VariableColumn) columns[i]).putNull();
-                    } else {
-                        ((VariableColumn) columns[i]).putBuffer(buf);
-                    }
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
             }
         }
-        nullsColumn.putBitSet(nulls);
-        commitColumns();
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
 
-        for (int i = 0, len = appendKeyCache.length; i < len; i++) {
-            if (appendKeyCache[i] > -3) {
-                columnIndexProxies.get(i).getIndex().add(appendKeyCache[i], appendSizeCache[i]);
+        if (error != null) {
+            // columns written by successful tasks are ahead of the rest
+            for (int i = 0, indexProxiesSize = indexProxies.size(); i < indexProxiesSize; i++) {
+                indexProxies.get(i).getIndex().truncate(size);
+            }
+            for (int i = 0; i < columnCount; i++) {
+                if (columns[i] != null) {
+                    columns[i].truncate(size);
+                }
+            }
+            commitColumns();
+            throw error;
+        }
+
+        // only columns with null values contribute to row bitsets
+        int nullColumns[] = new int[columnCount];
+        int nullColumnCount = 0;
+        for (int i = 0; i < columnCount; i++) {
+            if (!columnNulls[i].isEmpty()) {
+                nullColumns[nullColumnCount++] = i;
             }
         }
+        for (int r = 0; r < rowCount; r++) {
+            nulls.clear();
+            for (int k = 0; k < nullColumnCount; k++) {
+                if (columnNulls[nullColumns[k]].get(r)) {
+                    nulls.set(nullColumns[k]);
+                }
+            }
+            nullsColumn.putBitSet(nulls);
+        }
 
+        commitColumns();
         applyTx(Journal.TX_LIMIT_EVAL, null);
+        stats.append();
     }
 
     public void commitColumns() {
@@ -455,9 +595,140 @@ public class Partition<T> implements Iterable<T>, Closeable {
         if (indexOfVisitor == null) {
             throw new JournalRuntimeException("There is no timestamp column in: " + this);
         }
+
+        MappedFile file = timestampColumn.getMappedFile();
+        if (file instanceof CompressedMappedFile && ((CompressedMappedFile) file).hasBlockStats()) {
+            return indexOf((CompressedMappedFile) file, timestamp, type);
+        }
         return BinarySearch.indexOf(indexOfVisitor, timestamp, type);
     }
 
+    /**
+     * Narrows search down to single block using min and max timestamps in block directory, so that
+     * only that block has to be decoded.
+     */
+    private long indexOf(CompressedMappedFile file, long timestamp, BinarySearch.SearchType type) {
+        int blockCount = file.getBlockCount();
+        if (blockCount == 0) {
+            return -1;
+        }
+
+        int lo = 0;
+        int hi = blockCount - 1;
+        int block;
+        if (type == BinarySearch.SearchType.GREATER_OR_EQUAL) {
+            // first block, which has timestamps at or after searched one
+            if (file.getBlockMax(hi) < timestamp) {
+                return -2;
+            }
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (file.getBlockMax(mid) < timestamp) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            block = lo;
+        } else {
+            // last block, which has timestamps at or before searched one
+            if (file.getBlockMin(lo) > timestamp) {
+                return -1;
+            }
+            while (lo < hi) {
+                int mid = (lo + hi + 1) >>> 1;
+                if (file.getBlockMin(mid) > timestamp) {
+                    hi = mid - 1;
+                } else {
+                    lo = mid;
+                }
+            }
+            block = lo;
+        }
+
+        int rowBits = file.getBlockBits() - 3;
+        long rowLo = (long) block << rowBits;
+        long rowHi = Math.min(((long) (block + 1) << rowBits), timestampColumn.size()) - 1;
+        return BinarySearch.indexOf(indexOfVisitor, rowLo, rowHi, timestamp, type);
+    }
+
+    /**
+     * Statistics of column values in this partition. Rows are added to statistics as they are appended and commit
+     * writes them out, so that they can be used to skip partition without opening column files.
+     * Readers catch up with rows committed since statistics were last written by scanning those rows only.
+     * <p/>
+     * Partition, which has rows but no valid statistics file, for example one written before statistics were
+     * introduced, is not scanned. Null is returned instead and caller must assume any value can be present.
+     *
+     * @param columnIndex index of column
+     * @return statistics of all rows of partition or null if partition has no statistics
+     * @throws JournalException if statistics file cannot be read
+     */
+    public ColumnStats getStats(int columnIndex) throws JournalException {
+        checkColumnIndex(columnIndex);
+        return stats.get(columnIndex);
+    }
+
+    /**
+     * Zone map of numeric column, see {@link ZoneMap}. Zone maps are maintained together with column statistics
+     * and written out to separate file, where only blocks that got new rows are rewritten on commit.
+     * <p/>
+     * When zone map file is missing or damaged, writer rebuilds zone maps from column data and writes them out
+     * on next commit. Reader has no zone maps until it opens partition with zone map file again.
+     *
+     * @param columnIndex index of column
+     * @return zone map of all rows of partition or null if column is not numeric or partition has no zone maps
+     * @throws JournalException if statistics file cannot be read
+     */
+    public ZoneMap getZoneMap(int columnIndex) throws JournalException {
+        checkColumnIndex(columnIndex);
+        return stats.getZoneMap(columnIndex);
+    }
+
+    /**
+     * Bitmap index of symbol column, which has bitmap enabled in metadata. Index is built in memory from
+     * symbol keys in column and catches up with rows appended since last call. Memory is held until partition
+     * is closed, which is why partitions larger than {@link JournalConfiguration#BITMAP_INDEX_MAX_ROWS} have no
+     * bitmap index.
+     *
+     * @param columnIndex index of column
+     * @return bitmap index of all rows of partition or null if partition is too large
+     */
+    public synchronized BitmapIndex getBitmapIndex(int columnIndex) {
+        checkColumnIndex(columnIndex);
+        JournalMetadata.ColumnMetadata m = journal.getMetadata().getColumnMetadata(columnIndex);
+        if (m.type != ColumnType.SYMBOL || !m.bitmap) {
+            throw new JournalRuntimeException("Column %s has no bitmap index", m.name);
+        }
+
+        long size = size();
+        if (size > JournalConfiguration.BITMAP_INDEX_MAX_ROWS) {
+            if (bitmapIndexes != null) {
+                bitmapIndexes[columnIndex] = null;
+            }
+            return null;
+        }
+
+        if (bitmapIndexes == null) {
+            bitmapIndexes = new BitmapIndex[columnCount];
+        }
+
+        BitmapIndex index = bitmapIndexes[columnIndex];
+        if (index == null) {
+            index = bitmapIndexes[columnIndex] = new BitmapIndex();
+        }
+
+        if (index.size() > size) {
+            index.clear();
+        }
+
+        FixedColumn column = (FixedColumn) columns[columnIndex];
+        for (long row = index.size(); row < size; row++) {
+            index.add(column.getInt(row), row);
+        }
+        return index;
+    }
+
     public FixedColumn getTimestampColumn() {
         return getFixedWidthColumn(journal.getMetadata().getTimestampColumnIndex());
     }
@@ -580,6 +851,65 @@ public class Partition<T> implements Iterable<T>, Closeable {
                 '}';
     }
 
+    /**
+     * Rewrites column files of this partition into compressed blocks, see {@link CompressedMappedFile}.
+     * Compressed partition is read-only, so this must only be called for partitions, which no longer
+     * receive appends. Symbol indexes are left uncompressed. Partition is re-opened if it was open.
+     * <p/>
+     * Timestamps and offsets of variable length columns are delta-of-delta encoded, other int, long and symbol
+     * columns are frame-of-reference encoded, everything else is deflated.
+     *
+     * @throws JournalException if column files cannot be compressed
+     */
+    public synchronized void compress() throws JournalException {
+        if (isCompressed()) {
+            return;
+        }
+
+        boolean wasOpen = isOpen();
+        close();
+
+        try {
+            compressFiles();
+        } finally {
+            // columns are opened from either compressed or original files, whichever exists
+            if (wasOpen) {
+                open();
+            }
+        }
+    }
+
+    public boolean isCompressed() {
+        return CompressedMappedFile.compressedFile(new File(partitionDir, NULLS_FILE)).exists();
+    }
+
+    private void compressFiles() throws JournalException {
+        for (int i = 0, n = journal.getMetadata().getColumnCount(); i < n; i++) {
+            JournalMetadata.ColumnMetadata m = journal.getMetadata().getColumnMetadata(i);
+            BlockCodec codec;
+            switch (m.type) {
+                case STRING:
+                case BINARY:
+                    CompressedMappedFile.compress(new File(partitionDir, m.name + ".i"), BlockCodec.DELTA_OF_DELTA);
+                    codec = BlockCodec.DEFLATE;
+                    break;
+                case LONG:
+                    codec = i == journal.getMetadata().getTimestampColumnIndex() ? BlockCodec.DELTA_OF_DELTA : BlockCodec.FOR_LONG;
+                    break;
+                case INT:
+                case SYMBOL:
+                    codec = BlockCodec.FOR_INT;
+                    break;
+                default:
+                    codec = BlockCodec.DEFLATE;
+            }
+            CompressedMappedFile.compress(new File(partitionDir, m.name + ".d"), codec);
+        }
+        // nulls file goes last and marks partition as compressed
+        CompressedMappedFile.compress(new File(partitionDir, NULLS_FILE));
+        LOGGER.debug("Compressed %s", this);
+    }
+
     public void compact() throws JournalException {
         if (columns == null || columns.length == 0) {
             throw new JournalException("Cannot compact closed partition: %s", this);
@@ -617,8 +947,26 @@ public class Partition<T> implements Iterable<T>, Closeable {
         }
     }
 
+    private int checkColumnRange(int columnIndex, long lo, long hi, int capacity, ColumnType type1, ColumnType type2) {
+        checkColumnIndex(columnIndex);
+        JournalMetadata.ColumnMetadata m = journal.getMetadata().getColumnMetadata(columnIndex);
+        if (m.type != type1 && m.type != type2) {
+            throw new JournalRuntimeException("Column %s is of type %s", m.name, m.type);
+        }
+
+        if (lo < 0 || hi >= size()) {
+            throw new JournalRuntimeException("Row range [%d, %d] is out of bounds of %s", lo, hi, this);
+        }
+
+        long count = hi < lo ? 0 : hi - lo + 1;
+        if (count > capacity) {
+            throw new JournalRuntimeException("Target is too small for %d values of %s", count, m.name);
+        }
+        return (int) count;
+    }
+
     private FixedColumn getFixedColumnOrNull(long localRowID, int columnIndex) {
-        if (getNullsColumn().getBitSet(localRowID).get(columnIndex)) {
+        if (getNullsColumn().isNull(localRowID, columnIndex)) {
             return null;
         } else {
             return getFixedWidthColumn(columnIndex);
@@ -647,22 +995,43 @@ public class Partition<T> implements Iterable<T>, Closeable {
         this.partitionDir = partitionDir;
         if (create) {
             createSymbolIndexProxies(indexTxAddresses);
+            this.stats.clear();
+            this.bitmapIndexes = null;
         }
     }
 
-    private void open(int columnIndex) throws JournalException {
+    private AbstractColumn open(int columnIndex) throws JournalException {
 
         JournalMetadata.ColumnMetadata m = journal.getMetadata().getColumnMetadata(columnIndex);
         switch (m.type) {
             case STRING:
             case BINARY:
-                columns[columnIndex] = new VariableColumn(
-                        new MappedFileImpl(new File(partitionDir, m.name + ".d"), m.bitHint, journal.getMode())
-                        , new MappedFileImpl(new File(partitionDir, m.name + ".i"), m.indexBitHint, journal.getMode()));
-                break;
+                return new VariableColumn(
+                        openFile(m.name + ".d", m.bitHint, m.pageOverlap)
+                        , openFile(m.name + ".i", m.indexBitHint, 0)
+                        , m.encoding);
             default:
-                columns[columnIndex] = new FixedColumn(
-                        new MappedFileImpl(new File(partitionDir, m.name + ".d"), m.bitHint, journal.getMode()), m.size);
+                return new FixedColumn(openFile(m.name + ".d", m.bitHint, 0), m.size);
+        }
+    }
+
+    /**
+     * Opens compressed copy of column file when partition has been compressed.
+     */
+    private MappedFile openFile(String name, int bitHint, int overlap) throws JournalException {
+        File file = new File(partitionDir, name);
+        File compressed = CompressedMappedFile.compressedFile(file);
+        if (compressed.exists()) {
+            return new CompressedMappedFile(compressed, journal.getMode());
+        }
+        try {
+            return new MappedFileImpl(file, bitHint, journal.getMode(), overlap);
+        } catch (JournalNoSuchFileException e) {
+            // partition could have been compressed after we checked
+            if (compressed.exists()) {
+                return new CompressedMappedFile(compressed, journal.getMode());
+            }
+            throw e;
         }
     }
 
@@ -695,6 +1064,8 @@ public class Partition<T> implements Iterable<T>, Closeable {
 
             commitColumns();
             clearTx();
+            stats.clear();
+            bitmapIndexes = null;
         }
     }
 
@@ -708,6 +1079,23 @@ public class Partition<T> implements Iterable<T>, Closeable {
         }
     }
 
+    void releaseRetired() {
+        AbstractColumn[] columns = this.columns;
+        if (columns != null) {
+            for (int i = 0; i < columns.length; i++) {
+                AbstractColumn column = columns[i];
+                if (column != null) {
+                    column.releaseRetired();
+                }
+            }
+            nullsColumn.releaseRetired();
+        }
+
+        for (int i = 0, indexProxiesSize = indexProxies.size(); i < indexProxiesSize; i++) {
+            indexProxies.get(i).releaseRetired();
+        }
+    }
+
     void getIndexPointers(long[] pointers) throws JournalException {
         for (int i = 0, indexProxiesSize = indexProxies.size(); i < indexProxiesSize; i++) {
             SymbolIndexProxy<T> proxy = indexProxies.get(i);
@@ -720,6 +1108,19 @@ public class Partition<T> implements Iterable<T>, Closeable {
             SymbolIndexProxy<T> proxy = indexProxies.get(i);
             proxy.getIndex().commit();
         }
+
+        if (isOpen()) {
+            stats.commit();
+        }
+    }
+
+    /**
+     * Same as {@link #getStats(int)}, except that partition without statistics is scanned in full. Writer
+     * keeps statistics built this way and writes them out on next commit.
+     */
+    ColumnStats buildStats(int columnIndex) throws JournalException {
+        checkColumnIndex(columnIndex);
+        return stats.build(columnIndex);
     }
 
     void force() throws JournalException {
@@ -765,6 +1166,7 @@ public class Partition<T> implements Iterable<T>, Closeable {
         this.appendKeyCache = new int[columnCount];
         this.appendSizeCache = new long[columnCount];
         Arrays.fill(appendKeyCache, -3);
+        this.stats = new PartitionStats<>(this);
 
         String dateStr = Dates.dirNameForIntervalStart(interval, journal.getMetadata().getPartitionType());
         if (dateStr.length() > 0) {
@@ -773,4 +1175,84 @@ public class Partition<T> implements Iterable<T>, Closeable {
             setPartitionDir(this.journal.getLocation(), indexTxAddresses);
         }
     }
+
+    private class ColumnAppendTask implements Callable<Object> {
+        private final List<T> objects;
+        private final BitSet columnNulls[];
+        private final IntArrayList columnIndexes = new IntArrayList();
+
+        private ColumnAppendTask(List<T> objects, BitSet[] columnNulls) {
+            this.objects = objects;
+            this.columnNulls = columnNulls;
+        }
+
+        @Override
+        public Object call() throws Exception {
+            for (int i = 0, n = columnIndexes.size(); i < n; i++) {
+                appendColumn(columnIndexes.get(i));
+            }
+            return null;
+        }
+
+        private void appendColumn(int columnIndex) throws JournalException {
+            Journal.ColumnMetadata m = journal.getColumnMetadata(columnIndex);
+            AbstractColumn column = columns[columnIndex];
+            BitSet nulls = columnNulls[columnIndex];
+            long offset = m.meta.offset;
+            int rowCount = objects.size();
+            int keys[] = m.meta.indexed ? new int[rowCount] : null;
+            long lo = column.size();
+
+            for (int r = 0; r < rowCount; r++) {
+                Object obj = objects.get(r);
+                switch (m.meta.type) {
+                    case BOOLEAN:
+                        ObjectCodec.putBool((FixedColumn) column, obj, offset, nulls, r);
+                        break;
+                    case BYTE:
+                        ObjectCodec.putByte((FixedColumn) column, obj, offset, nulls, r);
+                        break;
+                    case DOUBLE:
+                        ObjectCodec.putDouble((FixedColumn) column, obj, offset, nulls, r);
+                        break;
+                    case INT:
+                        ObjectCodec.putInt((FixedColumn) column, obj, offset, nulls, r);
+                        break;
+                    case LONG:
+                        ObjectCodec.putLong((FixedColumn) column, obj, offset, nulls, r);
+                        break;
+                    case SHORT:
+                        ObjectCodec.putShort((FixedColumn) column, obj, offset, nulls, r);
+                        break;
+                    case STRING:
+                        if (keys != null) {
+                            keys[r] = ObjectCodec.putIndexedString((VariableColumn) column, obj, offset, nulls, r, m.meta.distinctCountHint, journal.getMetadata().getHashVersion());
+                        } else {
+                            ObjectCodec.putString((VariableColumn) column, obj, offset, nulls, r);
+                        }
+                        break;
+                    case SYMBOL:
+                        int key = ObjectCodec.putSymbol((FixedColumn) column, m.symbolTable, obj, offset, nulls, r);
+                        if (keys != null) {
+                            keys[r] = key;
+                        }
+                        break;
+                    case BINARY:
+                        ObjectCodec.putBinary((VariableColumn) column, obj, offset, nulls, r);
+                        break;
+                    default:
+                        throw new JournalException("Unsupported type: %s", m.meta.type);
+                }
+                // column append offset moves on commit only
+                column.commit();
+            }
+
+            if (keys != null) {
+                KVIndex index = columnIndexProxies.get(columnIndex).getIndex();
+                for (int r = 0; r < rowCount; r++) {
+                    index.add(keys[r], lo + r);
+                }
+            }
+        }
+    }
 }
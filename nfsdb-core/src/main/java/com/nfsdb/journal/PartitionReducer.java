@@ -0,0 +1,43 @@
+/*
+ * Copyright (c) 2014. Vlad Ilyushchenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nfsdb.journal;
+
+import com.nfsdb.journal.exceptions.JournalException;
+
+/**
+ * Reads partitions independently of each other and merges their results, see
+ * {@link Journal#reducePartitions(PartitionReducer)}.
+ *
+ * @param <T> underlying java class
+ * @param <X> result of partition
+ */
+public interface PartitionReducer<T, X> {
+    /**
+     * @param partition partition to read
+     * @return result of partition, null when neither this nor any older partition contributes to result
+     */
+    X read(Partition<T> partition) throws JournalException;
+
+    /**
+     * Merges results of two adjacent ranges of partitions.
+     *
+     * @param older result of partitions with lower indexes
+     * @param newer result of partitions with higher indexes
+     * @return merged result, either of arguments can be reused
+     */
+    X merge(X older, X newer);
+}
@@ -0,0 +1,534 @@
+/*
+ * Copyright (c) 2014. Vlad Ilyushchenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nfsdb.journal;
+
+import com.nfsdb.journal.column.AbstractColumn;
+import com.nfsdb.journal.column.ColumnStats;
+import com.nfsdb.journal.column.ColumnType;
+import com.nfsdb.journal.column.FixedColumn;
+import com.nfsdb.journal.column.NullsColumn;
+import com.nfsdb.journal.column.SymbolTable;
+import com.nfsdb.journal.column.ZoneMap;
+import com.nfsdb.journal.exceptions.JournalException;
+import com.nfsdb.journal.factory.JournalConfiguration;
+import com.nfsdb.journal.factory.JournalMetadata;
+import com.nfsdb.journal.logging.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardCopyOption;
+import java.util.zip.CRC32;
+
+/**
+ * Column statistics and zone maps of partition together with their files, _stats and _zones.
+ * <p/>
+ * Writer adds rows to statistics as they are appended, while they are still in cache, and commit only writes
+ * files out. Rows that reached partition some other way, and rows reader has not seen yet, are scanned when
+ * statistics are next asked for.
+ */
+class PartitionStats<T> {
+
+    private static final Logger LOGGER = Logger.getLogger(PartitionStats.class);
+    private static final String STATS_FILE = "_stats";
+    private static final String ZONES_FILE = "_zones";
+    private static final int STATS_MAGIC = 0x5354534e;
+    private static final int ZONES_MAGIC = 0x454e4f5a;
+    // version 1 kept zone maps in statistics file
+    private static final int STATS_VERSION = 2;
+    private static final int ZONES_VERSION = 1;
+    // magic, version, row count and column count
+    private static final int STATS_HEADER_SIZE = 20;
+    // magic, version, column count and block bits
+    private static final int ZONES_HEADER_SIZE = 16;
+    private final Partition<T> partition;
+    private final int columnCount;
+    private ColumnStats[] stats;
+    private ZoneMap[] zoneMaps;
+    private long statsRowCount;
+    // rows covered by zone maps, can be behind statistics when zone map file lost its tail
+    private long zoneRowCount;
+    private long zoneFileRowCount;
+    private boolean dirty;
+
+    /**
+     * @param columnIndex index of column
+     * @return statistics of all rows of partition or null if partition has no statistics
+     * @throws JournalException if statistics file cannot be read
+     */
+    synchronized ColumnStats get(int columnIndex) throws JournalException {
+        return update() == null ? null : stats[columnIndex];
+    }
+
+    /**
+     * @param columnIndex index of column
+     * @return zone map of all rows of partition or null if column is not numeric or partition has no zone maps
+     * @throws JournalException if statistics file cannot be read
+     */
+    synchronized ZoneMap getZoneMap(int columnIndex) throws JournalException {
+        return update() == null || zoneRowCount < 0 ? null : zoneMaps[columnIndex];
+    }
+
+    /**
+     * Same as {@link #get(int)}, except that partition without statistics is scanned in full.
+     */
+    synchronized ColumnStats build(int columnIndex) throws JournalException {
+        if (update() == null) {
+            if (stats == null) {
+                load();
+            }
+            reset();
+            update();
+        }
+        return stats[columnIndex];
+    }
+
+    /**
+     * Loads statistics before rows are appended, so that partition, which is empty now, is known to have
+     * statistics of all of its rows.
+     */
+    synchronized void prepareAppend() throws JournalException {
+        if (stats == null) {
+            load();
+        }
+    }
+
+    /**
+     * Adds rows appended since last call to statistics. Writer calls this after each append.
+     */
+    synchronized void append() throws JournalException {
+        update();
+    }
+
+    /**
+     * Writes statistics out when they have rows, which are not in files yet. Only rows that have not been
+     * added on append are scanned here.
+     */
+    synchronized void commit() throws JournalException {
+        if (update() != null && dirty) {
+            // zone maps go first, so that zone map file never lacks rows of statistics file
+            writeZones();
+            writeStats();
+        }
+    }
+
+    /**
+     * Statistics are loaded from files again on next use. Files match last commit, which is what partition
+     * is truncated to on rollback.
+     */
+    synchronized void clear() {
+        stats = null;
+        dirty = false;
+    }
+
+    private ColumnStats[] update() throws JournalException {
+        if (stats == null) {
+            load();
+        }
+
+        long size = partition.size();
+        if (statsRowCount > size) {
+            if (size > 0) {
+                // rows covered by statistics are gone and cannot be taken out of them without full scan
+                drop();
+                return null;
+            }
+            reset();
+        }
+
+        if (statsRowCount < 0) {
+            return null;
+        }
+
+        if (zoneRowCount < 0 && partition.getJournal().getMode() != JournalMode.READ) {
+            // zone map file is lost, all of its rows are scanned again and file is written from scratch
+            for (int i = 0; i < columnCount; i++) {
+                if (zoneMaps[i] != null) {
+                    zoneMaps[i].clear();
+                }
+            }
+            zoneRowCount = 0;
+            zoneFileRowCount = 0;
+        }
+
+        if (statsRowCount < size || (zoneRowCount >= 0 && zoneRowCount < size)) {
+            NullsColumn nullsColumn = partition.getNullsColumn();
+            for (int i = 0; i < columnCount; i++) {
+                AbstractColumn column = partition.getAbstractColumn(i);
+                if (column != null) {
+                    scan(i, column, nullsColumn, statsRowCount, zoneRowCount, size);
+                }
+            }
+            statsRowCount = size;
+            if (zoneRowCount >= 0) {
+                zoneRowCount = size;
+            }
+            dirty = true;
+        }
+        return stats;
+    }
+
+    /**
+     * Reader can be behind writer, which has already written statistics of rows reader cannot see yet, so it
+     * reads statistics file again next time. On writer such file is left over by rollback and is deleted.
+     */
+    private void drop() {
+        if (partition.getJournal().getMode() == JournalMode.READ) {
+            stats = null;
+        } else {
+            deleteFile(STATS_FILE);
+            deleteFile(ZONES_FILE);
+            statsRowCount = -1;
+            zoneRowCount = -1;
+            dirty = false;
+        }
+    }
+
+    private void deleteFile(String name) {
+        File file = new File(partition.getPartitionDir(), name);
+        if (file.exists() && !file.delete()) {
+            LOGGER.info("Could not delete %s", file);
+        }
+    }
+
+    private void reset() {
+        clearColumns();
+        statsRowCount = 0;
+        zoneRowCount = 0;
+        zoneFileRowCount = 0;
+    }
+
+    /**
+     * Adds rows from statsLo to hi to column statistics and rows from zoneLo to hi to zone map. Zone map
+     * is not updated when zoneLo is negative.
+     */
+    private void scan(int columnIndex, AbstractColumn column, NullsColumn nullsColumn, long statsLo, long zoneLo, long hi) {
+        ZoneMap zoneMap = zoneLo < 0 ? null : zoneMaps[columnIndex];
+        ColumnType type = partition.getJournal().getMetadata().getColumnMetadata(columnIndex).type;
+
+        for (long row = zoneMap == null ? statsLo : Math.min(statsLo, zoneLo); row < hi; row++) {
+            ColumnStats s = row < statsLo ? null : stats[columnIndex];
+            ColumnStats zone = zoneMap == null || row < zoneLo ? null : zoneMap.getBlockForRow(row);
+            if (nullsColumn.isNull(row, columnIndex)) {
+                if (s != null) {
+                    s.addNull();
+                }
+                if (zone != null) {
+                    zone.addNull();
+                }
+                continue;
+            }
+
+            switch (type) {
+                case BOOLEAN:
+                    if (s != null) {
+                        s.add(((FixedColumn) column).getBool(row) ? 1 : 0);
+                    }
+                    break;
+                case BYTE:
+                case SHORT:
+                case INT:
+                case LONG:
+                    long v = getLong((FixedColumn) column, type, row);
+                    if (s != null) {
+                        s.add(v);
+                    }
+                    if (zone != null) {
+                        zone.add(v);
+                    }
+                    break;
+                case DOUBLE:
+                    double d = ((FixedColumn) column).getDouble(row);
+                    if (s != null) {
+                        s.add(d);
+                    }
+                    if (zone != null) {
+                        zone.add(d);
+                    }
+                    break;
+                case SYMBOL:
+                    if (s != null) {
+                        int key = ((FixedColumn) column).getInt(row);
+                        if (key == SymbolTable.VALUE_IS_NULL) {
+                            s.addNull();
+                        } else {
+                            s.addKey(key);
+                        }
+                    }
+                    break;
+                default:
+            }
+        }
+    }
+
+    private static long getLong(FixedColumn column, ColumnType type, long localRowID) {
+        switch (type) {
+            case BYTE:
+                return column.getByte(localRowID);
+            case SHORT:
+                return column.getShort(localRowID);
+            case INT:
+                return column.getInt(localRowID);
+            default:
+                return column.getLong(localRowID);
+        }
+    }
+
+    private void clearColumns() {
+        for (int i = 0; i < columnCount; i++) {
+            stats[i].clear();
+            if (zoneMaps[i] != null) {
+                zoneMaps[i].clear();
+            }
+        }
+    }
+
+    private void load() throws JournalException {
+        JournalMetadata<T> metadata = partition.getJournal().getMetadata();
+        stats = new ColumnStats[columnCount];
+        zoneMaps = new ZoneMap[columnCount];
+        for (int i = 0; i < columnCount; i++) {
+            ColumnType type = metadata.getColumnMetadata(i).type;
+            stats[i] = new ColumnStats(type);
+            if (ZoneMap.supports(type)) {
+                zoneMaps[i] = new ZoneMap(type, JournalConfiguration.ZONE_MAP_BLOCK_BITS);
+            }
+        }
+        dirty = false;
+        zoneFileRowCount = 0;
+
+        // without statistics file only empty partition has known statistics
+        if (partition.size() == 0) {
+            statsRowCount = 0;
+            zoneRowCount = 0;
+            return;
+        }
+
+        statsRowCount = readStats();
+        zoneRowCount = statsRowCount > 0 ? readZones(statsRowCount) : statsRowCount;
+        zoneFileRowCount = Math.max(zoneRowCount, 0);
+    }
+
+    private long readStats() throws JournalException {
+        File file = new File(partition.getPartitionDir(), STATS_FILE);
+        ByteBuffer buf = readFile(file);
+        if (buf == null) {
+            return -1;
+        }
+
+        if (buf.remaining() < STATS_HEADER_SIZE + 8 || buf.getInt() != STATS_MAGIC || buf.getInt() != STATS_VERSION) {
+            LOGGER.info("Ignoring %s written in unsupported format", file);
+            return -1;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(buf.array(), 0, buf.limit() - 8);
+        if (crc.getValue() != buf.getLong(buf.limit() - 8)) {
+            LOGGER.info("Ignoring %s with invalid checksum", file);
+            return -1;
+        }
+        long rowCount = buf.getLong();
+        if (buf.getInt() != columnCount) {
+            LOGGER.info("Ignoring %s written for different column count", file);
+            return -1;
+        }
+        try {
+            for (int i = 0; i < columnCount; i++) {
+                stats[i].read(buf);
+            }
+        } catch (BufferUnderflowException e) {
+            LOGGER.info("Ignoring truncated %s", file);
+            clearColumns();
+            return -1;
+        }
+        return rowCount;
+    }
+
+    /**
+     * Reads zone map records up to the first one, which is damaged or covers rows beyond limit. Such records are
+     * left behind by commit, which did not complete, and rows they cover are scanned again.
+     *
+     * @return number of rows covered by records read or -1 if there is no valid zone map file
+     */
+    private long readZones(long limit) throws JournalException {
+        File file = new File(partition.getPartitionDir(), ZONES_FILE);
+        ByteBuffer buf = readFile(file);
+        if (buf == null) {
+            return -1;
+        }
+
+        int blockBits = JournalConfiguration.ZONE_MAP_BLOCK_BITS;
+        if (buf.remaining() < ZONES_HEADER_SIZE || buf.getInt() != ZONES_MAGIC || buf.getInt() != ZONES_VERSION
+                || buf.getInt() != columnCount || buf.getInt() != blockBits) {
+            LOGGER.info("Ignoring %s written in unsupported format", file);
+            return -1;
+        }
+
+        int recordSize = getZoneRecordSize();
+        CRC32 crc = new CRC32();
+        long rowCount = 0;
+        // only last record can cover part of block
+        for (int block = 0; buf.remaining() >= recordSize && rowCount == (long) block << blockBits; block++) {
+            int pos = buf.position();
+            crc.reset();
+            crc.update(buf.array(), pos, recordSize - 8);
+            long rowHi = buf.getLong(pos);
+            if (crc.getValue() != buf.getLong(pos + recordSize - 8) || rowHi <= rowCount || rowHi > Math.min(limit, (long) (block + 1) << blockBits)) {
+                LOGGER.info("Ignoring %s from block %d", file, block);
+                break;
+            }
+            buf.position(pos + 8);
+            for (int i = 0; i < columnCount; i++) {
+                if (zoneMaps[i] != null) {
+                    zoneMaps[i].readBlock(buf);
+                }
+            }
+            buf.position(pos + recordSize);
+            rowCount = rowHi;
+        }
+        return rowCount;
+    }
+
+    private static ByteBuffer readFile(File file) throws JournalException {
+        if (!file.exists()) {
+            return null;
+        }
+        try (FileChannel channel = new RandomAccessFile(file, "r").getChannel()) {
+            ByteBuffer buf = ByteBuffer.allocate((int) channel.size()).order(ByteOrder.LITTLE_ENDIAN);
+            while (buf.hasRemaining() && channel.read(buf) >= 0) {
+                // keep reading
+            }
+            buf.flip();
+            return buf;
+        } catch (IOException e) {
+            throw new JournalException("Cannot read %s", e, file);
+        }
+    }
+
+    /**
+     * Statistics file is written next to the old one and renamed over it, so that it is replaced as a whole.
+     * Checksum catches file, which was not fully on disk when system crashed.
+     */
+    private void writeStats() throws JournalException {
+        int size = STATS_HEADER_SIZE + 8;
+        for (int i = 0; i < columnCount; i++) {
+            size += stats[i].size();
+        }
+        ByteBuffer buf = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+        buf.putInt(STATS_MAGIC);
+        buf.putInt(STATS_VERSION);
+        buf.putLong(statsRowCount);
+        buf.putInt(columnCount);
+        for (int i = 0; i < columnCount; i++) {
+            stats[i].write(buf);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(buf.array(), 0, buf.position());
+        buf.putLong(crc.getValue());
+        buf.flip();
+
+        File file = new File(partition.getPartitionDir(), STATS_FILE);
+        File tmp = new File(partition.getPartitionDir(), STATS_FILE + ".tmp");
+        try (FileChannel channel = new RandomAccessFile(tmp, "rw").getChannel()) {
+            while (buf.hasRemaining()) {
+                channel.write(buf, buf.position());
+            }
+            channel.truncate(size);
+        } catch (IOException e) {
+            throw new JournalException("Cannot write %s", e, tmp);
+        }
+        try {
+            java.nio.file.Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new JournalException("Cannot rename %s to %s", e, tmp, file);
+        }
+        dirty = false;
+    }
+
+    /**
+     * Zone map file has fixed size record for each block: rows covered, block of each zone map and checksum.
+     * Only records of blocks, which got rows since last write, are written, which is normally just the tail.
+     * Record of partially filled block is rewritten in place; if that write is torn, checksum drops the record
+     * on load and its rows are scanned again.
+     */
+    private void writeZones() throws JournalException {
+        if (zoneRowCount <= zoneFileRowCount) {
+            return;
+        }
+
+        int blockBits = JournalConfiguration.ZONE_MAP_BLOCK_BITS;
+        int recordSize = getZoneRecordSize();
+        int lo = (int) (zoneFileRowCount >>> blockBits);
+        int hi = (int) ((zoneRowCount - 1) >>> blockBits);
+        ByteBuffer buf = ByteBuffer.allocate((hi - lo + 1) * recordSize).order(ByteOrder.LITTLE_ENDIAN);
+        CRC32 crc = new CRC32();
+        for (int block = lo; block <= hi; block++) {
+            int pos = buf.position();
+            buf.putLong(Math.min(zoneRowCount, (long) (block + 1) << blockBits));
+            for (int i = 0; i < columnCount; i++) {
+                if (zoneMaps[i] != null) {
+                    zoneMaps[i].writeBlock(block, buf);
+                }
+            }
+            crc.reset();
+            crc.update(buf.array(), pos, recordSize - 8);
+            buf.putLong(crc.getValue());
+        }
+        buf.flip();
+
+        File file = new File(partition.getPartitionDir(), ZONES_FILE);
+        try (FileChannel channel = new RandomAccessFile(file, "rw").getChannel()) {
+            if (zoneFileRowCount == 0) {
+                ByteBuffer header = ByteBuffer.allocate(ZONES_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+                header.putInt(ZONES_MAGIC);
+                header.putInt(ZONES_VERSION);
+                header.putInt(columnCount);
+                header.putInt(blockBits);
+                header.flip();
+                while (header.hasRemaining()) {
+                    channel.write(header, header.position());
+                }
+            }
+            long offset = ZONES_HEADER_SIZE + (long) lo * recordSize;
+            while (buf.hasRemaining()) {
+                channel.write(buf, offset + buf.position());
+            }
+            channel.truncate(offset + buf.limit());
+        } catch (IOException e) {
+            throw new JournalException("Cannot write %s", e, file);
+        }
+        zoneFileRowCount = zoneRowCount;
+    }
+
+    private int getZoneRecordSize() {
+        int size = 16;
+        for (int i = 0; i < columnCount; i++) {
+            if (zoneMaps[i] != null) {
+                size += zoneMaps[i].getBlockRecordSize();
+            }
+        }
+        return size;
+    }
+
+    PartitionStats(Partition<T> partition) {
+        this.partition = partition;
+        this.columnCount = partition.getJournal().getMetadata().getColumnCount();
+    }
+}
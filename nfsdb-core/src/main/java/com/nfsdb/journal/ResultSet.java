@@ -23,9 +23,12 @@ import com.nfsdb.journal.iterators.ConcurrentIterator;
 import com.nfsdb.journal.iterators.ResultSetBufferedIterator;
 import com.nfsdb.journal.iterators.ResultSetConcurrentIterator;
 import com.nfsdb.journal.iterators.ResultSetIterator;
+import com.nfsdb.journal.utils.RadixSort;
 import com.nfsdb.journal.utils.Rows;
 import gnu.trove.list.TLongList;
 
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Iterator;
 import java.util.Random;
 
@@ -57,9 +60,37 @@ public class ResultSet<T> implements Iterable<T> {
         return sort(order, getColumnIndexes(columnNames));
     }
 
+    /**
+     * Sorts rows by values of columns. Values of each column are read once into primitive sort keys: numbers as they are,
+     * symbols and strings as ranks of their values, nulls of symbols and strings rank before any value. Rows are
+     * then radix sorted by one column at a time, starting with the last one.
+     */
     public ResultSet<T> sort(Order order, int... columnIndices) throws JournalException {
-        if (size() > 0) {
-            quickSort(order, 0, size() - 1, columnIndices);
+        int n = size();
+        if (n > 1) {
+            int[] rows = new int[n];
+            for (int i = 0; i < n; i++) {
+                rows[i] = i;
+            }
+
+            long[] keys = new long[n];
+            for (int c = columnIndices.length - 1; c >= 0; c--) {
+                long[] columnKeys = readSortKeys(columnIndices[c]);
+                for (int i = 0; i < n; i++) {
+                    long key = columnKeys[rows[i]];
+                    keys[i] = order == Order.DESC ? ~key : key;
+                }
+                // radix sort is stable, so rows with equal keys stay ordered by columns sorted before
+                RadixSort.sort(keys, rows, n);
+            }
+
+            long[] sorted = new long[n];
+            for (int i = 0; i < n; i++) {
+                sorted[i] = rowIDs.get(rows[i]);
+            }
+            for (int i = 0; i < n; i++) {
+                rowIDs.set(i, sorted[i]);
+            }
         }
         return this;
     }
@@ -108,6 +139,16 @@ public class ResultSet<T> implements Iterable<T> {
         return journal.getPartition(Rows.toPartitionIndex(rowID), true).getString(Rows.toLocalRowID(rowID), columnIndex);
     }
 
+    /**
+     * Zero-allocation alternative to {@link #getString(int, int)} and {@link #getSymbol(int, int)}.
+     *
+     * @see Partition#getFlyweightStr(long, int)
+     */
+    public CharSequence getFlyweightStr(int rsIndex, int columnIndex) throws JournalException {
+        long rowID = rowIDs.get(rsIndex);
+        return journal.getPartition(Rows.toPartitionIndex(rowID), true).getFlyweightStr(Rows.toLocalRowID(rowID), columnIndex);
+    }
+
     public String getSymbol(int rsIndex, int columnIndex) throws JournalException {
         long rowID = rowIDs.get(rsIndex);
         return journal.getPartition(Rows.toPartitionIndex(rowID), true).getSymbol(Rows.toLocalRowID(rowID), columnIndex);
@@ -175,148 +216,113 @@ public class ResultSet<T> implements Iterable<T> {
         return new ResultSet<>(journal, rows);
     }
 
-    private static <T> int compare(Journal<T> journal, int[] columns, long rightRowID, long leftRowID) throws JournalException {
-        int result = 0;
-        long leftLocalRowID = Rows.toLocalRowID(leftRowID);
-        long rightLocalRowID = Rows.toLocalRowID(rightRowID);
-
-        Partition<T> leftPart = journal.getPartition(Rows.toPartitionIndex(leftRowID), true);
-        Partition<T> rightPart = journal.getPartition(Rows.toPartitionIndex(rightRowID), true);
+    private long[] readSortKeys(int column) throws JournalException {
+        Journal.ColumnMetadata meta = journal.getColumnMetadata(column);
+        long[] keys = new long[size()];
+        BitSet symbolKeys = null;
+        String[] strings = null;
 
-        for (int column : columns) {
-            Journal.ColumnMetadata meta = journal.getColumnMetadata(column);
+        switch (meta.meta.type) {
+            case SYMBOL:
+                symbolKeys = new BitSet();
+                break;
+            case STRING:
+                strings = new String[keys.length];
+                break;
+        }
 
-            String leftStr;
-            String rightStr;
+        Partition<T> partition = null;
+        for (int i = 0; i < keys.length; i++) {
+            long rowID = rowIDs.get(i);
+            int partitionIndex = Rows.toPartitionIndex(rowID);
+            if (partition == null || partition.getPartitionIndex() != partitionIndex) {
+                partition = journal.getPartition(partitionIndex, true);
+            }
+            long localRowID = Rows.toLocalRowID(rowID);
 
             switch (meta.meta.type) {
-                case STRING:
-                    leftStr = leftPart.getString(leftLocalRowID, column);
-                    rightStr = rightPart.getString(rightLocalRowID, column);
-
-                    if (leftStr == null && rightStr == null) {
-                        result = 0;
-                    } else if (leftStr == null) {
-                        result = 1;
-                    } else if (rightStr == null) {
-                        result = -1;
+                case INT:
+                    keys[i] = partition.getInt(localRowID, column);
+                    break;
+                case LONG:
+                    keys[i] = partition.getLong(localRowID, column);
+                    break;
+                case DOUBLE:
+                    keys[i] = RadixSort.toSortableLong(partition.getDouble(localRowID, column));
+                    break;
+                case SYMBOL:
+                    int key = partition.getInt(localRowID, column, SymbolTable.VALUE_IS_NULL);
+                    if (key == SymbolTable.VALUE_IS_NULL) {
+                        keys[i] = Long.MIN_VALUE;
+                    } else if (key < 0 || key >= meta.symbolTable.size()) {
+                        throw new JournalException("Corrupt column [%s] !", meta);
                     } else {
-                        result = rightStr.compareTo(leftStr);
+                        keys[i] = key;
+                        symbolKeys.set(key);
                     }
                     break;
+                case STRING:
+                    strings[i] = partition.getString(localRowID, column);
+                    break;
                 default:
-                    switch (meta.meta.type) {
-                        case INT:
-                            result = compare(rightPart.getInt(rightLocalRowID, column), leftPart.getInt(leftLocalRowID, column));
-                            break;
-                        case LONG:
-                            result = compare(rightPart.getLong(rightLocalRowID, column), leftPart.getLong(leftLocalRowID, column));
-                            break;
-                        case DOUBLE:
-                            result = compare(rightPart.getDouble(rightLocalRowID, column), leftPart.getDouble(leftLocalRowID, column));
-                            break;
-                        case SYMBOL:
-                            int leftSymIndex = leftPart.getInt(leftLocalRowID, column, SymbolTable.VALUE_IS_NULL);
-                            int rightSymIndex = rightPart.getInt(rightLocalRowID, column, SymbolTable.VALUE_IS_NULL);
-
-                            if (leftSymIndex == SymbolTable.VALUE_IS_NULL && rightSymIndex == SymbolTable.VALUE_IS_NULL) {
-                                result = 0;
-                            } else if (leftSymIndex == SymbolTable.VALUE_IS_NULL) {
-                                result = 1;
-                            } else if (rightSymIndex == SymbolTable.VALUE_IS_NULL) {
-                                result = -1;
-                            } else {
-                                leftStr = meta.symbolTable.value(leftSymIndex);
-                                rightStr = meta.symbolTable.value(rightSymIndex);
-
-                                if (leftStr == null || rightStr == null) {
-                                    throw new JournalException("Corrupt column [%s] !", meta);
-                                }
-
-                                result = rightStr.compareTo(leftStr);
-                            }
-                            break;
-                        default:
-                            throw new JournalException("Unsupported type: " + meta.meta.type);
-                    }
-            }
-
-
-            if (result != 0) {
-                break;
+                    throw new JournalException("Unsupported type: " + meta.meta.type);
             }
         }
-        return result;
-    }
-
-    private static int compare(long a, long b) {
-        if (a == b) {
-            return 0;
-        } else if (a > b) {
-            return 1;
-        } else {
-            return -1;
+        if (symbolKeys != null) {
+            return symbolRanks(meta, symbolKeys, keys);
         }
+        return strings == null ? keys : ranks(strings);
     }
 
-    private static int compare(int a, int b) {
-        if (a == b) {
-            return 0;
-        } else if (a > b) {
-            return 1;
-        } else {
-            return -1;
+    /**
+     * Replaces symbol keys with ranks of their values. Only values of keys present in result set are sorted,
+     * so cost does not depend on size of symbol table.
+     */
+    private static long[] symbolRanks(Journal.ColumnMetadata meta, BitSet present, long[] keys) throws JournalException {
+        int[] presentKeys = new int[present.cardinality()];
+        String[] values = new String[presentKeys.length];
+        for (int i = 0, key = present.nextSetBit(0); key >= 0; i++, key = present.nextSetBit(key + 1)) {
+            presentKeys[i] = key;
+            values[i] = meta.symbolTable.value(key);
         }
-    }
-
-    private static int compare(double a, double b) {
-        if (a == b) {
-            return 0;
-        } else if (a > b) {
-            return 1;
-        } else {
-            return -1;
+        long[] valueRanks = ranks(values);
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != Long.MIN_VALUE) {
+                long rank = valueRanks[Arrays.binarySearch(presentKeys, (int) keys[i])];
+                if (rank == Long.MIN_VALUE) {
+                    throw new JournalException("Corrupt column [%s] !", meta);
+                }
+                keys[i] = rank;
+            }
         }
+        return keys;
     }
 
-    void quickSort(Order order, int lo, int hi, int... columnIndices) throws JournalException {
-
-        if (lo >= hi) {
-            return;
-        }
-
-        int pIndex = lo + (hi - lo) / 2;
-        long pivot = rowIDs.get(pIndex);
-
-        int multiplier = 1;
-
-        if (order == Order.DESC) {
-            multiplier = -1;
-        }
-
-        int i = lo;
-        int j = hi;
-
-        while (i <= j) {
-
-            while (multiplier * compare(journal, columnIndices, rowIDs.get(i), pivot) < 0) {
-                i++;
+    /**
+     * @return position of each value among distinct sorted values, Long.MIN_VALUE for nulls
+     */
+    private static long[] ranks(String[] values) {
+        String[] sorted = new String[values.length];
+        int n = 0;
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] != null) {
+                sorted[n++] = values[i];
             }
+        }
+        Arrays.sort(sorted, 0, n);
 
-            while (multiplier * compare(journal, columnIndices, pivot, rowIDs.get(j)) < 0) {
-                j--;
+        int distinct = 0;
+        for (int i = 0; i < n; i++) {
+            if (distinct == 0 || !sorted[i].equals(sorted[distinct - 1])) {
+                sorted[distinct++] = sorted[i];
             }
+        }
 
-            if (i <= j) {
-                long temp = rowIDs.get(i);
-                rowIDs.set(i, rowIDs.get(j));
-                rowIDs.set(j, temp);
-                i++;
-                j--;
-            }
+        long[] ranks = new long[values.length];
+        for (int i = 0; i < values.length; i++) {
+            ranks[i] = values[i] == null ? Long.MIN_VALUE : Arrays.binarySearch(sorted, 0, distinct, values[i]);
         }
-        quickSort(order, lo, j, columnIndices);
-        quickSort(order, i, hi, columnIndices);
+        return ranks;
     }
 
     private int[] getColumnIndexes(String... columnNames) {
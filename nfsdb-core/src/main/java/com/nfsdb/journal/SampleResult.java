@@ -0,0 +1,308 @@
+/*
+ * Copyright (c) 2014. Vlad Ilyushchenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nfsdb.journal;
+
+import com.nfsdb.journal.column.ColumnType;
+import com.nfsdb.journal.column.SymbolTable;
+import gnu.trove.impl.Constants;
+import gnu.trove.map.hash.TIntIntHashMap;
+
+import java.util.Arrays;
+
+/**
+ * Result of time bucketed aggregation, see {@link com.nfsdb.journal.query.api.QuerySample}. Each row of result is a group
+ * of journal rows, which have the same time bucket and symbol value. Groups are ordered by time bucket, groups of the
+ * same bucket are in order of their first journal row.
+ * <p/>
+ * Aggregates of integer columns are kept as longs, aggregates of double columns and averages as doubles. Aggregates
+ * other than count ignore null values and are null themselves when group has no values.
+ */
+public class SampleResult {
+    private static final int NO_GROUP = -1;
+    private final SymbolTable symbolTable;
+    private final Function[] functions;
+    private final long[][] longValues;
+    private final double[][] doubleValues;
+    private final long[][] counts;
+    private long[] timestamps;
+    private int[] keys;
+    private int size;
+
+    /**
+     * @param symbolTable symbol table of group by column, null when rows are grouped by time only
+     * @param functions   aggregate functions
+     * @param types       types of aggregated columns, type of COUNT is ignored
+     */
+    public SampleResult(SymbolTable symbolTable, Function[] functions, ColumnType[] types) {
+        int capacity = 16;
+        this.symbolTable = symbolTable;
+        this.functions = functions;
+        this.timestamps = new long[capacity];
+        this.keys = new int[capacity];
+        this.longValues = new long[functions.length][];
+        this.doubleValues = new double[functions.length][];
+        this.counts = new long[functions.length][];
+        for (int a = 0; a < functions.length; a++) {
+            counts[a] = new long[capacity];
+            if (functions[a] != Function.COUNT) {
+                if (functions[a] == Function.AVG || types[a] == ColumnType.DOUBLE) {
+                    doubleValues[a] = new double[capacity];
+                } else {
+                    longValues[a] = new long[capacity];
+                }
+            }
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return start of time bucket of group
+     */
+    public long getTimestamp(int group) {
+        return timestamps[group];
+    }
+
+    public int getSymbolKey(int group) {
+        return keys[group];
+    }
+
+    /**
+     * @return symbol value of group, null when rows are grouped by time only
+     */
+    public String getSymbol(int group) {
+        return symbolTable == null || keys[group] == SymbolTable.VALUE_IS_NULL ? null : symbolTable.value(keys[group]);
+    }
+
+    public Function getFunction(int aggregate) {
+        return functions[aggregate];
+    }
+
+    public boolean isNull(int group, int aggregate) {
+        return functions[aggregate] != Function.COUNT && counts[aggregate][group] == 0;
+    }
+
+    public long getLong(int group, int aggregate) {
+        if (functions[aggregate] == Function.COUNT) {
+            return counts[aggregate][group];
+        }
+        return longValues[aggregate] != null ? longValues[aggregate][group] : (long) getDouble(group, aggregate);
+    }
+
+    public double getDouble(int group, int aggregate) {
+        switch (functions[aggregate]) {
+            case COUNT:
+                return counts[aggregate][group];
+            case AVG:
+                return doubleValues[aggregate][group] / counts[aggregate][group];
+            default:
+                return doubleValues[aggregate] != null ? doubleValues[aggregate][group] : longValues[aggregate][group];
+        }
+    }
+
+    /**
+     * Appends new group. Groups have to be added in order of their time buckets.
+     *
+     * @return index of group
+     */
+    public int addGroup(long timestamp, int key) {
+        if (size == timestamps.length) {
+            int capacity = size * 2;
+            timestamps = Arrays.copyOf(timestamps, capacity);
+            keys = Arrays.copyOf(keys, capacity);
+            for (int a = 0; a < functions.length; a++) {
+                counts[a] = Arrays.copyOf(counts[a], capacity);
+                if (longValues[a] != null) {
+                    longValues[a] = Arrays.copyOf(longValues[a], capacity);
+                }
+                if (doubleValues[a] != null) {
+                    doubleValues[a] = Arrays.copyOf(doubleValues[a], capacity);
+                }
+            }
+        }
+        timestamps[size] = timestamp;
+        keys[size] = key;
+        return size++;
+    }
+
+    /**
+     * Counts row of group for COUNT aggregate.
+     */
+    public void count(int group, int aggregate) {
+        counts[aggregate][group]++;
+    }
+
+    /**
+     * Adds value of integer column to aggregate. Rows of group have to be added in timestamp order.
+     */
+    public void add(int group, int aggregate, long value) {
+        if (longValues[aggregate] == null) {
+            add(group, aggregate, (double) value);
+            return;
+        }
+
+        long[] values = longValues[aggregate];
+        boolean first = counts[aggregate][group]++ == 0;
+        switch (functions[aggregate]) {
+            case SUM:
+                values[group] += value;
+                break;
+            case MIN:
+                if (first || value < values[group]) {
+                    values[group] = value;
+                }
+                break;
+            case MAX:
+                if (first || value > values[group]) {
+                    values[group] = value;
+                }
+                break;
+            case FIRST:
+                if (first) {
+                    values[group] = value;
+                }
+                break;
+            case LAST:
+                values[group] = value;
+                break;
+        }
+    }
+
+    /**
+     * Adds value of double column to aggregate. Rows of group have to be added in timestamp order.
+     */
+    public void add(int group, int aggregate, double value) {
+        double[] values = doubleValues[aggregate];
+        boolean first = counts[aggregate][group]++ == 0;
+        switch (functions[aggregate]) {
+            case SUM:
+            case AVG:
+                values[group] += value;
+                break;
+            case MIN:
+                if (first || value < values[group]) {
+                    values[group] = value;
+                }
+                break;
+            case MAX:
+                if (first || value > values[group]) {
+                    values[group] = value;
+                }
+                break;
+            case FIRST:
+                if (first) {
+                    values[group] = value;
+                }
+                break;
+            case LAST:
+                values[group] = value;
+                break;
+        }
+    }
+
+    /**
+     * Appends groups of newer result to this result. Partition boundary can be within time bucket, so groups of
+     * first bucket of newer result are combined with groups of the same key in last bucket of this result.
+     *
+     * @param newer result of later rows
+     * @return this result
+     */
+    public SampleResult merge(SampleResult newer) {
+        long lastTimestamp = size > 0 ? timestamps[size - 1] : Long.MIN_VALUE;
+        TIntIntHashMap lastGroups = null;
+
+        for (int i = 0; i < newer.size; i++) {
+            int group = NO_GROUP;
+            if (newer.timestamps[i] == lastTimestamp) {
+                if (lastGroups == null) {
+                    lastGroups = new TIntIntHashMap(Constants.DEFAULT_CAPACITY, Constants.DEFAULT_LOAD_FACTOR, Integer.MIN_VALUE, NO_GROUP);
+                    for (int k = size - 1; k >= 0 && timestamps[k] == lastTimestamp; k--) {
+                        lastGroups.put(keys[k], k);
+                    }
+                }
+                group = lastGroups.get(newer.keys[i]);
+            }
+
+            if (group == NO_GROUP) {
+                group = addGroup(newer.timestamps[i], newer.keys[i]);
+            }
+            combine(group, newer, i);
+        }
+        return this;
+    }
+
+    private void combine(int group, SampleResult other, int otherGroup) {
+        for (int a = 0; a < functions.length; a++) {
+            long otherCount = other.counts[a][otherGroup];
+            if (otherCount == 0) {
+                continue;
+            }
+
+            boolean first = counts[a][group] == 0;
+            counts[a][group] += otherCount;
+
+            if (longValues[a] != null) {
+                long[] values = longValues[a];
+                long value = other.longValues[a][otherGroup];
+                switch (functions[a]) {
+                    case SUM:
+                        values[group] += value;
+                        break;
+                    case MIN:
+                        values[group] = first ? value : Math.min(values[group], value);
+                        break;
+                    case MAX:
+                        values[group] = first ? value : Math.max(values[group], value);
+                        break;
+                    case FIRST:
+                        values[group] = first ? value : values[group];
+                        break;
+                    case LAST:
+                        values[group] = value;
+                        break;
+                }
+            } else if (doubleValues[a] != null) {
+                double[] values = doubleValues[a];
+                double value = other.doubleValues[a][otherGroup];
+                switch (functions[a]) {
+                    case SUM:
+                    case AVG:
+                        values[group] += value;
+                        break;
+                    case MIN:
+                        values[group] = first ? value : Math.min(values[group], value);
+                        break;
+                    case MAX:
+                        values[group] = first ? value : Math.max(values[group], value);
+                        break;
+                    case FIRST:
+                        values[group] = first ? value : values[group];
+                        break;
+                    case LAST:
+                        values[group] = value;
+                        break;
+                }
+            }
+        }
+    }
+
+    public enum Function {
+        COUNT, SUM, MIN, MAX, AVG, FIRST, LAST
+    }
+}
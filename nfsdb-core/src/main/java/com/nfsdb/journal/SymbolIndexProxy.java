@@ -33,7 +33,7 @@ class SymbolIndexProxy<T> implements Closeable {
     private volatile long lastAccessed;
     private long txAddress;
 
-    public void close() {
+    public synchronized void close() {
         if (index != null) {
             LOGGER.trace("Closing " + this);
             index.close();
@@ -46,7 +46,7 @@ class SymbolIndexProxy<T> implements Closeable {
         return lastAccessed;
     }
 
-    public void setTxAddress(long txAddress) {
+    public synchronized void setTxAddress(long txAddress) {
         this.txAddress = txAddress;
         if (index != null) {
             index.setTxAddress(txAddress);
@@ -65,7 +65,13 @@ class SymbolIndexProxy<T> implements Closeable {
         return columnIndex;
     }
 
-    KVIndex getIndex() throws JournalException {
+    synchronized void releaseRetired() {
+        if (index != null) {
+            index.releaseRetired();
+        }
+    }
+
+    synchronized KVIndex getIndex() throws JournalException {
         lastAccessed = partition.getJournal().getTimerCache().getMillis();
         if (index == null) {
             JournalMetadata<T> meta = partition.getJournal().getMetadata();
@@ -51,6 +51,10 @@ public abstract class AbstractColumn implements Closeable {
         mappedFile.force();
     }
 
+    public void releaseRetired() {
+        mappedFile.releaseRetired();
+    }
+
     @Override
     public String toString() {
         return this.getClass().getName() + "[file=" + mappedFile.toString() + ", size=" + size() + "]";
@@ -66,6 +70,10 @@ public abstract class AbstractColumn implements Closeable {
         mappedFile.compact();
     }
 
+    public MappedFile getMappedFile() {
+        return mappedFile;
+    }
+
     AbstractColumn(MappedFile storage) {
         this.mappedFile = storage;
     }
@@ -0,0 +1,34 @@
+/*
+ * Copyright (c) 2014. Vlad Ilyushchenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nfsdb.journal.column;
+
+/**
+ * Range of logical file offsets [lo, hi) readable from native memory starting at address. Window is immutable
+ * and replaced as a whole, so readers on other threads never observe mismatched address and bounds.
+ */
+final class AddressWindow {
+    static final AddressWindow NONE = new AddressWindow(-1, -1, 0);
+    final long lo;
+    final long hi;
+    final long address;
+
+    AddressWindow(long lo, long hi, long address) {
+        this.lo = lo;
+        this.hi = hi;
+        this.address = address;
+    }
+}
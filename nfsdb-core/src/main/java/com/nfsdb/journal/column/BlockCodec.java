@@ -0,0 +1,239 @@
+/*
+ * Copyright (c) 2014. Vlad Ilyushchenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nfsdb.journal.column;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Encoding of blocks in compressed column files. Integer codecs store values with fixed number of bits per
+ * value, chosen for each block, and keep min and max value of each block in block directory.
+ */
+public enum BlockCodec {
+    /**
+     * Deflate of raw bytes, works for any file.
+     */
+    DEFLATE(0),
+    /**
+     * 8 byte values as first value, first delta and bit packed zigzag differences between consecutive deltas.
+     * Regular timestamps and offsets of variable column index take next to nothing.
+     */
+    DELTA_OF_DELTA(8),
+    /**
+     * 8 byte values as block minimum and bit packed differences from it.
+     */
+    FOR_LONG(8),
+    /**
+     * 4 byte values as block minimum and bit packed differences from it.
+     */
+    FOR_INT(4);
+
+    private final int width;
+
+    BlockCodec(int width) {
+        this.width = width;
+    }
+
+    /**
+     * Width of values in bytes, 0 for codecs, which treat file as bytes.
+     */
+    public int width() {
+        return width;
+    }
+
+    /**
+     * Largest number of bytes {@link #encode(long[], int, ByteBuffer)} writes for n values.
+     */
+    public static int maxEncodedSize(int n) {
+        return 8 + 8 + 1 + n * 8 + 8;
+    }
+
+    /**
+     * Encodes n values into target buffer, which must be in little endian order.
+     */
+    public void encode(long[] values, int n, ByteBuffer target) {
+        switch (this) {
+            case DELTA_OF_DELTA:
+                if (n == 0) {
+                    return;
+                }
+                target.putLong(values[0]);
+                if (n == 1) {
+                    return;
+                }
+                target.putLong(values[1] - values[0]);
+                long or = 0;
+                for (int i = 2; i < n; i++) {
+                    long z = zigzag((values[i] - values[i - 1]) - (values[i - 1] - values[i - 2]));
+                    or |= z;
+                }
+                int w = bits(or);
+                target.put((byte) w);
+                if (w > 0) {
+                    BitWriter writer = new BitWriter(target, w);
+                    for (int i = 2; i < n; i++) {
+                        writer.write(zigzag((values[i] - values[i - 1]) - (values[i - 1] - values[i - 2])));
+                    }
+                    writer.flush();
+                }
+                break;
+            case FOR_LONG:
+            case FOR_INT:
+                if (n == 0) {
+                    return;
+                }
+                long min = values[0];
+                for (int i = 1; i < n; i++) {
+                    if (values[i] < min) {
+                        min = values[i];
+                    }
+                }
+                or = 0;
+                for (int i = 0; i < n; i++) {
+                    or |= values[i] - min;
+                }
+                w = bits(or);
+                target.putLong(min);
+                target.put((byte) w);
+                if (w > 0) {
+                    BitWriter writer = new BitWriter(target, w);
+                    for (int i = 0; i < n; i++) {
+                        writer.write(values[i] - min);
+                    }
+                    writer.flush();
+                }
+                break;
+            default:
+                throw new UnsupportedOperationException(name() + " does not encode values");
+        }
+    }
+
+    /**
+     * Decodes n values from source into target, both buffers must be in little endian order.
+     */
+    public void decode(ByteBuffer source, int n, ByteBuffer target) {
+        switch (this) {
+            case DELTA_OF_DELTA:
+                if (n == 0) {
+                    return;
+                }
+                long v = source.getLong();
+                target.putLong(v);
+                if (n == 1) {
+                    return;
+                }
+                long d = source.getLong();
+                v += d;
+                target.putLong(v);
+                int w = source.get();
+                BitReader reader = new BitReader(source, w);
+                for (int i = 2; i < n; i++) {
+                    long z = reader.read();
+                    d += (z >>> 1) ^ -(z & 1);
+                    v += d;
+                    target.putLong(v);
+                }
+                break;
+            case FOR_LONG:
+            case FOR_INT:
+                if (n == 0) {
+                    return;
+                }
+                long min = source.getLong();
+                w = source.get();
+                reader = new BitReader(source, w);
+                if (this == FOR_LONG) {
+                    for (int i = 0; i < n; i++) {
+                        target.putLong(min + reader.read());
+                    }
+                } else {
+                    for (int i = 0; i < n; i++) {
+                        target.putInt((int) (min + reader.read()));
+                    }
+                }
+                break;
+            default:
+                throw new UnsupportedOperationException(name() + " does not decode values");
+        }
+    }
+
+    private static long zigzag(long v) {
+        return (v << 1) ^ (v >> 63);
+    }
+
+    private static int bits(long v) {
+        return 64 - Long.numberOfLeadingZeros(v);
+    }
+
+    private static final class BitWriter {
+        private final ByteBuffer target;
+        private final int width;
+        private long word;
+        private int bits;
+
+        private BitWriter(ByteBuffer target, int width) {
+            this.target = target;
+            this.width = width;
+        }
+
+        private void write(long v) {
+            word |= v << bits;
+            bits += width;
+            if (bits >= 64) {
+                target.putLong(word);
+                bits -= 64;
+                word = bits > 0 ? v >>> (width - bits) : 0;
+            }
+        }
+
+        private void flush() {
+            if (bits > 0) {
+                target.putLong(word);
+            }
+        }
+    }
+
+    private static final class BitReader {
+        private final ByteBuffer source;
+        private final int width;
+        private final long mask;
+        private long word;
+        private long bitPos;
+
+        private BitReader(ByteBuffer source, int width) {
+            this.source = source;
+            this.width = width;
+            this.mask = width == 64 ? -1L : (1L << width) - 1;
+        }
+
+        private long read() {
+            if (width == 0) {
+                return 0;
+            }
+            int shift = (int) (bitPos & 63);
+            if (shift == 0) {
+                word = source.getLong();
+            }
+            long v = word >>> shift;
+            if (shift + width > 64) {
+                word = source.getLong();
+                v |= word << (64 - shift);
+            }
+            bitPos += width;
+            return v & mask;
+        }
+    }
+}
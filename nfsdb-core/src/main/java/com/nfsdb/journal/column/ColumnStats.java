@@ -0,0 +1,193 @@
+/*
+ * Copyright (c) 2014. Vlad Ilyushchenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nfsdb.journal.column;
+
+import java.nio.ByteBuffer;
+import java.util.BitSet;
+
+/**
+ * Summary of column values: null count, min and max of numeric columns and set of keys present in symbol
+ * column. Min and max of BOOLEAN, BYTE, SHORT, INT and LONG columns are kept as long, DOUBLE columns have
+ * their own double min and max. Variable length columns only count nulls.
+ */
+public class ColumnStats {
+    private final ColumnType type;
+    private final BitSet keys;
+    private long nullCount;
+    private long min;
+    private long max;
+    private double minDouble;
+    private double maxDouble;
+
+    public ColumnStats(ColumnType type) {
+        this.type = type;
+        this.keys = type == ColumnType.SYMBOL ? new BitSet() : null;
+        clear();
+    }
+
+    public void clear() {
+        nullCount = 0;
+        min = Long.MAX_VALUE;
+        max = Long.MIN_VALUE;
+        minDouble = Double.POSITIVE_INFINITY;
+        maxDouble = Double.NEGATIVE_INFINITY;
+        if (keys != null) {
+            keys.clear();
+        }
+    }
+
+    public void addNull() {
+        nullCount++;
+    }
+
+    public void add(long value) {
+        if (value < min) {
+            min = value;
+        }
+        if (value > max) {
+            max = value;
+        }
+    }
+
+    public void add(double value) {
+        if (value < minDouble) {
+            minDouble = value;
+        }
+        if (value > maxDouble) {
+            maxDouble = value;
+        }
+    }
+
+    public void addKey(int key) {
+        keys.set(key);
+    }
+
+    public void merge(ColumnStats other) {
+        nullCount += other.nullCount;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+        minDouble = Math.min(minDouble, other.minDouble);
+        maxDouble = Math.max(maxDouble, other.maxDouble);
+        if (keys != null) {
+            keys.or(other.keys);
+        }
+    }
+
+    public ColumnType getType() {
+        return type;
+    }
+
+    public long getNullCount() {
+        return nullCount;
+    }
+
+    /**
+     * @return smallest value, Long.MAX_VALUE when there are no values
+     */
+    public long getMin() {
+        return min;
+    }
+
+    /**
+     * @return largest value, Long.MIN_VALUE when there are no values
+     */
+    public long getMax() {
+        return max;
+    }
+
+    public double getMinDouble() {
+        return minDouble;
+    }
+
+    public double getMaxDouble() {
+        return maxDouble;
+    }
+
+    public boolean containsKey(int key) {
+        return keys != null && key >= 0 && keys.get(key);
+    }
+
+    public int getKeyCount() {
+        return keys == null ? 0 : keys.cardinality();
+    }
+
+    /**
+     * Checks if any value falls between lo and hi inclusive. False means column has no such value,
+     * true means it might have.
+     */
+    public boolean mayContain(long lo, long hi) {
+        return min <= hi && max >= lo;
+    }
+
+    public boolean mayContain(double lo, double hi) {
+        return minDouble <= hi && maxDouble >= lo;
+    }
+
+    public int size() {
+        return 3 * 8 + 4 + (keys == null ? 0 : keys.toLongArray().length * 8);
+    }
+
+    public void write(ByteBuffer buf) {
+        buf.putLong(nullCount);
+        if (type == ColumnType.DOUBLE) {
+            buf.putDouble(minDouble);
+            buf.putDouble(maxDouble);
+        } else {
+            buf.putLong(min);
+            buf.putLong(max);
+        }
+        if (keys == null) {
+            buf.putInt(0);
+        } else {
+            long[] words = keys.toLongArray();
+            buf.putInt(words.length);
+            for (int i = 0; i < words.length; i++) {
+                buf.putLong(words[i]);
+            }
+        }
+    }
+
+    public void read(ByteBuffer buf) {
+        clear();
+        nullCount = buf.getLong();
+        if (type == ColumnType.DOUBLE) {
+            minDouble = buf.getDouble();
+            maxDouble = buf.getDouble();
+        } else {
+            min = buf.getLong();
+            max = buf.getLong();
+        }
+        int wordCount = buf.getInt();
+        for (int i = 0; i < wordCount; i++) {
+            long word = buf.getLong();
+            for (int b = Long.numberOfTrailingZeros(word); word != 0; b = Long.numberOfTrailingZeros(word)) {
+                keys.set(i * 64 + b);
+                word &= word - 1;
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ColumnStats{" +
+                "type=" + type +
+                ", nullCount=" + nullCount +
+                (type == ColumnType.DOUBLE ? ", min=" + minDouble + ", max=" + maxDouble : ", min=" + min + ", max=" + max) +
+                (keys == null ? "" : ", keys=" + keys.cardinality()) +
+                '}';
+    }
+}
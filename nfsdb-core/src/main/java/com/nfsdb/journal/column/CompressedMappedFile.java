@@ -0,0 +1,558 @@
+/*
+ * Copyright (c) 2014. Vlad Ilyushchenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nfsdb.journal.column;
+
+import com.nfsdb.journal.JournalMode;
+import com.nfsdb.journal.exceptions.JournalException;
+import com.nfsdb.journal.exceptions.JournalNoSuchFileException;
+import com.nfsdb.journal.exceptions.JournalRuntimeException;
+import com.nfsdb.journal.factory.JournalConfiguration;
+import com.nfsdb.journal.logging.Logger;
+import com.nfsdb.journal.utils.ByteBuffers;
+import com.nfsdb.journal.utils.Unsafe;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Read-only column file, which {@link #compress(File)} has rewritten into independently encoded blocks.
+ * Blocks are inflated on first access and at most "cacheSize" of them are kept in cache. Evicted blocks and
+ * stitches of values, which cross block boundary, follow MappedFileImpl rules: in READ mode they are retired,
+ * so that addresses handed out to concurrent readers stay valid until {@link #releaseRetired()}, in other
+ * modes they are released straight away and addresses are only valid until next call.
+ * <p/>
+ * File layout: logical size (8 bytes), block bit hint (4), block count (4), codec (4), unused (4), file offsets
+ * of "block count + 1" compressed block boundaries (8 each), for integer codecs minimum and maximum value of
+ * each block (8 each), compressed blocks.
+ */
+public class CompressedMappedFile implements MappedFile {
+    public static final String SUFFIX = ".z";
+    private static final Logger LOGGER = Logger.getLogger(CompressedMappedFile.class);
+    private static final int HEADER_SIZE = 24;
+    private final File file;
+    private final JournalMode mode;
+    private final int cacheSize;
+    private volatile AddressWindow window = AddressWindow.NONE;
+    private FileChannel channel;
+    private Inflater inflater;
+    private long appendOffset;
+    private int blockBits;
+    private BlockCodec codec;
+    private long[] blockOffsets;
+    private long[] blockMin;
+    private long[] blockMax;
+    private ByteBuffer[] blocks;
+    private ByteBuffer[] stitches;
+    private long[] stitchOffsets;
+    // indexes of inflated blocks in order they were inflated
+    private int[] residentBlocks;
+    private int residentHead;
+    private int residentCount;
+    private int pinnedBlock = -1;
+    // in READ mode evicted blocks and replaced stitches are kept alive until releaseRetired()
+    private final List<ByteBuffer> retired = new ArrayList<>();
+    private byte[] input;
+    private byte[] output;
+
+    public CompressedMappedFile(File file, JournalMode mode) throws JournalException {
+        this(file, mode, JournalConfiguration.COMPRESSED_BLOCK_CACHE_SIZE);
+    }
+
+    public CompressedMappedFile(File file, JournalMode mode, int cacheSize) throws JournalException {
+        this.file = file;
+        this.mode = mode;
+        this.cacheSize = Math.max(2, cacheSize);
+        open();
+    }
+
+    public static File compressedFile(File file) {
+        return new File(file.getPath() + SUFFIX);
+    }
+
+    public static void compress(File file) throws JournalException {
+        compress(file, BlockCodec.DEFLATE);
+    }
+
+    public static void compress(File file, BlockCodec codec) throws JournalException {
+        compress(file, JournalConfiguration.COMPRESSED_BLOCK_BIT_HINT, codec);
+    }
+
+    public static void compress(File file, int blockBits) throws JournalException {
+        compress(file, blockBits, BlockCodec.DEFLATE);
+    }
+
+    /**
+     * Writes compressed copy of column file and deletes the original. Copy is written to temporary file
+     * first, so readers either see complete compressed file or the original. Does nothing if compressed
+     * copy already exists.
+     *
+     * @param file      file written by MappedFileImpl
+     * @param blockBits log2 of uncompressed block size
+     * @param codec     block encoding, integer codecs require file of values of codec width
+     * @throws JournalException if file cannot be read or written
+     */
+    public static void compress(File file, int blockBits, BlockCodec codec) throws JournalException {
+        File target = compressedFile(file);
+        if (!target.exists()) {
+            File tmp = new File(target.getPath() + ".tmp");
+            Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+            try (FileChannel in = new RandomAccessFile(file, "r").getChannel();
+                 FileChannel out = new RandomAccessFile(tmp, "rw").getChannel()) {
+                out.truncate(0);
+
+                ByteBuffer buf = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+                readFully(in, buf, 0);
+                long size = buf.getLong(0);
+                int blockSize = 1 << blockBits;
+                int blockCount = (int) ((size + blockSize - 1) >>> blockBits);
+
+                int width = codec.width();
+                if (width > 0 && size % width != 0) {
+                    throw new JournalException("Size of %s is not multiple of %d", file, width);
+                }
+                int statsSize = width > 0 ? blockCount * 16 : 0;
+                ByteBuffer dir = ByteBuffer.allocate(HEADER_SIZE + (blockCount + 1) * 8 + statsSize).order(ByteOrder.LITTLE_ENDIAN);
+                dir.putLong(size).putInt(blockBits).putInt(blockCount).putInt(codec.ordinal()).putInt(0);
+                int statsOffset = HEADER_SIZE + (blockCount + 1) * 8;
+
+                byte[] raw = new byte[blockSize];
+                ByteBuffer rawBuf = ByteBuffer.wrap(raw).order(ByteOrder.LITTLE_ENDIAN);
+                long[] values = width > 0 ? new long[blockSize / width] : null;
+                ByteBuffer packed = ByteBuffer.allocate(width > 0 ? BlockCodec.maxEncodedSize(values.length) : blockSize).order(ByteOrder.LITTLE_ENDIAN);
+                long pos = dir.capacity();
+                for (int i = 0; i < blockCount; i++) {
+                    long lo = (long) i << blockBits;
+                    int len = (int) Math.min(blockSize, size - lo);
+                    // data of MappedFileImpl starts after 8 byte append offset
+                    readFully(in, ByteBuffer.wrap(raw, 0, len), lo + 8);
+                    dir.putLong(pos);
+
+                    if (width > 0) {
+                        int n = len / width;
+                        long min = Long.MAX_VALUE;
+                        long max = Long.MIN_VALUE;
+                        for (int k = 0; k < n; k++) {
+                            long v = width == 8 ? rawBuf.getLong(k * 8) : rawBuf.getInt(k * 4);
+                            values[k] = v;
+                            min = Math.min(min, v);
+                            max = Math.max(max, v);
+                        }
+                        dir.putLong(statsOffset + i * 16, min);
+                        dir.putLong(statsOffset + i * 16 + 8, max);
+                        packed.clear();
+                        codec.encode(values, n, packed);
+                        packed.flip();
+                        pos += writeFully(out, packed, pos);
+                    } else {
+                        deflater.reset();
+                        deflater.setInput(raw, 0, len);
+                        deflater.finish();
+                        while (!deflater.finished()) {
+                            int n = deflater.deflate(packed.array());
+                            pos += writeFully(out, ByteBuffer.wrap(packed.array(), 0, n), pos);
+                        }
+                    }
+                }
+                dir.putLong(pos);
+                dir.clear();
+                writeFully(out, dir, 0);
+                out.force(false);
+                LOGGER.debug("Compressed %s from %d to %d bytes", file, size, pos);
+            } catch (FileNotFoundException e) {
+                throw new JournalNoSuchFileException(e);
+            } catch (IOException e) {
+                throw new JournalException("Could not compress %s", e, file);
+            } finally {
+                deflater.end();
+            }
+
+            if (!tmp.renameTo(target)) {
+                throw new JournalException("Could not rename %s to %s", tmp, target);
+            }
+        }
+
+        if (file.exists() && !file.delete()) {
+            LOGGER.info("Could not delete %s, compressed copy will be used instead", file);
+        }
+    }
+
+    @Override
+    public synchronized ByteBuffer getBuffer(long offset, int size) {
+        return getBufferInternal(offset, size);
+    }
+
+    @Override
+    public long getAddress(long offset, int size) {
+        AddressWindow w = window;
+        if (offset >= w.lo && offset + size <= w.hi) {
+            return w.address + offset - w.lo;
+        }
+        return getAddressInternal(offset, size);
+    }
+
+    @Override
+    public synchronized void releaseRetired() {
+        if (retired.size() > 0) {
+            window = AddressWindow.NONE;
+            for (int i = 0, n = retired.size(); i < n; i++) {
+                ByteBuffers.release(retired.get(i));
+            }
+            retired.clear();
+        }
+    }
+
+    @Override
+    public int pageRemaining(long offset) {
+        int blockSize = 1 << blockBits;
+        return blockSize - (int) (offset & (blockSize - 1));
+    }
+
+    @Override
+    public synchronized void close() {
+        window = AddressWindow.NONE;
+        for (int i = 0; i < blocks.length; i++) {
+            blocks[i] = ByteBuffers.release(blocks[i]);
+            stitches[i] = ByteBuffers.release(stitches[i]);
+        }
+        for (int i = 0, n = retired.size(); i < n; i++) {
+            ByteBuffers.release(retired.get(i));
+        }
+        retired.clear();
+        residentCount = 0;
+        inflater.end();
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new JournalRuntimeException("Cannot close file", e);
+        }
+    }
+
+    @Override
+    public long getAppendOffset() {
+        return appendOffset;
+    }
+
+    @Override
+    public void setAppendOffset(long offset) {
+        if (offset != appendOffset) {
+            throw new JournalRuntimeException("Compressed file is read-only: %s", file);
+        }
+    }
+
+    @Override
+    public void compact() {
+        // compressed file has no slack
+    }
+
+    @Override
+    public void force() {
+        // nothing is ever written
+    }
+
+    @Override
+    public JournalMode getMode() {
+        return mode;
+    }
+
+    @Override
+    public String toString() {
+        return this.getClass().getName() + "[file=" + file + ", appendOffset=" + appendOffset + ", codec=" + codec + "]";
+    }
+
+    public BlockCodec getCodec() {
+        return codec;
+    }
+
+    public int getBlockBits() {
+        return blockBits;
+    }
+
+    public int getBlockCount() {
+        return blockOffsets.length - 1;
+    }
+
+    public synchronized int getResidentBlockCount() {
+        return residentCount;
+    }
+
+    public synchronized int getRetiredCount() {
+        return retired.size();
+    }
+
+    public synchronized int getStitchCount() {
+        int count = 0;
+        for (int i = 0; i < stitches.length; i++) {
+            if (stitches[i] != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * True when file is encoded with integer codec, which keeps minimum and maximum value of each block.
+     */
+    public boolean hasBlockStats() {
+        return blockMin != null;
+    }
+
+    public long getBlockMin(int blockIndex) {
+        return blockMin[blockIndex];
+    }
+
+    public long getBlockMax(int blockIndex) {
+        return blockMax[blockIndex];
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buf, long pos) throws IOException {
+        while (buf.hasRemaining()) {
+            int n = channel.read(buf, pos);
+            if (n < 0) {
+                throw new EOFException();
+            }
+            pos += n;
+        }
+        buf.flip();
+    }
+
+    private static int writeFully(FileChannel channel, ByteBuffer buf, long pos) throws IOException {
+        int len = buf.remaining();
+        while (buf.hasRemaining()) {
+            pos += channel.write(buf, pos);
+        }
+        return len;
+    }
+
+    private synchronized long getAddressInternal(long offset, int size) {
+        ByteBuffer buffer = getBufferInternal(offset, size);
+        int pos = buffer.position();
+        long lo = offset - pos;
+        long address = ByteBuffers.getAddress(buffer);
+        window = new AddressWindow(lo, lo + buffer.limit(), address);
+        return address + pos;
+    }
+
+    private ByteBuffer getBufferInternal(long offset, int size) {
+        if (offset < 0 || offset >= appendOffset || offset + size > appendOffset) {
+            throw new JournalRuntimeException("Offset %d is beyond end of %s", offset, this);
+        }
+
+        int blockIndex = (int) (offset >>> blockBits);
+        int pos = (int) (offset - ((long) blockIndex << blockBits));
+        ByteBuffer block = getBlock(blockIndex);
+        // block must survive inflating the rest of a stitch as well as the next call
+        pinnedBlock = blockIndex;
+        if (block.limit() - pos >= size) {
+            block.position(pos);
+            return block;
+        }
+        return getStitch(blockIndex, offset, size);
+    }
+
+    /**
+     * Copy of value crossing block boundary. Stitch is kept for the block value starts in and is replaced by
+     * stitch of other value of that block, it is retired or released when block is evicted. Outside of READ mode
+     * stitch memory is reused in place.
+     */
+    private ByteBuffer getStitch(int blockIndex, long offset, int size) {
+        ByteBuffer stitch = stitches[blockIndex];
+        if (stitch == null || stitchOffsets[blockIndex] != offset || stitch.limit() < size) {
+            window = AddressWindow.NONE;
+            // other readers can still hold address of stitch in READ mode, it must not be overwritten
+            if (stitch == null || stitch.capacity() < size || mode == JournalMode.READ) {
+                retire(stitch);
+                stitch = ByteBuffer.allocateDirect(size).order(ByteOrder.LITTLE_ENDIAN);
+                stitches[blockIndex] = stitch;
+            }
+            stitch.limit(size);
+            long address = ByteBuffers.getAddress(stitch);
+            long o = offset;
+            int done = 0;
+            while (done < size) {
+                int bi = (int) (o >>> blockBits);
+                int p = (int) (o - ((long) bi << blockBits));
+                ByteBuffer b = getBlock(bi);
+                int n = Math.min(b.limit() - p, size - done);
+                Unsafe.getUnsafe().copyMemory(ByteBuffers.getAddress(b) + p, address + done, n);
+                done += n;
+                o += n;
+            }
+            stitchOffsets[blockIndex] = offset;
+        }
+        stitch.position(0);
+        return stitch;
+    }
+
+    private ByteBuffer getBlock(int blockIndex) {
+        ByteBuffer block = blocks[blockIndex];
+        if (block == null) {
+            if (residentCount == cacheSize) {
+                evict();
+            }
+            block = codec == BlockCodec.DEFLATE ? inflate(blockIndex) : decode(blockIndex);
+            blocks[blockIndex] = block;
+            residentBlocks[(residentHead + residentCount++) % cacheSize] = blockIndex;
+        }
+        return block;
+    }
+
+    private void evict() {
+        int blockIndex = pollResident();
+        if (blockIndex == pinnedBlock) {
+            residentBlocks[(residentHead + residentCount++) % cacheSize] = blockIndex;
+            blockIndex = pollResident();
+        }
+        window = AddressWindow.NONE;
+        retire(blocks[blockIndex]);
+        retire(stitches[blockIndex]);
+        blocks[blockIndex] = null;
+        stitches[blockIndex] = null;
+    }
+
+    private void retire(ByteBuffer buffer) {
+        if (buffer != null) {
+            if (mode == JournalMode.READ) {
+                retired.add(buffer);
+            } else {
+                ByteBuffers.release(buffer);
+            }
+        }
+    }
+
+    private int pollResident() {
+        int blockIndex = residentBlocks[residentHead];
+        residentHead = (residentHead + 1) % cacheSize;
+        residentCount--;
+        return blockIndex;
+    }
+
+    private ByteBuffer inflate(int blockIndex) {
+        long lo = blockOffsets[blockIndex];
+        int len = (int) (blockOffsets[blockIndex + 1] - lo);
+        int size = (int) Math.min(1 << blockBits, appendOffset - ((long) blockIndex << blockBits));
+
+        if (input == null || input.length < len) {
+            input = new byte[len];
+        }
+
+        try {
+            readFully(channel, ByteBuffer.wrap(input, 0, len), lo);
+            inflater.reset();
+            inflater.setInput(input, 0, len);
+            int n = 0;
+            while (n < size && !inflater.finished()) {
+                int k = inflater.inflate(output, n, size - n);
+                if (k == 0 && inflater.needsInput()) {
+                    break;
+                }
+                n += k;
+            }
+            if (n != size) {
+                throw new JournalRuntimeException("Block %d of %s is %d bytes instead of %d", blockIndex, file, n, size);
+            }
+        } catch (IOException e) {
+            throw new JournalRuntimeException("Cannot read block %d of %s", e, blockIndex, file);
+        } catch (DataFormatException e) {
+            throw new JournalRuntimeException("Corrupt block %d of %s", e, blockIndex, file);
+        }
+
+        ByteBuffer block = ByteBuffer.allocateDirect(size).order(ByteOrder.LITTLE_ENDIAN);
+        block.put(output, 0, size);
+        block.flip();
+        return block;
+    }
+
+    private ByteBuffer decode(int blockIndex) {
+        long lo = blockOffsets[blockIndex];
+        int len = (int) (blockOffsets[blockIndex + 1] - lo);
+        int size = (int) Math.min(1 << blockBits, appendOffset - ((long) blockIndex << blockBits));
+
+        if (input == null || input.length < len) {
+            input = new byte[len];
+        }
+
+        ByteBuffer block = ByteBuffer.allocateDirect(size).order(ByteOrder.LITTLE_ENDIAN);
+        try {
+            readFully(channel, ByteBuffer.wrap(input, 0, len), lo);
+            codec.decode(ByteBuffer.wrap(input, 0, len).order(ByteOrder.LITTLE_ENDIAN), size / codec.width(), block);
+        } catch (IOException e) {
+            ByteBuffers.release(block);
+            throw new JournalRuntimeException("Cannot read block %d of %s", e, blockIndex, file);
+        } catch (BufferUnderflowException | BufferOverflowException e) {
+            ByteBuffers.release(block);
+            throw new JournalRuntimeException("Corrupt block %d of %s", e, blockIndex, file);
+        }
+        block.flip();
+        return block;
+    }
+
+    private void open() throws JournalException {
+        try {
+            this.channel = new RandomAccessFile(file, "r").getChannel();
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            readFully(channel, header, 0);
+            this.appendOffset = header.getLong(0);
+            this.blockBits = header.getInt(8);
+            int blockCount = header.getInt(12);
+            int codecIndex = header.getInt(16);
+            if (codecIndex < 0 || codecIndex >= BlockCodec.values().length) {
+                throw new JournalException("Unsupported codec %d in %s", codecIndex, file);
+            }
+            this.codec = BlockCodec.values()[codecIndex];
+
+            boolean stats = codec.width() > 0;
+            ByteBuffer dir = ByteBuffer.allocate((blockCount + 1) * 8 + (stats ? blockCount * 16 : 0)).order(ByteOrder.LITTLE_ENDIAN);
+            readFully(channel, dir, HEADER_SIZE);
+            this.blockOffsets = new long[blockCount + 1];
+            for (int i = 0; i <= blockCount; i++) {
+                blockOffsets[i] = dir.getLong();
+            }
+            if (stats) {
+                this.blockMin = new long[blockCount];
+                this.blockMax = new long[blockCount];
+                for (int i = 0; i < blockCount; i++) {
+                    blockMin[i] = dir.getLong();
+                    blockMax[i] = dir.getLong();
+                }
+            }
+        } catch (FileNotFoundException e) {
+            throw new JournalNoSuchFileException(e);
+        } catch (IOException e) {
+            throw new JournalException("Cannot open %s", e, file);
+        }
+
+        this.blocks = new ByteBuffer[blockOffsets.length - 1];
+        this.stitches = new ByteBuffer[blocks.length];
+        this.stitchOffsets = new long[blocks.length];
+        this.residentBlocks = new int[cacheSize];
+        this.output = new byte[1 << blockBits];
+        this.inflater = new Inflater();
+    }
+}
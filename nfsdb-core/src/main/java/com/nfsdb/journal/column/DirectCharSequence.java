@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2014. Vlad Ilyushchenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.nfsdb.journal.column;
+
+import com.nfsdb.journal.utils.Chars;
+import com.nfsdb.journal.utils.Unsafe;
+import com.nfsdb.journal.utils.Utf8;
+
+/**
+ * Reusable read-only view of UTF-16 chars in mapped memory. View obtained from a column is only valid until
+ * column file is refreshed or closed, see {@link VariableColumn#getFlyweightStr(long)}. Call toString() to keep
+ * the value.
+ * <p/>
+ * UTF-8 values cannot be viewed in place and are decoded into char buffer owned by the instance, which is
+ * reused for subsequent values.
+ */
+public class DirectCharSequence implements CharSequence, Comparable<CharSequence> {
+    private long address;
+    private int len;
+    private char[] decoded;
+    private boolean utf8;
+
+    @Override
+    public int length() {
+        return len;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (index < 0 || index >= len) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", length: " + len);
+        }
+        return utf8 ? decoded[index] : Unsafe.getUnsafe().getChar(address + ((long) index << 1));
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        if (start < 0 || end > len || start > end) {
+            throw new IndexOutOfBoundsException("Range: [" + start + ", " + end + "), length: " + len);
+        }
+        if (utf8) {
+            return new String(decoded, start, end - start);
+        }
+        DirectCharSequence seq = new DirectCharSequence();
+        seq.of(address + ((long) start << 1), end - start);
+        return seq;
+    }
+
+    @Override
+    public int compareTo(CharSequence o) {
+        return Chars.compare(this, o);
+    }
+
+    @Override
+    public int hashCode() {
+        return Chars.hashCode(this);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof CharSequence && Chars.equals(this, (CharSequence) o);
+    }
+
+    @Override
+    public String toString() {
+        if (utf8) {
+            return new String(decoded, 0, len);
+        }
+        char chars[] = new char[len];
+        if (len > 0) {
+            Unsafe.getUnsafe().copyMemory(null, address, chars, Unsafe.CHAR_ARRAY_OFFSET, len * 2);
+        }
+        return new String(chars);
+    }
+
+    DirectCharSequence of(long address, int len) {
+        this.address = address;
+        this.len = len;
+        this.utf8 = false;
+        return this;
+    }
+
+    DirectCharSequence ofUtf8(long address, int size) {
+        if (decoded == null || decoded.length < size) {
+            decoded = new char[size];
+        }
+        this.address = 0;
+        this.len = size > 0 ? Utf8.decode(address, size, decoded) : 0;
+        this.utf8 = true;
+        return this;
+    }
+}
@@ -16,6 +16,8 @@
 
 package com.nfsdb.journal.column;
 
+import com.nfsdb.journal.utils.Unsafe;
+
 import java.nio.ByteBuffer;
 
 public class FixedColumn extends AbstractColumn {
@@ -30,39 +32,58 @@ public class FixedColumn extends AbstractColumn {
         return getBuffer(getOffset(localRowID), width);
     }
 
+    public long getAddress(long localRowID) {
+        return mappedFile.getAddress(getOffset(localRowID), width);
+    }
+
+    /**
+     * Copies values of consecutive rows into memory described the same way as in Unsafe.copyMemory:
+     * array object and offset within it, or null and native address. Values are copied in native byte order.
+     *
+     * @param localRowID   first row to copy
+     * @param count        number of rows to copy
+     * @param target       array object or null when targetOffset is native address
+     * @param targetOffset offset within target array or native address
+     */
+    public void copy(long localRowID, int count, Object target, long targetOffset) {
+        while (count > 0) {
+            long offset = getOffset(localRowID);
+            // copy page at a time, pages are multiples of power of two widths
+            int n = Math.max(1, Math.min(count, mappedFile.pageRemaining(offset) / width));
+            int len = n * width;
+            Unsafe.getUnsafe().copyMemory(null, mappedFile.getAddress(offset, len), target, targetOffset, len);
+            localRowID += n;
+            targetOffset += len;
+            count -= n;
+        }
+    }
+
     public boolean getBool(long localRowID) {
-        ByteBuffer bb = getBuffer(localRowID);
-        return bb.get(bb.position()) == 1;
+        return Unsafe.getUnsafe().getByte(getAddress(localRowID)) == 1;
     }
 
     public byte getByte(long localRowID) {
-        ByteBuffer bb = getBuffer(localRowID);
-        return bb.get(bb.position());
+        return Unsafe.getUnsafe().getByte(getAddress(localRowID));
     }
 
     public double getDouble(long localRowID) {
-        ByteBuffer bb = getBuffer(localRowID);
-        return bb.getDouble(bb.position());
+        return Unsafe.getUnsafe().getDouble(getAddress(localRowID));
     }
 
     public float getFloat(long localRowID) {
-        ByteBuffer bb = getBuffer(localRowID);
-        return bb.getFloat(bb.position());
+        return Unsafe.getUnsafe().getFloat(getAddress(localRowID));
     }
 
     public int getInt(long localRowID) {
-        ByteBuffer bb = getBuffer(localRowID);
-        return bb.getInt(bb.position());
+        return Unsafe.getUnsafe().getInt(getAddress(localRowID));
     }
 
     public long getLong(long localRowID) {
-        ByteBuffer bb = getBuffer(localRowID);
-        return bb.getLong(bb.position());
+        return Unsafe.getUnsafe().getLong(getAddress(localRowID));
     }
 
     public short getShort(long localRowID) {
-        ByteBuffer bb = getBuffer(localRowID);
-        return bb.getShort(bb.position());
+        return Unsafe.getUnsafe().getShort(getAddress(localRowID));
     }
 
     public void putBool(boolean value) {
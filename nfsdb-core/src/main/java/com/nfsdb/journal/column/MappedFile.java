@@ -16,13 +16,43 @@
 
 package com.nfsdb.journal.column;
 
+import com.nfsdb.journal.JournalMode;
 import com.nfsdb.journal.exceptions.JournalException;
 
 import java.io.Closeable;
-import java.nio.MappedByteBuffer;
+import java.nio.ByteBuffer;
 
 public interface MappedFile extends Closeable {
-    public MappedByteBuffer getBuffer(long offset, int size);
+    public ByteBuffer getBuffer(long offset, int size);
+
+    /**
+     * Native address of byte at given offset. Memory at returned address is guaranteed to be
+     * contiguous for at least "size" bytes. Address stays valid until file is remapped or closed.
+     * <p/>
+     * In READ mode this method can be called by multiple threads at the same time. Buffers that get
+     * replaced while file grows are retired rather than unmapped, so addresses handed out to other
+     * threads remain valid until {@link #releaseRetired()}.
+     *
+     * @param offset logical offset in file
+     * @param size   number of bytes caller is going to access
+     * @return native memory address
+     */
+    public long getAddress(long offset, int size);
+
+    /**
+     * Unmaps buffers retired by READ mode remapping. Caller must make sure no other thread
+     * is reading from this file.
+     */
+    void releaseRetired();
+
+    /**
+     * Number of bytes between offset and end of page containing it. Memory in this range can be
+     * accessed via single address without creating stitch buffers.
+     *
+     * @param offset logical offset in file
+     * @return number of bytes till end of page
+     */
+    int pageRemaining(long offset);
 
     void close();
 
@@ -32,5 +62,7 @@ public interface MappedFile extends Closeable {
 
     void compact() throws JournalException;
 
+    JournalMode getMode();
+
     void force();
 }
@@ -33,14 +33,22 @@ import java.nio.ByteOrder;
 import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 public class MappedFileImpl implements MappedFile {
 
     private static final Logger LOGGER = Logger.getLogger(MappedFileImpl.class);
+    private static final AtomicLong TOTAL_STITCH_COUNT = new AtomicLong();
+    private static final AtomicReferenceArray<AddressWindow> NO_WINDOWS = new AtomicReferenceArray<>(0);
     private final File file;
     private final JournalMode mode;
     private final int bitHint;
+    // each page is mapped this many bytes past its end, so that values starting near end
+    // of page can be read from same mapping without creating stitch buffer
+    private final int overlap;
     // reserve first 8 bytes in the file for storing pointer to logical end of file
     // so the actual data begins from "dataOffset"
     private final int dataOffset = 8;
@@ -52,11 +60,29 @@ public class MappedFileImpl implements MappedFile {
     private long cachedBufferLo = -1;
     private long cachedBufferHi = -1;
     private long cachedAppendOffset = -1;
+    // address windows of mapped pages by page index. Readers look windows up without locking, so threads
+    // scanning different pages do not evict each other's window. Table is replaced as a whole when it grows
+    // or when pages are unmapped.
+    private volatile AtomicReferenceArray<AddressWindow> windows = NO_WINDOWS;
+    // in READ mode buffers replaced by larger mappings are kept alive until releaseRetired()
+    // because other threads may still be reading through their addresses
+    private final List<MappedByteBuffer> retired = new ArrayList<>();
+    private long stitchCount;
+    // pages handed out for writing since last force(), only these need to be synced
+    private final BitSet dirtyPages = new BitSet();
+    private final boolean writable;
 
     public MappedFileImpl(File file, int bitHint, JournalMode mode) throws JournalException {
+        this(file, bitHint, mode, 0);
+    }
+
+    public MappedFileImpl(File file, int bitHint, JournalMode mode, int overlap) throws JournalException {
         this.file = file;
         this.mode = mode;
         this.bitHint = bitHint;
+        // page and its overlap have to be addressable by single ByteBuffer
+        this.overlap = Math.min(overlap, Integer.MAX_VALUE - (1 << bitHint));
+        this.writable = mode != JournalMode.READ && mode != JournalMode.BULK_READ;
         open();
         this.buffers = new ArrayList<>((int) (size() >>> bitHint) + 1);
         this.stitches = new ArrayList<>(buffers.size());
@@ -74,6 +100,49 @@ public class MappedFileImpl implements MappedFile {
         return cachedBuffer;
     }
 
+    @Override
+    public long getAddress(long offset, int size) {
+        int page = (int) (offset >>> bitHint);
+        AtomicReferenceArray<AddressWindow> windows = this.windows;
+        if (page < windows.length()) {
+            AddressWindow w = windows.get(page);
+            if (w != null && offset + size <= w.hi) {
+                return w.address + offset - w.lo;
+            }
+        }
+        return getAddressInternal(offset, size);
+    }
+
+    @Override
+    public synchronized void releaseRetired() {
+        if (retired.size() > 0) {
+            windows = NO_WINDOWS;
+            for (int i = 0, sz = retired.size(); i < sz; i++) {
+                ByteBuffers.release(retired.get(i));
+            }
+            retired.clear();
+        }
+    }
+
+    /**
+     * Total number of stitch buffers created by all mapped files in this JVM. Stitches are created for
+     * values that do not fit into page overlap, each of them costs extra mmap/munmap pair.
+     *
+     * @return number of stitch buffers created so far.
+     */
+    public static long getTotalStitchCount() {
+        return TOTAL_STITCH_COUNT.get();
+    }
+
+    @Override
+    public int pageRemaining(long offset) {
+        return (int) ((1L << bitHint) - (offset & ((1L << bitHint) - 1)));
+    }
+
+    public long getStitchCount() {
+        return stitchCount;
+    }
+
     public void delete() {
         close();
         Files.delete(file);
@@ -90,6 +159,11 @@ public class MappedFileImpl implements MappedFile {
         offsetBuffer = ByteBuffers.release(offsetBuffer);
     }
 
+    @Override
+    public JournalMode getMode() {
+        return mode;
+    }
+
     @Override
     public String toString() {
         return this.getClass().getName() + "[file=" + file + ", appendOffset=" + getAppendOffset() + "]";
@@ -137,10 +211,15 @@ public class MappedFileImpl implements MappedFile {
         return this.file.getAbsolutePath();
     }
 
+    /**
+     * Syncs pages written since last call to this method. Pages are marked dirty when they are handed out
+     * for writing, so cached buffer and address windows are dropped here to make sure next write marks its page again.
+     */
     public void force() {
         int stitchesSize = stitches.size();
+        int buffersSize = buffers.size();
         offsetBuffer.force();
-        for (int i = 0, buffersSize = buffers.size(); i < buffersSize; i++) {
+        for (int i = dirtyPages.nextSetBit(0); i > -1 && i < buffersSize; i = dirtyPages.nextSetBit(i + 1)) {
             MappedByteBuffer b = buffers.get(i);
             if (b != null) {
                 b.force();
@@ -153,6 +232,41 @@ public class MappedFileImpl implements MappedFile {
                 }
             }
         }
+        dirtyPages.clear();
+        invalidateCache();
+    }
+
+    /**
+     * Number of pages, which will be synced by next force().
+     *
+     * @return count of dirty pages.
+     */
+    public int getDirtyPageCount() {
+        return dirtyPages.cardinality();
+    }
+
+    private synchronized long getAddressInternal(long offset, int size) {
+        MappedByteBuffer buffer = getBufferInternal(offset, size);
+        int pos = buffer.position();
+        if (buffer.remaining() < size) {
+            throw new JournalRuntimeException("Offset %d is beyond end of %s", offset, this);
+        }
+        long lo = offset - pos;
+        long address = ByteBuffers.getAddress(buffer);
+        int page = (int) (offset >>> bitHint);
+        // stitches are not published, they would hide the rest of their page
+        if (buffer == buffers.get(page)) {
+            AtomicReferenceArray<AddressWindow> windows = this.windows;
+            if (page >= windows.length()) {
+                AtomicReferenceArray<AddressWindow> grown = new AtomicReferenceArray<>(Math.max(page + 1, windows.length() * 2));
+                for (int i = 0, n = windows.length(); i < n; i++) {
+                    grown.set(i, windows.get(i));
+                }
+                this.windows = windows = grown;
+            }
+            windows.set(page, new AddressWindow(lo, lo + buffer.limit(), address));
+        }
+        return address + pos;
     }
 
     private MappedByteBuffer getBufferInternal(long offset, int size) {
@@ -167,12 +281,15 @@ public class MappedFileImpl implements MappedFile {
 
         MappedByteBuffer buffer = buffers.get(bufferIndex);
 
-        if (buffer != null && buffer.limit() < bufferPos) {
-            buffer = ByteBuffers.release(buffer);
+        // in READ mode pages are mapped no further than end of file,
+        // such page has to be remapped when file grows
+        if (buffer != null && buffer.limit() < (long) bufferPos + size && isGrown(buffer, bufferOffset, bufferSize)) {
+            invalidateCache();
+            buffer = retire(buffer);
         }
 
         if (buffer == null) {
-            buffer = mapBufferInternal(bufferOffset, bufferSize);
+            buffer = mapBufferInternal(bufferOffset, bufferSize + overlap);
             assert bufferSize > 0;
             buffers.set(bufferIndex, buffer);
             switch (mode) {
@@ -180,8 +297,7 @@ public class MappedFileImpl implements MappedFile {
                 case BULK_APPEND:
                     // for bulk operations unmap all buffers except for current one
                     // this is to prevent OS paging large files.
-                    cachedBuffer = null;
-                    cachedBufferLo = cachedBufferHi = -1;
+                    invalidateCache();
                     int ssz = stitches.size();
                     for (int i = bufferIndex - 1; i >= 0; i--) {
                         MappedByteBuffer b = buffers.get(i);
@@ -200,8 +316,17 @@ public class MappedFileImpl implements MappedFile {
             }
         }
 
+        // page mapped to end of file in READ mode can be shorter than position within it
+        if (bufferPos > buffer.limit()) {
+            throw new JournalRuntimeException("Offset %d is beyond end of %s", offset, this);
+        }
+
         buffer.position(bufferPos);
 
+        if (writable) {
+            dirtyPages.set(bufferIndex);
+        }
+
         // if the desired size is larger than remaining buffer we need to crate
         // a stitch buffer, which would accommodate the size
         if (buffer.remaining() < size) {
@@ -216,7 +341,8 @@ public class MappedFileImpl implements MappedFile {
                 // it could be too small for the size
                 // if that's the case - discard the existing stitch and create a larger one.
                 if (bufferWrapper.getOffset() != stitchOffset || bufferWrapper.getByteBuffer().limit() < size) {
-                    bufferWrapper.release();
+                    invalidateCache();
+                    retire(bufferWrapper.getByteBuffer());
                     bufferWrapper = null;
                 } else {
                     bufferWrapper.getByteBuffer().rewind();
@@ -226,6 +352,8 @@ public class MappedFileImpl implements MappedFile {
             if (bufferWrapper == null) {
                 bufferWrapper = new ByteBufferWrapper(stitchOffset, mapBufferInternal(stitchOffset, size));
                 stitches.set(bufferIndex, bufferWrapper);
+                stitchCount++;
+                TOTAL_STITCH_COUNT.incrementAndGet();
             }
 
             return bufferWrapper.getByteBuffer();
@@ -233,6 +361,17 @@ public class MappedFileImpl implements MappedFile {
         return buffer;
     }
 
+    private boolean isGrown(MappedByteBuffer buffer, long bufferOffset, int bufferSize) {
+        if (buffer.limit() >= bufferSize + overlap) {
+            return false;
+        }
+        try {
+            return channel.size() > bufferOffset + dataOffset + buffer.limit();
+        } catch (IOException e) {
+            throw new JournalRuntimeException("Could not get channel size", e);
+        }
+    }
+
     private long size() throws JournalException {
         try {
             return channel.size();
@@ -293,7 +432,9 @@ public class MappedFileImpl implements MappedFile {
                     } else {
                         sz = size;
                     }
-                    assert sz > 0;
+                    if (sz < 0) {
+                        throw new JournalRuntimeException("Offset %d is beyond end of %s", offset, this);
+                    }
                     buf = channel.map(FileChannel.MapMode.READ_ONLY, actualOffset, sz);
                     break;
                 default:
@@ -320,9 +461,27 @@ public class MappedFileImpl implements MappedFile {
                 b.release();
             }
         }
-        cachedBuffer = null;
-        cachedBufferLo = cachedBufferHi = -1;
+        for (int i = 0, retiredSize = retired.size(); i < retiredSize; i++) {
+            ByteBuffers.release(retired.get(i));
+        }
+        invalidateCache();
         buffers.clear();
         stitches.clear();
+        retired.clear();
+        dirtyPages.clear();
+    }
+
+    private MappedByteBuffer retire(MappedByteBuffer buffer) {
+        if (mode == JournalMode.READ) {
+            retired.add(buffer);
+            return null;
+        }
+        return ByteBuffers.release(buffer);
+    }
+
+    private void invalidateCache() {
+        cachedBuffer = null;
+        cachedBufferLo = cachedBufferHi = -1;
+        windows = NO_WINDOWS;
     }
 }
@@ -17,6 +17,7 @@
 package com.nfsdb.journal.column;
 
 import com.nfsdb.journal.utils.BitSetAccessor;
+import com.nfsdb.journal.utils.Unsafe;
 
 import java.nio.ByteBuffer;
 import java.util.BitSet;
@@ -36,6 +37,18 @@ public class NullsColumn extends FixedColumn {
         this.cachedRowID = -1;
     }
 
+    public static boolean isNullAt(long address, int columnIndex) {
+        return (Unsafe.getUnsafe().getLong(address + ((columnIndex >>> 6) << 3)) & (1L << columnIndex)) != 0;
+    }
+
+    /**
+     * Checks null flag of single column without touching shared BitSet, which makes
+     * this method safe to call from multiple threads in READ mode.
+     */
+    public boolean isNull(long localRowID, int columnIndex) {
+        return isNullAt(getAddress(localRowID), columnIndex);
+    }
+
     public BitSet getBitSet(long localRowID) {
         if (localRowID != cachedRowID) {
             getBitSet(localRowID, bitSet);
@@ -52,8 +65,8 @@ public class NullsColumn extends FixedColumn {
         cachedRowID = -1;
     }
 
-    private void getBitSet(long localRowID, BitSet bs) {
-        ByteBuffer bb = getBuffer(localRowID);
+    public void getBitSet(long localRowID, BitSet bs) {
+        long address = getAddress(localRowID);
         long words[] = BitSetAccessor.getWords(bs);
         if (words == null || words.length < wordCount) {
             words = new long[wordCount];
@@ -62,7 +75,8 @@ public class NullsColumn extends FixedColumn {
         BitSetAccessor.setWordsInUse(bs, wordCount);
 
         for (int j = 0; j < wordCount; j++) {
-            words[j] = bb.getLong();
+            words[j] = Unsafe.getUnsafe().getLong(address);
+            address += 8;
         }
     }
 }
@@ -0,0 +1,45 @@
+/*
+ * Copyright (c) 2014. Vlad Ilyushchenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nfsdb.journal.column;
+
+/**
+ * On-disk encoding of STRING and SYMBOL column values.
+ */
+public enum StringEncoding {
+    /**
+     * Length in chars followed by two bytes per char. Default, and the only encoding of journals
+     * created before encoding was configurable.
+     */
+    UTF16(2),
+    /**
+     * Length in bytes followed by UTF-8 bytes. Halves column size for ASCII data.
+     */
+    UTF8(1);
+
+    private final int avgBytesPerChar;
+
+    /**
+     * Expected number of bytes per char, used to size column pages from avgsize hint.
+     */
+    public int avgBytesPerChar() {
+        return avgBytesPerChar;
+    }
+
+    StringEncoding(int avgBytesPerChar) {
+        this.avgBytesPerChar = avgBytesPerChar;
+    }
+}
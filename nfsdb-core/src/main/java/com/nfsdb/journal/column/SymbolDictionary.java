@@ -0,0 +1,196 @@
+/*
+ * Copyright (c) 2014. Vlad Ilyushchenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.nfsdb.journal.column;
+
+import com.nfsdb.journal.exceptions.JournalRuntimeException;
+import com.nfsdb.journal.utils.Chars;
+import com.nfsdb.journal.utils.Unsafe;
+
+import java.io.Closeable;
+
+/**
+ * Off-heap open addressing map of symbol hash to symbol key. Symbol values are not copied, candidate keys are
+ * verified against UTF-16 chars of symbol data column, which is why lookup does not need a String instance.
+ * <p/>
+ * Each slot is 8 bytes: 4 byte hash followed by 4 byte key, empty slots have key of -1. Map is not thread safe.
+ * <p/>
+ * Map grows up to four times of capacity hint. Once it is full, further keys are not added and their lookups
+ * are left to caller. Clearing map shrinks it back to initial capacity.
+ */
+public class SymbolDictionary implements Closeable {
+
+    private static final int MIN_CAPACITY = 16;
+    private static final int MAX_INITIAL_CAPACITY = 1 << 16;
+    private static final int MAX_CAPACITY = 1 << 26;
+    private static final int EMPTY = -1;
+    private final VariableColumn data;
+    private final int initialCapacity;
+    private final int maxCapacity;
+    private long address;
+    private int capacity;
+    private int mask;
+    private int size;
+    private int threshold;
+
+    public SymbolDictionary(VariableColumn data, int capacityHint) {
+        this.data = data;
+        int capacity = ceilPow2(Math.max(MIN_CAPACITY, capacityHint * 2));
+        this.initialCapacity = Math.min(MAX_INITIAL_CAPACITY, capacity);
+        this.maxCapacity = Math.max(initialCapacity, Math.min(MAX_CAPACITY, capacity << 1));
+        allocate(initialCapacity);
+    }
+
+    /**
+     * Spreads hash code of a char sequence so that linear probing does not cluster on similar values.
+     *
+     * @param value char sequence, must not be null
+     * @return 32-bit hash
+     */
+    public static int hash(CharSequence value) {
+        int h = Chars.hashCode(value);
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    /**
+     * Finds key of symbol value. Keys at or above limit are ignored, they can be left behind in the map
+     * when symbol table is rolled back to a smaller size.
+     *
+     * @param value symbol value
+     * @param hash  hash of value as returned by {@link #hash(CharSequence)}
+     * @param limit exclusive upper bound of valid keys
+     * @return symbol key or {@link SymbolTable#VALUE_NOT_FOUND}
+     */
+    public int get(CharSequence value, int hash, int limit) {
+        if (address == 0) {
+            throw new JournalRuntimeException("Symbol dictionary is closed");
+        }
+        sun.misc.Unsafe unsafe = Unsafe.getUnsafe();
+        int i = hash & mask;
+        while (true) {
+            long p = address + ((long) i << 3);
+            int key = unsafe.getInt(p + 4);
+            if (key == EMPTY) {
+                return SymbolTable.VALUE_NOT_FOUND;
+            }
+            if (key < limit && unsafe.getInt(p) == hash && data.equalsString(key, value)) {
+                return key;
+            }
+            i = (i + 1) & mask;
+        }
+    }
+
+    /**
+     * Adds key to map unless it is already there. Key is not added when map is full.
+     *
+     * @param hash hash of key value as returned by {@link #hash(CharSequence)}
+     * @param key  symbol key
+     * @return true if key was added
+     */
+    public boolean put(int hash, int key) {
+        if (address == 0) {
+            throw new JournalRuntimeException("Symbol dictionary is closed");
+        }
+        if (size >= threshold) {
+            if (capacity >= maxCapacity) {
+                return false;
+            }
+            rehash();
+        }
+        if (insert(address, mask, hash, key)) {
+            size++;
+            return true;
+        }
+        return false;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public void clear() {
+        if (capacity > initialCapacity) {
+            Unsafe.getUnsafe().freeMemory(address);
+            allocate(initialCapacity);
+        } else {
+            Unsafe.getUnsafe().setMemory(address, (long) capacity << 3, (byte) 0xff);
+        }
+        size = 0;
+    }
+
+    @Override
+    public void close() {
+        if (address != 0) {
+            Unsafe.getUnsafe().freeMemory(address);
+            address = 0;
+        }
+    }
+
+    private static int ceilPow2(int value) {
+        return value > (1 << 30) ? 1 << 30 : Integer.highestOneBit(value - 1) << 1;
+    }
+
+    private static boolean insert(long address, int mask, int hash, int key) {
+        sun.misc.Unsafe unsafe = Unsafe.getUnsafe();
+        int i = hash & mask;
+        long p;
+        int k;
+        while ((k = unsafe.getInt((p = address + ((long) i << 3)) + 4)) != EMPTY) {
+            // same key always has same hash, so it can only be found on this probe chain
+            if (k == key) {
+                return false;
+            }
+            i = (i + 1) & mask;
+        }
+        unsafe.putInt(p, hash);
+        unsafe.putInt(p + 4, key);
+        return true;
+    }
+
+    private void allocate(int capacity) {
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+        this.threshold = capacity >> 1;
+        this.address = Unsafe.getUnsafe().allocateMemory((long) capacity << 3);
+        Unsafe.getUnsafe().setMemory(address, (long) capacity << 3, (byte) 0xff);
+    }
+
+    private void rehash() {
+        sun.misc.Unsafe unsafe = Unsafe.getUnsafe();
+        long oldAddress = address;
+        long oldLimit = oldAddress + ((long) capacity << 3);
+        int size = this.size;
+        allocate(capacity << 1);
+        for (long p = oldAddress; p < oldLimit; p += 8) {
+            int key = unsafe.getInt(p + 4);
+            if (key != EMPTY) {
+                insert(address, mask, unsafe.getInt(p), key);
+            }
+        }
+        this.size = size;
+        unsafe.freeMemory(oldAddress);
+    }
+}
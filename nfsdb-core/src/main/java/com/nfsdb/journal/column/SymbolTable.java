@@ -21,16 +21,16 @@ import com.nfsdb.journal.exceptions.JournalException;
 import com.nfsdb.journal.exceptions.JournalImmutableIteratorException;
 import com.nfsdb.journal.exceptions.JournalInvalidSymbolValueException;
 import com.nfsdb.journal.exceptions.JournalRuntimeException;
+import com.nfsdb.journal.factory.JournalConfiguration;
+import com.nfsdb.journal.factory.JournalMetadata;
 import com.nfsdb.journal.index.experimental.Cursor;
 import com.nfsdb.journal.index.KVIndex;
 import com.nfsdb.journal.utils.ByteBuffers;
 import com.nfsdb.journal.utils.Checksum;
-import com.nfsdb.journal.utils.Lists;
-import gnu.trove.map.hash.TObjectIntHashMap;
 
 import java.io.Closeable;
 import java.io.File;
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
 
 public class SymbolTable implements Closeable {
@@ -41,17 +41,29 @@ public class SymbolTable implements Closeable {
     private static final String INDEX_FILE_SUFFIX = ".symi";
     private static final String HASH_INDEX_FILE_SUFFIX = ".symr";
     private static final long HASH_GROUPING_RATE = 25L;
-    private static final float CACHE_LOAD_FACTOR = 0.2f;
+    private static final int MIN_VALUE_CACHE_SIZE = 16;
     private final int capacity;
+    private final int hashVersion;
     private final String column;
-    private final TObjectIntHashMap<String> valueCache;
-    private final ArrayList<String> keyCache;
+    // value to key lookups are served from off-heap dictionary, which does not retain String instances
+    private final SymbolDictionary dictionary;
+    // key to value lookups are served from array, which grows as keys are read, up to capacity
+    private volatile String[] valueCache = new String[0];
     private VariableColumn data;
     private KVIndex index;
     private int size;
 
     public SymbolTable(int capacity, int avgStringSize, int txCountHint, File directory, String column, JournalMode mode, int size, long indexTxAddress) throws JournalException {
+        this(capacity, avgStringSize, txCountHint, directory, column, mode, size, indexTxAddress, JournalMetadata.HASH_VERSION_CURRENT);
+    }
+
+    public SymbolTable(int capacity, int avgStringSize, int txCountHint, File directory, String column, JournalMode mode, int size, long indexTxAddress, int hashVersion) throws JournalException {
+        this(capacity, avgStringSize, txCountHint, directory, column, mode, size, indexTxAddress, hashVersion, StringEncoding.UTF16);
+    }
+
+    public SymbolTable(int capacity, int avgStringSize, int txCountHint, File directory, String column, JournalMode mode, int size, long indexTxAddress, int hashVersion, StringEncoding encoding) throws JournalException {
         this.capacity = capacity;
+        this.hashVersion = hashVersion;
         this.column = column;
         JournalMode m;
 
@@ -66,15 +78,15 @@ public class SymbolTable implements Closeable {
                 m = mode;
         }
 
-        MappedFile dataFile = new MappedFileImpl(new File(directory, column + DATA_FILE_SUFFIX), ByteBuffers.getBitHint(avgStringSize * 2 + 4, capacity), m);
+        int dataBitHint = ByteBuffers.getBitHint(avgStringSize * encoding.avgBytesPerChar() + 4, capacity);
+        MappedFile dataFile = new MappedFileImpl(new File(directory, column + DATA_FILE_SUFFIX), dataBitHint, m, Math.min(1 << dataBitHint, JournalConfiguration.DEFAULT_PAGE_OVERLAP));
         MappedFile indexFile = new MappedFileImpl(new File(directory, column + INDEX_FILE_SUFFIX), ByteBuffers.getBitHint(8, capacity), m);
 
-        this.data = new VariableColumn(dataFile, indexFile);
+        this.data = new VariableColumn(dataFile, indexFile, encoding);
         this.size = size;
 
         this.index = new KVIndex(new File(directory, column + HASH_INDEX_FILE_SUFFIX), capacity, capacity * HASH_GROUPING_RATE, txCountHint, mode, indexTxAddress);
-        this.valueCache = new TObjectIntHashMap<>(capacity, CACHE_LOAD_FACTOR, VALUE_NOT_FOUND);
-        this.keyCache = new ArrayList<>(capacity);
+        this.dictionary = new SymbolDictionary(data, capacity);
     }
 
     public void applyTx(int size, long indexTxAddress) {
@@ -95,14 +107,19 @@ public class SymbolTable implements Closeable {
             key = (int) (data.size() - 1);
             index.add(hashKey(value), key);
             size++;
-            cache(key, value);
+            cache(key, SymbolDictionary.hash(value));
         }
 
         return key;
     }
 
-    public int getQuick(String value) {
-        int key = value == null ? VALUE_IS_NULL : this.valueCache.get(value);
+    public int getQuick(CharSequence value) {
+        if (value == null) {
+            return VALUE_IS_NULL;
+        }
+
+        int hash = SymbolDictionary.hash(value);
+        int key = cachedKey(value, hash);
 
         if (key != VALUE_NOT_FOUND) {
             return key;
@@ -114,11 +131,11 @@ public class SymbolTable implements Closeable {
             return VALUE_NOT_FOUND;
         }
 
-        Cursor cursor = index.cachedCursor(hashKey);
+        Cursor cursor = index.cursor(hashKey);
         while (cursor.hasNext()) {
             key = (int) cursor.next();
             if (data.equalsString(key, value)) {
-                cache(key, value);
+                cache(key, hash);
                 return key;
             }
         }
@@ -138,14 +155,22 @@ public class SymbolTable implements Closeable {
         return getQuick(value) != VALUE_NOT_FOUND;
     }
 
+    /**
+     * Value of key. Values of keys below capacity of symbol table are cached once read, values of keys beyond
+     * capacity are read from data column on every call.
+     *
+     * @param key symbol key
+     * @return symbol value
+     */
     public String value(int key) {
         if (key >= size) {
             throw new JournalRuntimeException("Invalid symbol key: " + key);
         }
-        String value = key < keyCache.size() ? keyCache.get(key) : null;
+        String[] values = valueCache;
+        String value = key < values.length ? values[key] : null;
         if (value == null) {
             value = data.getString(key);
-            cache(key, value);
+            cacheValue(key, value);
         }
         return value;
     }
@@ -185,6 +210,9 @@ public class SymbolTable implements Closeable {
     }
 
     public void close() {
+        synchronized (this) {
+            dictionary.close();
+        }
         if (data != null) {
             data.close();
         }
@@ -222,11 +250,10 @@ public class SymbolTable implements Closeable {
     }
 
     public SymbolTable preLoad() {
-        for (int key = 0, size = (int) data.size(); key < size; key++) {
+        for (int key = 0; key < size; key++) {
             String value = data.getString(key);
-            valueCache.putIfAbsent(value, key);
-            keyCache.add(value);
-
+            cache(key, SymbolDictionary.hash(value));
+            cacheValue(key, value);
         }
         return this;
     }
@@ -245,18 +272,47 @@ public class SymbolTable implements Closeable {
         index.force();
     }
 
-    private void cache(int key, String value) {
-        valueCache.put(value, key);
-        Lists.advance(keyCache, key);
-        keyCache.set(key, value);
+    public void releaseRetired() {
+        data.releaseRetired();
+        index.releaseRetired();
+    }
+
+    private synchronized int cachedKey(CharSequence value, int hash) {
+        return dictionary.get(value, hash, size);
+    }
+
+    // threads, which miss the same value at the same time, both get here, dictionary ignores second put
+    private synchronized void cache(int key, int hash) {
+        dictionary.put(hash, key);
+    }
+
+    // String is immutable, so racing writes of the same value, or writes lost to concurrent growth, are harmless
+    private void cacheValue(int key, String value) {
+        if (key >= capacity) {
+            return;
+        }
+        String[] values = valueCache;
+        if (key >= values.length) {
+            values = growValueCache(key);
+        }
+        values[key] = value;
+    }
+
+    private synchronized String[] growValueCache(int key) {
+        String[] values = valueCache;
+        if (key >= values.length) {
+            values = Arrays.copyOf(values, Math.min(capacity, Math.max(key + 1, Math.max(MIN_VALUE_CACHE_SIZE, values.length << 1))));
+            valueCache = values;
+        }
+        return values;
     }
 
-    private void clearCache() {
-        valueCache.clear();
-        keyCache.clear();
+    private synchronized void clearCache() {
+        dictionary.clear();
+        valueCache = new String[0];
     }
 
-    private int hashKey(String value) {
-        return Checksum.hash(value, capacity);
+    private int hashKey(CharSequence value) {
+        return Checksum.hash(value, capacity, hashVersion);
     }
 }
@@ -16,21 +16,34 @@
 
 package com.nfsdb.journal.column;
 
+import com.nfsdb.journal.JournalMode;
 import com.nfsdb.journal.exceptions.JournalException;
 import com.nfsdb.journal.exceptions.JournalRuntimeException;
 import com.nfsdb.journal.factory.JournalConfiguration;
 import com.nfsdb.journal.utils.ByteBuffers;
+import com.nfsdb.journal.utils.Unsafe;
+import com.nfsdb.journal.utils.Utf8;
 
 import java.nio.ByteBuffer;
 
 
 public class VariableColumn extends AbstractColumn {
     private final FixedColumn indexColumn;
-    private char buffer[] = new char[32];
+    private final DirectCharSequence flyweight = new DirectCharSequence();
+    private final StringEncoding encoding;
 
     public VariableColumn(MappedFile dataFile, MappedFile indexFile) {
+        this(dataFile, indexFile, StringEncoding.UTF16);
+    }
+
+    public VariableColumn(MappedFile dataFile, MappedFile indexFile, StringEncoding encoding) {
         super(dataFile);
         this.indexColumn = new FixedColumn(indexFile, JournalConfiguration.VARCHAR_INDEX_COLUMN_WIDTH);
+        this.encoding = encoding;
+    }
+
+    public StringEncoding getEncoding() {
+        return encoding;
     }
 
     @Override
@@ -45,6 +58,12 @@ public class VariableColumn extends AbstractColumn {
         indexColumn.force();
     }
 
+    @Override
+    public void releaseRetired() {
+        super.releaseRetired();
+        indexColumn.releaseRetired();
+    }
+
     @Override
     public void close() {
         indexColumn.close();
@@ -75,41 +94,86 @@ public class VariableColumn extends AbstractColumn {
     }
 
     public String getString(long localRowID) {
-        // read delegate buffer which lets us read "null" flag and string length.
-        ByteBuffer bb = getBufferInternal(localRowID, JournalConfiguration.VARCHAR_LARGE_HEADER_LENGTH);
-        int len = bb.getInt();
-        // check if buffer can have actual string (char=2*byte)
-        if (bb.remaining() < len * 2) {
-            bb = getBufferInternal(localRowID, len * 2 + JournalConfiguration.VARCHAR_LARGE_HEADER_LENGTH);
-            bb.position(bb.position() + JournalConfiguration.VARCHAR_LARGE_HEADER_LENGTH);
+        long offset = getOffsetInternal(localRowID);
+        int len = Unsafe.getUnsafe().getInt(mappedFile.getAddress(offset, JournalConfiguration.VARCHAR_LARGE_HEADER_LENGTH));
+        if (encoding == StringEncoding.UTF8) {
+            if (len == 0) {
+                return "";
+            }
+            char chars[] = new char[len];
+            int n = Utf8.decode(mappedFile.getAddress(offset + JournalConfiguration.VARCHAR_LARGE_HEADER_LENGTH, len), len, chars);
+            return new String(chars, 0, n);
         }
+        char chars[] = new char[len];
+        if (len > 0) {
+            long address = mappedFile.getAddress(offset + JournalConfiguration.VARCHAR_LARGE_HEADER_LENGTH, len * 2);
+            Unsafe.getUnsafe().copyMemory(null, address, chars, Unsafe.CHAR_ARRAY_OFFSET, len * 2);
+        }
+        return new String(chars);
+    }
 
-        return asString(bb, len);
+    /**
+     * Flyweight strings point at memory of column file directly and are only available when file is open in READ
+     * mode. Appending modes release pages and stitch buffers as soon as they are replaced.
+     *
+     * @return true if {@link #getFlyweightStr(long)} can be called
+     */
+    public boolean isFlyweightSupported() {
+        return mappedFile.getMode() == JournalMode.READ;
     }
 
-    public boolean equalsString(long localRowID, String value) {
-        // read delegate buffer which lets us read "null" flag and string length.
-        ByteBuffer buf = getBufferInternal(localRowID, JournalConfiguration.VARCHAR_LARGE_HEADER_LENGTH);
-        int len = buf.getInt();
+    /**
+     * Returns value of row as a view over mapped memory without copying chars. Returned instance is owned by
+     * this column and is re-pointed by the next call.
+     * <p/>
+     * Memory behind returned value stays valid until file is refreshed or closed: pages and blocks of compressed
+     * file, which are replaced while reading other rows, are retired rather than released. Call toString() to
+     * keep the value longer.
+     *
+     * @param localRowID row id within partition
+     * @return reusable char sequence
+     * @throws JournalRuntimeException if file is not open in READ mode
+     */
+    public DirectCharSequence getFlyweightStr(long localRowID) {
+        return getFlyweightStr(localRowID, flyweight);
+    }
 
-        if (len != value.length()) {
-            return false;
+    /**
+     * Same as {@link #getFlyweightStr(long)}, but points caller's instance at the value, so that values of
+     * several rows can be held at the same time.
+     */
+    public DirectCharSequence getFlyweightStr(long localRowID, DirectCharSequence target) {
+        if (!isFlyweightSupported()) {
+            throw new JournalRuntimeException("Flyweight strings require READ mode: %s", mappedFile);
+        }
+        long offset = getOffsetInternal(localRowID);
+        int len = Unsafe.getUnsafe().getInt(mappedFile.getAddress(offset, JournalConfiguration.VARCHAR_LARGE_HEADER_LENGTH));
+        if (encoding == StringEncoding.UTF8) {
+            long address = len > 0 ? mappedFile.getAddress(offset + JournalConfiguration.VARCHAR_LARGE_HEADER_LENGTH, len) : 0;
+            return target.ofUtf8(address, len);
         }
+        long address = len > 0 ? mappedFile.getAddress(offset + JournalConfiguration.VARCHAR_LARGE_HEADER_LENGTH, len * 2) : 0;
+        return target.of(address, len);
+    }
 
-        int p;
-        // check if buffer can have actual string (char=2*byte)
-        if (buf.remaining() < len * 2) {
-            buf = getBufferInternal(localRowID, len * 2 + JournalConfiguration.VARCHAR_LARGE_HEADER_LENGTH);
-            p = buf.position() + JournalConfiguration.VARCHAR_LARGE_HEADER_LENGTH;
-        } else {
-            p = buf.position();
+    public boolean equalsString(long localRowID, CharSequence value) {
+        long offset = getOffsetInternal(localRowID);
+        int len = Unsafe.getUnsafe().getInt(mappedFile.getAddress(offset, JournalConfiguration.VARCHAR_LARGE_HEADER_LENGTH));
+
+        if (encoding == StringEncoding.UTF8) {
+            return len == 0 ? value.length() == 0 : Utf8.equals(mappedFile.getAddress(offset + JournalConfiguration.VARCHAR_LARGE_HEADER_LENGTH, len), len, value);
+        }
+
+        if (len != value.length()) {
+            return false;
         }
 
+        long address = mappedFile.getAddress(offset + JournalConfiguration.VARCHAR_LARGE_HEADER_LENGTH, len * 2);
         for (int i = 0; i < len; i++) {
-            if (buf.getChar(p) != value.charAt(i)) {
+            if (Unsafe.getUnsafe().getChar(address) != value.charAt(i)) {
                 return false;
             }
-            p += 2;
+            address += 2;
         }
 
         return true;
@@ -118,6 +182,14 @@ public class VariableColumn extends AbstractColumn {
     public long putString(String value) {
         if (value == null) {
             return putNull();
+        } else if (encoding == StringEncoding.UTF8) {
+            int size = Utf8.encodedLength(value);
+            int len = size + JournalConfiguration.VARCHAR_LARGE_HEADER_LENGTH;
+            long offset = getOffset();
+            ByteBuffer bb = getBuffer(offset, len);
+            bb.putInt(size);
+            Utf8.encode(ByteBuffers.getAddress(bb) + bb.position(), value);
+            return commitAppend(offset, len);
         } else {
             int len = value.length() * 2 + JournalConfiguration.VARCHAR_LARGE_HEADER_LENGTH;
             long offset = getOffset();
@@ -157,21 +229,24 @@ public class VariableColumn extends AbstractColumn {
     }
 
     public int getBufferSize(long localRowID) {
-        ByteBuffer bb = getBufferInternal(localRowID, 4);
-        return bb.getInt(bb.position());
+        return Unsafe.getUnsafe().getInt(mappedFile.getAddress(getOffsetInternal(localRowID), 4));
     }
 
     public void getBuffer(long localRowID, ByteBuffer target, int count) {
         long offset = getOffset(localRowID) + 4; // skip size
-        if (count < target.remaining()) {
+        if (count != target.remaining()) {
             throw new JournalRuntimeException("ByteBuffer too small");
         }
 
-        while (count > 0) {
-            ByteBuffer bb = getBuffer(offset, 1);
-            int sz = ByteBuffers.copy(bb, target, count);
-            count -= sz;
-            offset += sz;
+        if (count > 0) {
+            long address = mappedFile.getAddress(offset, count);
+            int pos = target.position();
+            if (target.hasArray()) {
+                Unsafe.getUnsafe().copyMemory(null, address, target.array(), Unsafe.BYTE_ARRAY_OFFSET + target.arrayOffset() + pos, count);
+            } else {
+                Unsafe.getUnsafe().copyMemory(address, ByteBuffers.getAddress(target) + pos, count);
+            }
+            target.position(pos + count);
         }
     }
 
@@ -179,19 +254,7 @@ public class VariableColumn extends AbstractColumn {
         return commitAppend(getOffset(), 0);
     }
 
-    private String asString(ByteBuffer bb, int len) {
-        if (buffer.length < len) {
-            buffer = new char[len];
-        }
-        int p = bb.position();
-        for (int i = 0; i < len; i++) {
-            buffer[i] = bb.getChar(p);
-            p += 2;
-        }
-        return new String(buffer, 0, len);
-    }
-
-    private ByteBuffer getBufferInternal(long localRowID, int recordLength) {
+    private long getOffsetInternal(long localRowID) {
         long max = indexColumn.size();
 
         if (localRowID > max) {
@@ -199,9 +262,9 @@ public class VariableColumn extends AbstractColumn {
         }
 
         if (localRowID == max) {
-            return getBuffer(getOffset(), recordLength);
+            return getOffset();
         } else {
-            return getBuffer(getOffset(localRowID), recordLength);
+            return getOffset(localRowID);
         }
     }
 
@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2014. Vlad Ilyushchenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nfsdb.journal.column;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Statistics of numeric column for each block of 2^blockBits rows. Range filters check block statistics
+ * to skip blocks, which cannot have matching values.
+ */
+public class ZoneMap {
+    private final ColumnType type;
+    private final int blockBits;
+    private final List<ColumnStats> blocks = new ArrayList<>();
+    private final int recordSize;
+
+    public ZoneMap(ColumnType type, int blockBits) {
+        this.type = type;
+        this.blockBits = blockBits;
+        this.recordSize = new ColumnStats(type).size();
+    }
+
+    public static boolean supports(ColumnType type) {
+        switch (type) {
+            case BYTE:
+            case SHORT:
+            case INT:
+            case LONG:
+            case DOUBLE:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    public void clear() {
+        blocks.clear();
+    }
+
+    public ColumnStats getBlockForRow(long localRowID) {
+        int blockIndex = (int) (localRowID >>> blockBits);
+        while (blocks.size() <= blockIndex) {
+            blocks.add(new ColumnStats(type));
+        }
+        return blocks.get(blockIndex);
+    }
+
+    public ColumnStats getBlock(int blockIndex) {
+        return blocks.get(blockIndex);
+    }
+
+    public int getBlockCount() {
+        return blocks.size();
+    }
+
+    public int getBlockBits() {
+        return blockBits;
+    }
+
+    /**
+     * Number of bytes {@link #writeBlock(int, ByteBuffer)} writes, which is the same for every block.
+     */
+    public int getBlockRecordSize() {
+        return recordSize;
+    }
+
+    public void writeBlock(int blockIndex, ByteBuffer buf) {
+        getBlockForRow((long) blockIndex << blockBits).write(buf);
+    }
+
+    /**
+     * Reads block written by {@link #writeBlock(int, ByteBuffer)} and adds it after the last block.
+     */
+    public void readBlock(ByteBuffer buf) {
+        ColumnStats block = new ColumnStats(type);
+        block.read(buf);
+        blocks.add(block);
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2014. Vlad Ilyushchenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.nfsdb.journal.concurrent;
+
+import com.nfsdb.journal.exceptions.JournalRuntimeException;
+import com.nfsdb.journal.tx.TxFuture;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Future of batch of objects published to JournalAppender. Completes when writer thread commits
+ * transaction, which contains last object of batch.
+ */
+public class AppendFuture implements TxFuture {
+
+    private final CountDownLatch latch = new CountDownLatch(1);
+    private volatile boolean success;
+    private boolean failed;
+
+    /**
+     * @param time maximum time to wait.
+     * @param unit time unit.
+     * @return true if all objects of batch were appended and committed. false if any of objects was rejected by writer,
+     * commit failed or batch was not committed within given time.
+     */
+    @Override
+    public boolean waitFor(long time, TimeUnit unit) {
+        try {
+            return latch.await(time, unit) && success;
+        } catch (InterruptedException e) {
+            throw new JournalRuntimeException(e);
+        }
+    }
+
+    public boolean isDone() {
+        return latch.getCount() == 0;
+    }
+
+    void fail() {
+        failed = true;
+    }
+
+    void complete(boolean committed) {
+        this.success = committed && !failed;
+        latch.countDown();
+    }
+}
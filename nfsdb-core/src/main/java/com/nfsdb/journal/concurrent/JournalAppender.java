@@ -0,0 +1,298 @@
+/*
+ * Copyright (c) 2014. Vlad Ilyushchenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.nfsdb.journal.concurrent;
+
+import com.lmax.disruptor.*;
+import com.nfsdb.journal.JournalWriter;
+import com.nfsdb.journal.exceptions.JournalException;
+import com.nfsdb.journal.logging.Logger;
+import com.nfsdb.journal.tx.TxFuture;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lets multiple threads append to single journal without locking. Producers claim slots of multi-producer
+ * ring buffer and publish objects into them. Single writer thread drains ring buffer, appends objects to
+ * JournalWriter and commits when there is nothing more to drain, so that busy producers share commits.
+ * <p/>
+ * When ring buffer is full producers block until writer thread catches up.
+ * <p/>
+ * Objects are appended by reference, so producers must not modify them after publishing. Writer must not be
+ * used by other threads while appender is running. Objects are appended in order of publication, producers
+ * are responsible for keeping timestamps of ordered journal in order.
+ * <p/>
+ * Failure of writer fails futures of affected objects, it does not stop writer thread.
+ */
+public class JournalAppender<T> {
+
+    private static final Logger LOGGER = Logger.getLogger(JournalAppender.class);
+    private static final long DEFAULT_HALT_TIMEOUT_SECONDS = 30;
+    private final ExecutorService executor;
+    private final RingBuffer<AppendEvent> ringBuffer;
+    private final AppendEventHandler<T> handler;
+    private final BatchEventProcessor<AppendEvent> batchEventProcessor;
+    private final int bufferSize;
+    private Future<?> processorFuture;
+
+    /**
+     * @param writer     journal writer, which will be owned by appender thread.
+     * @param bufferSize size of ring buffer, must be power of 2.
+     * @param durable    true to commit batches with commitDurable(), false for commit().
+     */
+    public JournalAppender(JournalWriter<T> writer, int bufferSize, boolean durable) {
+        this.bufferSize = bufferSize;
+        this.executor = Executors.newFixedThreadPool(1, new NamedDaemonThreadFactory("jj-appender-" + writer.getLocation().getName(), false));
+        this.ringBuffer = RingBuffer.createMultiProducer(AppendEvent.EVENT_FACTORY, bufferSize, new BlockingWaitStrategy());
+        this.handler = new AppendEventHandler<>(writer, durable);
+        this.batchEventProcessor = new BatchEventProcessor<>(ringBuffer, ringBuffer.newBarrier(), handler);
+        // handler does not let exceptions out, this is last resort to keep processor running and producers unblocked
+        this.batchEventProcessor.setExceptionHandler(new ExceptionHandler() {
+            @Override
+            public void handleEventException(Throwable ex, long sequence, Object event) {
+                LOGGER.error("Append failed at sequence %d", ex, sequence);
+                ((AppendEvent) event).clear(false);
+                handler.completePending(false);
+            }
+
+            @Override
+            public void handleOnStartException(Throwable ex) {
+                LOGGER.error("Appender failed to start", ex);
+            }
+
+            @Override
+            public void handleOnShutdownException(Throwable ex) {
+                LOGGER.error("Appender failed to stop", ex);
+            }
+        });
+        ringBuffer.addGatingSequences(batchEventProcessor.getSequence());
+    }
+
+    public void start() {
+        processorFuture = executor.submit(batchEventProcessor);
+    }
+
+    /**
+     * Waits up to 30 seconds for published objects to be committed and stops writer thread.
+     *
+     * @see #halt(long, java.util.concurrent.TimeUnit)
+     */
+    public void halt() {
+        halt(DEFAULT_HALT_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Waits for published objects to be committed and stops writer thread. Producers must stop publishing before
+     * this method is called. Objects, which writer thread has not reached by timeout, are not appended and their
+     * futures fail.
+     *
+     * @param timeout maximum time to wait.
+     * @param unit    time unit.
+     * @return true if all published objects were processed before writer thread stopped.
+     */
+    public boolean halt(long timeout, TimeUnit unit) {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        executor.shutdown();
+
+        if (processorFuture != null) {
+            while (!processorFuture.isDone() && batchEventProcessor.getSequence().get() < ringBuffer.getCursor() && System.nanoTime() < deadline) {
+                Thread.yield();
+            }
+
+            // processor clears alert when it starts running, so halt is repeated until its task is done
+            while (!processorFuture.isDone() && System.nanoTime() < deadline) {
+                batchEventProcessor.halt();
+                Thread.yield();
+            }
+        }
+
+        try {
+            if (!executor.awaitTermination(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+                LOGGER.info("Appender shutdown, but thread is still running");
+                return false;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOGGER.info("Appender shutdown, but thread is still running");
+            return false;
+        }
+
+        // writer thread is gone, objects it has not reached can be failed here
+        long cursor = ringBuffer.getCursor();
+        long sequence = batchEventProcessor.getSequence().get();
+        for (long seq = sequence + 1; seq <= cursor; seq++) {
+            ringBuffer.get(seq).clear(false);
+        }
+        handler.completePending(false);
+        return sequence >= cursor;
+    }
+
+    /**
+     * Publishes object, blocking while ring buffer is full.
+     *
+     * @param obj object to append
+     * @return future, which completes when object is committed.
+     */
+    public TxFuture append(T obj) {
+        AppendFuture future = new AppendFuture();
+        long sequence = ringBuffer.next();
+        publish(sequence, obj, future, true);
+        return future;
+    }
+
+    /**
+     * Publishes object unless ring buffer is full.
+     *
+     * @param obj object to append
+     * @return future, which completes when object is committed, or null if ring buffer is full.
+     */
+    public TxFuture tryAppend(T obj) {
+        long sequence;
+        try {
+            sequence = ringBuffer.tryNext();
+        } catch (InsufficientCapacityException e) {
+            return null;
+        }
+        AppendFuture future = new AppendFuture();
+        publish(sequence, obj, future, true);
+        return future;
+    }
+
+    /**
+     * Publishes list of objects as single batch. Batch is claimed in chunks of ring buffer size,
+     * so objects of batch are contiguous only when batch is not larger than ring buffer.
+     *
+     * @param objects objects to append
+     * @return future, which completes when last object of batch is committed, or null if list is empty.
+     */
+    public TxFuture append(List<T> objects) {
+        int size = objects.size();
+        if (size == 0) {
+            return null;
+        }
+
+        AppendFuture future = new AppendFuture();
+        int pos = 0;
+        while (pos < size) {
+            int n = Math.min(size - pos, bufferSize);
+            long hi = ringBuffer.next(n);
+            long lo = hi - n + 1;
+            for (long seq = lo; seq <= hi; seq++) {
+                AppendEvent event = ringBuffer.get(seq);
+                event.obj = objects.get(pos++);
+                event.future = future;
+                event.last = pos == size;
+            }
+            ringBuffer.publish(lo, hi);
+        }
+        return future;
+    }
+
+    private void publish(long sequence, T obj, AppendFuture future, boolean last) {
+        AppendEvent event = ringBuffer.get(sequence);
+        event.obj = obj;
+        event.future = future;
+        event.last = last;
+        ringBuffer.publish(sequence);
+    }
+
+    private static class AppendEvent {
+        private static final EventFactory<AppendEvent> EVENT_FACTORY = new EventFactory<AppendEvent>() {
+            @Override
+            public AppendEvent newInstance() {
+                return new AppendEvent();
+            }
+        };
+
+        private Object obj;
+        private AppendFuture future;
+        private boolean last;
+
+        private void clear(boolean committed) {
+            if (future != null) {
+                future.fail();
+                future.complete(committed);
+            }
+            obj = null;
+            future = null;
+        }
+    }
+
+    private static class AppendEventHandler<T> implements EventHandler<AppendEvent> {
+        private final JournalWriter<T> writer;
+        private final boolean durable;
+        private final List<AppendFuture> pending = new ArrayList<>();
+
+        private AppendEventHandler(JournalWriter<T> writer, boolean durable) {
+            this.writer = writer;
+            this.durable = durable;
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public void onEvent(AppendEvent event, long sequence, boolean endOfBatch) {
+            try {
+                writer.append((T) event.obj);
+            } catch (JournalException e) {
+                LOGGER.error("Rejected %s: %s", event.obj, e.getMessage());
+                event.future.fail();
+            } catch (Throwable e) {
+                LOGGER.error("Rejected %s", e, event.obj);
+                event.future.fail();
+            }
+
+            if (event.last) {
+                pending.add(event.future);
+            }
+            event.obj = null;
+            event.future = null;
+
+            if (endOfBatch) {
+                boolean committed = false;
+                try {
+                    if (durable) {
+                        writer.commitDurable();
+                    } else {
+                        writer.commit();
+                    }
+                    committed = true;
+                } catch (Throwable e) {
+                    LOGGER.error("Commit failed", e);
+                    try {
+                        writer.rollback();
+                    } catch (Throwable e2) {
+                        LOGGER.error("Rollback failed", e2);
+                    }
+                } finally {
+                    completePending(committed);
+                }
+            }
+        }
+
+        private void completePending(boolean committed) {
+            for (int i = 0, n = pending.size(); i < n; i++) {
+                pending.get(i).complete(committed);
+            }
+            pending.clear();
+        }
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2014. Vlad Ilyushchenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.nfsdb.journal.factory;
+
+import com.nfsdb.journal.column.*;
+
+import java.util.BitSet;
+
+/**
+ * Codec that switches on column type for every column of every row. It is used when
+ * generated codecs are disabled or cannot be created.
+ */
+public class GenericObjectCodec extends ObjectCodec {
+    private final ColumnType[] types;
+    private final long[] offsets;
+    private final boolean[] indexed;
+    private final boolean[] active;
+    private final int[] distinctCountHints;
+    private final int hashVersion;
+
+    public GenericObjectCodec(JournalMetadata<?> metadata, BitSet inactiveColumns) {
+        int columnCount = metadata.getColumnCount();
+        this.types = new ColumnType[columnCount];
+        this.offsets = new long[columnCount];
+        this.indexed = new boolean[columnCount];
+        this.active = new boolean[columnCount];
+        this.distinctCountHints = new int[columnCount];
+        this.hashVersion = metadata.getHashVersion();
+
+        for (int i = 0; i < columnCount; i++) {
+            JournalMetadata.ColumnMetadata m = metadata.getColumnMetadata(i);
+            types[i] = m.type;
+            offsets[i] = m.offset;
+            indexed[i] = m.indexed;
+            active[i] = !inactiveColumns.get(i);
+            distinctCountHints[i] = m.distinctCountHint;
+        }
+    }
+
+    @Override
+    public void read(AbstractColumn[] columns, SymbolTable[] symbolTables, long nullsAddress, long localRowID, Object obj) {
+        for (int i = 0; i < types.length; i++) {
+
+            if (!active[i]) {
+                continue;
+            }
+
+            switch (types[i]) {
+                case BOOLEAN:
+                    readBool((FixedColumn) columns[i], nullsAddress, i, localRowID, obj, offsets[i]);
+                    break;
+                case BYTE:
+                    readByte((FixedColumn) columns[i], nullsAddress, i, localRowID, obj, offsets[i]);
+                    break;
+                case DOUBLE:
+                    readDouble((FixedColumn) columns[i], nullsAddress, i, localRowID, obj, offsets[i]);
+                    break;
+                case INT:
+                    readInt((FixedColumn) columns[i], nullsAddress, i, localRowID, obj, offsets[i]);
+                    break;
+                case LONG:
+                    readLong((FixedColumn) columns[i], nullsAddress, i, localRowID, obj, offsets[i]);
+                    break;
+                case SHORT:
+                    readShort((FixedColumn) columns[i], nullsAddress, i, localRowID, obj, offsets[i]);
+                    break;
+                case STRING:
+                    readString((VariableColumn) columns[i], nullsAddress, i, localRowID, obj, offsets[i]);
+                    break;
+                case SYMBOL:
+                    readSymbol((FixedColumn) columns[i], symbolTables[i], nullsAddress, i, localRowID, obj, offsets[i]);
+                    break;
+                case BINARY:
+                    readBinary((VariableColumn) columns[i], nullsAddress, i, localRowID, obj, offsets[i]);
+                    break;
+            }
+        }
+    }
+
+    @Override
+    public void append(AbstractColumn[] columns, SymbolTable[] symbolTables, Object obj, BitSet nulls, boolean checkNulls, int[] keyCache, long[] sizeCache) {
+        for (int i = 0; i < types.length; i++) {
+            switch (types[i]) {
+                case BOOLEAN:
+                    appendBool((FixedColumn) columns[i], obj, offsets[i], nulls, checkNulls, i);
+                    break;
+                case BYTE:
+                    appendByte((FixedColumn) columns[i], obj, offsets[i], nulls, checkNulls, i);
+                    break;
+                case DOUBLE:
+                    appendDouble((FixedColumn) columns[i], obj, offsets[i], nulls, checkNulls, i);
+                    break;
+                case INT:
+                    appendInt((FixedColumn) columns[i], obj, offsets[i], nulls, checkNulls, i);
+                    break;
+                case LONG:
+                    appendLong((FixedColumn) columns[i], obj, offsets[i], nulls, checkNulls, i);
+                    break;
+                case SHORT:
+                    appendShort((FixedColumn) columns[i], obj, offsets[i], nulls, checkNulls, i);
+                    break;
+                case STRING:
+                    if (indexed[i]) {
+                        appendIndexedString((VariableColumn) columns[i], obj, offsets[i], nulls, i, distinctCountHints[i], hashVersion, keyCache, sizeCache);
+                    } else {
+                        appendString((VariableColumn) columns[i], obj, offsets[i], nulls, i);
+                    }
+                    break;
+                case SYMBOL:
+                    if (indexed[i]) {
+                        appendIndexedSymbol((FixedColumn) columns[i], symbolTables[i], obj, offsets[i], nulls, i, keyCache, sizeCache);
+                    } else {
+                        appendSymbol((FixedColumn) columns[i], symbolTables[i], obj, offsets[i], nulls, i, keyCache);
+                    }
+                    break;
+                case BINARY:
+                    appendBinary((VariableColumn) columns[i], obj, offsets[i], nulls, i);
+                    break;
+            }
+        }
+    }
+}
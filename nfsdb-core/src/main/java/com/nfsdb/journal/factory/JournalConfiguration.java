@@ -46,6 +46,14 @@ public class JournalConfiguration {
     public static final int DEFAULT_STRING_MAX_SIZE = 255;
     public static final int DEFAULT_SYMBOL_MAX_SIZE = 128;
     public static final int DEFAULT_DISTINCT_COUNT_HINT = 1;
+    public static final int DEFAULT_PAGE_OVERLAP = 64 * 1024;
+    public static final int COMPRESSED_BLOCK_BIT_HINT = 16;
+    // number of decompressed blocks each compressed file keeps in memory
+    public static final int COMPRESSED_BLOCK_CACHE_SIZE = 16;
+    // rows per zone map block are 2^ZONE_MAP_BLOCK_BITS
+    public static final int ZONE_MAP_BLOCK_BITS = 16;
+    // bitmap index takes about 2 bytes per row, larger partitions are filtered with KVIndex instead
+    public static final int BITMAP_INDEX_MAX_ROWS = 1 << 22;
     public static final int NULL_RECORD_HINT = 0;
     public static final int OPEN_PARTITION_TTL = 60; // seconds
     public static final int DEFAULT_LAG_HOURS = 0;
@@ -170,6 +178,7 @@ public class JournalConfiguration {
             if (!existingChecksum.equals(requestedChecksum)) {
                 throw new JournalException("Wrong metadata. Compare config on disk:\n\r" + metaStr + "\n\r with what you trying to use to open journal:\n\r" + metadata.toString() + "\n\rImportant fields are marked with *");
             }
+            metadata.setHashVersion(parseHashVersion(metaStr));
         }
 
         return metadata;
@@ -179,6 +188,29 @@ public class JournalConfiguration {
         return journalBase;
     }
 
+    private static int parseHashVersion(String metaStr) throws JournalException {
+        String pattern = "hashVersion=";
+        int lo = metaStr.indexOf(pattern);
+        if (lo == -1) {
+            return JournalMetadata.HASH_VERSION_LEGACY;
+        }
+        lo += pattern.length();
+        int hi = lo;
+        while (hi < metaStr.length() && Character.isDigit(metaStr.charAt(hi))) {
+            hi++;
+        }
+        int version;
+        try {
+            version = Integer.parseInt(metaStr.substring(lo, hi));
+        } catch (NumberFormatException e) {
+            throw new JournalException("Cannot parse hash version. Corrupt journal?");
+        }
+        if (version < JournalMetadata.HASH_VERSION_LEGACY || version > JournalMetadata.HASH_VERSION_CURRENT) {
+            throw new JournalException("Unsupported hash version: %d", version);
+        }
+        return version;
+    }
+
     private void checkConfigured() {
         if (!configured) {
             throw new JournalRuntimeException("Not configured: %s", this);
@@ -18,6 +18,7 @@ package com.nfsdb.journal.factory;
 
 import com.nfsdb.journal.PartitionType;
 import com.nfsdb.journal.column.ColumnType;
+import com.nfsdb.journal.column.StringEncoding;
 import com.nfsdb.journal.exceptions.JournalConfigurationException;
 import com.nfsdb.journal.exceptions.JournalRuntimeException;
 import com.nfsdb.journal.utils.Base64;
@@ -35,6 +36,16 @@ import java.util.ArrayList;
 import java.util.List;
 
 public class JournalMetadata<T> {
+    /**
+     * Hash of symbol and indexed string values is 16-bit String.hashCode(). Journals created before hash version
+     * was recorded in metadata file use this hash.
+     */
+    public static final int HASH_VERSION_LEGACY = 1;
+    /**
+     * Hash of symbol and indexed string values is 32-bit Murmur3 of UTF-16 chars.
+     */
+    public static final int HASH_VERSION_MURMUR3 = 2;
+    public static final int HASH_VERSION_CURRENT = HASH_VERSION_MURMUR3;
     private static final int INVALID_INDEX = -1;
     private int timestampColumnIndex = INVALID_INDEX;
     private final TObjectIntMap<String> columnMetadataMap;
@@ -52,6 +63,7 @@ public class JournalMetadata<T> {
     private ColumnMetadata timestampColumnMetadata;
     private int lagHours = 0;
     private int columnCount = -1;
+    private int hashVersion = HASH_VERSION_CURRENT;
 
     public JournalMetadata(Class<T> modelClass
             , String location
@@ -94,6 +106,7 @@ public class JournalMetadata<T> {
         this.key = that.key;
         this.timestampColumnMetadata = that.timestampColumnMetadata;
         this.nullsAdaptor = that.nullsAdaptor;
+        this.hashVersion = that.hashVersion;
     }
 
     public NullsAdaptor<T> getNullsAdaptor() {
@@ -188,9 +201,18 @@ public class JournalMetadata<T> {
                 ", recordHint=" + recordHint +
                 ", txCountHint=" + txCountHint +
                 ", lagHours=" + lagHours +
+                ", hashVersion=" + hashVersion +
                 '}';
     }
 
+    public int getHashVersion() {
+        return hashVersion;
+    }
+
+    public void setHashVersion(int hashVersion) {
+        this.hashVersion = hashVersion;
+    }
+
     public int getOpenPartitionTTL() {
         return openPartitionTTL;
     }
@@ -292,15 +314,23 @@ public class JournalMetadata<T> {
             }
             switch (meta.type) {
                 case STRING:
-                    meta.bitHint = ByteBuffers.getBitHint(meta.avgSize * 2, recordHint);
+                    meta.bitHint = ByteBuffers.getBitHint(meta.avgSize * meta.encoding.avgBytesPerChar(), recordHint);
                     meta.indexBitHint = ByteBuffers.getBitHint(8, recordHint);
+                    if (meta.pageOverlap == -1) {
+                        meta.pageOverlap = Math.min(1 << meta.bitHint, JournalConfiguration.DEFAULT_PAGE_OVERLAP);
+                    }
                     break;
                 case BINARY:
                     meta.bitHint = ByteBuffers.getBitHint(meta.avgSize, recordHint);
                     meta.indexBitHint = ByteBuffers.getBitHint(8, recordHint);
+                    if (meta.pageOverlap == -1) {
+                        meta.pageOverlap = Math.min(1 << meta.bitHint, JournalConfiguration.DEFAULT_PAGE_OVERLAP);
+                    }
                     break;
                 default:
                     meta.bitHint = ByteBuffers.getBitHint(meta.size, recordHint);
+                    // fixed width values are powers of two and never straddle pages
+                    meta.pageOverlap = 0;
             }
         }
     }
@@ -312,10 +342,16 @@ public class JournalMetadata<T> {
         public int size;
         public int avgSize = -1;
         public boolean indexed;
+        // in-memory bitmap index of symbol column, built from column data and not stored
+        public boolean bitmap;
+        // journal wide index of latest row of each symbol key, maintained by writer on commit
+        public boolean head;
         public int bitHint;
         public int indexBitHint;
+        public int pageOverlap = -1;
         public int distinctCountHint;
         public String sameAs;
+        public StringEncoding encoding = StringEncoding.UTF16;
 
         @Override
         public String toString() {
@@ -326,10 +362,13 @@ public class JournalMetadata<T> {
                     ", size*=" + size +
                     ", avgSize=" + avgSize +
                     ", indexed*=" + indexed +
+                    ", bitmap=" + bitmap +
+                    ", head=" + head +
                     ", bitHint=" + bitHint +
                     ", indexBitHint=" + indexBitHint +
                     ", distinctCountHint*=" + distinctCountHint +
                     ", sameAs*='" + sameAs + '\'' +
+                    ", encoding*=" + encoding +
                     '}';
         }
     }
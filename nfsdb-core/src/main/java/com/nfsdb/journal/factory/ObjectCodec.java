@@ -0,0 +1,294 @@
+/*
+ * Copyright (c) 2014. Vlad Ilyushchenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.nfsdb.journal.factory;
+
+import com.nfsdb.journal.column.*;
+import com.nfsdb.journal.utils.Checksum;
+import com.nfsdb.journal.utils.Unsafe;
+
+import java.nio.ByteBuffer;
+import java.util.BitSet;
+
+/**
+ * Copies fields of model object to columns of partition and back. Implementations are either
+ * generic, which interpret column metadata for every row, or generated by ObjectCodecGenerator,
+ * which call static methods of this class in straight line for each column.
+ * <p/>
+ * Static methods are public because generated classes live in their own class loader.
+ */
+public abstract class ObjectCodec {
+
+    public static final int NO_KEY = -3;
+
+    public static void appendBinary(VariableColumn column, Object obj, long offset, BitSet nulls, int columnIndex) {
+        ByteBuffer buf = (ByteBuffer) Unsafe.getUnsafe().getObject(obj, offset);
+        if (buf == null || buf.remaining() == 0) {
+            nulls.set(columnIndex);
+            column.putNull();
+        } else {
+            column.putBuffer(buf);
+        }
+    }
+
+    public static void appendBool(FixedColumn column, Object obj, long offset, BitSet nulls, boolean checkNulls, int columnIndex) {
+        if (checkNulls && nulls.get(columnIndex)) {
+            column.putNull();
+        } else {
+            column.putBool(Unsafe.getUnsafe().getBoolean(obj, offset));
+        }
+    }
+
+    public static void appendByte(FixedColumn column, Object obj, long offset, BitSet nulls, boolean checkNulls, int columnIndex) {
+        if (checkNulls && nulls.get(columnIndex)) {
+            column.putNull();
+        } else {
+            column.putByte(Unsafe.getUnsafe().getByte(obj, offset));
+        }
+    }
+
+    public static void appendDouble(FixedColumn column, Object obj, long offset, BitSet nulls, boolean checkNulls, int columnIndex) {
+        if (checkNulls && nulls.get(columnIndex)) {
+            column.putNull();
+        } else {
+            column.putDouble(Unsafe.getUnsafe().getDouble(obj, offset));
+        }
+    }
+
+    public static void appendIndexedString(VariableColumn column, Object obj, long offset, BitSet nulls, int columnIndex, int distinctCountHint, int hashVersion, int[] keyCache, long[] sizeCache) {
+        String s = (String) Unsafe.getUnsafe().getObject(obj, offset);
+        if (s == null) {
+            nulls.set(columnIndex);
+            keyCache[columnIndex] = SymbolTable.VALUE_IS_NULL;
+            sizeCache[columnIndex] = column.putNull();
+        } else {
+            keyCache[columnIndex] = Checksum.hash(s, distinctCountHint, hashVersion);
+            sizeCache[columnIndex] = column.putString(s);
+        }
+    }
+
+    public static void appendIndexedSymbol(FixedColumn column, SymbolTable symbolTable, Object obj, long offset, BitSet nulls, int columnIndex, int[] keyCache, long[] sizeCache) {
+        int key = symbolKey(symbolTable, obj, offset, nulls, columnIndex);
+        keyCache[columnIndex] = key;
+        sizeCache[columnIndex] = column.putInt(key);
+    }
+
+    public static void appendInt(FixedColumn column, Object obj, long offset, BitSet nulls, boolean checkNulls, int columnIndex) {
+        if (checkNulls && nulls.get(columnIndex)) {
+            column.putNull();
+        } else {
+            column.putInt(Unsafe.getUnsafe().getInt(obj, offset));
+        }
+    }
+
+    public static void appendLong(FixedColumn column, Object obj, long offset, BitSet nulls, boolean checkNulls, int columnIndex) {
+        if (checkNulls && nulls.get(columnIndex)) {
+            column.putNull();
+        } else {
+            column.putLong(Unsafe.getUnsafe().getLong(obj, offset));
+        }
+    }
+
+    public static void appendShort(FixedColumn column, Object obj, long offset, BitSet nulls, boolean checkNulls, int columnIndex) {
+        if (checkNulls && nulls.get(columnIndex)) {
+            column.putNull();
+        } else {
+            column.putShort(Unsafe.getUnsafe().getShort(obj, offset));
+        }
+    }
+
+    public static void appendString(VariableColumn column, Object obj, long offset, BitSet nulls, int columnIndex) {
+        String s = (String) Unsafe.getUnsafe().getObject(obj, offset);
+        if (s == null) {
+            nulls.set(columnIndex);
+            column.putNull();
+        } else {
+            column.putString(s);
+        }
+    }
+
+    public static void appendSymbol(FixedColumn column, SymbolTable symbolTable, Object obj, long offset, BitSet nulls, int columnIndex, int[] keyCache) {
+        keyCache[columnIndex] = NO_KEY;
+        column.putInt(symbolKey(symbolTable, obj, offset, nulls, columnIndex));
+    }
+
+    /*
+     * put* methods append field of one object to column, when batch of objects is appended column by column.
+     * Null bits are kept by row of batch in rowNulls and index keys are returned to caller.
+     */
+
+    public static void putBinary(VariableColumn column, Object obj, long offset, BitSet rowNulls, int row) {
+        appendBinary(column, obj, offset, rowNulls, row);
+    }
+
+    public static void putBool(FixedColumn column, Object obj, long offset, BitSet rowNulls, int row) {
+        appendBool(column, obj, offset, rowNulls, true, row);
+    }
+
+    public static void putByte(FixedColumn column, Object obj, long offset, BitSet rowNulls, int row) {
+        appendByte(column, obj, offset, rowNulls, true, row);
+    }
+
+    public static void putDouble(FixedColumn column, Object obj, long offset, BitSet rowNulls, int row) {
+        appendDouble(column, obj, offset, rowNulls, true, row);
+    }
+
+    /**
+     * @return index key of value
+     */
+    public static int putIndexedString(VariableColumn column, Object obj, long offset, BitSet rowNulls, int row, int distinctCountHint, int hashVersion) {
+        String s = (String) Unsafe.getUnsafe().getObject(obj, offset);
+        if (s == null) {
+            rowNulls.set(row);
+            column.putNull();
+            return SymbolTable.VALUE_IS_NULL;
+        }
+        column.putString(s);
+        return Checksum.hash(s, distinctCountHint, hashVersion);
+    }
+
+    public static void putInt(FixedColumn column, Object obj, long offset, BitSet rowNulls, int row) {
+        appendInt(column, obj, offset, rowNulls, true, row);
+    }
+
+    public static void putLong(FixedColumn column, Object obj, long offset, BitSet rowNulls, int row) {
+        appendLong(column, obj, offset, rowNulls, true, row);
+    }
+
+    public static void putShort(FixedColumn column, Object obj, long offset, BitSet rowNulls, int row) {
+        appendShort(column, obj, offset, rowNulls, true, row);
+    }
+
+    public static void putString(VariableColumn column, Object obj, long offset, BitSet rowNulls, int row) {
+        appendString(column, obj, offset, rowNulls, row);
+    }
+
+    /**
+     * @return symbol key of value, which is also its index key
+     */
+    public static int putSymbol(FixedColumn column, SymbolTable symbolTable, Object obj, long offset, BitSet rowNulls, int row) {
+        int key = symbolKey(symbolTable, obj, offset, rowNulls, row);
+        column.putInt(key);
+        return key;
+    }
+
+    public static void readBinary(VariableColumn column, long nullsAddress, int columnIndex, long localRowID, Object obj, long offset) {
+        if (NullsColumn.isNullAt(nullsAddress, columnIndex)) {
+            return;
+        }
+        int size = column.getBufferSize(localRowID);
+        ByteBuffer buf = (ByteBuffer) Unsafe.getUnsafe().getObject(obj, offset);
+        if (buf == null || buf.capacity() < size) {
+            buf = ByteBuffer.allocate(size);
+            Unsafe.getUnsafe().putObject(obj, offset, buf);
+        }
+
+        if (buf.remaining() < size) {
+            buf.rewind();
+        }
+        buf.limit(size);
+        column.getBuffer(localRowID, buf, size);
+        buf.flip();
+    }
+
+    public static void readBool(FixedColumn column, long nullsAddress, int columnIndex, long localRowID, Object obj, long offset) {
+        if (!NullsColumn.isNullAt(nullsAddress, columnIndex)) {
+            Unsafe.getUnsafe().putBoolean(obj, offset, column.getBool(localRowID));
+        }
+    }
+
+    public static void readByte(FixedColumn column, long nullsAddress, int columnIndex, long localRowID, Object obj, long offset) {
+        if (!NullsColumn.isNullAt(nullsAddress, columnIndex)) {
+            Unsafe.getUnsafe().putByte(obj, offset, column.getByte(localRowID));
+        }
+    }
+
+    public static void readDouble(FixedColumn column, long nullsAddress, int columnIndex, long localRowID, Object obj, long offset) {
+        if (!NullsColumn.isNullAt(nullsAddress, columnIndex)) {
+            Unsafe.getUnsafe().putDouble(obj, offset, column.getDouble(localRowID));
+        }
+    }
+
+    public static void readInt(FixedColumn column, long nullsAddress, int columnIndex, long localRowID, Object obj, long offset) {
+        if (!NullsColumn.isNullAt(nullsAddress, columnIndex)) {
+            Unsafe.getUnsafe().putInt(obj, offset, column.getInt(localRowID));
+        }
+    }
+
+    public static void readLong(FixedColumn column, long nullsAddress, int columnIndex, long localRowID, Object obj, long offset) {
+        if (!NullsColumn.isNullAt(nullsAddress, columnIndex)) {
+            Unsafe.getUnsafe().putLong(obj, offset, column.getLong(localRowID));
+        }
+    }
+
+    public static void readShort(FixedColumn column, long nullsAddress, int columnIndex, long localRowID, Object obj, long offset) {
+        if (!NullsColumn.isNullAt(nullsAddress, columnIndex)) {
+            Unsafe.getUnsafe().putShort(obj, offset, column.getShort(localRowID));
+        }
+    }
+
+    public static void readString(VariableColumn column, long nullsAddress, int columnIndex, long localRowID, Object obj, long offset) {
+        if (!NullsColumn.isNullAt(nullsAddress, columnIndex)) {
+            Unsafe.getUnsafe().putObject(obj, offset, column.getString(localRowID));
+        }
+    }
+
+    public static void readSymbol(FixedColumn column, SymbolTable symbolTable, long nullsAddress, int columnIndex, long localRowID, Object obj, long offset) {
+        if (!NullsColumn.isNullAt(nullsAddress, columnIndex)) {
+            int symbolIndex = column.getInt(localRowID);
+            // check if symbol was null
+            if (symbolIndex > SymbolTable.VALUE_IS_NULL) {
+                Unsafe.getUnsafe().putObject(obj, offset, symbolTable.value(symbolIndex));
+            }
+        }
+    }
+
+    /**
+     * Reads values of active columns of row into object fields. Fields of null columns are left untouched.
+     *
+     * @param columns      partition columns
+     * @param symbolTables symbol tables by column index, null for non-symbol columns
+     * @param nullsAddress address of row record in nulls column
+     * @param localRowID   row to read
+     * @param obj          target object
+     */
+    public abstract void read(AbstractColumn[] columns, SymbolTable[] symbolTables, long nullsAddress, long localRowID, Object obj);
+
+    /**
+     * Appends fields of object to all columns. Index keys and row IDs of indexed columns are stored in
+     * keyCache and sizeCache, columns without index value to add are marked with #NO_KEY.
+     *
+     * @param columns      partition columns
+     * @param symbolTables symbol tables by column index, null for non-symbol columns
+     * @param obj          object to append
+     * @param nulls        null flags, which are updated with values found to be null
+     * @param checkNulls   true if nulls were populated by NullsAdaptor and have to be respected
+     * @param keyCache     index keys by column index
+     * @param sizeCache    row IDs to index by column index
+     */
+    public abstract void append(AbstractColumn[] columns, SymbolTable[] symbolTables, Object obj, BitSet nulls, boolean checkNulls, int[] keyCache, long[] sizeCache);
+
+    // bit is column index when object is appended row by row and row of batch when it is appended column by column
+    private static int symbolKey(SymbolTable symbolTable, Object obj, long offset, BitSet nulls, int bit) {
+        String sym = (String) Unsafe.getUnsafe().getObject(obj, offset);
+        if (sym == null) {
+            nulls.set(bit);
+            return SymbolTable.VALUE_IS_NULL;
+        }
+        return symbolTable.put(sym);
+    }
+}
@@ -0,0 +1,316 @@
+/*
+ * Copyright (c) 2014. Vlad Ilyushchenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.nfsdb.journal.factory;
+
+import com.nfsdb.journal.column.*;
+import com.nfsdb.journal.exceptions.JournalRuntimeException;
+import com.nfsdb.journal.logging.Logger;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Generates ObjectCodec subclass for given column layout. Generated read and append methods are
+ * sequences of calls to static ObjectCodec methods with column indexes and field offsets as constants,
+ * which lets JIT compile them into straight line code without switching on column type.
+ * <p/>
+ * Generated classes are cached by model class and column layout, so journals of same type share them.
+ * Cache does not keep model class from being unloaded. Generated classes live in their own package,
+ * see {@link #GENERATED_PACKAGE}.
+ */
+public final class ObjectCodecGenerator implements Opcodes {
+
+    public static final String GENERATED_PACKAGE = "com.nfsdb.journal.factory.generated";
+    private static final Logger LOGGER = Logger.getLogger(ObjectCodecGenerator.class);
+    private static final String CODEC_CLASS = Type.getInternalName(ObjectCodec.class);
+    private static final String FIXED_COLUMN_CLASS = Type.getInternalName(FixedColumn.class);
+    private static final String VARIABLE_COLUMN_CLASS = Type.getInternalName(VariableColumn.class);
+    private static final String READ_DESC = "([" + Type.getDescriptor(AbstractColumn.class) + "[" + Type.getDescriptor(SymbolTable.class) + "JJLjava/lang/Object;)V";
+    private static final String APPEND_DESC = "([" + Type.getDescriptor(AbstractColumn.class) + "[" + Type.getDescriptor(SymbolTable.class) + "Ljava/lang/Object;Ljava/util/BitSet;Z[I[J)V";
+    // read(columns, symbolTables, nullsAddress, localRowID, obj)
+    private static final int R_COLUMNS = 1;
+    private static final int R_SYMBOL_TABLES = 2;
+    private static final int R_NULLS_ADDRESS = 3;
+    private static final int R_ROW_ID = 5;
+    private static final int R_OBJ = 7;
+    // append(columns, symbolTables, obj, nulls, checkNulls, keyCache, sizeCache)
+    private static final int A_COLUMNS = 1;
+    private static final int A_SYMBOL_TABLES = 2;
+    private static final int A_OBJ = 3;
+    private static final int A_NULLS = 4;
+    private static final int A_CHECK_NULLS = 5;
+    private static final int A_KEY_CACHE = 6;
+    private static final int A_SIZE_CACHE = 7;
+    private static final Map<String, String> HELPER_DESCRIPTORS = new HashMap<>();
+    // generated classes by column layout for each model class, map goes away together with model class
+    private static final ClassValue<ConcurrentHashMap<String, Class<?>>> CACHE = new ClassValue<ConcurrentHashMap<String, Class<?>>>() {
+        @Override
+        protected ConcurrentHashMap<String, Class<?>> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>();
+        }
+    };
+    private static final AtomicInteger COUNTER = new AtomicInteger();
+
+    static {
+        for (Method m : ObjectCodec.class.getDeclaredMethods()) {
+            if (Modifier.isStatic(m.getModifiers()) && Modifier.isPublic(m.getModifiers())) {
+                HELPER_DESCRIPTORS.put(m.getName(), Type.getMethodDescriptor(m));
+            }
+        }
+    }
+
+    private ObjectCodecGenerator() {
+    }
+
+    public static ObjectCodec newCodec(JournalMetadata<?> metadata, BitSet inactiveColumns) {
+        ConcurrentHashMap<String, Class<?>> cache = CACHE.get(metadata.getModelClass());
+        String key = layoutKey(metadata, inactiveColumns);
+        Class<?> clazz = cache.get(key);
+        if (clazz == null) {
+            String name = GENERATED_PACKAGE + "." + metadata.getModelClass().getSimpleName() + "Codec" + COUNTER.incrementAndGet();
+            clazz = new CodecClassLoader().define(name, generate(name.replace('.', '/'), metadata, inactiveColumns));
+            Class<?> existing = cache.putIfAbsent(key, clazz);
+            if (existing != null) {
+                clazz = existing;
+            } else {
+                LOGGER.debug("Generated %s for %s", clazz.getName(), metadata.getModelClass().getName());
+            }
+        }
+
+        try {
+            return (ObjectCodec) clazz.newInstance();
+        } catch (Exception e) {
+            throw new JournalRuntimeException("Cannot create codec for %s", e, metadata.getModelClass().getName());
+        }
+    }
+
+    private static byte[] generate(String name, JournalMetadata<?> metadata, BitSet inactiveColumns) {
+        ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        // generated methods do not branch, so old class version without stack map frames is fine
+        cw.visit(V1_6, ACC_PUBLIC | ACC_FINAL | ACC_SUPER, name, null, CODEC_CLASS, null);
+
+        MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, "<init>", "()V", null, null);
+        mv.visitCode();
+        mv.visitVarInsn(ALOAD, 0);
+        mv.visitMethodInsn(INVOKESPECIAL, CODEC_CLASS, "<init>", "()V", false);
+        mv.visitInsn(RETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+
+        mv = cw.visitMethod(ACC_PUBLIC, "read", READ_DESC, null, null);
+        mv.visitCode();
+        for (int i = 0, n = metadata.getColumnCount(); i < n; i++) {
+            if (!inactiveColumns.get(i)) {
+                generateRead(mv, metadata.getColumnMetadata(i), i);
+            }
+        }
+        mv.visitInsn(RETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+
+        mv = cw.visitMethod(ACC_PUBLIC, "append", APPEND_DESC, null, null);
+        mv.visitCode();
+        for (int i = 0, n = metadata.getColumnCount(); i < n; i++) {
+            generateAppend(mv, metadata.getColumnMetadata(i), i, metadata.getHashVersion());
+        }
+        mv.visitInsn(RETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+
+        cw.visitEnd();
+        return cw.toByteArray();
+    }
+
+    private static void generateRead(MethodVisitor mv, JournalMetadata.ColumnMetadata m, int columnIndex) {
+        loadColumn(mv, R_COLUMNS, columnIndex, m.type);
+        if (m.type == ColumnType.SYMBOL) {
+            loadElement(mv, R_SYMBOL_TABLES, columnIndex);
+        }
+        mv.visitVarInsn(LLOAD, R_NULLS_ADDRESS);
+        pushInt(mv, columnIndex);
+        mv.visitVarInsn(LLOAD, R_ROW_ID);
+        mv.visitVarInsn(ALOAD, R_OBJ);
+        mv.visitLdcInsn(m.offset);
+
+        switch (m.type) {
+            case BOOLEAN:
+                invokeHelper(mv, "readBool");
+                break;
+            case BYTE:
+                invokeHelper(mv, "readByte");
+                break;
+            case DOUBLE:
+                invokeHelper(mv, "readDouble");
+                break;
+            case INT:
+                invokeHelper(mv, "readInt");
+                break;
+            case LONG:
+                invokeHelper(mv, "readLong");
+                break;
+            case SHORT:
+                invokeHelper(mv, "readShort");
+                break;
+            case STRING:
+                invokeHelper(mv, "readString");
+                break;
+            case SYMBOL:
+                invokeHelper(mv, "readSymbol");
+                break;
+            case BINARY:
+                invokeHelper(mv, "readBinary");
+                break;
+            default:
+                throw new JournalRuntimeException("Unsupported column type: %s", m.type);
+        }
+    }
+
+    private static void generateAppend(MethodVisitor mv, JournalMetadata.ColumnMetadata m, int columnIndex, int hashVersion) {
+        loadColumn(mv, A_COLUMNS, columnIndex, m.type);
+        if (m.type == ColumnType.SYMBOL) {
+            loadElement(mv, A_SYMBOL_TABLES, columnIndex);
+        }
+        mv.visitVarInsn(ALOAD, A_OBJ);
+        mv.visitLdcInsn(m.offset);
+        mv.visitVarInsn(ALOAD, A_NULLS);
+
+        switch (m.type) {
+            case BOOLEAN:
+                appendFixed(mv, columnIndex, "appendBool");
+                break;
+            case BYTE:
+                appendFixed(mv, columnIndex, "appendByte");
+                break;
+            case DOUBLE:
+                appendFixed(mv, columnIndex, "appendDouble");
+                break;
+            case INT:
+                appendFixed(mv, columnIndex, "appendInt");
+                break;
+            case LONG:
+                appendFixed(mv, columnIndex, "appendLong");
+                break;
+            case SHORT:
+                appendFixed(mv, columnIndex, "appendShort");
+                break;
+            case STRING:
+                pushInt(mv, columnIndex);
+                if (m.indexed) {
+                    pushInt(mv, m.distinctCountHint);
+                    pushInt(mv, hashVersion);
+                    mv.visitVarInsn(ALOAD, A_KEY_CACHE);
+                    mv.visitVarInsn(ALOAD, A_SIZE_CACHE);
+                    invokeHelper(mv, "appendIndexedString");
+                } else {
+                    invokeHelper(mv, "appendString");
+                }
+                break;
+            case SYMBOL:
+                pushInt(mv, columnIndex);
+                mv.visitVarInsn(ALOAD, A_KEY_CACHE);
+                if (m.indexed) {
+                    mv.visitVarInsn(ALOAD, A_SIZE_CACHE);
+                    invokeHelper(mv, "appendIndexedSymbol");
+                } else {
+                    invokeHelper(mv, "appendSymbol");
+                }
+                break;
+            case BINARY:
+                pushInt(mv, columnIndex);
+                invokeHelper(mv, "appendBinary");
+                break;
+            default:
+                throw new JournalRuntimeException("Unsupported column type: %s", m.type);
+        }
+    }
+
+    private static void appendFixed(MethodVisitor mv, int columnIndex, String helper) {
+        mv.visitVarInsn(ILOAD, A_CHECK_NULLS);
+        pushInt(mv, columnIndex);
+        invokeHelper(mv, helper);
+    }
+
+    private static void loadColumn(MethodVisitor mv, int var, int columnIndex, ColumnType type) {
+        loadElement(mv, var, columnIndex);
+        switch (type) {
+            case STRING:
+            case BINARY:
+                mv.visitTypeInsn(CHECKCAST, VARIABLE_COLUMN_CLASS);
+                break;
+            default:
+                mv.visitTypeInsn(CHECKCAST, FIXED_COLUMN_CLASS);
+        }
+    }
+
+    private static void loadElement(MethodVisitor mv, int var, int index) {
+        mv.visitVarInsn(ALOAD, var);
+        pushInt(mv, index);
+        mv.visitInsn(AALOAD);
+    }
+
+    private static void invokeHelper(MethodVisitor mv, String name) {
+        mv.visitMethodInsn(INVOKESTATIC, CODEC_CLASS, name, HELPER_DESCRIPTORS.get(name), false);
+    }
+
+    private static void pushInt(MethodVisitor mv, int value) {
+        if (value >= -1 && value <= 5) {
+            mv.visitInsn(ICONST_0 + value);
+        } else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+            mv.visitIntInsn(BIPUSH, value);
+        } else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+            mv.visitIntInsn(SIPUSH, value);
+        } else {
+            mv.visitLdcInsn(value);
+        }
+    }
+
+    private static String layoutKey(JournalMetadata<?> metadata, BitSet inactiveColumns) {
+        StringBuilder b = new StringBuilder();
+        b.append('h').append(metadata.getHashVersion());
+        for (int i = 0, n = metadata.getColumnCount(); i < n; i++) {
+            JournalMetadata.ColumnMetadata m = metadata.getColumnMetadata(i);
+            b.append('|').append(m.type).append(':').append(m.offset);
+            if (m.indexed) {
+                b.append(":i").append(m.distinctCountHint);
+            }
+            if (inactiveColumns.get(i)) {
+                b.append(":x");
+            }
+        }
+        return b.toString();
+    }
+
+    private static class CodecClassLoader extends ClassLoader {
+        private CodecClassLoader() {
+            super(ObjectCodec.class.getClassLoader());
+        }
+
+        private Class<?> define(String name, byte[] bytes) {
+            return defineClass(name, bytes, 0, bytes.length);
+        }
+    }
+}
@@ -18,6 +18,7 @@ package com.nfsdb.journal.factory.parser;
 
 import com.nfsdb.journal.PartitionType;
 import com.nfsdb.journal.column.ColumnType;
+import com.nfsdb.journal.column.StringEncoding;
 import com.nfsdb.journal.exceptions.JournalConfigurationException;
 import com.nfsdb.journal.factory.JournalMetadata;
 import com.nfsdb.journal.logging.Logger;
@@ -112,6 +113,8 @@ public class XmlStreamParser implements XmlParser {
                 }
                 JournalMetadata.ColumnMetadata ccm = metadata.getColumnMetadata(getStringAttr(xmlr, "name"));
                 ccm.avgSize = getIntAttr(xmlr, "avgsize", defaults.getStringAvgSize());
+                ccm.pageOverlap = getIntAttr(xmlr, "overlap", -1);
+                ccm.encoding = getEncodingAttr(xmlr);
                 ccm.indexed = "true".equals(getStringAttr(xmlr, "indexed"));
                 ccm.distinctCountHint = getIntAttr(xmlr, "hintDistinctCount", defaults.getDistinctCount());
                 if (ccm.indexed && ccm.distinctCountHint <= 1) {
@@ -128,6 +131,7 @@ public class XmlStreamParser implements XmlParser {
                 JournalMetadata.ColumnMetadata ccm = metadata.getColumnMetadata(getStringAttr(xmlr, "name"));
                 ccm.size = getIntAttr(xmlr, "avgsize", defaults.getStringAvgSize());
                 ccm.avgSize = ccm.size;
+                ccm.pageOverlap = getIntAttr(xmlr, "overlap", -1);
                 continue;
             }
 
@@ -177,5 +181,28 @@ public class XmlStreamParser implements XmlParser {
             throw new JournalConfigurationException("hintDistinctCount for " + metadata.getModelClass().getName() + "." + columnName + " must be > 1 for index to make sense. Either review hintDistinctCount or set indexed=\"false\"");
         }
         ccm.sameAs = getStringAttr(xmlr, "sameAs");
+        ccm.encoding = getEncodingAttr(xmlr);
+        ccm.bitmap = "true".equals(getStringAttr(xmlr, "bitmap"));
+        ccm.head = "true".equals(getStringAttr(xmlr, "head"));
+        if (ccm.head && !ccm.indexed) {
+            throw new JournalConfigurationException("Head index of " + metadata.getModelClass().getName() + "." + columnName + " requires indexed=\"true\"");
+        }
+    }
+
+    private StringEncoding getEncodingAttr(XMLStreamReader xmlr) throws JournalConfigurationException {
+        String s = getStringAttr(xmlr, "encoding");
+        if (s == null || s.length() == 0) {
+            return StringEncoding.UTF16;
+        }
+        switch (s.toLowerCase()) {
+            case "utf16":
+            case "utf-16":
+                return StringEncoding.UTF16;
+            case "utf8":
+            case "utf-8":
+                return StringEncoding.UTF8;
+            default:
+                throw new JournalConfigurationException("Unsupported encoding '%s' of column '%s'. Use utf16 or utf8", s, getStringAttr(xmlr, "name"));
+        }
     }
 }
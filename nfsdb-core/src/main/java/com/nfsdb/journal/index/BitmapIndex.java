@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2014. Vlad Ilyushchenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nfsdb.journal.index;
+
+import com.nfsdb.journal.index.experimental.Cursor;
+
+import java.util.Arrays;
+
+/**
+ * Row bitmap for each key of low cardinality symbol column. Unlike {@link KVIndex} rows of several keys
+ * can be combined with {@link RowBitmap#and(RowBitmap)}, {@link RowBitmap#or(RowBitmap)} and
+ * {@link RowBitmap#andNot(RowBitmap)} without visiting each row.
+ */
+public class BitmapIndex {
+    private RowBitmap[] bitmaps = new RowBitmap[16];
+    private long size;
+
+    /**
+     * Adds row to bitmap of key. Rows have to be added in ascending order.
+     *
+     * @param key        symbol key, negative keys are ignored
+     * @param localRowID row
+     */
+    public void add(int key, long localRowID) {
+        if (key >= 0) {
+            if (key >= bitmaps.length) {
+                bitmaps = Arrays.copyOf(bitmaps, Math.max(bitmaps.length * 2, key + 1));
+            }
+            RowBitmap bitmap = bitmaps[key];
+            if (bitmap == null) {
+                bitmap = bitmaps[key] = new RowBitmap();
+            }
+            bitmap.add(localRowID);
+        }
+        size = localRowID + 1;
+    }
+
+    public boolean contains(int key) {
+        return key >= 0 && key < bitmaps.length && bitmaps[key] != null;
+    }
+
+    /**
+     * @param key symbol key
+     * @return rows of key, empty bitmap if key has no rows. Returned bitmap must not be modified.
+     */
+    public RowBitmap getBitmap(int key) {
+        return contains(key) ? bitmaps[key] : new RowBitmap();
+    }
+
+    public Cursor cursor(int key) {
+        return getBitmap(key).cursor();
+    }
+
+    /**
+     * @return number of rows added to index
+     */
+    public long size() {
+        return size;
+    }
+
+    public void clear() {
+        Arrays.fill(bitmaps, null);
+        size = 0;
+    }
+}
@@ -24,6 +24,7 @@ import com.nfsdb.journal.exceptions.JournalRuntimeException;
 import com.nfsdb.journal.index.experimental.Cursor;
 import com.nfsdb.journal.utils.ByteBuffers;
 import com.nfsdb.journal.utils.Files;
+import com.nfsdb.journal.utils.Unsafe;
 
 import java.io.Closeable;
 import java.io.File;
@@ -69,7 +70,7 @@ public class KVIndex implements Closeable {
     public KVIndex(File baseName, long keyCountHint, long recordCountHint, int txCountHint, JournalMode mode, long txAddress) throws JournalException {
         int bitHint = (int) Math.min(Integer.MAX_VALUE, Math.max(keyCountHint, 1));
         this.rowBlockLen = (int) Math.min(134217728, Math.max(recordCountHint / bitHint, 1));
-        this.kData = new MappedFileImpl(new File(baseName.getParentFile(), baseName.getName() + ".k"), ByteBuffers.getBitHint(8, bitHint * txCountHint), mode);
+        this.kData = new MappedFileImpl(new File(baseName.getParentFile(), baseName.getName() + ".k"), ByteBuffers.getBitHint(8, bitHint * txCountHint), mode, ENTRY_SIZE);
         this.keyBlockAddressOffset = 8;
 
         this.keyBlockSizeOffset = 16;
@@ -91,7 +92,7 @@ public class KVIndex implements Closeable {
 
         this.firstEntryOffset = keyBlockSizeOffset + 16;
         this.rowBlockSize = rowBlockLen * 8 + 8;
-        this.rData = new MappedFileImpl(new File(baseName.getParentFile(), baseName.getName() + ".r"), ByteBuffers.getBitHint(rowBlockSize, bitHint), mode);
+        this.rData = new MappedFileImpl(new File(baseName.getParentFile(), baseName.getName() + ".r"), ByteBuffers.getBitHint(rowBlockSize, bitHint), mode, rowBlockSize);
     }
 
     public static void delete(File base) {
@@ -200,10 +201,9 @@ public class KVIndex implements Closeable {
      */
     public long getValueQuick(int key, int i) {
 
-        ByteBuffer buf = keyBufferOrError(key);
-        int pos = buf.position();
-        long rowBlockOffset = buf.getLong(pos);
-        long rowCount = buf.getLong(pos + 8);
+        long address = keyAddressOrError(key);
+        long rowBlockOffset = Unsafe.getUnsafe().getLong(address);
+        long rowCount = Unsafe.getUnsafe().getLong(address + 8);
 
         if (i >= rowCount) {
             throw new JournalRuntimeException("Index out of bounds: %d, max: %d", i, rowCount - 1);
@@ -259,8 +259,7 @@ public class KVIndex implements Closeable {
         if (keyOffset >= firstEntryOffset + keyBlockSize) {
             return 0;
         } else {
-            ByteBuffer buf = kData.getBuffer(keyOffset + 8, 8);
-            return (int) buf.getLong(buf.position());
+            return (int) getLong(kData, keyOffset + 8);
         }
     }
 
@@ -274,10 +273,9 @@ public class KVIndex implements Closeable {
      */
     @SuppressWarnings("unused")
     public long lastValue(int key) {
-        ByteBuffer buf = keyBufferOrError(key);
-        int pos = buf.position();
-        long rowBlockOffset = buf.getLong(pos);
-        long rowCount = buf.getLong(pos + 8);
+        long address = keyAddressOrError(key);
+        long rowBlockOffset = Unsafe.getUnsafe().getLong(address);
+        long rowCount = Unsafe.getUnsafe().getLong(address + 8);
         int cellIndex = (int) ((rowCount - 1) % rowBlockLen);
         return getLong(rData, rowBlockOffset - rowBlockSize + 8 * cellIndex);
     }
@@ -317,10 +315,9 @@ public class KVIndex implements Closeable {
         if (keyOffset >= firstEntryOffset + keyBlockSize) {
             return;
         }
-        ByteBuffer buf = kData.getBuffer(keyOffset, ENTRY_SIZE);
-        int pos = buf.position();
-        long rowBlockOffset = buf.getLong(pos);
-        long rowCount = buf.getLong(pos + 8);
+        long address = kData.getAddress(keyOffset, ENTRY_SIZE);
+        long rowBlockOffset = Unsafe.getUnsafe().getLong(address);
+        long rowCount = Unsafe.getUnsafe().getLong(address + 8);
 
         values.setCapacity((int) rowCount);
         values.setPos((int) rowCount);
@@ -333,15 +330,14 @@ public class KVIndex implements Closeable {
         }
 
         for (int i = rowBlockCount - 1; i >= 0; i--) {
-            ByteBuffer b = rData.getBuffer(rowBlockOffset - rowBlockSize, rowBlockSize);
+            long p = rData.getAddress(rowBlockOffset - rowBlockSize, rowBlockSize);
             int z = i * rowBlockLen;
-            int p = b.position();
             for (int k = 0; k < len; k++) {
-                values.setQuick(z + k, b.getLong(p));
+                values.setQuick(z + k, Unsafe.getUnsafe().getLong(p));
                 p += 8;
             }
             if (i > 0) {
-                rowBlockOffset = b.getLong(p + (rowBlockLen - len) * 8);
+                rowBlockOffset = Unsafe.getUnsafe().getLong(p + (rowBlockLen - len) * 8);
             }
             len = rowBlockLen;
         }
@@ -352,6 +348,19 @@ public class KVIndex implements Closeable {
         return cachedCursor;
     }
 
+    /**
+     * Creates new cursor for key. Unlike #cachedCursor this method can be used by multiple threads
+     * reading same index at the same time.
+     *
+     * @param key key value
+     * @return new cursor positioned before the most recent value of key.
+     */
+    public IndexCursor cursor(int key) {
+        IndexCursor cursor = new IndexCursor();
+        cursor.setKey(key);
+        return cursor;
+    }
+
     /**
      * Size of index is in fact maximum of all row IDs. This is useful to keep it in same units of measure as
      * size of columns.
@@ -370,6 +379,11 @@ public class KVIndex implements Closeable {
         kData.close();
     }
 
+    public void releaseRetired() {
+        kData.releaseRetired();
+        rData.releaseRetired();
+    }
+
     /**
      * Removes empty space at end of index files. This is useful if your chosen file copy routine does not support
      * sparse files, e.g. where size of file content significantly smaller then file size in directory catalogue.
@@ -435,8 +449,7 @@ public class KVIndex implements Closeable {
     }
 
     private long getLong(MappedFileImpl storage, long offset) {
-        ByteBuffer bb = storage.getBuffer(offset, 8);
-        return bb.getLong(bb.position());
+        return Unsafe.getUnsafe().getLong(storage.getAddress(offset, 8));
     }
 
     private void putLong(MappedFileImpl storage, long offset, long value) {
@@ -485,20 +498,19 @@ public class KVIndex implements Closeable {
         return firstEntryOffset + (key + 1) * ENTRY_SIZE;
     }
 
-    private ByteBuffer keyBufferOrError(int key) {
+    private long keyAddressOrError(int key) {
         long keyOffset = getKeyOffset(key);
         if (keyOffset >= firstEntryOffset + keyBlockSize) {
             throw new JournalRuntimeException("Key doesn't exist: %d", key);
         }
-        return kData.getBuffer(keyOffset, ENTRY_SIZE);
+        return kData.getAddress(keyOffset, ENTRY_SIZE);
     }
 
     public class IndexCursor implements Cursor {
         private int remainingBlockCount;
         private int remainingRowCount;
         private long rowBlockOffset;
-        private ByteBuffer buffer;
-        private int bufPos;
+        private long address;
         private long size;
 
         public void setKey(int key) {
@@ -514,9 +526,9 @@ public class KVIndex implements Closeable {
                 return;
             }
 
-            ByteBuffer buf = kData.getBuffer(keyOffset, ENTRY_SIZE);
-            this.rowBlockOffset = buf.getLong();
-            this.size = buf.getLong();
+            long keyAddress = kData.getAddress(keyOffset, ENTRY_SIZE);
+            this.rowBlockOffset = Unsafe.getUnsafe().getLong(keyAddress);
+            this.size = Unsafe.getUnsafe().getLong(keyAddress + 8);
 
             if (size == 0) {
                 return;
@@ -530,8 +542,7 @@ public class KVIndex implements Closeable {
                 remainingRowCount = rowBlockLen;
             }
 
-            this.buffer = rData.getBuffer(this.rowBlockOffset - rowBlockSize, rowBlockSize);
-            this.bufPos = buffer.position();
+            this.address = rData.getAddress(this.rowBlockOffset - rowBlockSize, rowBlockSize);
         }
 
         public boolean hasNext() {
@@ -540,19 +551,54 @@ public class KVIndex implements Closeable {
 
         public long next() {
             if (remainingRowCount == 0) {
-                this.buffer = rData.getBuffer(rowBlockOffset - rowBlockSize, rowBlockSize);
-                this.bufPos = buffer.position();
+                this.address = rData.getAddress(rowBlockOffset - rowBlockSize, rowBlockSize);
                 this.remainingRowCount = rowBlockLen;
             }
 
-            long result = this.buffer.getLong(this.bufPos + --this.remainingRowCount * 8);
+            long result = Unsafe.getUnsafe().getLong(this.address + --this.remainingRowCount * 8);
 
             if (remainingRowCount == 0 && --this.remainingBlockCount > 0) {
-                this.rowBlockOffset = this.buffer.getLong(this.bufPos + rowBlockLen * 8);
+                this.rowBlockOffset = Unsafe.getUnsafe().getLong(this.address + rowBlockLen * 8);
             }
             return result;
         }
 
+        /**
+         * Row blocks, which values are all greater than given value, are skipped by checking their first value,
+         * value within row block is found by binary search.
+         */
+        @Override
+        public boolean skipTo(long value) {
+            while (hasNext()) {
+                if (remainingRowCount == 0) {
+                    this.address = rData.getAddress(rowBlockOffset - rowBlockSize, rowBlockSize);
+                    this.remainingRowCount = rowBlockLen;
+                }
+
+                if (Unsafe.getUnsafe().getLong(this.address) > value) {
+                    this.remainingRowCount = 0;
+                    if (--this.remainingBlockCount > 0) {
+                        this.rowBlockOffset = Unsafe.getUnsafe().getLong(this.address + rowBlockLen * 8);
+                    }
+                    continue;
+                }
+
+                int lo = 0;
+                int hi = remainingRowCount - 1;
+                while (lo < hi) {
+                    int mid = (lo + hi + 1) >>> 1;
+                    if (Unsafe.getUnsafe().getLong(this.address + mid * 8) <= value) {
+                        lo = mid;
+                    } else {
+                        hi = mid - 1;
+                    }
+                }
+                this.remainingRowCount = lo + 1;
+                return true;
+            }
+            return false;
+        }
+
         public long size() {
             return size;
         }
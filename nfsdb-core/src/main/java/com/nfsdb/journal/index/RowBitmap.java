@@ -0,0 +1,397 @@
+/*
+ * Copyright (c) 2014. Vlad Ilyushchenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nfsdb.journal.index;
+
+import com.nfsdb.journal.index.experimental.Cursor;
+
+import java.util.Arrays;
+
+/**
+ * Compressed set of row IDs. Row IDs are split into chunks of 65536 by their high bits. Sparse chunks keep
+ * sorted array of low 16 bits of row IDs, dense chunks keep bitmap of 1024 words, which makes AND, OR and
+ * AND NOT of dense chunks word operations.
+ */
+public class RowBitmap {
+    private static final int CHUNK_BITS = 16;
+    private static final int CHUNK_MASK = (1 << CHUNK_BITS) - 1;
+    private static final int WORD_COUNT = 1 << (CHUNK_BITS - 6);
+    // past this cardinality bitmap chunk takes less memory than array chunk
+    private static final int MAX_ARRAY_SIZE = 4096;
+
+    private long[] keys = new long[4];
+    private char[][] arrays = new char[4][];
+    private long[][] bitmaps = new long[4][];
+    private int[] counts = new int[4];
+    private int chunkCount;
+
+    public void add(long rowID) {
+        long key = rowID >>> CHUNK_BITS;
+        int index;
+        if (chunkCount > 0 && keys[chunkCount - 1] == key) {
+            index = chunkCount - 1;
+        } else if (chunkCount == 0 || keys[chunkCount - 1] < key) {
+            index = chunkCount;
+            insertChunk(index, key, new char[4], null, 0);
+        } else {
+            index = Arrays.binarySearch(keys, 0, chunkCount, key);
+            if (index < 0) {
+                index = -index - 1;
+                insertChunk(index, key, new char[4], null, 0);
+            }
+        }
+        addLow(index, (char) (rowID & CHUNK_MASK));
+    }
+
+    public boolean contains(long rowID) {
+        int index = chunkCount > 0 && keys[chunkCount - 1] == rowID >>> CHUNK_BITS ? chunkCount - 1 : Arrays.binarySearch(keys, 0, chunkCount, rowID >>> CHUNK_BITS);
+        return index >= 0 && containsLow(index, (char) (rowID & CHUNK_MASK));
+    }
+
+    public long cardinality() {
+        long n = 0;
+        for (int i = 0; i < chunkCount; i++) {
+            n += counts[i];
+        }
+        return n;
+    }
+
+    public boolean isEmpty() {
+        return chunkCount == 0;
+    }
+
+    public void clear() {
+        Arrays.fill(arrays, 0, chunkCount, null);
+        Arrays.fill(bitmaps, 0, chunkCount, null);
+        chunkCount = 0;
+    }
+
+    /**
+     * @return new bitmap of rows, which are in both this and other bitmap
+     */
+    public RowBitmap and(RowBitmap other) {
+        RowBitmap result = new RowBitmap();
+        int i = 0;
+        int j = 0;
+        while (i < chunkCount && j < other.chunkCount) {
+            if (keys[i] < other.keys[j]) {
+                i++;
+            } else if (keys[i] > other.keys[j]) {
+                j++;
+            } else {
+                if (bitmaps[i] != null && other.bitmaps[j] != null) {
+                    long[] a = bitmaps[i];
+                    long[] b = other.bitmaps[j];
+                    long[] words = new long[WORD_COUNT];
+                    for (int k = 0; k < WORD_COUNT; k++) {
+                        words[k] = a[k] & b[k];
+                    }
+                    result.appendBitmap(keys[i], words);
+                } else if (bitmaps[i] == null) {
+                    result.appendFiltered(keys[i], arrays[i], counts[i], other, j, true);
+                } else {
+                    result.appendFiltered(keys[i], other.arrays[j], other.counts[j], this, i, true);
+                }
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return new bitmap of rows, which are in this or other bitmap
+     */
+    public RowBitmap or(RowBitmap other) {
+        RowBitmap result = new RowBitmap();
+        int i = 0;
+        int j = 0;
+        while (i < chunkCount || j < other.chunkCount) {
+            if (j == other.chunkCount || (i < chunkCount && keys[i] < other.keys[j])) {
+                result.appendCopy(this, i++);
+            } else if (i == chunkCount || keys[i] > other.keys[j]) {
+                result.appendCopy(other, j++);
+            } else {
+                long[] words = toWords(i);
+                if (other.bitmaps[j] != null) {
+                    long[] b = other.bitmaps[j];
+                    for (int k = 0; k < WORD_COUNT; k++) {
+                        words[k] |= b[k];
+                    }
+                } else {
+                    char[] b = other.arrays[j];
+                    for (int k = 0, n = other.counts[j]; k < n; k++) {
+                        words[b[k] >>> 6] |= 1L << b[k];
+                    }
+                }
+                result.appendBitmap(keys[i], words);
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return new bitmap of rows, which are in this bitmap and are not in other bitmap
+     */
+    public RowBitmap andNot(RowBitmap other) {
+        RowBitmap result = new RowBitmap();
+        int j = 0;
+        for (int i = 0; i < chunkCount; i++) {
+            while (j < other.chunkCount && other.keys[j] < keys[i]) {
+                j++;
+            }
+
+            if (j == other.chunkCount || other.keys[j] > keys[i]) {
+                result.appendCopy(this, i);
+            } else if (bitmaps[i] == null) {
+                result.appendFiltered(keys[i], arrays[i], counts[i], other, j, false);
+            } else {
+                long[] words = toWords(i);
+                if (other.bitmaps[j] != null) {
+                    long[] b = other.bitmaps[j];
+                    for (int k = 0; k < WORD_COUNT; k++) {
+                        words[k] &= ~b[k];
+                    }
+                } else {
+                    char[] b = other.arrays[j];
+                    for (int k = 0, n = other.counts[j]; k < n; k++) {
+                        words[b[k] >>> 6] &= ~(1L << b[k]);
+                    }
+                }
+                result.appendBitmap(keys[i], words);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Creates cursor over rows in descending order, same as order of {@link KVIndex.IndexCursor}.
+     *
+     * @return new cursor
+     */
+    public Cursor cursor() {
+        return new DescendingCursor();
+    }
+
+    private void insertChunk(int index, long key, char[] array, long[] bitmap, int count) {
+        if (chunkCount == keys.length) {
+            int len = chunkCount * 2;
+            keys = Arrays.copyOf(keys, len);
+            arrays = Arrays.copyOf(arrays, len);
+            bitmaps = Arrays.copyOf(bitmaps, len);
+            counts = Arrays.copyOf(counts, len);
+        }
+        if (index < chunkCount) {
+            System.arraycopy(keys, index, keys, index + 1, chunkCount - index);
+            System.arraycopy(arrays, index, arrays, index + 1, chunkCount - index);
+            System.arraycopy(bitmaps, index, bitmaps, index + 1, chunkCount - index);
+            System.arraycopy(counts, index, counts, index + 1, chunkCount - index);
+        }
+        keys[index] = key;
+        arrays[index] = array;
+        bitmaps[index] = bitmap;
+        counts[index] = count;
+        chunkCount++;
+    }
+
+    private void addLow(int index, char low) {
+        long[] words = bitmaps[index];
+        if (words != null) {
+            long bit = 1L << low;
+            if ((words[low >>> 6] & bit) == 0) {
+                words[low >>> 6] |= bit;
+                counts[index]++;
+            }
+            return;
+        }
+
+        char[] values = arrays[index];
+        int count = counts[index];
+        int pos;
+        if (count == 0 || values[count - 1] < low) {
+            pos = count;
+        } else {
+            pos = Arrays.binarySearch(values, 0, count, low);
+            if (pos >= 0) {
+                return;
+            }
+            pos = -pos - 1;
+        }
+
+        if (count == MAX_ARRAY_SIZE) {
+            bitmaps[index] = toWords(index);
+            arrays[index] = null;
+            addLow(index, low);
+            return;
+        }
+
+        if (count == values.length) {
+            values = arrays[index] = Arrays.copyOf(values, Math.min(count * 2, MAX_ARRAY_SIZE));
+        }
+        System.arraycopy(values, pos, values, pos + 1, count - pos);
+        values[pos] = low;
+        counts[index] = count + 1;
+    }
+
+    private boolean containsLow(int index, char low) {
+        long[] words = bitmaps[index];
+        if (words != null) {
+            return (words[low >>> 6] & (1L << low)) != 0;
+        }
+        return Arrays.binarySearch(arrays[index], 0, counts[index], low) >= 0;
+    }
+
+    private long[] toWords(int index) {
+        if (bitmaps[index] != null) {
+            return bitmaps[index].clone();
+        }
+        long[] words = new long[WORD_COUNT];
+        char[] values = arrays[index];
+        for (int k = 0, n = counts[index]; k < n; k++) {
+            words[values[k] >>> 6] |= 1L << values[k];
+        }
+        return words;
+    }
+
+    private void appendCopy(RowBitmap source, int index) {
+        insertChunk(
+                chunkCount,
+                source.keys[index],
+                source.arrays[index] == null ? null : Arrays.copyOf(source.arrays[index], source.counts[index]),
+                source.bitmaps[index] == null ? null : source.bitmaps[index].clone(),
+                source.counts[index]
+        );
+    }
+
+    private void appendFiltered(long key, char[] values, int count, RowBitmap other, int otherIndex, boolean keep) {
+        char[] result = new char[count];
+        int n = 0;
+        for (int k = 0; k < count; k++) {
+            if (other.containsLow(otherIndex, values[k]) == keep) {
+                result[n++] = values[k];
+            }
+        }
+        if (n > 0) {
+            insertChunk(chunkCount, key, result, null, n);
+        }
+    }
+
+    private void appendBitmap(long key, long[] words) {
+        int count = 0;
+        for (int k = 0; k < WORD_COUNT; k++) {
+            count += Long.bitCount(words[k]);
+        }
+
+        if (count == 0) {
+            return;
+        }
+
+        if (count > MAX_ARRAY_SIZE) {
+            insertChunk(chunkCount, key, null, words, count);
+        } else {
+            char[] values = new char[count];
+            int n = 0;
+            for (int k = 0; k < WORD_COUNT; k++) {
+                long w = words[k];
+                while (w != 0) {
+                    values[n++] = (char) ((k << 6) + Long.numberOfTrailingZeros(w));
+                    w &= w - 1;
+                }
+            }
+            insertChunk(chunkCount, key, values, null, count);
+        }
+    }
+
+    private class DescendingCursor implements Cursor {
+        private int chunk = chunkCount - 1;
+        // position within array chunk or word index within bitmap chunk
+        private int pos = chunk < 0 ? -1 : start(chunk);
+        private long word = chunk < 0 ? 0 : firstWord(chunk);
+
+        @Override
+        public boolean hasNext() {
+            while (chunk >= 0) {
+                if (bitmaps[chunk] == null ? pos >= 0 : word != 0) {
+                    return true;
+                }
+
+                if (bitmaps[chunk] != null && pos > 0) {
+                    word = bitmaps[chunk][--pos];
+                } else if (--chunk >= 0) {
+                    pos = start(chunk);
+                    word = firstWord(chunk);
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public long next() {
+            long base = keys[chunk] << CHUNK_BITS;
+            if (bitmaps[chunk] == null) {
+                return base + arrays[chunk][pos--];
+            }
+            int bit = 63 - Long.numberOfLeadingZeros(word);
+            word &= ~(1L << bit);
+            return base + (pos << 6) + bit;
+        }
+
+        @Override
+        public boolean skipTo(long value) {
+            if (value < 0) {
+                chunk = -1;
+                return false;
+            }
+
+            long key = value >>> CHUNK_BITS;
+            while (chunk >= 0 && keys[chunk] > key) {
+                if (--chunk >= 0) {
+                    pos = start(chunk);
+                    word = firstWord(chunk);
+                }
+            }
+
+            if (chunk >= 0 && keys[chunk] == key) {
+                int low = (int) (value & CHUNK_MASK);
+                if (bitmaps[chunk] == null) {
+                    int p = Arrays.binarySearch(arrays[chunk], 0, pos + 1, (char) low);
+                    pos = p >= 0 ? p : -p - 2;
+                } else {
+                    int w = low >>> 6;
+                    if (w < pos) {
+                        pos = w;
+                        word = bitmaps[chunk][w];
+                    }
+                    if (w == pos) {
+                        // keep bits of values up to and including low
+                        word &= -1L >>> (63 - (low & 63));
+                    }
+                }
+            }
+            return hasNext();
+        }
+
+        private int start(int chunk) {
+            return bitmaps[chunk] == null ? counts[chunk] - 1 : WORD_COUNT - 1;
+        }
+
+        private long firstWord(int chunk) {
+            return bitmaps[chunk] == null ? 0 : bitmaps[chunk][WORD_COUNT - 1];
+        }
+    }
+}
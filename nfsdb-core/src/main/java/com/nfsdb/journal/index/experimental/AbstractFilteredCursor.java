@@ -39,9 +39,34 @@ public abstract class AbstractFilteredCursor implements Cursor {
         }
     }
 
+    @Override
+    public boolean skipTo(long value) {
+        if (next > value) {
+            next = -1;
+        }
+        if (next == -1) {
+            next = getNext(value);
+        }
+        return next > -1;
+    }
+
     public void reset() {
         next = -1;
     }
 
     abstract protected long getNext();
+
+    /**
+     * Finds largest value, which is less than or equal to max. Subclasses, which can skip values, override this method.
+     *
+     * @param max upper bound of value
+     * @return value or -2 if there are no more values
+     */
+    protected long getNext(long max) {
+        long n;
+        do {
+            n = getNext();
+        } while (n > max);
+        return n;
+    }
 }
@@ -28,29 +28,34 @@ public final class AndCursor extends AbstractFilteredCursor {
 
     @Override
     protected final long getNext() {
-        long nextA = -1;
-        long nextB = -1;
-
-        while (true) {
-            if (nextA == -1 && a.hasNext()) {
-                nextA = a.next();
-            }
+        return getNext(Long.MAX_VALUE);
+    }
 
-            if (nextB == -1 && b.hasNext()) {
-                nextB = b.next();
-            }
+    /**
+     * Leapfrogs cursors: the cursor with greater value skips to value of the other one until both values are equal.
+     */
+    @Override
+    protected final long getNext(long max) {
+        if (!a.skipTo(max) || !b.skipTo(max)) {
+            return -2;
+        }
 
-            if (nextA == -1 || nextB == -1) {
-                return -2;
-            }
+        long nextA = a.next();
+        long nextB = b.next();
 
+        while (nextA != nextB) {
             if (nextA > nextB) {
-                nextA = -1;
-            } else if (nextA < nextB) {
-                nextB = -1;
+                if (!a.skipTo(nextB)) {
+                    return -2;
+                }
+                nextA = a.next();
             } else {
-                return nextA;
+                if (!b.skipTo(nextA)) {
+                    return -2;
+                }
+                nextB = b.next();
             }
         }
+        return nextA;
     }
 }
@@ -16,8 +16,20 @@
 
 package com.nfsdb.journal.index.experimental;
 
+/**
+ * Iterates row IDs in descending order.
+ */
 public interface Cursor {
     boolean hasNext();
 
     long next();
+
+    /**
+     * Skips values greater than given value, so that next() returns largest remaining value, which is
+     * less than or equal to given value. Cursors over index blocks skip without visiting every value.
+     *
+     * @param value upper bound of next value
+     * @return true if there is such value
+     */
+    boolean skipTo(long value);
 }
@@ -40,4 +40,9 @@ public class FilteredCursor extends AbstractFilteredCursor {
         }
         return -2;
     }
+
+    @Override
+    protected long getNext(long max) {
+        return delegate.skipTo(max) ? getNext() : -2;
+    }
 }
@@ -29,19 +29,21 @@ public class IDSearch<T> {
     private final FilteredCursor cursor = new FilteredCursor();
     private final StringEqualsFilter filter = new StringEqualsFilter();
     private int hashCapacity;
+    private int hashVersion;
     private KVIndex index;
     private VariableColumn column;
 
     public void createState(Partition<T> partition, final String columnName) throws JournalException {
         int colIndex = partition.getJournal().getMetadata().getColumnIndex(columnName);
         this.hashCapacity = partition.getJournal().getColumnMetadata(colIndex).meta.distinctCountHint;
+        this.hashVersion = partition.getJournal().getMetadata().getHashVersion();
         this.index = partition.getIndexForColumn(colIndex);
         this.column = (VariableColumn) partition.getAbstractColumn(colIndex);
         this.filter.setColumn(column);
     }
 
     public LongArrayList execute(String searchTerm) {
-        KVIndex.IndexCursor cursor = index.cachedCursor(searchTerm.hashCode() % hashCapacity);
+        KVIndex.IndexCursor cursor = index.cachedCursor(Checksum.hash(searchTerm, hashCapacity, hashVersion));
         LongArrayList arrayList = new LongArrayList();
         while (cursor.hasNext()) {
             long v = cursor.next();
@@ -54,7 +56,7 @@ public class IDSearch<T> {
 
     public Cursor exec(final String searchTerm) {
         filter.setSearchTerm(searchTerm);
-        cursor.configure(index.cachedCursor(Checksum.hash(searchTerm, hashCapacity)), filter);
+        cursor.configure(index.cachedCursor(Checksum.hash(searchTerm, hashCapacity, hashVersion)), filter);
         return cursor;
     }
 }
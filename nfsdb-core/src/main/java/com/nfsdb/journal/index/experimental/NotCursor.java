@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 2014. Vlad Ilyushchenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nfsdb.journal.index.experimental;
+
+/**
+ * Values of first cursor, which are not in second cursor.
+ */
+public final class NotCursor extends AbstractFilteredCursor {
+
+    private final Cursor a;
+    private final Cursor b;
+    private long nextB = -1;
+
+    public NotCursor(Cursor a, Cursor b) {
+        this.a = a;
+        this.b = b;
+    }
+
+    @Override
+    protected long getNext() {
+        return getNext(Long.MAX_VALUE);
+    }
+
+    @Override
+    protected long getNext(long max) {
+        while (a.skipTo(max)) {
+            long value = a.next();
+
+            if (nextB > value) {
+                nextB = -1;
+            }
+            if (nextB == -1) {
+                nextB = b.skipTo(value) ? b.next() : -2;
+            }
+
+            if (nextB != value) {
+                return value;
+            }
+            max = value - 1;
+        }
+        return -2;
+    }
+}
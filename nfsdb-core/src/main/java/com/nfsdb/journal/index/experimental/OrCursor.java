@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2014. Vlad Ilyushchenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nfsdb.journal.index.experimental;
+
+/**
+ * Union of two cursors. Values present in both cursors are returned once.
+ */
+public final class OrCursor extends AbstractFilteredCursor {
+
+    private final Cursor a;
+    private final Cursor b;
+    private long nextA = -1;
+    private long nextB = -1;
+
+    public OrCursor(Cursor a, Cursor b) {
+        this.a = a;
+        this.b = b;
+    }
+
+    @Override
+    protected long getNext() {
+        return getNext(Long.MAX_VALUE);
+    }
+
+    @Override
+    protected long getNext(long max) {
+        if (nextA > max) {
+            nextA = -1;
+        }
+        if (nextA == -1) {
+            nextA = a.skipTo(max) ? a.next() : -2;
+        }
+
+        if (nextB > max) {
+            nextB = -1;
+        }
+        if (nextB == -1) {
+            nextB = b.skipTo(max) ? b.next() : -2;
+        }
+
+        long result = Math.max(nextA, nextB);
+        if (result < 0) {
+            return -2;
+        }
+
+        if (nextA == result) {
+            nextA = -1;
+        }
+        if (nextB == result) {
+            nextB = -1;
+        }
+        return result;
+    }
+}
@@ -16,11 +16,21 @@
 
 package com.nfsdb.journal.iterators;
 
+import com.nfsdb.journal.Journal;
+import com.nfsdb.journal.exceptions.JournalException;
+import com.nfsdb.journal.utils.Rows;
+
 public class JournalRow<T> {
+    private final Journal<T> journal;
     private final T object;
     private long rowID;
 
     public JournalRow(T object) {
+        this(null, object);
+    }
+
+    public JournalRow(Journal<T> journal, T object) {
+        this.journal = journal;
         this.object = object;
     }
 
@@ -32,6 +42,15 @@ public class JournalRow<T> {
         return rowID;
     }
 
+    /**
+     * Reads STRING or SYMBOL column of current row without creating a String.
+     *
+     * @see com.nfsdb.journal.Partition#getFlyweightStr(long, int)
+     */
+    public CharSequence getFlyweightStr(int columnIndex) throws JournalException {
+        return journal.getPartition(Rows.toPartitionIndex(rowID), true).getFlyweightStr(Rows.toLocalRowID(rowID), columnIndex);
+    }
+
     void setRowID(long rowID) {
         this.rowID = rowID;
     }
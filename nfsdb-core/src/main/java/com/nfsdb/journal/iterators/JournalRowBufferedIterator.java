@@ -38,7 +38,7 @@ public class JournalRowBufferedIterator<T> implements Iterable<JournalRow<T>>, I
     public JournalRowBufferedIterator(Journal<T> journal, List<JournalIteratorRange> ranges) {
         this.ranges = ranges;
         this.journal = journal;
-        this.row = new JournalRow<>(journal.newObject());
+        this.row = new JournalRow<>(journal, journal.newObject());
         updateVariables();
     }
 
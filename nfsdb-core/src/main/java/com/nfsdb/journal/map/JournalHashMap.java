@@ -17,10 +17,15 @@
 package com.nfsdb.journal.map;
 
 import com.nfsdb.journal.Journal;
+import com.nfsdb.journal.LatestKeyHandler;
+import com.nfsdb.journal.Partition;
+import com.nfsdb.journal.column.SymbolTable;
 import com.nfsdb.journal.exceptions.JournalException;
 import com.nfsdb.journal.exceptions.JournalRuntimeException;
+import com.nfsdb.journal.utils.Rows;
 import com.nfsdb.journal.utils.Unsafe;
 
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -31,9 +36,19 @@ public class JournalHashMap<T> implements JournalMap<T> {
     private final Set<String> invalidKeyCache;
     private final Journal<T> journal;
     private final String column;
+    private final int columnIndex;
     private final long columnOffset;
     private final JournalMapFilter<T> filter;
+    private final BitSet seenKeys = new BitSet();
+    // keys of lag rows below lagRowCount, lag partition is only appended to while its name stays the same
+    private final BitSet lagKeys = new BitSet();
     private boolean eager = false;
+    private int[] keys;
+    // map reflects rows of regular partitions below this row ID as of transaction at txAddress
+    private long txAddress;
+    private long rowID;
+    private String lagName;
+    private long lagRowCount;
 
     public JournalHashMap(Journal<T> journal) {
         this(journal, journal.getMetadata().getKey());
@@ -48,8 +63,14 @@ public class JournalHashMap<T> implements JournalMap<T> {
         this.column = column;
         this.filter = filter;
         this.map = new HashMap<>(journal.getSymbolTable(column).size());
+        this.columnIndex = journal.getMetadata().getColumnIndex(column);
         this.columnOffset = journal.getMetadata().getColumnMetadata(column).offset;
         this.invalidKeyCache = new HashSet<>();
+        try {
+            mark();
+        } catch (JournalException e) {
+            throw new JournalRuntimeException(e);
+        }
     }
 
     @Override
@@ -60,6 +81,7 @@ public class JournalHashMap<T> implements JournalMap<T> {
             }
         }
         eager = true;
+        mark();
         return this;
     }
 
@@ -103,12 +125,29 @@ public class JournalHashMap<T> implements JournalMap<T> {
         return map.values();
     }
 
+    /**
+     * Moves map to latest transaction of journal. When rows were only appended since previous refresh, only
+     * appended rows and lag partition are read and only keys they contain are updated. Lazy map updates keys
+     * it has already looked up and forgets keys it has found invalid. Otherwise map is reloaded.
+     *
+     * @return true if journal had new transaction
+     * @throws JournalException if journal cannot be refreshed
+     */
     @Override
     public boolean refresh() throws JournalException {
         if (journal.refresh()) {
-            map.clear();
-            if (eager) {
-                eager();
+            if (journal.isAppendOnlySince(txAddress)) {
+                update();
+                mark();
+            } else {
+                map.clear();
+                invalidKeyCache.clear();
+                lagName = null;
+                if (eager) {
+                    eager();
+                } else {
+                    mark();
+                }
             }
             return true;
         }
@@ -119,4 +158,82 @@ public class JournalHashMap<T> implements JournalMap<T> {
     public int size() {
         return map.size();
     }
+
+    private void mark() throws JournalException {
+        txAddress = journal.getTxAddress();
+        rowID = 0;
+        for (int i = journal.nonLagPartitionCount() - 1; i >= 0; i--) {
+            long size = journal.getPartition(i, true).size();
+            if (size > 0) {
+                rowID = Rows.toRowID(i, size);
+                break;
+            }
+        }
+    }
+
+    /**
+     * Latest row of key decides its value, so rows are visited newest first: lag partition, then regular
+     * partitions down to previous row ID. Lag rows are read from previous lag size unless lag has been rewritten,
+     * keys of lag rows read before are still skipped in regular partitions. Only symbol keys are read until
+     * a key is seen for the first time.
+     */
+    private void update() throws JournalException {
+        SymbolTable symbolTable = journal.getSymbolTable(column);
+        int keyCount = symbolTable.size();
+        if (keys == null) {
+            keys = new int[Partition.KEY_SCAN_BLOCK];
+        }
+        seenKeys.clear();
+
+        Partition<T> lag = journal.getIrregularPartition();
+        if (lag != null) {
+            lag.open();
+        }
+        if (lag == null || !lag.getName().equals(lagName) || lag.size() < lagRowCount) {
+            lagName = lag == null ? null : lag.getName();
+            lagRowCount = 0;
+            lagKeys.clear();
+        }
+        if (lag != null) {
+            long size = lag.size();
+            lag.scanLatestKeys(columnIndex, lagRowCount, keyCount, seenKeys, keys, new KeyUpdater(lag, symbolTable));
+            lagRowCount = size;
+            lagKeys.or(seenKeys);
+            seenKeys.or(lagKeys);
+        }
+
+        int loPartitionIndex = Rows.toPartitionIndex(rowID);
+        for (int i = journal.nonLagPartitionCount() - 1; i >= loPartitionIndex; i--) {
+            Partition<T> partition = journal.getPartition(i, true);
+            if (partition.scanLatestKeys(columnIndex, i == loPartitionIndex ? Rows.toLocalRowID(rowID) : 0, keyCount, seenKeys, keys, new KeyUpdater(partition, symbolTable))) {
+                break;
+            }
+        }
+    }
+
+    private class KeyUpdater implements LatestKeyHandler {
+        private final Partition<T> partition;
+        private final SymbolTable symbolTable;
+
+        private KeyUpdater(Partition<T> partition, SymbolTable symbolTable) {
+            this.partition = partition;
+            this.symbolTable = symbolTable;
+        }
+
+        @Override
+        public void onKey(int key, long localRowID) {
+            String value = symbolTable.value(key);
+            if (eager || map.containsKey(value) || invalidKeyCache.remove(value)) {
+                T t = partition.read(localRowID);
+                if (filter == null || filter.accept(t)) {
+                    map.put(value, t);
+                } else {
+                    map.remove(value);
+                    if (!eager) {
+                        invalidKeyCache.add(value);
+                    }
+                }
+            }
+        }
+    }
 }
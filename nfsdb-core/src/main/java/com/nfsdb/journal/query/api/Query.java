@@ -24,5 +24,12 @@ public interface Query<T> {
 
     QueryHead<T> head();
 
+    /**
+     * Creates aggregation of rows by time buckets, which start at multiples of bucketMillis since epoch.
+     *
+     * @param bucketMillis length of time bucket, e.g. TimeUnit.DAYS.toMillis(1)
+     */
+    QuerySample<T> sample(long bucketMillis);
+
     Journal<T> getJournal();
 }
@@ -41,6 +41,10 @@ public interface QueryAll<T> extends Iterable<T> {
 
     QueryAllBuilder<T> withSymValues(String symbol, String... value);
 
+    QueryAllBuilder<T> withRange(String column, long lo, long hi);
+
+    QueryAllBuilder<T> withRange(String column, double lo, double hi);
+
     JournalIterator<T> bufferedIterator(Interval interval);
 
     ConcurrentIterator<T> concurrentIterator(Interval interval);
@@ -20,12 +20,30 @@ import com.nfsdb.journal.UnorderedResultSet;
 import com.nfsdb.journal.exceptions.JournalException;
 import org.joda.time.Interval;
 
+import java.util.concurrent.ExecutorService;
+
 public interface QueryAllBuilder<T> {
 
     QueryAllBuilder<T> slice(Interval interval);
 
     QueryAllBuilder<T> filter(String symbol, String value);
 
+    /**
+     * Limits result to rows where numeric column is between lo and hi inclusive. Blocks of rows are
+     * skipped using zone maps, so that sorted or clustered columns are filtered without full scan.
+     */
+    QueryAllBuilder<T> range(String column, long lo, long hi);
+
+    QueryAllBuilder<T> range(String column, double lo, double hi);
+
+    /**
+     * Reads partitions in parallel on executor, see {@link com.nfsdb.journal.Journal#iteratePartitionsParallel}.
+     * Order of rows is the same as when partitions are read one by one.
+     *
+     * @param executor executor to run partition tasks, null to read partitions on calling thread
+     */
+    QueryAllBuilder<T> parallel(ExecutorService executor);
+
     void resetFilter();
 
     UnorderedResultSet<T> asResultSet() throws JournalException;
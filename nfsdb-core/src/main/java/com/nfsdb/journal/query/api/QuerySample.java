@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2014. Vlad Ilyushchenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nfsdb.journal.query.api;
+
+import com.nfsdb.journal.SampleResult;
+import com.nfsdb.journal.exceptions.JournalException;
+import org.joda.time.Interval;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Aggregates rows by time bucket and optionally by symbol value. Columns are read directly from partitions without
+ * creating objects, partitions can be aggregated in parallel. Aggregates are numbered in order they are added.
+ */
+public interface QuerySample<T> {
+
+    /**
+     * Groups rows of each time bucket by value of symbol column.
+     *
+     * @param symbol symbol column
+     * @param values symbol values to aggregate, all values when empty
+     */
+    QuerySample<T> by(String symbol, String... values);
+
+    QuerySample<T> slice(Interval interval);
+
+    QuerySample<T> count();
+
+    QuerySample<T> sum(String column);
+
+    QuerySample<T> min(String column);
+
+    QuerySample<T> max(String column);
+
+    QuerySample<T> avg(String column);
+
+    QuerySample<T> first(String column);
+
+    QuerySample<T> last(String column);
+
+    /**
+     * Aggregates partitions in parallel on executor, see {@link com.nfsdb.journal.Journal#reducePartitionsParallel}.
+     *
+     * @param executor executor to run partition tasks, null to aggregate partitions on calling thread
+     */
+    QuerySample<T> parallel(ExecutorService executor);
+
+    SampleResult asResult() throws JournalException;
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2014. Vlad Ilyushchenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nfsdb.journal.query.spi;
+
+import com.nfsdb.journal.Partition;
+import com.nfsdb.journal.column.ColumnStats;
+import com.nfsdb.journal.column.ColumnType;
+import com.nfsdb.journal.column.FixedColumn;
+import com.nfsdb.journal.column.ZoneMap;
+import com.nfsdb.journal.exceptions.JournalRuntimeException;
+import com.nfsdb.journal.factory.JournalMetadata;
+
+/**
+ * Inclusive range of values of numeric column. Null values are never in range.
+ */
+public class ColumnRange {
+    private final int columnIndex;
+    private final ColumnType type;
+    private final long lo;
+    private final long hi;
+    private final double loDouble;
+    private final double hiDouble;
+
+    public ColumnRange(JournalMetadata<?> metadata, String column, long lo, long hi) {
+        this(metadata, column, lo, hi, lo, hi);
+    }
+
+    public ColumnRange(JournalMetadata<?> metadata, String column, double lo, double hi) {
+        this(metadata, column, (long) Math.ceil(lo), (long) Math.floor(hi), lo, hi);
+    }
+
+    private ColumnRange(JournalMetadata<?> metadata, String column, long lo, long hi, double loDouble, double hiDouble) {
+        this.columnIndex = metadata.getColumnIndex(column);
+        this.type = metadata.getColumnMetadata(columnIndex).type;
+        if (!ZoneMap.supports(type)) {
+            throw new JournalRuntimeException("Range filter is not supported on %s column: %s", type, column);
+        }
+        this.lo = lo;
+        this.hi = hi;
+        this.loDouble = loDouble;
+        this.hiDouble = hiDouble;
+    }
+
+    public int getColumnIndex() {
+        return columnIndex;
+    }
+
+    /**
+     * @param stats summary of values, null when there is none
+     * @return false if none of the values summarised by stats are in range
+     */
+    public boolean mayMatch(ColumnStats stats) {
+        if (stats == null) {
+            return true;
+        }
+        return type == ColumnType.DOUBLE ? stats.mayContain(loDouble, hiDouble) : stats.mayContain(lo, hi);
+    }
+
+    public boolean matches(Partition<?> partition, long localRowID) {
+        if (partition.isNull(localRowID, columnIndex)) {
+            return false;
+        }
+
+        FixedColumn column = (FixedColumn) partition.getAbstractColumn(columnIndex);
+        switch (type) {
+            case BYTE:
+                return matches(column.getByte(localRowID));
+            case SHORT:
+                return matches(column.getShort(localRowID));
+            case INT:
+                return matches(column.getInt(localRowID));
+            case LONG:
+                return matches(column.getLong(localRowID));
+            default:
+                double d = column.getDouble(localRowID);
+                return d >= loDouble && d <= hiDouble;
+        }
+    }
+
+    private boolean matches(long value) {
+        return value >= lo && value <= hi;
+    }
+}
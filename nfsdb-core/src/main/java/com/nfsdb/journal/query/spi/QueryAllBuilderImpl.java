@@ -17,7 +17,9 @@
 package com.nfsdb.journal.query.spi;
 
 import com.nfsdb.journal.Journal;
+import com.nfsdb.journal.ResultSetBuilderFactory;
 import com.nfsdb.journal.UnorderedResultSet;
+import com.nfsdb.journal.UnorderedResultSetBuilder;
 import com.nfsdb.journal.collections.IntArrayList;
 import com.nfsdb.journal.column.SymbolTable;
 import com.nfsdb.journal.exceptions.JournalException;
@@ -26,6 +28,7 @@ import org.joda.time.Interval;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
 
 public class QueryAllBuilderImpl<T> implements QueryAllBuilder<T> {
 
@@ -33,8 +36,10 @@ public class QueryAllBuilderImpl<T> implements QueryAllBuilder<T> {
     private final IntArrayList symbolKeys = new IntArrayList();
     private final List<String> filterSymbols = new ArrayList<>();
     private final IntArrayList filterSymbolKeys = new IntArrayList();
+    private final List<ColumnRange> ranges = new ArrayList<>();
     private String symbol;
     private Interval interval;
+    private ExecutorService executor;
 
     public QueryAllBuilderImpl(Journal<T> journal) {
         this.journal = journal;
@@ -48,7 +53,15 @@ public class QueryAllBuilderImpl<T> implements QueryAllBuilder<T> {
 
     @Override
     public UnorderedResultSet<T> asResultSet() throws JournalException {
-        return journal.iteratePartitionsDesc(new QueryAllResultSetBuilder<T>(interval, symbol, symbolKeys, filterSymbols, filterSymbolKeys));
+        if (executor != null) {
+            return journal.iteratePartitionsParallel(new ResultSetBuilderFactory<T>() {
+                @Override
+                public UnorderedResultSetBuilder<T> newBuilder() {
+                    return newResultSetBuilder();
+                }
+            }, executor);
+        }
+        return journal.iteratePartitionsDesc(newResultSetBuilder());
     }
 
     public void setSymbol(String symbol, String... values) {
@@ -72,13 +85,36 @@ public class QueryAllBuilderImpl<T> implements QueryAllBuilder<T> {
         return this;
     }
 
+    @Override
+    public QueryAllBuilder<T> range(String column, long lo, long hi) {
+        ranges.add(new ColumnRange(journal.getMetadata(), column, lo, hi));
+        return this;
+    }
+
+    @Override
+    public QueryAllBuilder<T> range(String column, double lo, double hi) {
+        ranges.add(new ColumnRange(journal.getMetadata(), column, lo, hi));
+        return this;
+    }
+
+    @Override
+    public QueryAllBuilder<T> parallel(ExecutorService executor) {
+        this.executor = executor;
+        return this;
+    }
+
     @Override
     public void resetFilter() {
         filterSymbols.clear();
         filterSymbolKeys.resetQuick();
+        ranges.clear();
     }
 
     public void setInterval(Interval interval) {
         this.interval = interval;
     }
+
+    private QueryAllResultSetBuilder<T> newResultSetBuilder() {
+        return new QueryAllResultSetBuilder<>(interval, symbol, symbolKeys, filterSymbols, filterSymbolKeys, ranges);
+    }
 }
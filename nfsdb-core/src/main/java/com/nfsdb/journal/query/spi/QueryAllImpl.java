@@ -74,6 +74,16 @@ public class QueryAllImpl<T> implements QueryAll<T> {
         return result;
     }
 
+    @Override
+    public QueryAllBuilder<T> withRange(String column, long lo, long hi) {
+        return new QueryAllBuilderImpl<>(journal).range(column, lo, hi);
+    }
+
+    @Override
+    public QueryAllBuilder<T> withRange(String column, double lo, double hi) {
+        return new QueryAllBuilderImpl<>(journal).range(column, lo, hi);
+    }
+
     @Override
     public Iterator<T> iterator() {
         return new JournalIteratorImpl<>(journal, createRanges());
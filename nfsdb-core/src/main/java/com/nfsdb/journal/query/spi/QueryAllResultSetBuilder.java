@@ -19,10 +19,14 @@ package com.nfsdb.journal.query.spi;
 import com.nfsdb.journal.Partition;
 import com.nfsdb.journal.UnorderedResultSetBuilder;
 import com.nfsdb.journal.collections.IntArrayList;
-import com.nfsdb.journal.collections.LongArrayList;
+import com.nfsdb.journal.column.ColumnStats;
+import com.nfsdb.journal.column.ZoneMap;
 import com.nfsdb.journal.exceptions.JournalException;
-import com.nfsdb.journal.index.experimental.Cursor;
+import com.nfsdb.journal.factory.JournalConfiguration;
 import com.nfsdb.journal.index.KVIndex;
+import com.nfsdb.journal.index.experimental.AndCursor;
+import com.nfsdb.journal.index.experimental.Cursor;
+import com.nfsdb.journal.index.experimental.OrCursor;
 import com.nfsdb.journal.utils.Rows;
 import org.joda.time.Interval;
 
@@ -32,21 +36,44 @@ public class QueryAllResultSetBuilder<T> extends UnorderedResultSetBuilder<T> {
     private final IntArrayList symbolKeys;
     private final List<String> filterSymbols;
     private final IntArrayList filterSymbolKeys;
+    private final List<ColumnRange> ranges;
     final private String symbol;
     private KVIndex index;
     private KVIndex[] searchIndices;
 
-    public QueryAllResultSetBuilder(Interval interval, String symbol, IntArrayList symbolKeys, List<String> filterSymbols, IntArrayList filterSymbolKeys) {
+    /**
+     * @param symbol column to look up symbolKeys in, null to scan rows in ranges
+     * @param ranges value ranges rows must match
+     */
+    public QueryAllResultSetBuilder(Interval interval, String symbol, IntArrayList symbolKeys, List<String> filterSymbols, IntArrayList filterSymbolKeys, List<ColumnRange> ranges) {
         super(interval);
         this.symbol = symbol;
         this.symbolKeys = symbolKeys;
         this.filterSymbols = filterSymbols;
         this.filterSymbolKeys = filterSymbolKeys;
+        this.ranges = ranges;
     }
 
     @Override
     public Accept accept(Partition<T> partition) throws JournalException {
         super.accept(partition);
+
+        for (int i = 0, n = ranges.size(); i < n; i++) {
+            ColumnRange range = ranges.get(i);
+            if (!range.mayMatch(partition.open().getStats(range.getColumnIndex()))) {
+                return Accept.SKIP;
+            }
+        }
+
+        if (symbol == null) {
+            return Accept.CONTINUE;
+        }
+
+        // partition statistics rule out partitions without any of the keys before indexes are opened
+        if (symbolKeys.size() > 0 && (!hasAnyKey(partition, symbol, symbolKeys) || !hasAnyFilterKey(partition))) {
+            return Accept.SKIP;
+        }
+
         this.index = partition.open().getIndexForColumn(symbol);
 
         // check if partition has at least one symbol value
@@ -65,34 +92,69 @@ public class QueryAllResultSetBuilder<T> extends UnorderedResultSetBuilder<T> {
         return Accept.BREAK;
     }
 
+    private static boolean hasAnyKey(Partition<?> partition, String symbol, IntArrayList keys) throws JournalException {
+        ColumnStats stats = partition.open().getStats(partition.getJournal().getMetadata().getColumnIndex(symbol));
+        if (stats == null) {
+            return true;
+        }
+        for (int i = 0, n = keys.size(); i < n; i++) {
+            if (stats.containsKey(keys.getQuick(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean hasAnyFilterKey(Partition<T> partition) throws JournalException {
+        if (filterSymbols.size() == 0) {
+            return true;
+        }
+
+        for (int k = 0, n = filterSymbols.size(); k < n; k++) {
+            ColumnStats stats = partition.getStats(partition.getJournal().getMetadata().getColumnIndex(filterSymbols.get(k)));
+            if (stats == null || stats.containsKey(filterSymbolKeys.getQuick(k))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     @Override
-    public void read(long lo, long hi) {
+    public void read(long lo, long hi) throws JournalException {
+        if (symbol == null) {
+            scan(lo, hi);
+            return;
+        }
+
         for (int i = 0; i < symbolKeys.size(); i++) {
             int symbolKey = symbolKeys.getQuick(i);
             if (index.contains(symbolKey)) {
+                KVIndex.IndexCursor cursor = index.cursor(symbolKey);
+                Cursor rows = cursor;
                 if (searchIndices.length > 0) {
+                    // rows matching any of filters, cursors are leapfrogged instead of loading rows of each filter
+                    Cursor filter = null;
                     for (int k = 0; k < searchIndices.length; k++) {
                         if (searchIndices[k].contains(filterSymbolKeys.get(k))) {
-                            LongArrayList searchLocalRowIDs = searchIndices[k].getValues(filterSymbolKeys.get(k));
-
-                            Cursor cursor = index.cachedCursor(symbolKey);
-                            while (cursor.hasNext()) {
-                                long localRowID = cursor.next();
-                                if (localRowID < lo) {
-                                    break;
-                                }
-                                if (localRowID <= hi && searchLocalRowIDs.binarySearch(localRowID) >= 0) {
-                                    result.add(Rows.toRowID(partition.getPartitionIndex(), localRowID));
-                                }
-                            }
+                            Cursor c = searchIndices[k].cursor(filterSymbolKeys.get(k));
+                            filter = filter == null ? c : new OrCursor(filter, c);
                         }
                     }
+                    if (filter == null) {
+                        continue;
+                    }
+                    rows = new AndCursor(cursor, filter);
                 } else {
-                    KVIndex.IndexCursor cursor = index.cachedCursor(symbolKey);
                     result.setCapacity((int) cursor.size());
-                    while (cursor.hasNext()) {
-                        long localRowID = cursor.next();
-                        if (localRowID >= lo && localRowID <= hi) {
+                }
+
+                if (rows.skipTo(hi)) {
+                    while (rows.hasNext()) {
+                        long localRowID = rows.next();
+                        if (localRowID < lo) {
+                            break;
+                        }
+                        if (matchesRanges(localRowID)) {
                             result.add(Rows.toRowID(partition.getPartitionIndex(), localRowID));
                         }
                     }
@@ -100,4 +162,45 @@ public class QueryAllResultSetBuilder<T> extends UnorderedResultSetBuilder<T> {
             }
         }
     }
+
+    /**
+     * Checks rows block by block, blocks where zone map of any range column has no values in range are skipped.
+     * Partition without statistics has no zone maps and all of its rows are checked.
+     */
+    private void scan(long lo, long hi) throws JournalException {
+        ZoneMap zoneMaps[] = new ZoneMap[ranges.size()];
+        for (int i = 0; i < zoneMaps.length; i++) {
+            zoneMaps[i] = partition.getZoneMap(ranges.get(i).getColumnIndex());
+        }
+        int blockBits = zoneMaps.length > 0 ? JournalConfiguration.ZONE_MAP_BLOCK_BITS : 63;
+
+        long blockLo = lo;
+        while (blockLo <= hi) {
+            int block = (int) (blockLo >>> blockBits);
+            long blockHi = Math.min((((long) block + 1) << blockBits) - 1, hi);
+
+            boolean mayMatch = true;
+            for (int i = 0; i < zoneMaps.length && mayMatch; i++) {
+                mayMatch = zoneMaps[i] == null || ranges.get(i).mayMatch(zoneMaps[i].getBlock(block));
+            }
+
+            if (mayMatch) {
+                for (long localRowID = blockLo; localRowID <= blockHi; localRowID++) {
+                    if (matchesRanges(localRowID)) {
+                        result.add(Rows.toRowID(partition.getPartitionIndex(), localRowID));
+                    }
+                }
+            }
+            blockLo = blockHi + 1;
+        }
+    }
+
+    private boolean matchesRanges(long localRowID) {
+        for (int i = 0, n = ranges.size(); i < n; i++) {
+            if (!ranges.get(i).matches(partition, localRowID)) {
+                return false;
+            }
+        }
+        return true;
+    }
 }
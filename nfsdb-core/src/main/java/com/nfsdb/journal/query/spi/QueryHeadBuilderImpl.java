@@ -22,10 +22,16 @@ import com.nfsdb.journal.UnorderedResultSet;
 import com.nfsdb.journal.UnorderedResultSetBuilder;
 import com.nfsdb.journal.collections.IntArrayList;
 import com.nfsdb.journal.collections.LongArrayList;
+import com.nfsdb.journal.column.ColumnStats;
 import com.nfsdb.journal.column.SymbolTable;
 import com.nfsdb.journal.exceptions.JournalException;
+import com.nfsdb.journal.index.BitmapIndex;
 import com.nfsdb.journal.index.KVIndex;
+import com.nfsdb.journal.index.RowBitmap;
+import com.nfsdb.journal.index.experimental.AndCursor;
+import com.nfsdb.journal.index.experimental.Cursor;
 import com.nfsdb.journal.query.api.QueryHeadBuilder;
+import com.nfsdb.journal.utils.RadixSort;
 import com.nfsdb.journal.utils.Rows;
 import org.joda.time.Interval;
 
@@ -104,6 +110,14 @@ public class QueryHeadBuilderImpl<T> implements QueryHeadBuilder<T> {
     }
 
     public UnorderedResultSet<T> asResultSet() throws JournalException {
+        // head index only knows latest row of each key, older rows are needed for interval and non-strict filters
+        if (interval == null && (strict || filterSymbols.isEmpty())) {
+            KVIndex headIndex = journal.getHeadIndex(symbolColumnIndex);
+            if (headIndex != null) {
+                return headIndexResultSet(headIndex);
+            }
+        }
+
         final int minPartitionIndex;
         final long minLocalRowID;
 
@@ -119,14 +133,19 @@ public class QueryHeadBuilderImpl<T> implements QueryHeadBuilder<T> {
 
         return journal.iteratePartitionsDesc(
                 new UnorderedResultSetBuilder<T>(interval) {
+                    private final int filterColumnIndexes[] = new int[filterSymbolKeys.size()];
+                    private final boolean bitmapColumns[] = new boolean[filterSymbolKeys.size()];
                     private final KVIndex filterKVIndexes[] = new KVIndex[filterSymbolKeys.size()];
-                    private final LongArrayList filterSymbolRows[] = new LongArrayList[filterSymbolKeys.size()];
+                    private boolean bitmapFilters = filterSymbols.size() > 0;
                     private IntArrayList keys = symbolKeys;
                     private IntArrayList remainingKeys = new IntArrayList(keys.size());
+                    private RowBitmap filterBitmap;
 
                     {
-                        for (int i = 0; i < filterSymbolRows.length; i++) {
-                            filterSymbolRows[i] = new LongArrayList();
+                        for (int i = 0; i < filterColumnIndexes.length; i++) {
+                            filterColumnIndexes[i] = QueryHeadBuilderImpl.this.journal.getMetadata().getColumnIndex(filterSymbols.get(i));
+                            bitmapColumns[i] = QueryHeadBuilderImpl.this.journal.getMetadata().getColumnMetadata(filterColumnIndexes[i]).bitmap;
+                            bitmapFilters &= bitmapColumns[i];
                         }
                     }
 
@@ -138,71 +157,181 @@ public class QueryHeadBuilderImpl<T> implements QueryHeadBuilder<T> {
 
                     @Override
                     public void read(long lo, long hi) throws JournalException {
+                        if (!mayHaveKeys()) {
+                            return;
+                        }
+
                         KVIndex index = partition.getIndexForColumn(symbolColumnIndex);
 
-                        boolean filterOk = true;
-                        for (int i = 0; i < filterSymbols.size(); i++) {
-                            filterKVIndexes[i] = partition.getIndexForColumn(filterSymbols.get(i));
-                            int filterKey = filterSymbolKeys.getQuick(i);
-                            if (filterKVIndexes[i].contains(filterKey)) {
-                                filterSymbolRows[i].setCapacity(filterKVIndexes[i].getValueCount(filterKey));
-                                filterKVIndexes[i].getValues(filterKey, filterSymbolRows[i]);
-                            } else {
-                                filterOk = false;
-                                break;
+                        // bitmap indexes AND all filters into single bitmap instead of leapfrogging cursors of each filter
+                        filterBitmap = null;
+                        if (bitmapFilters) {
+                            for (int i = 0; i < filterSymbols.size(); i++) {
+                                BitmapIndex bitmapIndex = partition.getBitmapIndex(filterColumnIndexes[i]);
+                                if (bitmapIndex == null) {
+                                    // partition is too large for bitmap index
+                                    filterBitmap = null;
+                                    break;
+                                }
+                                RowBitmap bitmap = bitmapIndex.getBitmap(filterSymbolKeys.getQuick(i));
+                                filterBitmap = filterBitmap == null ? bitmap : filterBitmap.and(bitmap);
+                            }
+                            if (filterBitmap != null && filterBitmap.isEmpty()) {
+                                return;
+                            }
+                        }
+                        if (filterBitmap == null) {
+                            for (int i = 0; i < filterSymbols.size(); i++) {
+                                filterKVIndexes[i] = partition.getIndexForColumn(filterColumnIndexes[i]);
+                                if (!filterKVIndexes[i].contains(filterSymbolKeys.getQuick(i))) {
+                                    return;
+                                }
                             }
-
                         }
 
-                        if (filterOk) {
-                            for (int k = 0; k < keys.size(); k++) {
-                                int key = keys.getQuick(k);
-                                boolean found = false;
-                                KVIndex.IndexCursor cursor = index.cachedCursor(key);
+                        // rows below floor either precede read range or are older than minRowID
+                        long floor = partition.getPartitionIndex() > minPartitionIndex ? lo : Math.max(lo, minLocalRowID + 1);
+
+                        for (int k = 0; k < keys.size(); k++) {
+                            int key = keys.getQuick(k);
+                            boolean found;
+                            KVIndex.IndexCursor cursor = index.cursor(key);
+                            Cursor filter = filterCursor();
 
-                                NEXT_KEY:
-                                while (cursor.hasNext()) {
+                            if (strict) {
+                                // only the most recent row of key is checked against filters
+                                found = cursor.skipTo(hi);
+                                if (found) {
                                     long localRowID = cursor.next();
-                                    if (localRowID <= hi && localRowID >= lo && (partition.getPartitionIndex() > minPartitionIndex || localRowID > minLocalRowID)) {
-
-                                        boolean matches = true;
-                                        for (LongArrayList filterRows : filterSymbolRows) {
-                                            if (filterRows.binarySearch(localRowID) < 0) {
-                                                matches = false;
-                                                if (strict) {
-                                                    found = true;
-                                                    break NEXT_KEY;
-                                                } else {
-                                                    break;
-                                                }
-                                            }
-                                        }
-
-                                        if (matches) {
-                                            result.add(Rows.toRowID(partition.getPartitionIndex(), localRowID));
-                                            found = true;
-                                            break;
-                                        }
-
-                                    } else if (localRowID < lo || (partition.getPartitionIndex() <= minPartitionIndex && localRowID <= minLocalRowID)) {
-                                        // localRowID is only going to get lower, so fail fast
-                                        found = true;
-                                        break;
+                                    if (localRowID >= floor && (filter == null || filter.skipTo(localRowID) && filter.next() == localRowID)) {
+                                        result.add(Rows.toRowID(partition.getPartitionIndex(), localRowID));
                                     }
                                 }
-
-                                if (!found) {
-                                    remainingKeys.add(key);
+                            } else {
+                                Cursor rows = filter == null ? cursor : new AndCursor(cursor, filter);
+                                if (rows.skipTo(hi)) {
+                                    long localRowID = rows.next();
+                                    if (localRowID >= floor) {
+                                        result.add(Rows.toRowID(partition.getPartitionIndex(), localRowID));
+                                    }
+                                    found = true;
+                                } else {
+                                    // localRowID is only going to get lower, so fail fast when key has rows below floor
+                                    found = index.cursor(key).skipTo(floor - 1);
                                 }
                             }
-                            IntArrayList temp = keys;
-                            keys = remainingKeys;
-                            remainingKeys = temp;
-                            remainingKeys.resetQuick();
+
+                            if (!found) {
+                                remainingKeys.add(key);
+                            }
+                        }
+                        IntArrayList temp = keys;
+                        keys = remainingKeys;
+                        remainingKeys = temp;
+                        remainingKeys.resetQuick();
+                    }
+
+                    /**
+                     * Composes filters lazily, cursors of filter keys are leapfrogged instead of loading their rows.
+                     *
+                     * @return cursor of rows matching all filters, null when there are no filters
+                     */
+                    private Cursor filterCursor() throws JournalException {
+                        if (filterBitmap != null) {
+                            return filterBitmap.cursor();
                         }
 
+                        Cursor cursor = null;
+                        for (int i = 0; i < filterSymbols.size(); i++) {
+                            int filterKey = filterSymbolKeys.getQuick(i);
+                            BitmapIndex bitmapIndex = bitmapColumns[i] ? partition.getBitmapIndex(filterColumnIndexes[i]) : null;
+                            Cursor c = bitmapIndex == null ? filterKVIndexes[i].cursor(filterKey) : bitmapIndex.cursor(filterKey);
+                            cursor = cursor == null ? c : new AndCursor(cursor, c);
+                        }
+                        return cursor;
+                    }
+
+                    // partition statistics rule out partitions without keys before indexes are opened
+                    private boolean mayHaveKeys() throws JournalException {
+                        for (int i = 0; i < filterSymbols.size(); i++) {
+                            ColumnStats stats = partition.getStats(filterColumnIndexes[i]);
+                            if (stats != null && !stats.containsKey(filterSymbolKeys.getQuick(i))) {
+                                return false;
+                            }
+                        }
+
+                        ColumnStats stats = partition.getStats(symbolColumnIndex);
+                        if (stats == null) {
+                            return true;
+                        }
+                        for (int k = 0; k < keys.size(); k++) {
+                            if (stats.containsKey(keys.getQuick(k))) {
+                                return true;
+                            }
+                        }
+                        return false;
                     }
                 }
         );
     }
+
+    /**
+     * Looks up latest row of each key in head index, cost is proportional to number of keys and not to depth
+     * of history. Lag partition is not covered by head index, its rows are the most recent, so it is checked first.
+     * Rows are ordered as if partitions were iterated newest first.
+     */
+    private UnorderedResultSet<T> headIndexResultSet(KVIndex headIndex) throws JournalException {
+        Partition<T> lag = journal.getIrregularPartition();
+        KVIndex lagIndex = lag == null ? null : lag.open().getIndexForColumn(symbolColumnIndex);
+        int filterColumnIndexes[] = new int[filterSymbols.size()];
+        for (int i = 0; i < filterColumnIndexes.length; i++) {
+            filterColumnIndexes[i] = journal.getMetadata().getColumnIndex(filterSymbols.get(i));
+        }
+
+        long[] partitionOrder = new long[symbolKeys.size()];
+        int[] rowIndexes = new int[symbolKeys.size()];
+        long[] rowIDs = new long[symbolKeys.size()];
+        int n = 0;
+
+        for (int k = 0; k < symbolKeys.size(); k++) {
+            int key = symbolKeys.getQuick(k);
+            long rowID;
+            if (lagIndex != null && lagIndex.contains(key)) {
+                rowID = Rows.toRowID(lag.getPartitionIndex(), lagIndex.lastValue(key));
+            } else if (headIndex.contains(key)) {
+                rowID = headIndex.lastValue(key);
+            } else {
+                continue;
+            }
+
+            if (rowID <= minRowID) {
+                continue;
+            }
+
+            int partitionIndex = Rows.toPartitionIndex(rowID);
+            if (filterColumnIndexes.length > 0) {
+                Partition<T> partition = journal.getPartition(partitionIndex, true);
+                long localRowID = Rows.toLocalRowID(rowID);
+                boolean match = true;
+                for (int i = 0; i < filterColumnIndexes.length && match; i++) {
+                    match = partition.getInt(localRowID, filterColumnIndexes[i]) == filterSymbolKeys.getQuick(i);
+                }
+                if (!match) {
+                    continue;
+                }
+            }
+
+            partitionOrder[n] = -partitionIndex;
+            rowIndexes[n] = n;
+            rowIDs[n] = rowID;
+            n++;
+        }
+
+        RadixSort.sort(partitionOrder, rowIndexes, n);
+        LongArrayList result = new LongArrayList();
+        for (int i = 0; i < n; i++) {
+            result.add(rowIDs[rowIndexes[i]]);
+        }
+        return new UnorderedResultSet<>(journal, result);
+    }
 }
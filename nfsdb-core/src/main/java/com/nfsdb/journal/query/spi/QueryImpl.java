@@ -20,6 +20,7 @@ import com.nfsdb.journal.Journal;
 import com.nfsdb.journal.query.api.Query;
 import com.nfsdb.journal.query.api.QueryAll;
 import com.nfsdb.journal.query.api.QueryHead;
+import com.nfsdb.journal.query.api.QuerySample;
 
 public class QueryImpl<T> implements Query<T> {
 
@@ -43,6 +44,11 @@ public class QueryImpl<T> implements Query<T> {
         return headImpl;
     }
 
+    @Override
+    public QuerySample<T> sample(long bucketMillis) {
+        return new QuerySampleImpl<>(journal, bucketMillis);
+    }
+
     @Override
     public Journal<T> getJournal() {
         return journal;
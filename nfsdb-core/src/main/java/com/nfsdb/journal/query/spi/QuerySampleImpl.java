@@ -0,0 +1,255 @@
+/*
+ * Copyright (c) 2014. Vlad Ilyushchenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nfsdb.journal.query.spi;
+
+import com.nfsdb.journal.AbstractResultSetBuilder;
+import com.nfsdb.journal.Journal;
+import com.nfsdb.journal.Partition;
+import com.nfsdb.journal.PartitionReducer;
+import com.nfsdb.journal.SampleResult;
+import com.nfsdb.journal.column.ColumnType;
+import com.nfsdb.journal.column.FixedColumn;
+import com.nfsdb.journal.column.SymbolTable;
+import com.nfsdb.journal.column.ZoneMap;
+import com.nfsdb.journal.exceptions.JournalException;
+import com.nfsdb.journal.exceptions.JournalRuntimeException;
+import com.nfsdb.journal.factory.JournalMetadata;
+import com.nfsdb.journal.query.api.QuerySample;
+import gnu.trove.impl.Constants;
+import gnu.trove.map.hash.TIntIntHashMap;
+import org.joda.time.Interval;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+public class QuerySampleImpl<T> implements QuerySample<T> {
+
+    private static final int NO_GROUP = -1;
+    private final Journal<T> journal;
+    private final long bucketMillis;
+    private final List<SampleResult.Function> functions = new ArrayList<>();
+    private final List<String> columns = new ArrayList<>();
+    private String symbol;
+    private BitSet symbolKeys;
+    private Interval interval;
+    private ExecutorService executor;
+
+    public QuerySampleImpl(Journal<T> journal, long bucketMillis) {
+        if (bucketMillis <= 0) {
+            throw new JournalRuntimeException("Invalid bucket: %d", bucketMillis);
+        }
+        this.journal = journal;
+        this.bucketMillis = bucketMillis;
+    }
+
+    @Override
+    public QuerySample<T> by(String symbol, String... values) {
+        SymbolTable symbolTable = journal.getSymbolTable(symbol);
+        this.symbol = symbol;
+        this.symbolKeys = null;
+        if (values != null && values.length > 0) {
+            this.symbolKeys = new BitSet();
+            for (String value : values) {
+                int key = symbolTable.getQuick(value);
+                if (key >= 0) {
+                    symbolKeys.set(key);
+                }
+            }
+        }
+        return this;
+    }
+
+    @Override
+    public QuerySample<T> slice(Interval interval) {
+        this.interval = interval;
+        return this;
+    }
+
+    @Override
+    public QuerySample<T> count() {
+        functions.add(SampleResult.Function.COUNT);
+        columns.add(null);
+        return this;
+    }
+
+    @Override
+    public QuerySample<T> sum(String column) {
+        return add(SampleResult.Function.SUM, column);
+    }
+
+    @Override
+    public QuerySample<T> min(String column) {
+        return add(SampleResult.Function.MIN, column);
+    }
+
+    @Override
+    public QuerySample<T> max(String column) {
+        return add(SampleResult.Function.MAX, column);
+    }
+
+    @Override
+    public QuerySample<T> avg(String column) {
+        return add(SampleResult.Function.AVG, column);
+    }
+
+    @Override
+    public QuerySample<T> first(String column) {
+        return add(SampleResult.Function.FIRST, column);
+    }
+
+    @Override
+    public QuerySample<T> last(String column) {
+        return add(SampleResult.Function.LAST, column);
+    }
+
+    @Override
+    public QuerySample<T> parallel(ExecutorService executor) {
+        this.executor = executor;
+        return this;
+    }
+
+    @Override
+    public SampleResult asResult() throws JournalException {
+        JournalMetadata<T> metadata = journal.getMetadata();
+        final SampleResult.Function[] functions = this.functions.toArray(new SampleResult.Function[this.functions.size()]);
+        final int[] columnIndexes = new int[functions.length];
+        final ColumnType[] types = new ColumnType[functions.length];
+        for (int a = 0; a < functions.length; a++) {
+            String column = columns.get(a);
+            columnIndexes[a] = column == null ? -1 : metadata.getColumnIndex(column);
+            types[a] = column == null ? null : metadata.getColumnMetadata(columnIndexes[a]).type;
+        }
+        final int timestampColumnIndex = metadata.getTimestampColumnIndex();
+        final int symbolColumnIndex = symbol == null ? -1 : metadata.getColumnIndex(symbol);
+        final SymbolTable symbolTable = symbol == null ? null : journal.getSymbolTable(symbol);
+        final BitSet symbolKeys = this.symbolKeys;
+        final Interval interval = this.interval;
+
+        PartitionReducer<T, SampleResult> reducer = new PartitionReducer<T, SampleResult>() {
+            @Override
+            public SampleResult read(Partition<T> partition) throws JournalException {
+                SampleBuilder builder = new SampleBuilder(interval, new SampleResult(symbolTable, functions, types), timestampColumnIndex, symbolColumnIndex, symbolKeys, columnIndexes, types);
+                builder.setJournal(journal);
+                return builder.next(partition, false) ? null : builder.getResult();
+            }
+
+            @Override
+            public SampleResult merge(SampleResult older, SampleResult newer) {
+                return older.merge(newer);
+            }
+        };
+        SampleResult result = executor == null ? journal.reducePartitions(reducer) : journal.reducePartitionsParallel(reducer, executor);
+        return result == null ? new SampleResult(symbolTable, functions, types) : result;
+    }
+
+    private QuerySample<T> add(SampleResult.Function function, String column) {
+        ColumnType type = journal.getMetadata().getColumnMetadata(column).type;
+        if (!ZoneMap.supports(type)) {
+            throw new JournalRuntimeException("Aggregation is not supported on %s column: %s", type, column);
+        }
+        functions.add(function);
+        columns.add(column);
+        return this;
+    }
+
+    /**
+     * Aggregates rows of single partition. Rows are in timestamp order, so groups of one time bucket are looked up by
+     * symbol key only and forgotten when bucket changes.
+     */
+    private class SampleBuilder extends AbstractResultSetBuilder<T, SampleResult> {
+        private final SampleResult sample;
+        private final int timestampColumnIndex;
+        private final int symbolColumnIndex;
+        private final BitSet symbolKeys;
+        private final int[] columnIndexes;
+        private final ColumnType[] types;
+        private final TIntIntHashMap groups = new TIntIntHashMap(Constants.DEFAULT_CAPACITY, Constants.DEFAULT_LOAD_FACTOR, Integer.MIN_VALUE, NO_GROUP);
+
+        private SampleBuilder(Interval interval, SampleResult sample, int timestampColumnIndex, int symbolColumnIndex, BitSet symbolKeys, int[] columnIndexes, ColumnType[] types) {
+            super(interval);
+            this.sample = sample;
+            this.timestampColumnIndex = timestampColumnIndex;
+            this.symbolColumnIndex = symbolColumnIndex;
+            this.symbolKeys = symbolKeys;
+            this.columnIndexes = columnIndexes;
+            this.types = types;
+        }
+
+        @Override
+        public void read(long lo, long hi) throws JournalException {
+            FixedColumn timestamps = (FixedColumn) partition.getAbstractColumn(timestampColumnIndex);
+            FixedColumn symbols = symbolColumnIndex == -1 ? null : (FixedColumn) partition.getAbstractColumn(symbolColumnIndex);
+            FixedColumn[] values = new FixedColumn[columnIndexes.length];
+            for (int a = 0; a < values.length; a++) {
+                values[a] = columnIndexes[a] == -1 ? null : (FixedColumn) partition.getAbstractColumn(columnIndexes[a]);
+            }
+
+            long bucket = Long.MIN_VALUE;
+            for (long localRowID = lo; localRowID <= hi; localRowID++) {
+                int key = symbols == null ? 0 : symbols.getInt(localRowID);
+                if (symbolKeys != null && (key < 0 || !symbolKeys.get(key))) {
+                    continue;
+                }
+
+                long timestamp = timestamps.getLong(localRowID);
+                long remainder = timestamp % bucketMillis;
+                long rowBucket = timestamp - (remainder < 0 ? remainder + bucketMillis : remainder);
+                if (rowBucket != bucket) {
+                    bucket = rowBucket;
+                    groups.clear();
+                }
+
+                int group = groups.get(key);
+                if (group == NO_GROUP) {
+                    group = sample.addGroup(bucket, key);
+                    groups.put(key, group);
+                }
+
+                for (int a = 0; a < values.length; a++) {
+                    FixedColumn column = values[a];
+                    if (column == null) {
+                        sample.count(group, a);
+                    } else if (!partition.isNull(localRowID, columnIndexes[a])) {
+                        switch (types[a]) {
+                            case BYTE:
+                                sample.add(group, a, (long) column.getByte(localRowID));
+                                break;
+                            case SHORT:
+                                sample.add(group, a, (long) column.getShort(localRowID));
+                                break;
+                            case INT:
+                                sample.add(group, a, (long) column.getInt(localRowID));
+                                break;
+                            case LONG:
+                                sample.add(group, a, column.getLong(localRowID));
+                                break;
+                            default:
+                                sample.add(group, a, column.getDouble(localRowID));
+                        }
+                    }
+                }
+            }
+        }
+
+        @Override
+        public SampleResult getResult() {
+            return sample;
+        }
+    }
+}
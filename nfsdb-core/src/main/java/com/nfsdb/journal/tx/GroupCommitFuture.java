@@ -0,0 +1,51 @@
+/*
+ * Copyright (c) 2014. Vlad Ilyushchenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.nfsdb.journal.tx;
+
+import com.nfsdb.journal.exceptions.JournalRuntimeException;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Future of transaction committed in group commit mode. Completes when group containing
+ * this transaction is made durable or discarded.
+ */
+public class GroupCommitFuture implements TxFuture {
+
+    private final CountDownLatch latch = new CountDownLatch(1);
+    private volatile boolean durable;
+
+    @Override
+    public boolean waitFor(long time, TimeUnit unit) {
+        try {
+            return latch.await(time, unit) && durable;
+        } catch (InterruptedException e) {
+            throw new JournalRuntimeException(e);
+        }
+    }
+
+    public boolean isDone() {
+        return latch.getCount() == 0;
+    }
+
+    public void complete(boolean durable) {
+        this.durable = durable;
+        latch.countDown();
+    }
+}
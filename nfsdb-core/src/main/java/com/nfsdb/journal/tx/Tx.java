@@ -36,7 +36,7 @@ public class Tx {
     public long lastPartitionTimestamp;
     // 8
     public long lagSize;
-    // 1 + 1 + 64
+    // 1 + 1 + 2 * lagName.len
     public String lagName;
     // 2 + 4 * symbolTableSizes.len
     public int symbolTableSizes[];
@@ -46,6 +46,8 @@ public class Tx {
     public long indexPointers[];
     // 2 + 8 * lagIndexPointers.len
     public long lagIndexPointers[];
+    // 2 + 8 * headIndexPointers.len, absent in transactions written before head indexes
+    public long headIndexPointers[];
 
     @Override
     public String toString() {
@@ -62,15 +64,17 @@ public class Tx {
                 ", symbolTableIndexPointers=" + Arrays.toString(symbolTableIndexPointers) +
                 ", indexPointers=" + Arrays.toString(indexPointers) +
                 ", lagIndexPointers=" + Arrays.toString(lagIndexPointers) +
+                ", headIndexPointers=" + Arrays.toString(headIndexPointers) +
                 ", size= " + size() + "}";
     }
 
     public int size() {
         return 8 + 1 + 8 + 8 + 8 + 8
-                + 1 + 1 + 64
+                + 1 + (lagName == null ? 0 : 1 + 2 * lagName.length())
                 + 2 + 4 * (symbolTableSizes == null ? 0 : symbolTableSizes.length)
                 + 2 + 8 * (symbolTableIndexPointers == null ? 0 : symbolTableIndexPointers.length)
                 + 2 + 8 * (indexPointers == null ? 0 : indexPointers.length)
-                + 2 + 8 * (lagIndexPointers == null ? 0 : lagIndexPointers.length);
+                + 2 + 8 * (lagIndexPointers == null ? 0 : lagIndexPointers.length)
+                + 2 + 8 * (headIndexPointers == null ? 0 : headIndexPointers.length);
     }
 }
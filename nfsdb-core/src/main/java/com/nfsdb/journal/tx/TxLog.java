@@ -26,7 +26,6 @@ import com.nfsdb.journal.utils.ByteBuffers;
 
 import java.io.File;
 import java.nio.ByteBuffer;
-import java.nio.MappedByteBuffer;
 
 public class TxLog {
 
@@ -99,10 +98,11 @@ public class TxLog {
         ByteBuffers.putLongW(buffer, tx.symbolTableIndexPointers);
         ByteBuffers.putLongW(buffer, tx.indexPointers);
         ByteBuffers.putLongW(buffer, tx.lagIndexPointers);
+        ByteBuffers.putLongW(buffer, tx.headIndexPointers);
 
         // write out tx address
         setTxAddress(offset);
-        address = offset + tx.size();
+        address = offset + 4 + tx.size();
         mf.setAppendOffset(address);
     }
 
@@ -149,7 +149,7 @@ public class TxLog {
         byte b5 = (byte) (address >> 40);
         byte b6 = (byte) (address >> 48);
         byte b7 = (byte) (address >> 56);
-        MappedByteBuffer buffer = mf.getBuffer(0, 9);
+        ByteBuffer buffer = mf.getBuffer(0, 9);
         int p = buffer.position();
         buffer.putLong(p, address);
         buffer.put(p + 8, (byte) (b0 ^ b1 ^ b2 ^ b3 ^ b4 ^ b5 ^ b6 ^ b7));
@@ -161,6 +161,7 @@ public class TxLog {
         ByteBuffer buffer = mf.getBuffer(address, 4);
         int txSize = buffer.getInt(buffer.position());
         buffer = mf.getBuffer(address + 4, txSize);
+        int txLimit = buffer.position() + txSize;
 
         tx.prevTxAddress = buffer.getLong();
         tx.command = buffer.get();
@@ -219,5 +220,14 @@ public class TxLog {
         for (int i = 0; i < sz; i++) {
             tx.lagIndexPointers[i] = buffer.getLong();
         }
+
+        //headIndexPointers
+        sz = buffer.position() < txLimit ? buffer.getChar() : 0;
+        if (tx.headIndexPointers == null || tx.headIndexPointers.length != sz) {
+            tx.headIndexPointers = new long[sz];
+        }
+        for (int i = 0; i < sz; i++) {
+            tx.headIndexPointers[i] = buffer.getLong();
+        }
     }
 }
@@ -114,6 +114,10 @@ public final class ByteBuffers {
         return buffer;
     }
 
+    public static long getAddress(ByteBuffer buffer) {
+        return ((DirectBuffer) buffer).address();
+    }
+
     public static void putStringW(ByteBuffer buffer, String value) {
         if (value == null) {
             buffer.putChar((char) 0);
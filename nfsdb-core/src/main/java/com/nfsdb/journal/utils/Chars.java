@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2014. Vlad Ilyushchenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.nfsdb.journal.utils;
+
+/**
+ * Content based equals, compare and hash of char sequences. Results are the same as of their String counterparts,
+ * so Strings and flyweight sequences can be mixed freely.
+ */
+public final class Chars {
+
+    private Chars() {
+    }
+
+    public static boolean equals(CharSequence l, CharSequence r) {
+        if (l == r) {
+            return true;
+        }
+        int len = l.length();
+        if (len != r.length()) {
+            return false;
+        }
+        for (int i = 0; i < len; i++) {
+            if (l.charAt(i) != r.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public static int compare(CharSequence l, CharSequence r) {
+        int ll = l.length();
+        int rl = r.length();
+        for (int i = 0, n = Math.min(ll, rl); i < n; i++) {
+            int d = l.charAt(i) - r.charAt(i);
+            if (d != 0) {
+                return d;
+            }
+        }
+        return ll - rl;
+    }
+
+    /**
+     * Same as {@link String#hashCode()}, but works for any char sequence.
+     */
+    public static int hashCode(CharSequence s) {
+        if (s instanceof String) {
+            return s.hashCode();
+        }
+        int h = 0;
+        for (int i = 0, len = s.length(); i < len; i++) {
+            h = 31 * h + s.charAt(i);
+        }
+        return h;
+    }
+}
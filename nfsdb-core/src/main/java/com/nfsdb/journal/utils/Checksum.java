@@ -16,6 +16,7 @@
 
 package com.nfsdb.journal.utils;
 
+import com.nfsdb.journal.column.StringEncoding;
 import com.nfsdb.journal.exceptions.JournalRuntimeException;
 import com.nfsdb.journal.factory.JournalMetadata;
 
@@ -56,6 +57,10 @@ public final class Checksum {
                 if (m.sameAs != null) {
                     flushBuf(md, buf, m.sameAs.length() * 2).put(m.sameAs.getBytes(Files.UTF_8));
                 }
+                // default encoding is left out to keep checksums of existing journals
+                if (m.encoding != StringEncoding.UTF16) {
+                    flushBuf(md, buf, m.encoding.name().length() * 2).put(m.encoding.name().getBytes(Files.UTF_8));
+                }
             }
             buf.flip();
             md.update(buf);
@@ -66,8 +71,62 @@ public final class Checksum {
         }
     }
 
-    public static int hash(String s, int M) {
-        return s == null ? 0 : (s.hashCode() & 0xFFFF) % M;
+    public static int hash(CharSequence s, int M) {
+        return hash(s, M, JournalMetadata.HASH_VERSION_LEGACY);
+    }
+
+    /**
+     * Maps value to one of M hash buckets.
+     *
+     * @param s       value, null values go to bucket 0
+     * @param M       number of buckets
+     * @param version one of JournalMetadata.HASH_VERSION_* constants
+     * @return bucket
+     */
+    public static int hash(CharSequence s, int M, int version) {
+        if (s == null) {
+            return 0;
+        }
+        switch (version) {
+            case JournalMetadata.HASH_VERSION_LEGACY:
+                return (Chars.hashCode(s) & 0xFFFF) % M;
+            default:
+                return (murmur3(s) & 0x7FFFFFFF) % M;
+        }
+    }
+
+    /**
+     * 32-bit Murmur3 of UTF-16 chars of value, two chars per block.
+     */
+    public static int murmur3(CharSequence s) {
+        final int c1 = 0xcc9e2d51;
+        final int c2 = 0x1b873593;
+        int len = s.length();
+        int h = 0;
+        int i = 1;
+        for (; i < len; i += 2) {
+            int k = s.charAt(i - 1) | (s.charAt(i) << 16);
+            k *= c1;
+            k = Integer.rotateLeft(k, 15);
+            k *= c2;
+            h ^= k;
+            h = Integer.rotateLeft(h, 13);
+            h = h * 5 + 0xe6546b64;
+        }
+        if ((len & 1) == 1) {
+            int k = s.charAt(len - 1);
+            k *= c1;
+            k = Integer.rotateLeft(k, 15);
+            k *= c2;
+            h ^= k;
+        }
+        h ^= len * 2;
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
     }
 
     private Checksum() {
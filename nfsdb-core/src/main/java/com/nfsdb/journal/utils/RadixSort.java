@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2014. Vlad Ilyushchenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nfsdb.journal.utils;
+
+import java.util.Arrays;
+
+/**
+ * Stable LSD radix sort of signed long keys, one byte per pass. Passes, where all keys have the same byte,
+ * are skipped, so that narrow keys such as symbol ranks or ints take two or four passes instead of eight.
+ */
+public final class RadixSort {
+
+    /**
+     * Sorts first n keys in ascending order and moves values together with their keys.
+     * Values of equal keys keep their relative order.
+     */
+    public static void sort(long[] keys, int[] values, int n) {
+        if (n < 2) {
+            return;
+        }
+
+        long[] k = keys;
+        int[] v = values;
+        long[] tmpKeys = new long[n];
+        int[] tmpValues = new int[n];
+        int[] counts = new int[256];
+
+        for (int shift = 0; shift < 64; shift += 8) {
+            Arrays.fill(counts, 0);
+            for (int i = 0; i < n; i++) {
+                counts[digit(k[i], shift)]++;
+            }
+
+            if (counts[digit(k[0], shift)] == n) {
+                continue;
+            }
+
+            int pos = 0;
+            for (int d = 0; d < 256; d++) {
+                int count = counts[d];
+                counts[d] = pos;
+                pos += count;
+            }
+
+            for (int i = 0; i < n; i++) {
+                int p = counts[digit(k[i], shift)]++;
+                tmpKeys[p] = k[i];
+                tmpValues[p] = v[i];
+            }
+
+            long[] swapKeys = k;
+            k = tmpKeys;
+            tmpKeys = swapKeys;
+            int[] swapValues = v;
+            v = tmpValues;
+            tmpValues = swapValues;
+        }
+
+        if (k != keys) {
+            System.arraycopy(k, 0, keys, 0, n);
+            System.arraycopy(v, 0, values, 0, n);
+        }
+    }
+
+    /**
+     * Maps double to long, which has the same order when compared as signed long.
+     */
+    public static long toSortableLong(double value) {
+        long bits = Double.doubleToLongBits(value);
+        return bits ^ ((bits >> 63) & Long.MAX_VALUE);
+    }
+
+    private static int digit(long key, int shift) {
+        // flipping sign bit makes signed order of keys unsigned order of bytes
+        return (int) ((key ^ Long.MIN_VALUE) >>> shift) & 0xff;
+    }
+
+    private RadixSort() {
+    }
+}
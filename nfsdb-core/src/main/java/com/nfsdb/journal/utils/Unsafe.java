@@ -21,6 +21,11 @@ import com.nfsdb.journal.exceptions.JournalRuntimeException;
 import java.lang.reflect.Field;
 
 public final class Unsafe {
+    public static final long BYTE_ARRAY_OFFSET;
+    public static final long CHAR_ARRAY_OFFSET;
+    public static final long INT_ARRAY_OFFSET;
+    public static final long LONG_ARRAY_OFFSET;
+    public static final long DOUBLE_ARRAY_OFFSET;
     private static final sun.misc.Unsafe UNSAFE;
 
     public static sun.misc.Unsafe getUnsafe() {
@@ -32,6 +37,11 @@ public final class Unsafe {
             Field theUnsafe = sun.misc.Unsafe.class.getDeclaredField("theUnsafe");
             theUnsafe.setAccessible(true);
             UNSAFE = (sun.misc.Unsafe) theUnsafe.get(null);
+            BYTE_ARRAY_OFFSET = UNSAFE.arrayBaseOffset(byte[].class);
+            CHAR_ARRAY_OFFSET = UNSAFE.arrayBaseOffset(char[].class);
+            INT_ARRAY_OFFSET = UNSAFE.arrayBaseOffset(int[].class);
+            LONG_ARRAY_OFFSET = UNSAFE.arrayBaseOffset(long[].class);
+            DOUBLE_ARRAY_OFFSET = UNSAFE.arrayBaseOffset(double[].class);
         } catch (Exception e) {
             throw new JournalRuntimeException(e);
         }
@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) 2014. Vlad Ilyushchenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.nfsdb.journal.utils;
+
+/**
+ * UTF-8 encoding and decoding of char sequences directly to and from native memory. Unpaired surrogates are
+ * encoded as three bytes, same as any other char above 0x7FF (WTF-8), so that every char sequence survives round
+ * trip and distinct values never share an encoding.
+ */
+public final class Utf8 {
+
+    private Utf8() {
+    }
+
+    /**
+     * Number of bytes {@link #encode(long, CharSequence)} writes for value.
+     */
+    public static int encodedLength(CharSequence value) {
+        int n = 0;
+        for (int i = 0, len = value.length(); i < len; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                n++;
+            } else if (c < 0x800) {
+                n += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < len && Character.isLowSurrogate(value.charAt(i + 1))) {
+                n += 4;
+                i++;
+            } else {
+                n += 3;
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Writes UTF-8 bytes of value at address.
+     *
+     * @return address of byte following the last one written
+     */
+    public static long encode(long address, CharSequence value) {
+        for (int i = 0, len = value.length(); i < len; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                Unsafe.getUnsafe().putByte(address++, (byte) c);
+            } else if (c < 0x800) {
+                Unsafe.getUnsafe().putByte(address++, (byte) (0xC0 | (c >> 6)));
+                Unsafe.getUnsafe().putByte(address++, (byte) (0x80 | (c & 0x3F)));
+            } else if (Character.isHighSurrogate(c) && i + 1 < len && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, value.charAt(++i));
+                Unsafe.getUnsafe().putByte(address++, (byte) (0xF0 | (cp >> 18)));
+                Unsafe.getUnsafe().putByte(address++, (byte) (0x80 | ((cp >> 12) & 0x3F)));
+                Unsafe.getUnsafe().putByte(address++, (byte) (0x80 | ((cp >> 6) & 0x3F)));
+                Unsafe.getUnsafe().putByte(address++, (byte) (0x80 | (cp & 0x3F)));
+            } else {
+                Unsafe.getUnsafe().putByte(address++, (byte) (0xE0 | (c >> 12)));
+                Unsafe.getUnsafe().putByte(address++, (byte) (0x80 | ((c >> 6) & 0x3F)));
+                Unsafe.getUnsafe().putByte(address++, (byte) (0x80 | (c & 0x3F)));
+            }
+        }
+        return address;
+    }
+
+    /**
+     * Decodes size bytes at address into target, which must have room for at least size chars.
+     *
+     * @return number of chars decoded
+     */
+    public static int decode(long address, int size, char[] target) {
+        long lim = address + size;
+        int n = 0;
+        while (address < lim) {
+            int b = Unsafe.getUnsafe().getByte(address++);
+            if (b >= 0) {
+                target[n++] = (char) b;
+            } else if ((b & 0xE0) == 0xC0) {
+                target[n++] = (char) (((b & 0x1F) << 6) | (Unsafe.getUnsafe().getByte(address++) & 0x3F));
+            } else if ((b & 0xF0) == 0xE0) {
+                int b2 = Unsafe.getUnsafe().getByte(address++);
+                int b3 = Unsafe.getUnsafe().getByte(address++);
+                target[n++] = (char) (((b & 0x0F) << 12) | ((b2 & 0x3F) << 6) | (b3 & 0x3F));
+            } else {
+                int b2 = Unsafe.getUnsafe().getByte(address++);
+                int b3 = Unsafe.getUnsafe().getByte(address++);
+                int b4 = Unsafe.getUnsafe().getByte(address++);
+                int cp = ((b & 0x07) << 18) | ((b2 & 0x3F) << 12) | ((b3 & 0x3F) << 6) | (b4 & 0x3F);
+                target[n++] = Character.highSurrogate(cp);
+                target[n++] = Character.lowSurrogate(cp);
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Compares size UTF-8 bytes at address to value without decoding them into memory.
+     */
+    public static boolean equals(long address, int size, CharSequence value) {
+        long lim = address + size;
+        int len = value.length();
+        // each char takes between one and three bytes, surrogate pairs take four
+        if (len > size || len * 3 < size) {
+            return false;
+        }
+        int i = 0;
+        while (address < lim) {
+            if (i == len) {
+                return false;
+            }
+            int b = Unsafe.getUnsafe().getByte(address);
+            if (b >= 0) {
+                if (value.charAt(i++) != b) {
+                    return false;
+                }
+                address++;
+            } else if ((b & 0xE0) == 0xC0) {
+                if (address + 2 > lim || value.charAt(i++) != (char) (((b & 0x1F) << 6) | (Unsafe.getUnsafe().getByte(address + 1) & 0x3F))) {
+                    return false;
+                }
+                address += 2;
+            } else if ((b & 0xF0) == 0xE0) {
+                if (address + 3 > lim) {
+                    return false;
+                }
+                int b2 = Unsafe.getUnsafe().getByte(address + 1);
+                int b3 = Unsafe.getUnsafe().getByte(address + 2);
+                if (value.charAt(i++) != (char) (((b & 0x0F) << 12) | ((b2 & 0x3F) << 6) | (b3 & 0x3F))) {
+                    return false;
+                }
+                address += 3;
+            } else {
+                if (address + 4 > lim || i + 2 > len) {
+                    return false;
+                }
+                int b2 = Unsafe.getUnsafe().getByte(address + 1);
+                int b3 = Unsafe.getUnsafe().getByte(address + 2);
+                int b4 = Unsafe.getUnsafe().getByte(address + 3);
+                int cp = ((b & 0x07) << 18) | ((b2 & 0x3F) << 12) | ((b3 & 0x3F) << 6) | (b4 & 0x3F);
+                if (value.charAt(i++) != Character.highSurrogate(cp) || value.charAt(i++) != Character.lowSurrogate(cp)) {
+                    return false;
+                }
+                address += 4;
+            }
+        }
+        return i == len;
+    }
+}
@@ -16,21 +16,32 @@
 
 package com.nfsdb.journal;
 
+import com.nfsdb.journal.column.BlockCodec;
+import com.nfsdb.journal.column.CompressedMappedFile;
+import com.nfsdb.journal.column.DirectCharSequence;
 import com.nfsdb.journal.column.FixedColumn;
 import com.nfsdb.journal.column.MappedFile;
 import com.nfsdb.journal.column.MappedFileImpl;
+import com.nfsdb.journal.column.StringEncoding;
 import com.nfsdb.journal.column.VariableColumn;
 import com.nfsdb.journal.exceptions.JournalException;
+import com.nfsdb.journal.exceptions.JournalRuntimeException;
 import com.nfsdb.journal.test.tools.RandomString;
 import com.nfsdb.journal.test.tools.TestUtils;
 import com.nfsdb.journal.utils.ByteBuffers;
+import com.nfsdb.journal.utils.Chars;
 import com.nfsdb.journal.utils.Files;
+import com.nfsdb.journal.utils.Unsafe;
 import org.junit.*;
 import org.junit.rules.TemporaryFolder;
 
 import java.io.File;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Random;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class ColumnTest {
     @Rule
@@ -78,6 +89,110 @@ public class ColumnTest {
         }
     }
 
+    @Test
+    public void testFixedColumnAcrossPages() throws JournalException {
+        // 1KB pages make sure reads hop between many mapped buffers
+        MappedFile mf = new MappedFileImpl(dataFile, 10, JournalMode.APPEND);
+        try (FixedColumn col = new FixedColumn(mf, 8)) {
+            for (int i = 0; i < 10000; i++) {
+                col.putLong(i * 3L);
+                col.commit();
+            }
+        }
+
+        MappedFile mf2 = new MappedFileImpl(dataFile, 10, JournalMode.READ);
+        try (FixedColumn col = new FixedColumn(mf2, 8)) {
+            Assert.assertEquals(10000, col.size());
+            for (int i = 9999; i >= 0; i--) {
+                Assert.assertEquals(i * 3L, col.getLong(i));
+            }
+            ByteBuffer bb = col.getBuffer(500);
+            Assert.assertEquals(1500L, bb.getLong(bb.position()));
+        }
+    }
+
+    @Test
+    public void testReadBeyondEndOfFile() throws JournalException {
+        MappedFile mf = new MappedFileImpl(dataFile, 10, JournalMode.APPEND);
+        try (FixedColumn col = new FixedColumn(mf, 8)) {
+            for (int i = 0; i < 10; i++) {
+                col.putLong(i);
+                col.commit();
+            }
+            // file ends where data ends, so READ mode maps page only up to end of data
+            col.compact();
+        }
+
+        MappedFile mf2 = new MappedFileImpl(dataFile, 10, JournalMode.READ);
+        try {
+            Assert.assertEquals(9L, Unsafe.getUnsafe().getLong(mf2.getAddress(72, 8)));
+            // offset past limit of page, which is mapped up to end of file, is an error, not a crash
+            try {
+                mf2.getBuffer(200, 8);
+                Assert.fail();
+            } catch (JournalRuntimeException ignore) {
+                // expected
+            }
+            try {
+                mf2.getAddress(200, 8);
+                Assert.fail();
+            } catch (JournalRuntimeException ignore) {
+                // expected
+            }
+            try {
+                mf2.getAddress(5000, 8);
+                Assert.fail();
+            } catch (JournalRuntimeException ignore) {
+                // expected
+            }
+        } finally {
+            mf2.close();
+        }
+    }
+
+    @Test
+    public void testFixedColumnConcurrentPageReads() throws Exception {
+        MappedFile mf = new MappedFileImpl(dataFile, 10, JournalMode.APPEND);
+        try (FixedColumn col = new FixedColumn(mf, 8)) {
+            for (int i = 0; i < 10000; i++) {
+                col.putLong(i * 3L);
+                col.commit();
+            }
+        }
+
+        final int threadCount = 4;
+        MappedFile mf2 = new MappedFileImpl(dataFile, 10, JournalMode.READ);
+        try (final FixedColumn col = new FixedColumn(mf2, 8)) {
+            final CyclicBarrier barrier = new CyclicBarrier(threadCount);
+            final AtomicInteger errors = new AtomicInteger();
+            ExecutorService service = Executors.newFixedThreadPool(threadCount);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threadCount; t++) {
+                // each thread scans its own range of pages
+                final int lo = t * 2500;
+                futures.add(service.submit(new Callable<Object>() {
+                    @Override
+                    public Object call() throws Exception {
+                        barrier.await();
+                        for (int k = 0; k < 10; k++) {
+                            for (int i = lo; i < lo + 2500; i++) {
+                                if (col.getLong(i) != i * 3L) {
+                                    errors.incrementAndGet();
+                                }
+                            }
+                        }
+                        return null;
+                    }
+                }));
+            }
+            for (Future<?> f : futures) {
+                f.get();
+            }
+            service.shutdown();
+            Assert.assertEquals(0, errors.get());
+        }
+    }
+
     @Test
     public void testVarcharColumn() throws JournalException {
         final int recordCount = 10000;
@@ -104,6 +219,277 @@ public class ColumnTest {
         }
     }
 
+    @Test
+    public void testVarcharFlyweight() throws JournalException {
+        MappedFile df1 = new MappedFileImpl(dataFile, 22, JournalMode.APPEND);
+        MappedFile idxFile1 = new MappedFileImpl(indexFile, 22, JournalMode.APPEND);
+
+        try (VariableColumn varchar1 = new VariableColumn(df1, idxFile1)) {
+            varchar1.putString("abc");
+            varchar1.commit();
+            varchar1.putString("");
+            varchar1.commit();
+            varchar1.putString("abd");
+            varchar1.commit();
+
+            // appending modes release pages as soon as they are replaced
+            Assert.assertFalse(varchar1.isFlyweightSupported());
+            try {
+                varchar1.getFlyweightStr(0);
+                Assert.fail();
+            } catch (JournalRuntimeException ignore) {
+                // expected
+            }
+        }
+
+        MappedFile df2 = new MappedFileImpl(dataFile, 22, JournalMode.READ);
+        MappedFile idxFile2 = new MappedFileImpl(indexFile, 22, JournalMode.READ);
+
+        try (VariableColumn varchar2 = new VariableColumn(df2, idxFile2)) {
+            DirectCharSequence cs = varchar2.getFlyweightStr(0);
+            Assert.assertEquals("abc", cs.toString());
+            Assert.assertEquals("abc".hashCode(), cs.hashCode());
+            Assert.assertTrue(cs.equals("abc"));
+            Assert.assertEquals("bc", cs.subSequence(1, 3).toString());
+
+            // same instance is re-pointed at next value
+            Assert.assertSame(cs, varchar2.getFlyweightStr(1));
+            Assert.assertEquals(0, cs.length());
+            Assert.assertEquals("", cs.toString());
+
+            DirectCharSequence other = new DirectCharSequence();
+            Assert.assertSame(other, varchar2.getFlyweightStr(2, other));
+            Assert.assertTrue(varchar2.getFlyweightStr(0).compareTo(other) < 0);
+            Assert.assertEquals("abc".compareTo("abd"), Chars.compare(cs, other));
+            Assert.assertFalse(Chars.equals(cs, other));
+        }
+    }
+
+    @Test
+    public void testUtf8VarcharColumn() throws JournalException {
+        String[] values = {"ascii", "", "latin \u00e9\u00e8", "cyrillic \u0436\u0443\u0440\u043d\u0430\u043b", "pair \ud83d\ude00 end", "lone \ud83d", "\ude00 lone", "?"};
+
+        MappedFile df1 = new MappedFileImpl(dataFile, 22, JournalMode.APPEND);
+        MappedFile idxFile1 = new MappedFileImpl(indexFile, 22, JournalMode.APPEND);
+
+        try (VariableColumn varchar1 = new VariableColumn(df1, idxFile1, StringEncoding.UTF8)) {
+            for (String v : values) {
+                varchar1.putString(v);
+                varchar1.commit();
+            }
+            varchar1.putNull();
+            varchar1.commit();
+        }
+
+        MappedFile df2 = new MappedFileImpl(dataFile, 22, JournalMode.READ);
+        MappedFile idxFile2 = new MappedFileImpl(indexFile, 22, JournalMode.READ);
+
+        try (VariableColumn varchar2 = new VariableColumn(df2, idxFile2, StringEncoding.UTF8)) {
+            Assert.assertEquals(values.length + 1, varchar2.size());
+            // one byte per ASCII char, length header is in bytes
+            Assert.assertEquals(4 + 5, varchar2.getOffset(1));
+            for (int i = 0; i < values.length; i++) {
+                Assert.assertEquals(values[i], varchar2.getString(i));
+                Assert.assertEquals(values[i], varchar2.getFlyweightStr(i).toString());
+                Assert.assertTrue(varchar2.equalsString(i, values[i]));
+                Assert.assertFalse(varchar2.equalsString(i, values[i] + "x"));
+            }
+            Assert.assertFalse(varchar2.equalsString(2, "latin \u00e9\u00e9"));
+            Assert.assertFalse(varchar2.equalsString(4, "pair \ud83d\ude01 end"));
+            // unpaired surrogates are kept rather than replaced with '?'
+            Assert.assertFalse(varchar2.equalsString(5, "lone ?"));
+            Assert.assertFalse(varchar2.equalsString(5, "lone \ud83e"));
+            Assert.assertFalse(varchar2.equalsString(7, "\ud83d"));
+        }
+    }
+
+    @Test
+    public void testVarcharColumnPageOverlap() throws JournalException {
+        final int recordCount = 2000;
+        Random random = new Random(1000);
+        String[] values = new String[recordCount];
+        for (int i = 0; i < recordCount; i++) {
+            values[i] = TestUtils.randomString(random, random.nextInt(100) + 1);
+        }
+
+        // 1KB pages with 256 byte overlap, strings are at most 204 bytes long
+        MappedFileImpl df1 = new MappedFileImpl(dataFile, 10, JournalMode.APPEND, 256);
+        try (VariableColumn varchar1 = new VariableColumn(df1, new MappedFileImpl(indexFile, 10, JournalMode.APPEND))) {
+            for (int i = 0; i < recordCount; i++) {
+                varchar1.putString(values[i]);
+                varchar1.commit();
+            }
+            Assert.assertEquals(0, df1.getStitchCount());
+        }
+
+        MappedFileImpl df2 = new MappedFileImpl(dataFile, 10, JournalMode.READ, 256);
+        try (VariableColumn varchar2 = new VariableColumn(df2, new MappedFileImpl(indexFile, 10, JournalMode.READ))) {
+            for (int i = recordCount - 1; i >= 0; i--) {
+                Assert.assertEquals(values[i], varchar2.getString(i));
+            }
+            Assert.assertEquals(0, df2.getStitchCount());
+        }
+
+        MappedFileImpl df3 = new MappedFileImpl(dataFile, 10, JournalMode.READ);
+        try (VariableColumn varchar3 = new VariableColumn(df3, new MappedFileImpl(indexFile, 10, JournalMode.READ))) {
+            for (int i = 0; i < recordCount; i++) {
+                Assert.assertEquals(values[i], varchar3.getString(i));
+            }
+            Assert.assertTrue(df3.getStitchCount() > 0);
+        }
+    }
+
+    @Test
+    public void testCompressedColumns() throws JournalException {
+        final int recordCount = 2000;
+        Random random = new Random(1000);
+        String[] values = new String[recordCount];
+        for (int i = 0; i < recordCount; i++) {
+            values[i] = TestUtils.randomString(random, random.nextInt(100) + 1);
+        }
+
+        try (VariableColumn varchar1 = new VariableColumn(new MappedFileImpl(dataFile, 16, JournalMode.APPEND), new MappedFileImpl(indexFile, 16, JournalMode.APPEND))) {
+            for (int i = 0; i < recordCount; i++) {
+                varchar1.putString(values[i]);
+                varchar1.commit();
+            }
+        }
+
+        // 1KB blocks, so that many strings cross block boundary
+        CompressedMappedFile.compress(dataFile, 10);
+        CompressedMappedFile.compress(indexFile, 10);
+        Assert.assertFalse(dataFile.exists());
+        Assert.assertFalse(indexFile.exists());
+
+        File compressedData = CompressedMappedFile.compressedFile(dataFile);
+        File compressedIndex = CompressedMappedFile.compressedFile(indexFile);
+        Assert.assertTrue(compressedData.length() < recordCount * 100);
+
+        CompressedMappedFile df2 = new CompressedMappedFile(compressedData, JournalMode.READ, 2);
+        try (VariableColumn varchar2 = new VariableColumn(df2, new CompressedMappedFile(compressedIndex, JournalMode.READ, 2))) {
+            Assert.assertEquals(recordCount, varchar2.size());
+            for (int i = recordCount - 1; i >= 0; i--) {
+                Assert.assertEquals(values[i], varchar2.getString(i));
+            }
+            // in READ mode evicted blocks are retired, so flyweight survives eviction of its block
+            DirectCharSequence first = varchar2.getFlyweightStr(0, new DirectCharSequence());
+            for (int i = 1; i < recordCount; i++) {
+                Assert.assertEquals(values[i], varchar2.getFlyweightStr(i).toString());
+            }
+            Assert.assertEquals(values[0], first.toString());
+            Assert.assertTrue(df2.getResidentBlockCount() <= 2);
+            Assert.assertTrue(df2.getStitchCount() <= 2);
+            Assert.assertTrue(df2.getRetiredCount() > 0);
+            varchar2.releaseRetired();
+            Assert.assertEquals(0, df2.getRetiredCount());
+        }
+
+        // outside of READ mode evicted blocks are released straight away
+        CompressedMappedFile df4 = new CompressedMappedFile(compressedData, JournalMode.APPEND, 2);
+        try (VariableColumn varchar4 = new VariableColumn(df4, new CompressedMappedFile(compressedIndex, JournalMode.APPEND, 2))) {
+            for (int i = 0; i < recordCount; i++) {
+                Assert.assertEquals(values[i], varchar4.getString(i));
+            }
+            Assert.assertEquals(0, df4.getRetiredCount());
+            Assert.assertTrue(df4.getStitchCount() <= 2);
+        }
+
+        try (VariableColumn varchar3 = new VariableColumn(new CompressedMappedFile(compressedData, JournalMode.APPEND), new CompressedMappedFile(compressedIndex, JournalMode.APPEND))) {
+            varchar3.putString("x");
+            varchar3.commit();
+            Assert.fail();
+        } catch (JournalRuntimeException ignore) {
+            // compressed file is read-only
+        }
+
+        Files.deleteOrException(compressedData);
+        Files.deleteOrException(compressedIndex);
+    }
+
+    @Test
+    public void testEncodedColumns() throws JournalException {
+        final int recordCount = 5000;
+        Random random = new Random(1000);
+        long[] values = new long[recordCount];
+        long ts = 1400000000000L;
+        for (int i = 0; i < recordCount; i++) {
+            // mostly regular timestamps with occasional jitter
+            ts += 1000 + (i % 100 == 0 ? random.nextInt(50) - 25 : 0);
+            values[i] = ts;
+        }
+
+        for (BlockCodec codec : new BlockCodec[]{BlockCodec.DELTA_OF_DELTA, BlockCodec.FOR_LONG, BlockCodec.FOR_INT}) {
+            try (FixedColumn column = new FixedColumn(new MappedFileImpl(dataFile, 16, JournalMode.APPEND), codec.width())) {
+                for (int i = 0; i < recordCount; i++) {
+                    if (codec.width() == 8) {
+                        column.putLong(values[i]);
+                    } else {
+                        column.putInt((int) (values[i] - ts));
+                    }
+                    column.commit();
+                }
+            }
+
+            CompressedMappedFile.compress(dataFile, 10, codec);
+            File compressed = CompressedMappedFile.compressedFile(dataFile);
+            Assert.assertTrue(compressed.length() < recordCount * codec.width() * 3 / 4);
+
+            CompressedMappedFile mf = new CompressedMappedFile(compressed, JournalMode.READ, 2);
+            try (FixedColumn column = new FixedColumn(mf, codec.width())) {
+                Assert.assertEquals(codec, mf.getCodec());
+                Assert.assertTrue(mf.hasBlockStats());
+                Assert.assertEquals(values.length * codec.width() / 1024 + 1, mf.getBlockCount());
+                Assert.assertEquals(recordCount, column.size());
+                for (int i = 0; i < recordCount; i++) {
+                    if (codec.width() == 8) {
+                        Assert.assertEquals(values[i], column.getLong(i));
+                    } else {
+                        Assert.assertEquals((int) (values[i] - ts), column.getInt(i));
+                    }
+                }
+                int perBlock = 1024 / codec.width();
+                Assert.assertEquals(codec.width() == 8 ? values[perBlock] : (int) (values[perBlock] - ts), mf.getBlockMin(1));
+                Assert.assertEquals(codec.width() == 8 ? values[2 * perBlock - 1] : (int) (values[2 * perBlock - 1] - ts), mf.getBlockMax(1));
+                column.releaseRetired();
+            }
+            Files.deleteOrException(compressed);
+        }
+    }
+
+    @Test
+    public void testForceDirtyPages() throws JournalException {
+        // 1KB pages, 128 longs each
+        MappedFileImpl mf = new MappedFileImpl(dataFile, 10, JournalMode.APPEND);
+        try (FixedColumn col = new FixedColumn(mf, 8)) {
+            for (int i = 0; i < 1280; i++) {
+                col.putLong(i);
+                col.commit();
+            }
+            Assert.assertEquals(10, mf.getDirtyPageCount());
+            col.force();
+            Assert.assertEquals(0, mf.getDirtyPageCount());
+
+            col.putLong(1280);
+            col.commit();
+            Assert.assertEquals(1, mf.getDirtyPageCount());
+            col.force();
+            Assert.assertEquals(0, mf.getDirtyPageCount());
+
+            // reads through cached address window do not make page dirty, but writes after force do
+            Assert.assertEquals(1280, col.getLong(1280));
+            col.putLong(1281);
+            col.commit();
+            Assert.assertEquals(1, mf.getDirtyPageCount());
+        }
+
+        try (FixedColumn col = new FixedColumn(new MappedFileImpl(dataFile, 10, JournalMode.READ), 8)) {
+            Assert.assertEquals(1282, col.size());
+            for (int i = 0; i < 1282; i++) {
+                Assert.assertEquals(i, col.getLong(i));
+            }
+        }
+    }
+
     @Test
     public void testVarcharNulls() throws JournalException {
         MappedFile df1 = new MappedFileImpl(dataFile, 22, JournalMode.APPEND);
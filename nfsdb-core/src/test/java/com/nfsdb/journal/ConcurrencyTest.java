@@ -17,18 +17,23 @@
 package com.nfsdb.journal;
 
 
+import com.nfsdb.journal.concurrent.JournalAppender;
+import com.nfsdb.journal.concurrent.TimerCache;
 import com.nfsdb.journal.exceptions.JournalException;
 import com.nfsdb.journal.factory.JournalPool;
 import com.nfsdb.journal.factory.JournalReaderFactory;
 import com.nfsdb.journal.test.model.Quote;
 import com.nfsdb.journal.test.tools.AbstractTest;
 import com.nfsdb.journal.test.tools.TestUtils;
+import com.nfsdb.journal.tx.TxFuture;
 import org.junit.Assert;
 import org.junit.Test;
 
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class ConcurrencyTest extends AbstractTest {
 
@@ -75,4 +80,174 @@ public class ConcurrencyTest extends AbstractTest {
         latch.await();
         Assert.assertEquals(0, exceptions.size());
     }
+
+    @Test
+    public void testSharedReaderScans() throws Exception {
+        final int threadCount = 8;
+        final int recordCount = 100000;
+
+        JournalWriter<Quote> w = factory.writer(Quote.class);
+        TestUtils.generateQuoteData(w, recordCount);
+        w.close();
+
+        final Journal<Quote> r = factory.reader(Quote.class);
+        final List<Quote> expected = new ArrayList<>(recordCount);
+        int bpCount = 0;
+        for (Quote q : r) {
+            expected.add(q);
+            if ("BP.L".equals(q.getSym())) {
+                bpCount++;
+            }
+        }
+        Assert.assertEquals(recordCount, expected.size());
+        r.close();
+
+        final Journal<Quote> reader = factory.reader(Quote.class);
+        final int expectedBpCount = bpCount;
+        final CyclicBarrier barrier = new CyclicBarrier(threadCount);
+        final AtomicInteger errors = new AtomicInteger();
+        ExecutorService service = Executors.newFixedThreadPool(threadCount);
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int i = 0; i < threadCount; i++) {
+            futures.add(service.submit(new Callable<Object>() {
+                @Override
+                public Object call() throws Exception {
+                    barrier.await();
+                    for (int k = 0; k < 3; k++) {
+                        int i = 0;
+                        for (Quote q : reader) {
+                            if (!expected.get(i++).equals(q)) {
+                                errors.incrementAndGet();
+                            }
+                        }
+                        if (i != expected.size()) {
+                            errors.incrementAndGet();
+                        }
+                        if (reader.query().all().withKeys("BP.L").asResultSet().size() != expectedBpCount) {
+                            errors.incrementAndGet();
+                        }
+                    }
+                    return null;
+                }
+            }));
+        }
+
+        for (Future<?> f : futures) {
+            f.get();
+        }
+        service.shutdown();
+        reader.close();
+        Assert.assertEquals(0, errors.get());
+    }
+
+    @Test
+    public void testMultiProducerAppend() throws Exception {
+        final int threadCount = 4;
+        final int batchCount = 100;
+        final int batchSize = 100;
+        final long timestamp = System.currentTimeMillis();
+
+        JournalWriter<Quote> w = factory.writer(Quote.class);
+        final JournalAppender<Quote> appender = new JournalAppender<>(w, 1024, false);
+        appender.start();
+
+        final CyclicBarrier barrier = new CyclicBarrier(threadCount);
+        final AtomicInteger failures = new AtomicInteger();
+        ExecutorService service = Executors.newFixedThreadPool(threadCount);
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int i = 0; i < threadCount; i++) {
+            final boolean batched = i % 2 == 0;
+            futures.add(service.submit(new Callable<Object>() {
+                @Override
+                public Object call() throws Exception {
+                    barrier.await();
+                    List<TxFuture> txFutures = new ArrayList<>();
+                    for (int k = 0; k < batchCount; k++) {
+                        List<Quote> batch = new ArrayList<>(batchSize);
+                        for (int n = 0; n < batchSize; n++) {
+                            batch.add(new Quote().setSym("S" + n % 10).setTimestamp(timestamp).setBid(k * n));
+                        }
+                        if (batched) {
+                            txFutures.add(appender.append(batch));
+                        } else {
+                            for (int n = 0; n < batchSize; n++) {
+                                txFutures.add(appender.append(batch.get(n)));
+                            }
+                        }
+                    }
+                    for (TxFuture f : txFutures) {
+                        if (!f.waitFor(10, TimeUnit.SECONDS)) {
+                            failures.incrementAndGet();
+                        }
+                    }
+                    return null;
+                }
+            }));
+        }
+
+        for (Future<?> f : futures) {
+            f.get();
+        }
+        service.shutdown();
+
+        // rejected object fails its batch only
+        List<Quote> bad = new ArrayList<>();
+        bad.add(new Quote().setSym("S1").setTimestamp(timestamp));
+        bad.add(null);
+        Assert.assertFalse(appender.append(bad).waitFor(10, TimeUnit.SECONDS));
+        Assert.assertTrue(appender.append(new Quote().setSym("S2").setTimestamp(timestamp)).waitFor(10, TimeUnit.SECONDS));
+
+        appender.halt();
+        Assert.assertEquals(0, failures.get());
+
+        Journal<Quote> r = factory.reader(Quote.class);
+        Assert.assertEquals(threadCount * batchCount * batchSize + 2, r.size());
+        Assert.assertEquals(threadCount * batchCount * batchSize / 10 + 1, r.query().all().withKeys("S1").asResultSet().size());
+    }
+
+    @Test
+    public void testAppenderSurvivesWriterFailure() throws Exception {
+        final long timestamp = System.currentTimeMillis();
+        final AtomicBoolean failCommit = new AtomicBoolean();
+        JournalKey<Quote> key = new JournalKey<>(Quote.class);
+        JournalWriter<Quote> w = new JournalWriter<Quote>(factory.getConfiguration().getMetadata(key), key, new TimerCache().start()) {
+            @Override
+            public void append(Quote obj) throws JournalException {
+                if ("BOOM".equals(obj.getSym())) {
+                    throw new IllegalStateException("append failed");
+                }
+                super.append(obj);
+            }
+
+            @Override
+            public void commit() throws JournalException {
+                if (failCommit.getAndSet(false)) {
+                    throw new IllegalStateException("commit failed");
+                }
+                super.commit();
+            }
+        };
+        JournalAppender<Quote> appender = new JournalAppender<>(w, 1024, false);
+        appender.start();
+
+        // writer throws in the middle of batch, batch fails and appender carries on
+        List<Quote> batch = new ArrayList<>();
+        batch.add(new Quote().setSym("S1").setTimestamp(timestamp));
+        batch.add(new Quote().setSym("BOOM").setTimestamp(timestamp));
+        batch.add(new Quote().setSym("S2").setTimestamp(timestamp));
+        Assert.assertFalse(appender.append(batch).waitFor(10, TimeUnit.SECONDS));
+        Assert.assertTrue(appender.append(new Quote().setSym("S3").setTimestamp(timestamp)).waitFor(10, TimeUnit.SECONDS));
+
+        failCommit.set(true);
+        Assert.assertFalse(appender.append(new Quote().setSym("S4").setTimestamp(timestamp)).waitFor(10, TimeUnit.SECONDS));
+        Assert.assertTrue(appender.append(new Quote().setSym("S5").setTimestamp(timestamp)).waitFor(10, TimeUnit.SECONDS));
+
+        Assert.assertTrue(appender.halt(10, TimeUnit.SECONDS));
+
+        Journal<Quote> r = factory.reader(Quote.class);
+        Assert.assertEquals(0, r.query().all().withKeys("S4").asResultSet().size());
+        Assert.assertEquals(1, r.query().all().withKeys("S5").asResultSet().size());
+    }
 }
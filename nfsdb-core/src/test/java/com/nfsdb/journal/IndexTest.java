@@ -19,13 +19,22 @@ package com.nfsdb.journal;
 import com.nfsdb.journal.collections.LongArrayList;
 import com.nfsdb.journal.exceptions.JournalException;
 import com.nfsdb.journal.exceptions.JournalRuntimeException;
+import com.nfsdb.journal.column.SymbolTable;
+import com.nfsdb.journal.index.BitmapIndex;
 import com.nfsdb.journal.index.KVIndex;
+import com.nfsdb.journal.index.RowBitmap;
+import com.nfsdb.journal.index.experimental.AndCursor;
+import com.nfsdb.journal.index.experimental.Cursor;
+import com.nfsdb.journal.index.experimental.NotCursor;
+import com.nfsdb.journal.index.experimental.OrCursor;
 import com.nfsdb.journal.test.tools.AbstractTest;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 
 import java.io.File;
+import java.util.BitSet;
+import java.util.Random;
 
 public class IndexTest extends AbstractTest {
     private static final int totalKeys = 10;
@@ -61,6 +70,145 @@ public class IndexTest extends AbstractTest {
         index.close();
     }
 
+    @Test
+    public void testRowBitmapOperations() throws Exception {
+        Random random = new Random(1000);
+        BitSet expectedA = new BitSet();
+        BitSet expectedB = new BitSet();
+        RowBitmap a = new RowBitmap();
+        RowBitmap b = new RowBitmap();
+        for (int i = 0; i < 50000; i++) {
+            // a is dense in second chunk, b is sparse everywhere
+            int va = i % 2 == 0 ? 65536 + random.nextInt(65536) : random.nextInt(300000);
+            int vb = random.nextInt(300000);
+            a.add(va);
+            b.add(vb);
+            expectedA.set(va);
+            expectedB.set(vb);
+        }
+
+        assertBitmap(expectedA, a);
+        assertBitmap(expectedB, b);
+
+        BitSet expected = (BitSet) expectedA.clone();
+        expected.and(expectedB);
+        assertBitmap(expected, a.and(b));
+
+        expected = (BitSet) expectedA.clone();
+        expected.or(expectedB);
+        assertBitmap(expected, a.or(b));
+
+        expected = (BitSet) expectedA.clone();
+        expected.andNot(expectedB);
+        assertBitmap(expected, a.andNot(b));
+
+        expected = (BitSet) expectedB.clone();
+        expected.andNot(expectedA);
+        assertBitmap(expected, b.andNot(a));
+    }
+
+    @Test
+    public void testBitmapIndex() throws Exception {
+        BitmapIndex index = new BitmapIndex();
+        for (int i = 0; i < 100; i++) {
+            index.add(i % 3 == 0 ? SymbolTable.VALUE_IS_NULL : i % 2, i);
+        }
+        Assert.assertEquals(100, index.size());
+        Assert.assertFalse(index.contains(2));
+        Assert.assertEquals(33, index.getBitmap(0).cardinality());
+        Assert.assertEquals(0, index.getBitmap(2).cardinality());
+
+        // same order as KVIndex cursor, newest row first
+        Cursor cursor = index.cursor(1);
+        Assert.assertTrue(cursor.hasNext());
+        Assert.assertEquals(97, cursor.next());
+        Assert.assertEquals(95, cursor.next());
+        Assert.assertEquals(91, cursor.next());
+    }
+
+    @Test
+    public void testCursorSkipTo() throws Exception {
+        Random random = new Random(1000);
+        BitSet expectedIndex = new BitSet();
+        BitSet expectedBitmap = new BitSet();
+        RowBitmap bitmap = new RowBitmap();
+        try (KVIndex index = new KVIndex(indexFile, 10, 60, 1, JournalMode.APPEND, 0)) {
+            for (int i = 0; i < 200000; i++) {
+                if (random.nextInt(50) == 0) {
+                    index.add(0, i);
+                    expectedIndex.set(i);
+                }
+                // dense chunk in the middle, sparse chunks around it
+                if (i >> 16 == 1 ? random.nextInt(2) == 0 : random.nextInt(100) == 0) {
+                    bitmap.add(i);
+                    expectedBitmap.set(i);
+                }
+            }
+
+            // steps both shorter and longer than row blocks and gaps between values
+            for (int step : new int[]{1, 7, 333, 70000}) {
+                assertSkipTo(expectedIndex, index.cursor(0), step);
+                assertSkipTo(expectedBitmap, bitmap.cursor(), step);
+            }
+        }
+    }
+
+    @Test
+    public void testCursorAlgebra() throws Exception {
+        Random random = new Random(1000);
+        BitSet expectedA = new BitSet();
+        BitSet expectedB = new BitSet();
+        BitSet expectedC = new BitSet();
+        RowBitmap c = new RowBitmap();
+        try (KVIndex index = new KVIndex(indexFile, 10, 60, 1, JournalMode.APPEND, 0)) {
+            for (int i = 0; i < 5000; i++) {
+                if (random.nextInt(3) == 0) {
+                    index.add(0, i);
+                    expectedA.set(i);
+                }
+                if (random.nextInt(5) == 0) {
+                    index.add(1, i);
+                    expectedB.set(i);
+                }
+                if (random.nextInt(2) == 0) {
+                    c.add(i);
+                    expectedC.set(i);
+                }
+            }
+
+            BitSet expected = (BitSet) expectedA.clone();
+            expected.and(expectedB);
+            assertCursor(expected, new AndCursor(index.cursor(0), index.cursor(1)));
+            assertSkipTo(expected, new AndCursor(index.cursor(0), index.cursor(1)), 11);
+
+            expected = (BitSet) expectedA.clone();
+            expected.or(expectedB);
+            assertCursor(expected, new OrCursor(index.cursor(0), index.cursor(1)));
+            assertSkipTo(expected, new OrCursor(index.cursor(0), index.cursor(1)), 11);
+
+            expected = (BitSet) expectedA.clone();
+            expected.andNot(expectedB);
+            assertCursor(expected, new NotCursor(index.cursor(0), index.cursor(1)));
+            assertSkipTo(expected, new NotCursor(index.cursor(0), index.cursor(1)), 11);
+
+            // (a OR b) AND NOT c, index and bitmap cursors mixed
+            expected = (BitSet) expectedA.clone();
+            expected.or(expectedB);
+            expected.andNot(expectedC);
+            assertCursor(expected, new NotCursor(new OrCursor(index.cursor(0), index.cursor(1)), c.cursor()));
+
+            // a AND b AND c
+            expected = (BitSet) expectedA.clone();
+            expected.and(expectedB);
+            expected.and(expectedC);
+            assertCursor(expected, new AndCursor(new AndCursor(index.cursor(0), c.cursor()), index.cursor(1)));
+
+            Assert.assertFalse(new AndCursor(index.cursor(0), index.cursor(2)).hasNext());
+            assertCursor(expectedA, new OrCursor(index.cursor(0), index.cursor(2)));
+            assertCursor(expectedA, new NotCursor(index.cursor(0), index.cursor(2)));
+        }
+    }
+
     @Test(expected = JournalRuntimeException.class)
     public void testValueOutOfBounds() throws JournalException {
         try (KVIndex index = new KVIndex(indexFile, totalKeys, totalValues, 1, JournalMode.APPEND, 0)) {
@@ -343,4 +491,38 @@ public class IndexTest extends AbstractTest {
             }
         }
     }
+
+    private static void assertCursor(BitSet expected, Cursor cursor) {
+        for (int i = expected.previousSetBit(expected.length()); i >= 0; i = expected.previousSetBit(i - 1)) {
+            Assert.assertTrue(cursor.hasNext());
+            Assert.assertEquals(i, cursor.next());
+        }
+        Assert.assertFalse(cursor.hasNext());
+    }
+
+    private static void assertSkipTo(BitSet expected, Cursor cursor, int step) {
+        // values returned by next() are consumed, so cursor cannot go back to them
+        int limit = expected.length();
+        for (int target = expected.length() + step; target >= 0; target -= step) {
+            int value = expected.previousSetBit(Math.min(target, limit));
+            Assert.assertEquals(value >= 0, cursor.skipTo(target));
+            if (value < 0) {
+                break;
+            }
+            Assert.assertEquals(value, cursor.next());
+            limit = value - 1;
+        }
+    }
+
+    private static void assertBitmap(BitSet expected, RowBitmap actual) {
+        Assert.assertEquals(expected.cardinality(), actual.cardinality());
+        Cursor cursor = actual.cursor();
+        for (int i = expected.previousSetBit(expected.length()); i >= 0; i = expected.previousSetBit(i - 1)) {
+            Assert.assertTrue(cursor.hasNext());
+            Assert.assertEquals(i, cursor.next());
+            Assert.assertTrue(actual.contains(i));
+        }
+        Assert.assertFalse(cursor.hasNext());
+        Assert.assertFalse(actual.contains(expected.length()));
+    }
 }
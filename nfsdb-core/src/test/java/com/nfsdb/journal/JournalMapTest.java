@@ -18,12 +18,14 @@ package com.nfsdb.journal;
 
 import com.nfsdb.journal.map.JournalHashMap;
 import com.nfsdb.journal.map.JournalMap;
+import com.nfsdb.journal.map.JournalMapFilter;
 import com.nfsdb.journal.printer.JournalPrinter;
 import com.nfsdb.journal.printer.appender.OutputStreamAppender;
 import com.nfsdb.journal.test.model.Quote;
 import com.nfsdb.journal.test.tools.AbstractTest;
 import com.nfsdb.journal.test.tools.TestData;
 import com.nfsdb.journal.test.tools.TestUtils;
+import com.nfsdb.journal.utils.Dates;
 import com.nfsdb.journal.utils.Files;
 import org.junit.Assert;
 import org.junit.Before;
@@ -75,6 +77,110 @@ public class JournalMapTest extends AbstractTest {
         Assert.assertEquals(2, map.size());
     }
 
+    @Test
+    public void testEagerMapRefresh() throws Exception {
+        JournalMapFilter<Quote> filter = new JournalMapFilter<Quote>() {
+            @Override
+            public boolean accept(Quote object) {
+                return !"GR".equals(object.getEx());
+            }
+        };
+        Journal<Quote> r = factory.reader(Quote.class);
+        JournalMap<Quote> map = new JournalHashMap<>(r, "sym", filter).eager();
+
+        TestUtils.generateQuoteData(w, 100, Dates.toMillis("2013-06-01T00:00:00.000Z"), 60000);
+        w.append(new Quote().setSym("NEW.L").setEx("LXE").setMode("Fast trading").setTimestamp(Dates.toMillis("2013-06-02T00:00:00.000Z")));
+        // latest row of BP.L is now rejected by filter
+        w.append(new Quote().setSym("BP.L").setEx("GR").setMode("Fast trading").setTimestamp(Dates.toMillis("2013-06-02T00:00:00.000Z")));
+        w.commit();
+        Assert.assertTrue(map.refresh());
+        Assert.assertNull(map.get("BP.L"));
+        Assert.assertNotNull(map.get("NEW.L"));
+        assertEquals(new JournalHashMap<>(r, "sym", filter).eager(), map);
+
+        // truncation is not an append, map is reloaded
+        w.truncate();
+        TestUtils.generateQuoteData(w, 10, Dates.toMillis("2013-07-01T00:00:00.000Z"), 60000);
+        w.commit();
+        Assert.assertTrue(map.refresh());
+        assertEquals(new JournalHashMap<>(r, "sym", filter).eager(), map);
+    }
+
+    @Test
+    public void testEagerMapRefreshLag() throws Exception {
+        JournalMapFilter<Quote> filter = new JournalMapFilter<Quote>() {
+            @Override
+            public boolean accept(Quote object) {
+                return !"GR".equals(object.getEx());
+            }
+        };
+        Journal<Quote> r = factory.reader(Quote.class);
+        JournalMap<Quote> map = new JournalHashMap<>(r, "sym", filter).eager();
+        long timestamp = Dates.toMillis("2013-05-08T00:00:00.000Z");
+
+        w.appendLag(Arrays.asList(
+                new Quote().setSym("BP.L").setEx("LXE").setMode("Fast trading").setTimestamp(timestamp),
+                new Quote().setSym("RRS.L").setEx("LXE").setMode("Fast trading").setTimestamp(timestamp + 60000),
+                new Quote().setSym("NEW.L").setEx("LXE").setMode("Fast trading").setTimestamp(timestamp + 120000)
+        ));
+        w.commit();
+        Assert.assertTrue(map.refresh());
+        assertEquals(new JournalHashMap<>(r, "sym", filter).eager(), map);
+
+        // lag is appended to in place, only new lag rows are read
+        String lagName = w.getIrregularPartition().getName();
+        w.appendLag(Arrays.asList(
+                new Quote().setSym("BP.L").setEx("GR").setMode("Fast trading").setTimestamp(timestamp + 600000),
+                new Quote().setSym("NEW2.L").setEx("LXE").setMode("Fast trading").setTimestamp(timestamp + 660000)
+        ));
+        w.commit();
+        Assert.assertEquals(lagName, w.getIrregularPartition().getName());
+        Assert.assertTrue(map.refresh());
+        Assert.assertNull(map.get("BP.L"));
+        Assert.assertNotNull(map.get("NEW.L"));
+        Assert.assertNotNull(map.get("NEW2.L"));
+        assertEquals(new JournalHashMap<>(r, "sym", filter).eager(), map);
+
+        // overlapping rows rewrite lag, it is read again from the start
+        w.appendLag(Arrays.asList(
+                new Quote().setSym("RRS.L").setEx("SK").setMode("Fast trading").setTimestamp(timestamp + 300000)
+        ));
+        w.commit();
+        Assert.assertFalse(lagName.equals(w.getIrregularPartition().getName()));
+        Assert.assertTrue(map.refresh());
+        Assert.assertEquals("SK", map.get("RRS.L").getEx());
+        assertEquals(new JournalHashMap<>(r, "sym", filter).eager(), map);
+    }
+
+    @Test
+    public void testLazyMapRefresh() throws Exception {
+        JournalMap<Quote> map = new JournalHashMap<>(factory.reader(Quote.class));
+        Assert.assertNotNull(map.get("RRS.L"));
+        Assert.assertNotNull(map.get("BP.L"));
+        Assert.assertNull(map.get("NEW.L"));
+        Assert.assertEquals(2, map.size());
+
+        Quote rrs = new Quote().setSym("RRS.L").setEx("LXE").setMode("Fast trading").setTimestamp(Dates.toMillis("2013-06-01T00:00:00.000Z"));
+        w.append(rrs);
+        w.append(new Quote().setSym("NEW.L").setEx("LXE").setMode("Fast trading").setTimestamp(Dates.toMillis("2013-06-01T00:00:00.000Z")));
+        w.append(new Quote().setSym("AGK.L").setEx("LXE").setMode("Fast trading").setTimestamp(Dates.toMillis("2013-06-01T00:00:00.000Z")));
+        w.commit();
+
+        Assert.assertTrue(map.refresh());
+        // keys, which have not been looked up, are not loaded
+        Assert.assertEquals(3, map.keys().size());
+        Assert.assertFalse(map.keys().contains("AGK.L"));
+        Assert.assertEquals(rrs, map.get("RRS.L"));
+        Assert.assertNotNull(map.get("NEW.L"));
+    }
+
+    private static <T> void assertEquals(JournalMap<T> expected, JournalMap<T> actual) {
+        Assert.assertEquals(expected.keys(), actual.keys());
+        for (String key : expected.keys()) {
+            Assert.assertEquals(expected.get(key), actual.get(key));
+        }
+    }
+
     private <T> void assertEquals(String expected, JournalMap<T> map) throws IOException {
         JournalPrinter p = new JournalPrinter();
         ByteArrayOutputStream bos = new ByteArrayOutputStream();
@@ -16,10 +16,14 @@
 
 package com.nfsdb.journal;
 
+import com.nfsdb.journal.column.CompressedMappedFile;
 import com.nfsdb.journal.column.SymbolTable;
 import com.nfsdb.journal.exceptions.JournalException;
+import com.nfsdb.journal.factory.GenericObjectCodec;
 import com.nfsdb.journal.factory.JournalConfiguration;
 import com.nfsdb.journal.factory.JournalFactory;
+import com.nfsdb.journal.factory.JournalMetadata;
+import com.nfsdb.journal.factory.ObjectCodecGenerator;
 import com.nfsdb.journal.test.model.Quote;
 import com.nfsdb.journal.test.model.TestEntity;
 import com.nfsdb.journal.test.tools.AbstractTest;
@@ -30,11 +34,19 @@ import com.nfsdb.journal.tx.TxListener;
 import com.nfsdb.journal.utils.Dates;
 import com.nfsdb.journal.utils.Files;
 import com.nfsdb.journal.utils.Rows;
+import org.joda.time.Interval;
 import org.junit.Assert;
 import org.junit.Test;
 
 import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Random;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 
 public class JournalTest extends AbstractTest {
@@ -116,6 +128,304 @@ public class JournalTest extends AbstractTest {
         TestUtils.assertEquals(expected, r.query().all().asResultSet().subset(90, 100));
     }
 
+    @Test
+    public void testLegacyHashVersion() throws Exception {
+        File location;
+        try (JournalWriter<Quote> w = factory.writer(Quote.class, "quote")) {
+            Assert.assertEquals(JournalMetadata.HASH_VERSION_CURRENT, w.getMetadata().getHashVersion());
+            location = w.getLocation();
+        }
+
+        // journals created before hash version was recorded have no marker in metadata file
+        File meta = new File(location, JournalConfiguration.JOURNAL_META_FILE);
+        Files.writeStringToFile(meta, Files.readStringFromFile(meta).replace(", hashVersion=" + JournalMetadata.HASH_VERSION_CURRENT, ""));
+
+        try (JournalWriter<Quote> w = factory.writer(Quote.class, "quote")) {
+            Assert.assertEquals(JournalMetadata.HASH_VERSION_LEGACY, w.getMetadata().getHashVersion());
+            TestUtils.generateQuoteData(w, 1000);
+        }
+
+        try (Journal<Quote> r = factory.reader(Quote.class, "quote")) {
+            Assert.assertEquals(JournalMetadata.HASH_VERSION_LEGACY, r.getMetadata().getHashVersion());
+            SymbolTable tab = r.getSymbolTable("sym");
+            int count = 0;
+            for (String sym : tab.values()) {
+                count += r.query().all().withKeys(sym).asResultSet().size();
+            }
+            Assert.assertEquals(1000, count);
+        }
+    }
+
+    @Test
+    public void testCompressSealedPartitions() throws Exception {
+        JournalWriter<Quote> origin = factory.writer(Quote.class, "origin");
+        TestUtils.generateQuoteData(origin, 100000, Dates.interval("2013-01-01T00:00:00.000Z", "2013-05-30T12:55:00.000Z"));
+
+        JournalWriter<Quote> w = factory.writer(Quote.class, "compressed");
+        w.append(origin.query().all().asResultSet());
+        w.commit();
+
+        w.compressSealedPartitions();
+        int last = w.nonLagPartitionCount() - 1;
+        Assert.assertTrue(last > 0);
+        for (int i = 0; i < last; i++) {
+            Assert.assertTrue(w.getPartition(i, false).isCompressed());
+        }
+        Assert.assertFalse(w.getPartition(last, false).isCompressed());
+        TestUtils.assertDataEquals(origin, w);
+
+        // timestamp search narrowed down by block min/max gives same result as plain binary search
+        Partition<Quote> expected = origin.getPartition(0, true);
+        Partition<Quote> actual = w.getPartition(0, true);
+        Assert.assertTrue(actual.getTimestampColumn().getMappedFile() instanceof CompressedMappedFile);
+        long lo = expected.getTimestampColumn().getLong(0);
+        long hi = expected.getTimestampColumn().getLong(expected.size() - 1);
+        for (long ts = lo - 1000; ts <= hi + 1000; ts += (hi - lo) / 97) {
+            Assert.assertEquals(expected.indexOf(ts, BinarySearch.SearchType.GREATER_OR_EQUAL), actual.indexOf(ts, BinarySearch.SearchType.GREATER_OR_EQUAL));
+            Assert.assertEquals(expected.indexOf(ts, BinarySearch.SearchType.LESS_OR_EQUAL), actual.indexOf(ts, BinarySearch.SearchType.LESS_OR_EQUAL));
+        }
+        Assert.assertEquals(-2, actual.indexOf(hi + 1, BinarySearch.SearchType.GREATER_OR_EQUAL));
+        Assert.assertEquals(-1, actual.indexOf(lo - 1, BinarySearch.SearchType.LESS_OR_EQUAL));
+
+        // appends still go to last partition
+        TestUtils.generateQuoteData(w, 100, Dates.interval("2013-05-30T13:00:00.000Z", "2013-05-30T14:00:00.000Z"));
+
+        try (Journal<Quote> r = factory.reader(Quote.class, "compressed")) {
+            Assert.assertEquals(origin.size() + 100, r.size());
+            int count = 0;
+            for (String sym : r.getSymbolTable("sym").values()) {
+                count += r.query().all().withKeys(sym).asResultSet().size();
+            }
+            Assert.assertEquals(origin.size() + 100, count);
+        }
+    }
+
+    @Test
+    public void testColumnStats() throws Exception {
+        JournalWriter<Quote> w = factory.writer(Quote.class);
+        TestUtils.generateQuoteData(w, 10000, Dates.interval("2013-01-01T00:00:00.000Z", "2013-05-30T12:55:00.000Z"));
+
+        long minTimestamp = Long.MAX_VALUE;
+        long maxTimestamp = Long.MIN_VALUE;
+        double maxAsk = Double.NEGATIVE_INFINITY;
+        int maxBidSize = Integer.MIN_VALUE;
+        for (Quote q : w) {
+            minTimestamp = Math.min(minTimestamp, q.getTimestamp());
+            maxTimestamp = Math.max(maxTimestamp, q.getTimestamp());
+            maxAsk = Math.max(maxAsk, q.getAsk());
+            maxBidSize = Math.max(maxBidSize, q.getBidSize());
+        }
+
+        try (Journal<Quote> r = factory.reader(Quote.class)) {
+            Assert.assertEquals(minTimestamp, r.getColumnStats("timestamp").getMin());
+            Assert.assertEquals(maxTimestamp, r.getColumnStats("timestamp").getMax());
+            Assert.assertEquals(maxAsk, r.getColumnStats("ask").getMaxDouble(), 0);
+            Assert.assertEquals(maxBidSize, r.getColumnStats("bidSize").getMax());
+            Assert.assertEquals(0, r.getColumnStats("bid").getNullCount());
+            Assert.assertEquals(r.getSymbolTable("sym").size(), r.getColumnStats("sym").getKeyCount());
+
+            // reader uses statistics written on commit
+            Partition<Quote> p = r.getPartition(0, true);
+            Assert.assertTrue(new File(p.getPartitionDir(), "_stats").exists());
+            Assert.assertEquals(p.getTimestampColumn().getLong(p.size() - 1), p.getStats(r.getMetadata().getColumnIndex("timestamp")).getMax());
+        }
+
+        // rolled back rows drop out of statistics
+        Quote q = new Quote().setSym("NEW.L").setAsk(maxAsk + 1).setTimestamp(maxTimestamp);
+        w.append(q);
+        Assert.assertEquals(maxAsk + 1, w.getColumnStats("ask").getMaxDouble(), 0);
+        w.rollback();
+        Assert.assertEquals(maxAsk, w.getColumnStats("ask").getMaxDouble(), 0);
+
+        // statistics file is replaced as a whole, damaged file is ignored and partition is not pruned
+        File statsFile = new File(w.getPartition(0, true).getPartitionDir(), "_stats");
+        Assert.assertFalse(new File(statsFile.getPath() + ".tmp").exists());
+        try (RandomAccessFile raf = new RandomAccessFile(statsFile, "rw")) {
+            raf.seek(20);
+            int b = raf.read();
+            raf.seek(20);
+            raf.write(b ^ 0xff);
+        }
+        try (Journal<Quote> r = factory.reader(Quote.class)) {
+            Assert.assertNull(r.getPartition(0, true).getStats(r.getMetadata().getColumnIndex("ask")));
+            Assert.assertEquals(maxAsk, r.getColumnStats("ask").getMaxDouble(), 0);
+        }
+    }
+
+    @Test
+    public void testGeneratedCodec() throws Exception {
+        JournalWriter<Quote> w = factory.writer(Quote.class);
+        TestUtils.generateQuoteData(w, 1000);
+        Assert.assertFalse(w.getCodec() instanceof GenericObjectCodec);
+        Assert.assertTrue(w.getCodec().getClass().getName().startsWith(ObjectCodecGenerator.GENERATED_PACKAGE + ".Quote"));
+
+        Journal<Quote> generic;
+        JournalWriter<Quote> genericWriter;
+        System.setProperty(Journal.CODEGEN_PROPERTY, "false");
+        try {
+            generic = factory.reader(Quote.class);
+            genericWriter = factory.writer(Quote.class, "quote-generic");
+            Assert.assertTrue(generic.getCodec() instanceof GenericObjectCodec);
+            Assert.assertTrue(genericWriter.getCodec() instanceof GenericObjectCodec);
+            genericWriter.append(generic.query().all().asResultSet());
+            genericWriter.commit();
+        } finally {
+            System.clearProperty(Journal.CODEGEN_PROPERTY);
+        }
+
+        Journal<Quote> generated = factory.reader(Quote.class);
+        // journals of same model and layout share generated class
+        Assert.assertSame(w.getCodec().getClass(), generated.getCodec().getClass());
+        TestUtils.assertDataEquals(generic, generated);
+        TestUtils.assertDataEquals(generated, factory.reader(Quote.class, "quote-generic"));
+
+        generic.select("sym", "bid", "mode");
+        generated.select("sym", "bid", "mode");
+        Assert.assertFalse(generated.getCodec() instanceof GenericObjectCodec);
+        TestUtils.assertDataEquals(generic, generated);
+    }
+
+    @Test
+    public void testGroupCommit() throws Exception {
+        JournalWriter<Quote> origin = factory.writer(Quote.class, "origin");
+        TestUtils.generateQuoteData(origin, 1000);
+
+        JournalWriter<Quote> w = factory.writer(Quote.class);
+        w.setGroupCommit(1, TimeUnit.HOURS, 3);
+        Journal<Quote> r = factory.reader(Quote.class);
+
+        TxFuture futures[] = new TxFuture[5];
+        for (int i = 0; i < futures.length; i++) {
+            w.append(origin.query().all().asResultSet().subset(i * 100, (i + 1) * 100));
+            futures[i] = w.commitAsync();
+            Assert.assertNotNull(futures[i]);
+        }
+
+        // first group of three is committed at once
+        Assert.assertTrue(futures[0].waitFor(0, TimeUnit.MILLISECONDS));
+        Assert.assertTrue(futures[2].waitFor(0, TimeUnit.MILLISECONDS));
+        Assert.assertFalse(futures[3].waitFor(0, TimeUnit.MILLISECONDS));
+        r.refresh();
+        Assert.assertEquals(300, r.size());
+
+        w.commitDurable();
+        Assert.assertTrue(futures[3].waitFor(0, TimeUnit.MILLISECONDS));
+        Assert.assertTrue(futures[4].waitFor(0, TimeUnit.MILLISECONDS));
+        r.refresh();
+        Assert.assertEquals(500, r.size());
+
+        // open group is discarded on rollback
+        w.append(origin.query().all().asResultSet().subset(500, 600));
+        TxFuture future = w.commitAsync();
+        w.rollback();
+        Assert.assertFalse(future.waitFor(0, TimeUnit.MILLISECONDS));
+        Assert.assertEquals(500, w.size());
+
+        // zero window commits every transaction
+        w.setGroupCommit(0, TimeUnit.MILLISECONDS, 3);
+        w.append(origin.query().all().asResultSet().subset(600, 700));
+        w.commitAsync();
+        r.refresh();
+        Assert.assertEquals(600, r.size());
+    }
+
+    @Test
+    public void testGroupCommitWindowExpiry() throws Exception {
+        JournalWriter<Quote> origin = factory.writer(Quote.class, "origin");
+        TestUtils.generateQuoteData(origin, 1000);
+
+        JournalWriter<Quote> w = factory.writer(Quote.class);
+        w.setGroupCommit(50, TimeUnit.MILLISECONDS, 100);
+        Journal<Quote> r = factory.reader(Quote.class);
+
+        // nothing follows this transaction, group is committed by timer
+        w.append(origin.query().all().asResultSet().subset(0, 100));
+        TxFuture future = w.commitAsync();
+        Assert.assertTrue(future.waitFor(10, TimeUnit.SECONDS));
+        r.refresh();
+        Assert.assertEquals(100, r.size());
+
+        // next group gets its own timer
+        w.append(origin.query().all().asResultSet().subset(100, 200));
+        future = w.commitAsync();
+        Assert.assertTrue(future.waitFor(10, TimeUnit.SECONDS));
+        r.refresh();
+        Assert.assertEquals(200, r.size());
+        w.close();
+    }
+
+    @Test
+    public void testParallelAppend() throws Exception {
+        JournalWriter<Quote> origin = factory.writer(Quote.class, "origin");
+        TestUtils.generateQuoteData(origin, 10000, new Interval("2013-01-01T00:00:00.000Z/2013-05-30T12:55:00.000Z"));
+        List<Quote> quotes = new ArrayList<>();
+        for (Quote q : origin) {
+            quotes.add(q);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            JournalWriter<Quote> w = factory.writer(Quote.class);
+            w.append(quotes.subList(0, 5000), executor);
+            w.append(quotes.subList(5000, quotes.size()), executor);
+            w.commit();
+
+            Assert.assertEquals(origin.getPartitionCount(), w.getPartitionCount());
+            TestUtils.assertDataEquals(origin, w);
+            for (String sym : origin.getSymbolTable("sym").values()) {
+                Assert.assertEquals(origin.query().all().withKeys(sym).asResultSet().size(), w.query().all().withKeys(sym).asResultSet().size());
+            }
+
+            List<Quote> unordered = new ArrayList<>();
+            unordered.add(quotes.get(quotes.size() - 1));
+            unordered.add(quotes.get(0));
+            try {
+                w.append(unordered, executor);
+                Assert.fail("Expected exception");
+            } catch (JournalException ignore) {
+                // ok
+            }
+            Assert.assertEquals(origin.size(), w.size());
+
+            // columns written before failure are truncated back
+            JournalWriter<Quote> w2 = factory.writer(Quote.class, "failed");
+            try {
+                w2.append(quotes.subList(0, 100), new RejectingExecutor(3));
+                Assert.fail("Expected exception");
+            } catch (JournalException ignore) {
+                // ok
+            }
+            Assert.assertEquals(0, w2.size());
+            w2.append(quotes.subList(0, 100), executor);
+            w2.commit();
+            Assert.assertEquals(100, w2.size());
+            int i = 0;
+            for (Quote q : w2) {
+                Assert.assertEquals(quotes.get(i++), q);
+            }
+
+            // null symbols of batch are kept by row and read back the same as when appended one by one
+            List<Quote> withNulls = new ArrayList<>();
+            for (int k = 0; k < 100; k++) {
+                Quote q = quotes.get(k);
+                withNulls.add(new Quote().setTimestamp(q.getTimestamp()).setSym(q.getSym()).setBid(q.getBid())
+                        .setMode(k % 3 == 0 ? null : q.getMode()).setEx(k % 4 == 0 ? null : q.getEx()));
+            }
+            JournalWriter<Quote> batch = factory.writer(Quote.class, "nulls-batch");
+            batch.append(withNulls.subList(0, 50), executor);
+            batch.append(withNulls.subList(50, 100), executor);
+            batch.commit();
+            JournalWriter<Quote> single = factory.writer(Quote.class, "nulls-single");
+            for (Quote q : withNulls) {
+                single.append(q);
+            }
+            single.commit();
+            TestUtils.assertEquals(single, batch);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
     @Test
     public void testReindex() throws JournalException {
         File path;
@@ -513,4 +823,47 @@ public class JournalTest extends AbstractTest {
             };
         }
     }
+
+    /**
+     * Runs tasks on calling thread and rejects all tasks after given number of them.
+     */
+    private static class RejectingExecutor extends AbstractExecutorService {
+        private int remaining;
+
+        private RejectingExecutor(int remaining) {
+            this.remaining = remaining;
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            if (remaining-- <= 0) {
+                throw new RejectedExecutionException();
+            }
+            command.run();
+        }
+
+        @Override
+        public void shutdown() {
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            return new ArrayList<>();
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return false;
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return false;
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) {
+            return true;
+        }
+    }
 }
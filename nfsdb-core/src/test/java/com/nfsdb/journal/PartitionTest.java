@@ -17,12 +17,17 @@
 package com.nfsdb.journal;
 
 import com.nfsdb.journal.exceptions.JournalException;
+import com.nfsdb.journal.exceptions.JournalRuntimeException;
 import com.nfsdb.journal.test.model.Quote;
 import com.nfsdb.journal.test.tools.AbstractTest;
+import com.nfsdb.journal.test.tools.TestUtils;
 import com.nfsdb.journal.utils.Dates;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
 public class PartitionTest extends AbstractTest {
 
     @Test
@@ -77,4 +82,58 @@ public class PartitionTest extends AbstractTest {
         long result = p.indexOf(Dates.toMillis("2012-06-15T00:00:00.000"), BinarySearch.SearchType.LESS_OR_EQUAL);
         Assert.assertEquals(-1, result);
     }
+
+    @Test
+    public void testReadColumn() throws JournalException {
+        JournalWriter<Quote> w = factory.writer(Quote.class);
+        TestUtils.generateQuoteData(w, 10000);
+
+        Partition<Quote> p = w.getPartition(0, true);
+        int n = (int) p.size();
+        Assert.assertTrue(n > 0);
+
+        int tsIndex = w.getMetadata().getColumnIndex("timestamp");
+        int askIndex = w.getMetadata().getColumnIndex("ask");
+        int bidSizeIndex = w.getMetadata().getColumnIndex("bidSize");
+        int symIndex = w.getMetadata().getColumnIndex("sym");
+
+        long[] timestamps = new long[n];
+        double[] asks = new double[n];
+        int[] bidSizes = new int[n];
+        int[] syms = new int[n];
+
+        Assert.assertEquals(n, p.readColumn(tsIndex, 0, n - 1, timestamps));
+        Assert.assertEquals(n, p.readColumn(askIndex, 0, n - 1, asks));
+        Assert.assertEquals(n, p.readColumn(bidSizeIndex, 0, n - 1, bidSizes));
+        Assert.assertEquals(n, p.readColumn(symIndex, 0, n - 1, syms));
+
+        for (int i = 0; i < n; i++) {
+            Assert.assertEquals(p.getLong(i, tsIndex), timestamps[i]);
+            Assert.assertEquals(p.getDouble(i, askIndex), asks[i], 0);
+            Assert.assertEquals(p.getInt(i, bidSizeIndex), bidSizes[i]);
+            Assert.assertEquals(p.getSymbol(i, symIndex), w.getSymbolTable("sym").value(syms[i]));
+        }
+
+        ByteBuffer buf = ByteBuffer.allocateDirect(11 * 8).order(ByteOrder.nativeOrder());
+        Assert.assertEquals(11, p.readColumn(askIndex, 10, 20, buf));
+        Assert.assertEquals(0, buf.remaining());
+        buf.flip();
+        for (int i = 10; i <= 20; i++) {
+            Assert.assertEquals(asks[i], buf.getDouble(), 0);
+        }
+
+        try {
+            p.readColumn(askIndex, 0, n - 1, timestamps);
+            Assert.fail();
+        } catch (JournalRuntimeException ignore) {
+            // expected
+        }
+
+        try {
+            p.readColumn(tsIndex, 0, n, timestamps);
+            Assert.fail();
+        } catch (JournalRuntimeException ignore) {
+            // expected
+        }
+    }
 }
@@ -17,13 +17,16 @@
 package com.nfsdb.journal;
 
 import com.nfsdb.journal.collections.LongArrayList;
+import com.nfsdb.journal.column.SymbolTable;
 import com.nfsdb.journal.exceptions.JournalException;
+import com.nfsdb.journal.factory.JournalMetadata;
 import com.nfsdb.journal.index.KVIndex;
 import com.nfsdb.journal.logging.Logger;
 import com.nfsdb.journal.query.api.QueryAllBuilder;
 import com.nfsdb.journal.test.model.Quote;
 import com.nfsdb.journal.test.tools.AbstractTest;
 import com.nfsdb.journal.test.tools.TestUtils;
+import com.nfsdb.journal.tx.TxFuture;
 import com.nfsdb.journal.utils.Dates;
 import org.joda.time.Interval;
 import org.junit.Assert;
@@ -31,7 +34,11 @@ import org.junit.BeforeClass;
 import org.junit.Test;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 
 public class PerformanceTest extends AbstractTest {
@@ -86,6 +93,163 @@ public class PerformanceTest extends AbstractTest {
         }
     }
 
+    @Test
+    public void testCodecAppendAndReadSpeed() throws JournalException {
+        Quote quotes[] = new Quote[TEST_DATA_SIZE];
+        String symbols[] = {"AGK.L", "BP.L", "TLW.L", "ABF.L", "LLOY.L", "BT-A.L", "WTB.L", "RRS.L", "ADM.L", "GKN.L", "HSBA.L"};
+        long timestamp = Dates.toMillis("2013-10-05T10:00:00.000Z");
+        for (int i = 0; i < quotes.length; i++) {
+            Quote q = new Quote();
+            q.setSym(symbols[i % symbols.length]);
+            q.setAsk(i * 0.04);
+            q.setBid(i * 0.05);
+            q.setAskSize(i);
+            q.setBidSize(i + 1);
+            q.setEx("LXE");
+            q.setMode("Fast trading");
+            q.setTimestamp(timestamp + i * 1000L);
+            quotes[i] = q;
+        }
+
+        for (String codegen : new String[]{"false", "true"}) {
+            System.setProperty(Journal.CODEGEN_PROPERTY, codegen);
+            try {
+                JournalWriter<Quote> w = factory.writer(Quote.class, "quote-codegen-" + codegen, TEST_DATA_SIZE);
+                long t = 0;
+                int count = 10;
+                for (int i = -10; i < count; i++) {
+                    w.truncate();
+                    if (i == 0) {
+                        t = System.nanoTime();
+                    }
+                    for (int k = 0; k < quotes.length; k++) {
+                        w.append(quotes[k]);
+                    }
+                    w.commit();
+                }
+                LOGGER.info("codegen=" + codegen + " append (1M): " + TimeUnit.NANOSECONDS.toMillis((System.nanoTime() - t) / count) + "ms");
+
+                Quote q = new Quote();
+                for (int i = -10; i < count; i++) {
+                    if (i == 0) {
+                        t = System.nanoTime();
+                    }
+                    Partition<Quote> p = w.getPartition(0, true);
+                    for (long k = 0, n = p.size(); k < n; k++) {
+                        p.read(k, q);
+                    }
+                }
+                LOGGER.info("codegen=" + codegen + " read (1M): " + TimeUnit.NANOSECONDS.toMillis((System.nanoTime() - t) / count) + "ms");
+            } finally {
+                System.clearProperty(Journal.CODEGEN_PROPERTY);
+            }
+        }
+    }
+
+    @Test
+    public void testParallelAppendSpeed() throws Exception {
+        JournalWriter<Quote> origin = factory.writer(Quote.class, "origin", TEST_DATA_SIZE);
+        TestUtils.generateQuoteData(origin, TEST_DATA_SIZE, Dates.toMillis("2013-10-05T10:00:00.000Z"), 1000);
+        List<Quote> quotes = new ArrayList<>(TEST_DATA_SIZE);
+        for (Quote q : origin) {
+            quotes.add(q);
+        }
+        int batch = 64 * 1024;
+        int count = 5;
+
+        JournalWriter<Quote> w = factory.writer(Quote.class, "quote-sequential", TEST_DATA_SIZE);
+        long t = 0;
+        for (int i = -3; i < count; i++) {
+            w.truncate();
+            if (i == 0) {
+                t = System.nanoTime();
+            }
+            w.append(quotes);
+            w.commit();
+        }
+        LOGGER.info("sequential append (1M): " + TimeUnit.NANOSECONDS.toMillis((System.nanoTime() - t) / count) + "ms");
+
+        ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        try {
+            w = factory.writer(Quote.class, "quote-parallel", TEST_DATA_SIZE);
+            for (int i = -3; i < count; i++) {
+                w.truncate();
+                if (i == 0) {
+                    t = System.nanoTime();
+                }
+                for (int k = 0; k < quotes.size(); k += batch) {
+                    w.append(quotes.subList(k, Math.min(k + batch, quotes.size())), executor);
+                }
+                w.commit();
+            }
+            LOGGER.info("parallel append (1M): " + TimeUnit.NANOSECONDS.toMillis((System.nanoTime() - t) / count) + "ms");
+        } finally {
+            executor.shutdown();
+        }
+        TestUtils.assertDataEquals(origin, w);
+    }
+
+    @Test
+    public void testGroupCommitSpeed() throws JournalException {
+        JournalWriter<Quote> origin = factory.writer(Quote.class, "origin", TEST_DATA_SIZE);
+        TestUtils.generateQuoteData(origin, 100000, Dates.toMillis("2013-10-05T10:00:00.000Z"), 1000);
+        ResultSet<Quote> rs = origin.query().all().asResultSet();
+        int batch = 100;
+
+        JournalWriter<Quote> w = factory.writer(Quote.class, "quote-durable", TEST_DATA_SIZE);
+        long t = System.nanoTime();
+        for (int i = 0; i < rs.size(); i += batch) {
+            w.append(rs.subset(i, i + batch));
+            w.commitDurable();
+        }
+        LOGGER.info("commitDurable() per " + batch + " rows (100K): " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - t) + "ms");
+
+        w = factory.writer(Quote.class, "quote-group", TEST_DATA_SIZE);
+        w.setGroupCommit(10, TimeUnit.MILLISECONDS, 64);
+        TxFuture future = null;
+        t = System.nanoTime();
+        for (int i = 0; i < rs.size(); i += batch) {
+            w.append(rs.subset(i, i + batch));
+            future = w.commitAsync();
+        }
+        w.commitDurable();
+        Assert.assertTrue(future.waitFor(0, TimeUnit.MILLISECONDS));
+        LOGGER.info("group commitAsync() per " + batch + " rows (100K): " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - t) + "ms");
+    }
+
+    @Test
+    public void testSymbolLookupSpeed() throws JournalException {
+        int count = 1000000;
+        String[] values = new String[count];
+        for (int i = 0; i < count; i++) {
+            values[i] = "SYM" + i;
+        }
+        File base = factory.getConfiguration().getJournalBase();
+
+        for (int version : new int[]{JournalMetadata.HASH_VERSION_LEGACY, JournalMetadata.HASH_VERSION_MURMUR3}) {
+            String name = "sym-v" + version;
+            int size;
+            long indexTxAddress;
+            try (SymbolTable tab = new SymbolTable(count, 16, 1, base, name, JournalMode.APPEND, 0, 0, version)) {
+                for (int i = 0; i < count; i++) {
+                    tab.put(values[i]);
+                }
+                tab.commit();
+                size = tab.size();
+                indexTxAddress = tab.getIndexTxAddress();
+            }
+
+            // fresh reader has nothing cached, every lookup walks hash index
+            try (SymbolTable tab = new SymbolTable(count, 16, 1, base, name, JournalMode.READ, size, indexTxAddress, version)) {
+                long t = System.nanoTime();
+                for (int i = 0; i < count; i++) {
+                    Assert.assertEquals(i, tab.getQuick(values[i]));
+                }
+                LOGGER.info("symbol lookup latency, 1M distinct values, hash version " + version + ": " + (System.nanoTime() - t) / count + "ns");
+            }
+        }
+    }
+
     @Test
     public void testIndexAppendAndReadSpeed() throws JournalException {
         File indexFile = new File(factory.getConfiguration().getJournalBase(), "index-test");
@@ -16,7 +16,11 @@
 
 package com.nfsdb.journal;
 
+import com.nfsdb.journal.column.ZoneMap;
+import com.nfsdb.journal.concurrent.TimerCache;
 import com.nfsdb.journal.exceptions.JournalException;
+import com.nfsdb.journal.factory.JournalFactory;
+import com.nfsdb.journal.factory.JournalMetadata;
 import com.nfsdb.journal.iterators.ConcurrentIterator;
 import com.nfsdb.journal.iterators.JournalIterator;
 import com.nfsdb.journal.query.api.Query;
@@ -27,12 +31,22 @@ import com.nfsdb.journal.test.tools.AbstractTest;
 import com.nfsdb.journal.test.tools.TestData;
 import com.nfsdb.journal.test.tools.TestUtils;
 import com.nfsdb.journal.utils.Dates;
+import com.nfsdb.journal.utils.Rows;
 import org.joda.time.DateTime;
 import org.joda.time.Interval;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
 public class QueryTest extends AbstractTest {
 
     private final long ts1 = Dates.toMillis("2013-04-28T17:20:00.000Z");
@@ -64,6 +78,199 @@ public class QueryTest extends AbstractTest {
         TestUtils.assertEquals(expected, rs);
     }
 
+    @Test
+    public void testAllByRange() throws Exception {
+        int expected = 0;
+        int expectedRrs = 0;
+        for (Quote quote : w) {
+            if (quote.getBidSize() >= 500000000 && quote.getBidSize() <= 1000000000 && quote.getAsk() >= 0.2 && quote.getAsk() <= 0.4) {
+                expected++;
+                if ("RRS.L".equals(quote.getSym())) {
+                    expectedRrs++;
+                }
+            }
+        }
+        Assert.assertTrue(expected > 0);
+
+        ResultSet<Quote> rs = q.all().withRange("bidSize", 500000000L, 1000000000L).range("ask", 0.2, 0.4).asResultSet();
+        Assert.assertEquals(expected, rs.size());
+        for (Quote quote : rs.bufferedIterator()) {
+            Assert.assertTrue(quote.getBidSize() >= 500000000 && quote.getBidSize() <= 1000000000);
+            Assert.assertTrue(quote.getAsk() >= 0.2 && quote.getAsk() <= 0.4);
+        }
+
+        Assert.assertEquals(expectedRrs, q.all().withKeys("RRS.L").range("bidSize", 500000000L, 1000000000L).range("ask", 0.2, 0.4).asResultSet().size());
+    }
+
+    @Test
+    public void testAllByRangeSkipsBlocks() throws Exception {
+        JournalWriter<Quote> w = factory.writer(Quote.class, "range");
+        long timestamp = Dates.toMillis("2013-03-01T00:00:00.000Z");
+        TestUtils.generateQuoteData(w, 200000, timestamp, 10);
+        w.commit();
+
+        Partition<Quote> p = w.getPartition(0, true);
+        int timestampColumn = w.getMetadata().getTimestampColumnIndex();
+        Assert.assertEquals(4, p.getZoneMap(timestampColumn).getBlockCount());
+        Assert.assertEquals(timestamp + 65536 * 10, p.getZoneMap(timestampColumn).getBlock(1).getMin());
+
+        ResultSet<Quote> rs = w.query().all().withRange("timestamp", timestamp + 100000 * 10, timestamp + 100999 * 10).asResultSet();
+        Assert.assertEquals(1000, rs.size());
+        Assert.assertEquals(Rows.toRowID(0, 100000), rs.getRowID(0));
+
+        // only record of tail block is rewritten, torn record is dropped on load and its rows are scanned again
+        File zones = new File(p.getPartitionDir(), "_zones");
+        long length = zones.length();
+        TestUtils.generateQuoteData(w, 100, timestamp + 200000 * 10, 10);
+        w.commit();
+        Assert.assertEquals(length, zones.length());
+        try (RandomAccessFile raf = new RandomAccessFile(zones, "rw")) {
+            raf.seek(length - 9);
+            int b = raf.read();
+            raf.seek(length - 9);
+            raf.write(b ^ 0xff);
+        }
+        try (Journal<Quote> r = factory.reader(Quote.class, "range")) {
+            ZoneMap zoneMap = r.getPartition(0, true).getZoneMap(timestampColumn);
+            Assert.assertEquals(4, zoneMap.getBlockCount());
+            Assert.assertEquals(timestamp + 200099 * 10, zoneMap.getBlock(3).getMax());
+        }
+    }
+
+    @Test
+    public void testAllByRangeWithoutZoneMaps() throws Exception {
+        long timestamp = Dates.toMillis("2013-03-01T00:00:00.000Z");
+        File zones;
+        try (JournalWriter<Quote> w = factory.writer(Quote.class, "range")) {
+            TestUtils.generateQuoteData(w, 200000, timestamp, 10);
+            w.commit();
+            zones = new File(w.getPartition(0, true).getPartitionDir(), "_zones");
+        }
+        Assert.assertTrue(zones.delete());
+
+        int timestampColumn;
+        try (Journal<Quote> r = factory.reader(Quote.class, "range")) {
+            timestampColumn = r.getMetadata().getTimestampColumnIndex();
+            Assert.assertNotNull(r.getPartition(0, true).getStats(timestampColumn));
+            Assert.assertNull(r.getPartition(0, true).getZoneMap(timestampColumn));
+            ResultSet<Quote> rs = r.query().all().withRange("timestamp", timestamp + 100000 * 10, timestamp + 100999 * 10).asResultSet();
+            Assert.assertEquals(1000, rs.size());
+            Assert.assertEquals(Rows.toRowID(0, 100000), rs.getRowID(0));
+        }
+
+        // writer scans partition again and writes zone map file out on commit
+        try (JournalWriter<Quote> w = factory.writer(Quote.class, "range")) {
+            TestUtils.generateQuoteData(w, 100, timestamp + 200000 * 10, 10);
+            w.commit();
+        }
+        Assert.assertTrue(zones.exists());
+
+        try (Journal<Quote> r = factory.reader(Quote.class, "range")) {
+            ZoneMap zoneMap = r.getPartition(0, true).getZoneMap(timestampColumn);
+            Assert.assertEquals(4, zoneMap.getBlockCount());
+            Assert.assertEquals(timestamp, zoneMap.getBlock(0).getMin());
+            Assert.assertEquals(timestamp + 200099 * 10, zoneMap.getBlock(3).getMax());
+            Assert.assertEquals(1000, r.query().all().withRange("timestamp", timestamp + 100000 * 10, timestamp + 100999 * 10).asResultSet().size());
+        }
+    }
+
+    @Test
+    public void testAllParallel() throws Exception {
+        Assert.assertTrue(w.getPartitionCount() > 2);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            assertParallel(q.all().withKeys("RRS.L", "BP.L"), executor);
+            assertParallel(q.all().withKeys("TLW.L", "BP.L").filter("ex", "SK").filter("ex", "GR"), executor);
+            assertParallel(q.all().withKeys("RRS.L").slice(Dates.interval(ts1, ts2)), executor);
+            assertParallel(q.all().withRange("bidSize", 500000000L, 1000000000L).range("ask", 0.2, 0.4), executor);
+            assertParallel(q.all().withKeys("NON_EXISTING"), executor);
+
+            // partition, which breaks, ends result the same way it does when partitions are read one by one
+            ResultSetBuilderFactory<Quote> breaking = newPartitionBuilderFactory(w.getPartitionCount() - 2, -1);
+            ResultSet<Quote> expected = w.iteratePartitionsDesc(breaking.newBuilder());
+            ResultSet<Quote> actual = w.iteratePartitionsParallel(breaking, executor);
+            Assert.assertTrue(expected.size() > 0 && expected.size() < w.size());
+            assertRowIDs(expected, actual);
+
+            try {
+                w.iteratePartitionsParallel(newPartitionBuilderFactory(-1, 0), executor);
+                Assert.fail("Expected exception");
+            } catch (JournalException e) {
+                Assert.assertEquals("Cannot read partition 0", e.getMessage());
+            }
+
+            SampleResult expectedSample = q.sample(TimeUnit.DAYS.toMillis(40)).by("sym").count().max("ask").asResult();
+            SampleResult actualSample = q.sample(TimeUnit.DAYS.toMillis(40)).by("sym").count().max("ask").parallel(executor).asResult();
+            Assert.assertEquals(expectedSample.size(), actualSample.size());
+            for (int i = 0; i < expectedSample.size(); i++) {
+                Assert.assertEquals(expectedSample.getTimestamp(i), actualSample.getTimestamp(i));
+                Assert.assertEquals(expectedSample.getSymbol(i), actualSample.getSymbol(i));
+                Assert.assertEquals(expectedSample.getLong(i, 0), actualSample.getLong(i, 0));
+                Assert.assertEquals(expectedSample.getDouble(i, 1), actualSample.getDouble(i, 1), 0);
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testSample() throws Exception {
+        // 40 day buckets cross boundaries of MONTH partitions, so that groups of partitions are merged
+        for (long bucket : new long[]{TimeUnit.DAYS.toMillis(1), TimeUnit.DAYS.toMillis(40)}) {
+            // count, sum(bidSize), min(ask), max(ask), first(ask), last(ask), sum(ask)
+            Map<String, double[]> expected = new LinkedHashMap<>();
+            for (Quote quote : w) {
+                String key = (quote.getTimestamp() - quote.getTimestamp() % bucket) + "|" + quote.getSym();
+                double[] v = expected.get(key);
+                if (v == null) {
+                    v = new double[]{0, 0, quote.getAsk(), quote.getAsk(), quote.getAsk(), 0, 0};
+                    expected.put(key, v);
+                }
+                v[0]++;
+                v[1] += quote.getBidSize();
+                v[2] = Math.min(v[2], quote.getAsk());
+                v[3] = Math.max(v[3], quote.getAsk());
+                v[5] = quote.getAsk();
+                v[6] += quote.getAsk();
+            }
+
+            SampleResult result = q.sample(bucket).by("sym").count().sum("bidSize").min("ask").max("ask").first("ask").last("ask").avg("ask").asResult();
+            Assert.assertEquals(expected.size(), result.size());
+            int i = 0;
+            for (Map.Entry<String, double[]> e : expected.entrySet()) {
+                double[] v = e.getValue();
+                Assert.assertEquals(e.getKey(), result.getTimestamp(i) + "|" + result.getSymbol(i));
+                Assert.assertEquals((long) v[0], result.getLong(i, 0));
+                Assert.assertEquals((long) v[1], result.getLong(i, 1));
+                Assert.assertEquals(v[2], result.getDouble(i, 2), 0);
+                Assert.assertEquals(v[3], result.getDouble(i, 3), 0);
+                Assert.assertEquals(v[4], result.getDouble(i, 4), 0);
+                Assert.assertEquals(v[5], result.getDouble(i, 5), 0);
+                Assert.assertEquals(v[6] / v[0], result.getDouble(i, 6), 1e-9);
+                i++;
+            }
+        }
+
+        int count = 0;
+        for (Quote quote : w) {
+            if ("BP.L".equals(quote.getSym())) {
+                count++;
+            }
+        }
+        SampleResult result = q.sample(TimeUnit.DAYS.toMillis(1)).by("sym", "BP.L").count().asResult();
+        Assert.assertTrue(result.size() > 0);
+        for (int i = 0; i < result.size(); i++) {
+            Assert.assertEquals("BP.L", result.getSymbol(i));
+            count -= result.getLong(i, 0);
+        }
+        Assert.assertEquals(0, count);
+
+        result = q.sample(TimeUnit.DAYS.toMillis(365)).count().asResult();
+        Assert.assertEquals(1, result.size());
+        Assert.assertNull(result.getSymbol(0));
+        Assert.assertEquals(w.size(), result.getLong(0, 0));
+    }
+
     @Test
     public void testAllBySymbolValueOverInterval2() throws Exception {
         String expected = "2013-05-03T09:50:00.000Z\tRRS.L\t0.5590262812936236\t0.13652035496254744\t1522957952\t1962377774\tFast trading\tLXE\n" +
@@ -474,6 +681,24 @@ public class QueryTest extends AbstractTest {
         TestUtils.assertEquals(expected, rs.sort());
     }
 
+    @Test
+    public void testLatestByKeyFilterBitmap() throws Exception {
+        try (JournalFactory bitmapFactory = new JournalFactory("/nfsdb-bitmap-test.xml", factory.getConfiguration().getJournalBase());
+             JournalWriter<Quote> bw = bitmapFactory.writer(Quote.class, "bitmap")) {
+            Assert.assertTrue(bw.getMetadata().getColumnMetadata("ex").bitmap);
+            bw.append(q.all().asResultSet());
+            bw.commit();
+
+            Query<Quote> bq = bw.query();
+            TestUtils.assertEquals(q.head().withKeys().filter("ex", "GR").strict(true).asResultSet().sort().iterator()
+                    , bq.head().withKeys().filter("ex", "GR").strict(true).asResultSet().sort().iterator());
+            TestUtils.assertEquals(q.head().withKeys().filter("ex", "GR").strict(false).asResultSet().sort().iterator()
+                    , bq.head().withKeys().filter("ex", "GR").strict(false).asResultSet().sort().iterator());
+            TestUtils.assertEquals(q.head().withKeys("WTB.L", "AGK.L").filter("ex", "LXE").asResultSet().sort().iterator()
+                    , bq.head().withKeys("WTB.L", "AGK.L").filter("ex", "LXE").asResultSet().sort().iterator());
+        }
+    }
+
     @Test
     public void testLatestBySymbolFilter() throws Exception {
         String expected = "2013-02-10T11:22:30.000Z\tHSBA.L\t0.30903524429086027\t0.10792189935863805\t954532266\t632039501\tFast trading\tLN";
@@ -550,6 +775,45 @@ public class QueryTest extends AbstractTest {
         TestUtils.assertEquals(expected, rs.sort());
     }
 
+    @Test
+    public void testLatestByKeyHeadIndex() throws Exception {
+        JournalKey<Quote> key = new JournalKey<>(Quote.class, "quote-head");
+        JournalMetadata<Quote> metadata = factory.getConfiguration().getMetadata(key);
+        metadata.getColumnMetadata("sym").head = true;
+        TimerCache timerCache = new TimerCache().start();
+
+        try (JournalWriter<Quote> hw = new JournalWriter<>(metadata, key, timerCache)) {
+            hw.append(w);
+            hw.commit();
+            assertHeadIndex(hw);
+
+            try (Journal<Quote> r = new Journal<>(metadata, key, timerCache)) {
+                Assert.assertNotNull(r.getHeadIndex(metadata.getColumnIndex("sym")));
+                assertHeadIndex(r);
+
+                // uncommitted rows are visible to writer only
+                TestUtils.generateQuoteData(hw, 300, Dates.toMillis("2013-06-01T00:00:00.000Z"), 60000);
+                assertHeadIndex(hw);
+                Assert.assertFalse(r.refresh());
+                assertHeadIndex(r);
+
+                hw.commit();
+                Assert.assertTrue(r.refresh());
+                assertHeadIndex(r);
+            }
+
+            TestUtils.generateQuoteData(hw, 300, Dates.toMillis("2013-07-01T00:00:00.000Z"), 60000);
+            hw.commit();
+            long[] latest = rowIDs(hw.query().head().withKeys().asResultSet());
+            hw.rollback(hw.txLog.prevAddress(hw.txLog.headAddress()));
+            Assert.assertFalse(Arrays.equals(latest, rowIDs(hw.query().head().withKeys().asResultSet())));
+            assertHeadIndex(hw);
+
+            hw.rebuildIndexes();
+            assertHeadIndex(hw);
+        }
+    }
+
     @Test
     public void testLatestByKeyValuesFilter() throws Exception {
         String expected = "2013-05-06T01:43:20.000Z\tWTB.L\t0.4191390374952899\t0.601628162260468\t2104114979\t1431449453\tFast trading\tLXE\n" +
@@ -1230,4 +1494,72 @@ public class QueryTest extends AbstractTest {
         TestData.appendQuoteData2(w2);
         return w2.query();
     }
+
+    private static void assertParallel(QueryAllBuilder<Quote> builder, ExecutorService executor) throws JournalException {
+        assertRowIDs(builder.parallel(null).asResultSet(), builder.parallel(executor).asResultSet());
+    }
+
+    private static void assertRowIDs(ResultSet<Quote> expected, ResultSet<Quote> actual) {
+        Assert.assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            Assert.assertEquals(expected.getRowID(i), actual.getRowID(i));
+        }
+    }
+
+    // reads all rows of partitions, returns Accept.BREAK for partition breakIndex and fails on partition failIndex
+    private static ResultSetBuilderFactory<Quote> newPartitionBuilderFactory(final int breakIndex, final int failIndex) {
+        return new ResultSetBuilderFactory<Quote>() {
+            @Override
+            public UnorderedResultSetBuilder<Quote> newBuilder() {
+                return new UnorderedResultSetBuilder<Quote>(null) {
+                    @Override
+                    public Accept accept(Partition<Quote> partition) throws JournalException {
+                        super.accept(partition);
+                        return partition.getPartitionIndex() == breakIndex ? Accept.BREAK : Accept.CONTINUE;
+                    }
+
+                    @Override
+                    public void read(long lo, long hi) throws JournalException {
+                        if (partition.getPartitionIndex() == failIndex) {
+                            throw new JournalException("Cannot read partition %d", failIndex);
+                        }
+                        for (long localRowID = lo; localRowID <= hi; localRowID++) {
+                            result.add(Rows.toRowID(partition.getPartitionIndex(), localRowID));
+                        }
+                    }
+                };
+            }
+        };
+    }
+
+    // queries with interval are answered by walking partitions, interval covering all rows makes them reference results
+    private static void assertHeadIndex(Journal<Quote> journal) throws JournalException {
+        Assert.assertNotNull(journal.getHeadIndex(journal.getMetadata().getColumnIndex("sym")));
+        Interval everything = Dates.interval(0, Dates.toMillis("2100-01-01T00:00:00.000Z"));
+        Query<Quote> q = journal.query();
+
+        long[] latest = rowIDs(q.head().withKeys().asResultSet());
+        Assert.assertTrue(latest.length > 0);
+        Assert.assertArrayEquals(rowIDs(q.head().withKeys().limit(everything).asResultSet()), latest);
+        Assert.assertArrayEquals(rowIDs(q.head().withKeys("BP.L", "AGK.L", "BAD").limit(everything).asResultSet()), rowIDs(q.head().withKeys("BP.L", "AGK.L", "BAD").asResultSet()));
+        Assert.assertArrayEquals(rowIDs(q.head().withKeys().filter("ex", "LXE").limit(everything).asResultSet()), rowIDs(q.head().withKeys().filter("ex", "LXE").asResultSet()));
+
+        long minRowID = latest[latest.length / 2];
+        int count = 0;
+        for (long rowID : latest) {
+            if (rowID > minRowID) {
+                latest[count++] = rowID;
+            }
+        }
+        Assert.assertArrayEquals(Arrays.copyOf(latest, count), rowIDs(q.head().withKeys().limit(minRowID).asResultSet()));
+    }
+
+    private static long[] rowIDs(ResultSet<Quote> rs) {
+        long[] result = new long[rs.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = rs.getRowID(i);
+        }
+        Arrays.sort(result);
+        return result;
+    }
 }
@@ -19,6 +19,7 @@ package com.nfsdb.journal;
 import com.nfsdb.journal.test.model.TestEntity;
 import com.nfsdb.journal.test.tools.AbstractTest;
 import com.nfsdb.journal.test.tools.TestUtils;
+import com.nfsdb.journal.utils.Chars;
 import com.nfsdb.journal.utils.Dates;
 import org.junit.Assert;
 import org.junit.Test;
@@ -68,4 +69,34 @@ public class ResultSetTest extends AbstractTest {
             Assert.assertEquals(e.getDwStr(), rs.getString(i, dwStrIndex));
         }
     }
+
+    @Test
+    public void testReadFlyweightStr() throws Exception {
+        JournalWriter<TestEntity> w = factory.writer(TestEntity.class);
+        TestUtils.generateTestEntityData(w, 10000, Dates.toMillis("2012-05-15T10:55:00.000Z"), 100000);
+
+        ResultSet<TestEntity> rs = w.query().all().asResultSet();
+
+        int symIndex = w.getMetadata().getColumnIndex("sym");
+        int bStrIndex = w.getMetadata().getColumnIndex("bStr");
+        int dwStrIndex = w.getMetadata().getColumnIndex("dwStr");
+
+        for (int i = 0; i < rs.size(); i++) {
+            TestEntity e = rs.read(i);
+            assertCharsEquals(e.getSym(), rs.getFlyweightStr(i, symIndex));
+            assertCharsEquals(e.getBStr(), rs.getFlyweightStr(i, bStrIndex));
+            assertCharsEquals(e.getDwStr(), rs.getFlyweightStr(i, dwStrIndex));
+        }
+    }
+
+    private static void assertCharsEquals(String expected, CharSequence actual) {
+        if (expected == null) {
+            Assert.assertNull(actual);
+        } else {
+            Assert.assertNotNull(actual);
+            Assert.assertEquals(expected, actual.toString());
+            Assert.assertEquals(expected.hashCode(), actual.hashCode());
+            Assert.assertTrue(Chars.equals(expected, actual));
+        }
+    }
 }
@@ -105,6 +105,19 @@ public class SortTest extends AbstractTest {
         }
     }
 
+    @Test
+    public void testSortSymbolSubset() throws Exception {
+        String last = null;
+        int count = 0;
+        for (TestEntity v : q.all().asResultSet().subset(900, 910).sort("sym").bufferedIterator()) {
+            if (count++ > 0) {
+                Assert.assertTrue("Journal records are out of order", compareNullsFirst(last, v.getSym()) <= 0);
+            }
+            last = v.getSym();
+        }
+        Assert.assertEquals(10, count);
+    }
+
     @Test
     public void testSortStrings() throws Exception {
         String last = "";
@@ -113,4 +126,43 @@ public class SortTest extends AbstractTest {
             last = v.getBStr();
         }
     }
+
+    @Test
+    public void testSortMultipleColumns() throws Exception {
+        String lastSym = null;
+        double lastDouble = 0;
+        int count = 0;
+        for (TestEntity v : q.all().asResultSet().sort("sym", "aDouble").bufferedIterator()) {
+            if (count++ > 0) {
+                int c = compareNullsFirst(lastSym, v.getSym());
+                Assert.assertTrue("Journal records are out of order", c < 0 || c == 0 && lastDouble <= v.getADouble());
+            }
+            lastSym = v.getSym();
+            lastDouble = v.getADouble();
+        }
+        Assert.assertEquals(1000, count);
+    }
+
+    @Test
+    public void testSortMultipleColumnsDesc() throws Exception {
+        String lastSym = null;
+        int lastInt = 0;
+        int count = 0;
+        for (TestEntity v : q.all().asResultSet().sort(ResultSet.Order.DESC, "sym", "anInt").bufferedIterator()) {
+            if (count++ > 0) {
+                int c = compareNullsFirst(lastSym, v.getSym());
+                Assert.assertTrue("Journal records are out of order", c > 0 || c == 0 && lastInt >= v.getAnInt());
+            }
+            lastSym = v.getSym();
+            lastInt = v.getAnInt();
+        }
+        Assert.assertEquals(1000, count);
+    }
+
+    private static int compareNullsFirst(String a, String b) {
+        if (a == null) {
+            return b == null ? 0 : -1;
+        }
+        return b == null ? 1 : a.compareTo(b);
+    }
 }
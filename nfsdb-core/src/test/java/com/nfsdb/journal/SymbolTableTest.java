@@ -16,6 +16,7 @@
 
 package com.nfsdb.journal;
 
+import com.nfsdb.journal.column.SymbolDictionary;
 import com.nfsdb.journal.column.SymbolTable;
 import com.nfsdb.journal.exceptions.JournalException;
 import com.nfsdb.journal.exceptions.JournalInvalidSymbolValueException;
@@ -182,6 +183,98 @@ public class SymbolTableTest extends AbstractTest {
         }
     }
 
+    @Test
+    public void testCharSequenceLookup() throws Exception {
+        String data[] = createData();
+        createTestTable(data);
+
+        StringBuilder b = new StringBuilder();
+        try (SymbolTable tab = getReader()) {
+            for (int i = 0; i < data.length; i++) {
+                b.setLength(0);
+                b.append("TEST").append(i);
+                Assert.assertEquals(i, tab.getQuick(b));
+            }
+            b.setLength(0);
+            b.append("TEST").append(data.length);
+            Assert.assertEquals(SymbolTable.VALUE_NOT_FOUND, tab.getQuick(b));
+        }
+    }
+
+    @Test
+    public void testDictionaryGrowth() throws Exception {
+        // table is sized for DATA_SIZE values, dictionary grows up to its bound and the rest is found via hash index
+        String data[] = new String[DATA_SIZE * 50];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = "GROW" + i;
+        }
+        createTestTable(data);
+
+        for (int i = 0; i < data.length; i++) {
+            Assert.assertEquals(i, tab.getQuick(data[i]));
+        }
+
+        try (SymbolTable tab = getReader().preLoad()) {
+            for (int i = data.length - 1; i >= 0; i--) {
+                Assert.assertEquals(i, tab.getQuick(data[i]));
+            }
+        }
+
+        tab.truncate(10);
+        Assert.assertEquals(9, tab.getQuick("GROW9"));
+        Assert.assertEquals(SymbolTable.VALUE_NOT_FOUND, tab.getQuick("GROW10"));
+        Assert.assertEquals(10, tab.put("GROW11"));
+    }
+
+    @Test
+    public void testDictionaryPutIsIdempotentAndBounded() throws Exception {
+        try (SymbolDictionary dictionary = new SymbolDictionary(null, 8)) {
+            int initialCapacity = dictionary.capacity();
+            Assert.assertTrue(dictionary.put(SymbolDictionary.hash("A"), 0));
+            // second thread missing the same value puts it again
+            Assert.assertFalse(dictionary.put(SymbolDictionary.hash("A"), 0));
+            Assert.assertEquals(1, dictionary.size());
+
+            int added = 1;
+            for (int i = 1; i < 1000; i++) {
+                if (dictionary.put(SymbolDictionary.hash("V" + i), i)) {
+                    added++;
+                }
+            }
+            Assert.assertTrue(added < 1000);
+            Assert.assertEquals(added, dictionary.size());
+            Assert.assertTrue(dictionary.capacity() > initialCapacity);
+
+            dictionary.clear();
+            Assert.assertEquals(0, dictionary.size());
+            Assert.assertEquals(initialCapacity, dictionary.capacity());
+        }
+    }
+
+    @Test
+    public void testValueCache() throws Exception {
+        String data[] = new String[DATA_SIZE * 2];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = "CACHE" + i;
+        }
+        createTestTable(data);
+
+        try (SymbolTable tab = getReader()) {
+            // values of keys within capacity are cached, the rest are read every time
+            Assert.assertSame(tab.value(0), tab.value(0));
+            Assert.assertSame(tab.value(DATA_SIZE - 1), tab.value(DATA_SIZE - 1));
+            Assert.assertNotSame(tab.value(DATA_SIZE), tab.value(DATA_SIZE));
+            for (int i = 0; i < data.length; i++) {
+                Assert.assertEquals(data[i], tab.value(i));
+            }
+        }
+
+        Assert.assertEquals("CACHE5", tab.value(5));
+        tab.truncate(5);
+        Assert.assertEquals(5, tab.put("OTHER"));
+        Assert.assertEquals("OTHER", tab.value(5));
+    }
+
     private String[] createData() {
         String data[] = new String[DATA_SIZE];
         {
@@ -50,6 +50,7 @@ public class TxLogTest extends AbstractTest {
         tx.symbolTableIndexPointers = new long[]{2, 15, 18};
         tx.indexPointers = new long[]{36, 48};
         tx.lagIndexPointers = new long[]{55, 67};
+        tx.headIndexPointers = new long[]{72};
 
         txLog.create(tx);
 
@@ -73,12 +74,44 @@ public class TxLogTest extends AbstractTest {
         Assert.assertArrayEquals(new long[]{2, 15, 18}, tx.symbolTableIndexPointers);
         Assert.assertArrayEquals(new long[]{36, 48}, tx.indexPointers);
         Assert.assertArrayEquals(new long[]{55, 67}, tx.lagIndexPointers);
+        Assert.assertArrayEquals(new long[]{72}, tx1.headIndexPointers);
 
         Assert.assertFalse(r.hasNext());
         txLog.close();
         r.close();
     }
 
+    @Test
+    public void testTxIsNotOverwrittenByNext() throws Exception {
+        File dir = temp.newFolder();
+        TxLog txLog = new TxLog(dir, JournalMode.APPEND);
+
+        Tx tx = new Tx();
+        tx.lagName = "temp.1400000000000.2f4c8b2e-3c1a-4d1e-9a55-0e7e0e1c1f3a";
+        tx.symbolTableSizes = new int[]{10};
+        tx.symbolTableIndexPointers = new long[]{2};
+        tx.indexPointers = new long[]{36, 48};
+        tx.lagIndexPointers = new long[]{55, 67};
+        txLog.create(tx);
+        long address = txLog.headAddress();
+
+        tx.lagName = null;
+        tx.headIndexPointers = new long[]{72};
+        txLog.create(tx);
+
+        Tx tx1 = new Tx();
+        txLog.get(address, tx1);
+        Assert.assertEquals("temp.1400000000000.2f4c8b2e-3c1a-4d1e-9a55-0e7e0e1c1f3a", tx1.lagName);
+        Assert.assertArrayEquals(new long[]{36, 48}, tx1.indexPointers);
+        Assert.assertArrayEquals(new long[]{55, 67}, tx1.lagIndexPointers);
+        Assert.assertEquals(0, tx1.headIndexPointers.length);
+
+        txLog.head(tx1);
+        Assert.assertNull(tx1.lagName);
+        Assert.assertArrayEquals(new long[]{72}, tx1.headIndexPointers);
+        txLog.close();
+    }
+
     @Test
     public void testTxLogWalk() throws Exception {
         JournalWriter<Quote> writer = factory.writer(Quote.class);
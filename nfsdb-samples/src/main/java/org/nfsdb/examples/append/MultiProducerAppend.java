@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2014. Vlad Ilyushchenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.nfsdb.examples.append;
+
+import com.nfsdb.journal.JournalKey;
+import com.nfsdb.journal.JournalWriter;
+import com.nfsdb.journal.PartitionType;
+import com.nfsdb.journal.concurrent.JournalAppender;
+import com.nfsdb.journal.exceptions.JournalException;
+import com.nfsdb.journal.factory.JournalFactory;
+import com.nfsdb.journal.tx.TxFuture;
+import com.nfsdb.journal.utils.Files;
+import org.nfsdb.examples.model.Quote;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.*;
+
+public class MultiProducerAppend {
+
+    /**
+     * Four threads append 500,000 quotes each to the same journal in batches of 100 quotes.
+     * Producers publish batches to JournalAppender, which owns the writer, instead of locking the writer themselves.
+     *
+     * @param args factory directory
+     * @throws JournalException
+     */
+    public static void main(String[] args) throws JournalException, InterruptedException, ExecutionException {
+
+        if (args.length != 1) {
+            System.out.println("Usage: " + MultiProducerAppend.class.getName() + " <path>");
+            System.exit(1);
+        }
+
+        final int producerCount = 4;
+        final int batchCount = 5000;
+        final int batchSize = 100;
+
+        try (JournalFactory factory = new JournalFactory(args[0])) {
+
+            Files.delete(new File(factory.getConfiguration().getJournalBase(), "quote-mp"));
+
+            // producers interleave, so journal cannot enforce timestamp order
+            try (JournalWriter<Quote> writer = factory.writer(new JournalKey<>(Quote.class, "quote-mp", PartitionType.NONE, false))) {
+
+                final JournalAppender<Quote> appender = new JournalAppender<>(writer, 64 * 1024, false);
+                appender.start();
+
+                ExecutorService service = Executors.newFixedThreadPool(producerCount);
+                List<Future<Boolean>> results = new ArrayList<>();
+                final String symbols[] = {"AGK.L", "BP.L", "TLW.L", "ABF.L", "LLOY.L", "BT-A.L", "WTB.L", "RRS.L", "ADM.L", "GKN.L", "HSBA.L"};
+
+                long t = System.nanoTime();
+                for (int p = 0; p < producerCount; p++) {
+                    results.add(service.submit(new Callable<Boolean>() {
+                        @Override
+                        public Boolean call() throws Exception {
+                            Random r = new Random();
+                            TxFuture last = null;
+                            for (int i = 0; i < batchCount; i++) {
+                                // objects are appended by reference, each batch needs its own instances
+                                List<Quote> batch = new ArrayList<>(batchSize);
+                                for (int k = 0; k < batchSize; k++) {
+                                    Quote q = new Quote();
+                                    q.setSym(symbols[Math.abs(r.nextInt() % (symbols.length - 1))]);
+                                    q.setAsk(Math.abs(r.nextDouble()));
+                                    q.setBid(Math.abs(r.nextDouble()));
+                                    q.setAskSize(Math.abs(r.nextInt() % 10000));
+                                    q.setBidSize(Math.abs(r.nextInt() % 10000));
+                                    q.setEx("LXE");
+                                    q.setMode("Fast trading");
+                                    q.setTimestamp(System.currentTimeMillis());
+                                    batch.add(q);
+                                }
+                                last = appender.append(batch);
+                            }
+                            // batches are committed in order, so last future covers all batches of this producer
+                            return last == null || last.waitFor(30, TimeUnit.SECONDS);
+                        }
+                    }));
+                }
+
+                boolean ok = true;
+                for (Future<Boolean> f : results) {
+                    ok &= f.get();
+                }
+                appender.halt();
+                service.shutdown();
+
+                System.out.println("Appended " + writer.size() + " quotes from " + producerCount + " threads in "
+                        + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - t) + "ms. All committed: " + ok);
+            }
+        }
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2014. Vlad Ilyushchenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.nfsdb.examples.reporting;
+
+import com.nfsdb.journal.Journal;
+import com.nfsdb.journal.JournalWriter;
+import com.nfsdb.journal.Partition;
+import com.nfsdb.journal.exceptions.JournalException;
+import com.nfsdb.journal.factory.JournalFactory;
+import com.nfsdb.journal.utils.Dates;
+import com.nfsdb.journal.utils.Files;
+import org.joda.time.DateTimeField;
+import org.joda.time.chrono.ISOChronology;
+import org.nfsdb.examples.model.Quote;
+import org.nfsdb.examples.support.QuoteGenerator;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Same report as DailyPriceAverageExample, but instead of materialising Quote objects this example
+ * copies column ranges into primitive arrays and aggregates them in tight loops.
+ */
+public class DailyPriceAverageColumnarExample {
+
+    private static final int BATCH_SIZE = 64 * 1024;
+
+    public static void main(String[] args) throws JournalException {
+        if (args.length != 1) {
+            System.out.println("Usage: " + DailyPriceAverageColumnarExample.class.getName() + " <path>");
+            System.exit(1);
+        }
+        String journalLocation = args[0];
+
+        try (JournalFactory factory = new JournalFactory(journalLocation)) {
+
+            // delete existing quote journal
+            Files.delete(new File(factory.getConfiguration().getJournalBase(), "quote"));
+
+            int count = 10000000;
+            long t = System.nanoTime();
+
+            // get some data in :)
+            try (JournalWriter<Quote> w = factory.writer(Quote.class)) {
+                QuoteGenerator.generateQuoteData(w, count, 90);
+            }
+
+            System.out.println("Created " + count + " records in " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - t) + "ms");
+
+            try (Journal<Quote> journal = factory.reader(Quote.class)) {
+                t = System.nanoTime();
+                final String symbol = "BP.L";
+                final int symbolKey = journal.getSymbolTable("sym").get(symbol);
+                final int symIndex = journal.getMetadata().getColumnIndex("sym");
+                final int askIndex = journal.getMetadata().getColumnIndex("ask");
+                final int timestampIndex = journal.getMetadata().getColumnIndex("timestamp");
+                final DateTimeField dayOfYear = ISOChronology.getInstanceUTC().dayOfYear();
+
+                // reusable batch buffers
+                int[] syms = new int[BATCH_SIZE];
+                double[] asks = new double[BATCH_SIZE];
+                long[] timestamps = new long[BATCH_SIZE];
+
+                // data is chronological, so days with quotes are consecutive
+                double[] daySum = new double[367];
+                int[] dayCount = new int[367];
+                count = 0;
+
+                for (int i = 0, n = journal.getPartitionCount(); i < n; i++) {
+                    Partition<Quote> partition = journal.getPartition(i, true);
+                    long size = partition.size();
+                    for (long lo = 0; lo < size; lo += BATCH_SIZE) {
+                        long hi = Math.min(lo + BATCH_SIZE, size) - 1;
+                        int len = partition.readColumn(symIndex, lo, hi, syms);
+                        partition.readColumn(askIndex, lo, hi, asks);
+                        partition.readColumn(timestampIndex, lo, hi, timestamps);
+
+                        for (int k = 0; k < len; k++) {
+                            if (syms[k] == symbolKey) {
+                                int day = dayOfYear.get(timestamps[k]);
+                                daySum[day] += asks[k];
+                                dayCount[day]++;
+                                count++;
+                            }
+                        }
+                    }
+                }
+
+                for (int day = 1; day < dayCount.length; day++) {
+                    if (dayCount[day] > 0) {
+                        System.out.println(symbol + "\t" + Dates.utc().withDayOfYear(day).withTimeAtStartOfDay() + "\t" + daySum[day] / dayCount[day]);
+                    }
+                }
+                System.out.println("Aggregated " + count + " records in " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - t) + "ms");
+            }
+        }
+    }
+}
@@ -18,16 +18,14 @@ package org.nfsdb.examples.reporting;
 
 import com.nfsdb.journal.Journal;
 import com.nfsdb.journal.JournalWriter;
+import com.nfsdb.journal.SampleResult;
 import com.nfsdb.journal.exceptions.JournalException;
 import com.nfsdb.journal.factory.JournalFactory;
 import com.nfsdb.journal.printer.JournalPrinter;
 import com.nfsdb.journal.printer.appender.StdOutAppender;
-import com.nfsdb.journal.query.api.QueryAllBuilder;
 import com.nfsdb.journal.utils.Dates;
 import com.nfsdb.journal.utils.Files;
 import org.joda.time.DateTime;
-import org.joda.time.DateTimeField;
-import org.joda.time.chrono.ISOChronology;
 import org.nfsdb.examples.model.Quote;
 import org.nfsdb.examples.support.QuoteGenerator;
 
@@ -59,18 +57,11 @@ public class DailyPriceAverageExample {
 
             System.out.println("Created " + count + " records in " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - t) + "ms");
 
-            try (Journal<Quote> journal = factory.reader(Quote.class).select("ask", "timestamp")) {
-                count = 0;
+            try (Journal<Quote> journal = factory.reader(Quote.class)) {
                 t = System.nanoTime();
                 final String symbol = "BP.L";
-                // create query builder to search for all records with key (sym) = "BP.L"
-                final QueryAllBuilder<Quote> builder = journal.query().all().withKeys(symbol);
-                final DateTimeField dayOfYear = ISOChronology.getInstanceUTC().dayOfYear();
-
-                // state
-                int previousDay = -1;
-                double avgSum = 0;
-                int avgCount = 0;
+                // average ask of BP.L for each day, columns are aggregated without reading Quote objects
+                SampleResult result = journal.query().sample(TimeUnit.DAYS.toMillis(1)).by("sym", symbol).count().avg("ask").asResult();
 
                 try (JournalPrinter printer = new JournalPrinter()) {
 
@@ -86,27 +77,11 @@ public class DailyPriceAverageExample {
                     // print out header
                     printer.header();
 
-                    // out result set is all chronologically ordered quotes for symbol BP.L
-                    // so this loop leverages data order by printing out result when
-                    // day of year changes
-                    for (Quote q : builder.asResultSet().bufferedIterator()) {
-                        int thisDay = dayOfYear.get(q.getTimestamp());
-                        if (thisDay != previousDay) {
-                            if (previousDay != -1) {
-                                printer.out(symbol, Dates.utc().withDayOfYear(previousDay).withHourOfDay(0).withMinuteOfHour(0).withSecondOfMinute(0).withMillisOfSecond(0), avgSum / avgCount);
-                            }
-                            avgCount = 1;
-                            avgSum = q.getTimestamp();
-                            previousDay = thisDay;
-                        } else {
-                            avgCount++;
-                            avgSum += q.getTimestamp();
-                        }
-                        count++;
-                    }
-
-                    if (previousDay != -1) {
-                        printer.out(symbol, Dates.utc().withDayOfYear(previousDay).withHourOfDay(0).withMinuteOfHour(0).withSecondOfMinute(0).withMillisOfSecond(0), avgSum / avgCount);
+                    // each row of result is one day of BP.L quotes, aggregates are numbered in order they were added
+                    count = 0;
+                    for (int i = 0; i < result.size(); i++) {
+                        printer.out(result.getSymbol(i), Dates.utc(result.getTimestamp(i)), result.getDouble(i, 1));
+                        count += result.getLong(i, 0);
                     }
                 }
                 System.out.println("Read " + count + " records in " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - t) + "ms");
@@ -19,6 +19,7 @@ package com.nfsdb.thrift;
 import com.nfsdb.journal.Journal;
 import com.nfsdb.journal.JournalMode;
 import com.nfsdb.journal.JournalWriter;
+import com.nfsdb.journal.Partition;
 import com.nfsdb.journal.collections.LongArrayList;
 import com.nfsdb.journal.exceptions.JournalException;
 import com.nfsdb.journal.index.KVIndex;
@@ -27,6 +28,7 @@ import com.nfsdb.journal.query.api.QueryAllBuilder;
 import com.nfsdb.journal.test.tools.JournalTestFactory;
 import com.nfsdb.journal.utils.Dates;
 import com.nfsdb.thrift.model.Quote;
+import com.nfsdb.thrift.model.Trade2;
 import org.joda.time.Interval;
 import org.junit.Assert;
 import org.junit.BeforeClass;
@@ -34,7 +36,11 @@ import org.junit.Rule;
 import org.junit.Test;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 
 public class PerformanceTest {
@@ -91,6 +97,111 @@ public class PerformanceTest {
         }
     }
 
+    @Test
+    public void testWideCodecAppendAndReadSpeed() throws JournalException {
+        int size = TEST_DATA_SIZE / 10;
+        String symbols[] = {"AGK.L", "BP.L", "TLW.L", "ABF.L", "LLOY.L", "BT-A.L", "WTB.L", "RRS.L", "ADM.L", "GKN.L", "HSBA.L"};
+        Trade2 trades[] = new Trade2[size];
+        long timestamp = Dates.toMillis("2013-10-05T10:00:00.000Z");
+        for (int i = 0; i < size; i++) {
+            trades[i] = new Trade2()
+                    .setTimestamp(timestamp + i * 1000L)
+                    .setSym(symbols[i % symbols.length])
+                    .setPrice(i * 0.04)
+                    .setSize(i)
+                    .setStop(i + 1)
+                    .setCond("X")
+                    .setEx("LXE")
+                    .setStop1(i + 2)
+                    .setStop2(i + 3)
+                    .setStop3(i + 4);
+        }
+
+        for (String codegen : new String[]{"false", "true"}) {
+            System.setProperty(Journal.CODEGEN_PROPERTY, codegen);
+            try {
+                JournalWriter<Trade2> w = factory.writer(Trade2.class, "trade-codegen-" + codegen, size);
+                long t = 0;
+                int count = 5;
+                for (int i = -3; i < count; i++) {
+                    w.truncate();
+                    if (i == 0) {
+                        t = System.nanoTime();
+                    }
+                    for (int k = 0; k < size; k++) {
+                        w.append(trades[k]);
+                    }
+                    w.commit();
+                }
+                LOGGER.info("codegen=" + codegen + " append (100K): " + TimeUnit.NANOSECONDS.toMillis((System.nanoTime() - t) / count) + "ms");
+
+                Trade2 trade = new Trade2();
+                for (int i = -5; i < count; i++) {
+                    if (i == 0) {
+                        t = System.nanoTime();
+                    }
+                    Partition<Trade2> p = w.getPartition(0, true);
+                    for (long k = 0, n = p.size(); k < n; k++) {
+                        p.read(k, trade);
+                    }
+                }
+                LOGGER.info("codegen=" + codegen + " read (100K): " + TimeUnit.NANOSECONDS.toMillis((System.nanoTime() - t) / count) + "ms");
+            } finally {
+                System.clearProperty(Journal.CODEGEN_PROPERTY);
+            }
+        }
+    }
+
+    @Test
+    public void testWideParallelAppendSpeed() throws JournalException {
+        int size = TEST_DATA_SIZE / 10;
+        String symbols[] = {"AGK.L", "BP.L", "TLW.L", "ABF.L", "LLOY.L", "BT-A.L", "WTB.L", "RRS.L", "ADM.L", "GKN.L", "HSBA.L"};
+        List<Trade2> trades = new ArrayList<>(size);
+        long timestamp = Dates.toMillis("2013-10-05T10:00:00.000Z");
+        for (int i = 0; i < size; i++) {
+            trades.add(new Trade2()
+                    .setTimestamp(timestamp + i * 1000L)
+                    .setSym(symbols[i % symbols.length])
+                    .setPrice(i * 0.04)
+                    .setSize(i)
+                    .setStop(i + 1)
+                    .setCond("X")
+                    .setEx("LXE")
+                    .setStop1(i + 2)
+                    .setStop2(i + 3)
+                    .setStop3(i + 4));
+        }
+
+        int count = 5;
+        JournalWriter<Trade2> w = factory.writer(Trade2.class, "trade-sequential", size);
+        long t = 0;
+        for (int i = -3; i < count; i++) {
+            w.truncate();
+            if (i == 0) {
+                t = System.nanoTime();
+            }
+            w.append(trades);
+            w.commit();
+        }
+        LOGGER.info("sequential append (100K): " + TimeUnit.NANOSECONDS.toMillis((System.nanoTime() - t) / count) + "ms");
+
+        ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        try {
+            w = factory.writer(Trade2.class, "trade-parallel", size);
+            for (int i = -3; i < count; i++) {
+                w.truncate();
+                if (i == 0) {
+                    t = System.nanoTime();
+                }
+                w.append(trades, executor);
+                w.commit();
+            }
+            LOGGER.info("parallel append (100K): " + TimeUnit.NANOSECONDS.toMillis((System.nanoTime() - t) / count) + "ms");
+        } finally {
+            executor.shutdown();
+        }
+    }
+
     @Test
     public void testIndexAppendAndReadSpeed() throws JournalException {
         File indexFile = new File(factory.getConfiguration().getJournalBase(), "index-test");